@@ -0,0 +1,33 @@
+package com.amigoscode.changes;
+
+import java.nio.charset.StandardCharsets;
+
+// One change, encoded once for every format so that fanning it out to thousands of
+// subscribers only copies bytes. body is the JSON object without its id, the id is
+// spliced in front of it.
+record ChangeFrame(long id, byte[] ndjson, byte[] sse) {
+
+    static ChangeFrame of(long id, byte[] body) {
+        byte[] prefix = ("{\"id\":" + id + ",").getBytes(StandardCharsets.US_ASCII);
+        byte[] json = new byte[prefix.length + body.length - 1];
+        System.arraycopy(prefix, 0, json, 0, prefix.length);
+        System.arraycopy(body, 1, json, prefix.length, body.length - 1);
+
+        byte[] ndjson = new byte[json.length + 1];
+        System.arraycopy(json, 0, ndjson, 0, json.length);
+        ndjson[json.length] = '\n';
+
+        byte[] sseId = ("id: " + id + "\ndata: ").getBytes(StandardCharsets.US_ASCII);
+        byte[] sse = new byte[sseId.length + json.length + 2];
+        System.arraycopy(sseId, 0, sse, 0, sseId.length);
+        System.arraycopy(json, 0, sse, sseId.length, json.length);
+        sse[sse.length - 2] = '\n';
+        sse[sse.length - 1] = '\n';
+        return new ChangeFrame(id, ndjson, sse);
+    }
+
+    // tells a subscriber that changes up to id were lost and it should reload the list
+    static ChangeFrame reset(long id) {
+        return of(id, "{\"type\":\"RESET\"}".getBytes(StandardCharsets.US_ASCII));
+    }
+}
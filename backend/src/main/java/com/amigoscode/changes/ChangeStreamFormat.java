@@ -0,0 +1,39 @@
+package com.amigoscode.changes;
+
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+
+public enum ChangeStreamFormat {
+
+    // reconnecting EventSources send the last id back as Last-Event-ID
+    SSE(MediaType.TEXT_EVENT_STREAM, "retry: 1000\n\n", ":\n\n"),
+    // one JSON object per line, blank lines are heartbeats
+    NDJSON(MediaType.APPLICATION_NDJSON, "", "\n");
+
+    private final MediaType mediaType;
+    private final byte[] preamble;
+    private final byte[] heartbeat;
+
+    ChangeStreamFormat(MediaType mediaType, String preamble, String heartbeat) {
+        this.mediaType = mediaType;
+        this.preamble = preamble.getBytes(StandardCharsets.US_ASCII);
+        this.heartbeat = heartbeat.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    byte[] preamble() {
+        return preamble;
+    }
+
+    byte[] heartbeat() {
+        return heartbeat;
+    }
+
+    byte[] encode(ChangeFrame frame) {
+        return this == SSE ? frame.sse() : frame.ndjson();
+    }
+}
@@ -0,0 +1,42 @@
+package com.amigoscode.changes;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class ChangeSubscriber {
+
+    static final int IDLE = 0;
+    static final int WRITING = 1;
+    // the write outlasted the write timeout, the stream gave up on it and its sender
+    static final int WRITTEN_OFF = 2;
+
+    interface Connection {
+
+        void write(byte[] bytes) throws IOException;
+
+        void close(Throwable error);
+    }
+
+    final ChangeStreamFormat format;
+    final Connection connection;
+    // set while a sender drains it, so each subscriber is written by one thread at a time
+    final AtomicBoolean scheduled = new AtomicBoolean();
+    // written first, then cleared
+    volatile byte[] pending;
+    // id of the last frame written
+    volatile long cursor;
+    volatile long lastWriteNanos;
+    // set before writeState turns WRITING, so a WRITING state never pairs with an older start
+    volatile long writeStartedNanos;
+    final AtomicInteger writeState = new AtomicInteger(IDLE);
+    volatile boolean closed;
+
+    ChangeSubscriber(ChangeStreamFormat format, Connection connection, long cursor, byte[] pending) {
+        this.format = format;
+        this.connection = connection;
+        this.cursor = cursor;
+        this.pending = pending;
+        this.lastWriteNanos = System.nanoTime();
+    }
+}
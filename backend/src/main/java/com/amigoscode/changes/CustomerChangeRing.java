@@ -0,0 +1,50 @@
+package com.amigoscode.changes;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongFunction;
+
+// Fixed-size ring of encoded change frames shared by all subscribers. Writers append
+// under a short lock and never wait for readers; readers walk it without locking and
+// find out they were lapped when a slot already holds a newer frame.
+final class CustomerChangeRing {
+
+    private final AtomicReferenceArray<ChangeFrame> frames;
+    private final int mask;
+    private final long first;
+    private volatile long head;
+
+    // ids start at firstId, the ring holds capacity (a power of two) frames
+    CustomerChangeRing(int capacity, long firstId) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two, got [%s]".formatted(capacity));
+        }
+        this.frames = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.first = firstId;
+        this.head = firstId - 1;
+    }
+
+    synchronized long append(LongFunction<ChangeFrame> encoder) {
+        long id = head + 1;
+        frames.set((int) (id & mask), encoder.apply(id));
+        head = id;
+        return id;
+    }
+
+    // id of the newest frame, first id - 1 while empty
+    long head() {
+        return head;
+    }
+
+    // null once the frame was overwritten
+    ChangeFrame get(long id) {
+        ChangeFrame frame = frames.get((int) (id & mask));
+        return frame != null && frame.id() == id ? frame : null;
+    }
+
+    // whether a reader that has seen everything up to id can still continue from here
+    boolean canResumeAfter(long id) {
+        long head = this.head;
+        return id <= head && id >= Math.max(first - 1, head - frames.length());
+    }
+}
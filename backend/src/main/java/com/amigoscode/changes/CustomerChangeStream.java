@@ -0,0 +1,349 @@
+package com.amigoscode.changes;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerChangeEvent;
+import com.amigoscode.exception.ServiceUnavailableException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Live feed of customer changes for GET /api/v1/customer/changes. Each CustomerChangeEvent
+// is encoded once into a shared CustomerChangeRing; writers never wait for subscribers.
+// One dispatcher thread hands subscribers with something to send to a small pool of
+// senders, at most one task per subscriber, so the request threads are free and a client
+// that stopped reading only holds up its own sender. A subscriber the ring laps is
+// dropped; it reconnects with Last-Event-ID and continues, or gets a RESET when its id is
+// no longer buffered. Ids start at the boot time in microseconds, so ids of an earlier
+// process always fall behind the ring.
+//
+// Writes block, and a client that stopped reading holds its sender until the container's
+// socket write timeout. A write still running after customer.changes.write-timeout
+// drops the subscriber and the pool gets a thread in place of the stuck one, so more
+// stuck clients than sender threads do not stall everyone else. The stuck thread
+// closes the connection and leaves the pool once its write returns.
+//
+// Changes made through this instance only. customer.changes.subscribers,
+// customer.changes.published and customer.changes.dropped.
+@Component
+public class CustomerChangeStream {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerChangeStream.class);
+
+    // caps a single write, so a subscriber far behind catches up in several
+    private static final int MAX_WRITE_BYTES = 64 * 1024;
+
+    record CustomerChange(CustomerChangeEvent.Type type, Long customerId, Customer customer) {
+    }
+
+    private final CustomerChangeStreamProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Executor senders;
+    private final CustomerChangeRing ring;
+    private final Set<ChangeSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Semaphore wakeUp = new Semaphore(0);
+    private final Counter published;
+    private final Counter dropped;
+    private volatile Thread dispatcher;
+
+    @Autowired
+    public CustomerChangeStream(CustomerChangeStreamProperties properties,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry) {
+        this(properties, objectMapper, meterRegistry, Executors.newFixedThreadPool(properties.senderThreads(), r -> {
+            Thread thread = new Thread(r, "customer-changes-sender");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    CustomerChangeStream(CustomerChangeStreamProperties properties,
+                         ObjectMapper objectMapper,
+                         MeterRegistry meterRegistry,
+                         Executor senders) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.senders = senders;
+        this.ring = new CustomerChangeRing(properties.bufferSize(), System.currentTimeMillis() * 1_000);
+        this.published = Counter.builder("customer.changes.published")
+                .description("Customer changes appended to the change stream")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("customer.changes.dropped")
+                .description("Change stream subscribers dropped for falling behind the buffer or a stuck write")
+                .register(meterRegistry);
+        Gauge.builder("customer.changes.subscribers", subscribers, Set::size)
+                .description("Open change stream subscriptions")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread thread = new Thread(this::run, "customer-changes-dispatcher");
+        thread.setDaemon(true);
+        dispatcher = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        Thread thread = dispatcher;
+        dispatcher = null;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        subscribers.forEach(subscriber -> close(subscriber, null));
+        if (senders instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+    }
+
+    @EventListener
+    public void onCustomerChange(CustomerChangeEvent event) {
+        Customer customer = event.after() != null ? event.after() : event.before();
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(new CustomerChange(event.type(), event.customerId(), customer));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        ring.append(id -> ChangeFrame.of(id, body));
+        published.increment();
+        if (wakeUp.availablePermits() == 0) {
+            wakeUp.release();
+        }
+    }
+
+    public ResponseBodyEmitter subscribe(ChangeStreamFormat format, String lastEventId) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(properties.timeout().toMillis());
+        ChangeSubscriber subscriber = subscribe(format, lastEventId, new ChangeSubscriber.Connection() {
+            @Override
+            public void write(byte[] bytes) throws IOException {
+                emitter.send(bytes, format.mediaType());
+            }
+
+            @Override
+            public void close(Throwable error) {
+                if (error != null) {
+                    emitter.completeWithError(error);
+                } else {
+                    emitter.complete();
+                }
+            }
+        });
+        emitter.onCompletion(() -> unregister(subscriber));
+        emitter.onError(error -> unregister(subscriber));
+        return emitter;
+    }
+
+    // resumes after lastEventId while the ring still holds what came next, starts with a
+    // RESET when it doesn't and at the newest change without one
+    ChangeSubscriber subscribe(ChangeStreamFormat format, String lastEventId, ChangeSubscriber.Connection connection) {
+        if (subscribers.size() >= properties.maxSubscribers()) {
+            throw new ServiceUnavailableException("Too many change stream subscribers");
+        }
+        long head = ring.head();
+        long cursor = head;
+        byte[] pending = format.preamble();
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            long lastId = parseId(lastEventId);
+            if (ring.canResumeAfter(lastId)) {
+                cursor = lastId;
+            } else {
+                pending = concat(pending, format.encode(ChangeFrame.reset(head)));
+            }
+        }
+        ChangeSubscriber subscriber = new ChangeSubscriber(format, connection, cursor, pending);
+        subscribers.add(subscriber);
+        schedule(subscriber);
+        return subscriber;
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    private void run() {
+        // often enough to send heartbeats and to notice stuck writes in time
+        long pollNanos = Math.min(properties.heartbeat().toNanos(), properties.writeTimeout().toNanos());
+        while (dispatcher == Thread.currentThread()) {
+            try {
+                wakeUp.tryAcquire(pollNanos, TimeUnit.NANOSECONDS);
+                wakeUp.drainPermits();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                dispatch();
+            } catch (RuntimeException e) {
+                log.warn("Failed to dispatch customer changes", e);
+            }
+        }
+    }
+
+    // one pass over all subscribers, writing off stuck writes and scheduling those with
+    // changes or a heartbeat due
+    void dispatch() {
+        long head = ring.head();
+        long now = System.nanoTime();
+        long heartbeatDue = now - properties.heartbeat().toNanos();
+        long writeTimeoutNanos = properties.writeTimeout().toNanos();
+        for (ChangeSubscriber subscriber : subscribers) {
+            if (subscriber.writeState.get() == ChangeSubscriber.WRITING
+                    && now - subscriber.writeStartedNanos > writeTimeoutNanos
+                    && subscriber.writeState.compareAndSet(ChangeSubscriber.WRITING, ChangeSubscriber.WRITTEN_OFF)) {
+                writeOff(subscriber);
+            } else if (subscriber.cursor < head || subscriber.lastWriteNanos - heartbeatDue <= 0) {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    private void schedule(ChangeSubscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(ChangeSubscriber subscriber) {
+        try {
+            boolean wrote = false;
+            while (!subscriber.closed) {
+                byte[] bytes = nextWrite(subscriber, !wrote);
+                if (bytes == null) {
+                    break;
+                }
+                subscriber.writeStartedNanos = System.nanoTime();
+                subscriber.writeState.set(ChangeSubscriber.WRITING);
+                try {
+                    subscriber.connection.write(bytes);
+                } finally {
+                    if (!subscriber.writeState.compareAndSet(ChangeSubscriber.WRITING, ChangeSubscriber.IDLE)) {
+                        writtenOffReturned(subscriber);
+                    }
+                }
+                subscriber.lastWriteNanos = System.nanoTime();
+                wrote = true;
+            }
+        } catch (IOException | RuntimeException e) {
+            close(subscriber, e);
+        } finally {
+            subscriber.scheduled.set(false);
+        }
+        // a change appended after the last look may have found it still scheduled
+        if (!subscriber.closed && subscriber.cursor < ring.head()) {
+            schedule(subscriber);
+        }
+    }
+
+    // what to write next, advancing the cursor past it; null when there is nothing
+    private byte[] nextWrite(ChangeSubscriber subscriber, boolean heartbeat) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] pending = subscriber.pending;
+        if (pending != null) {
+            subscriber.pending = null;
+            out.writeBytes(pending);
+        }
+        long head = ring.head();
+        long cursor = subscriber.cursor;
+        while (cursor < head && out.size() < MAX_WRITE_BYTES) {
+            ChangeFrame frame = ring.get(cursor + 1);
+            if (frame == null) {
+                dropped.increment();
+                close(subscriber, null);
+                return null;
+            }
+            out.writeBytes(subscriber.format.encode(frame));
+            cursor++;
+        }
+        subscriber.cursor = cursor;
+        if (heartbeat && out.size() == 0 && System.nanoTime() - subscriber.lastWriteNanos >= properties.heartbeat().toNanos()) {
+            out.writeBytes(subscriber.format.heartbeat());
+        }
+        return out.size() == 0 ? null : out.toByteArray();
+    }
+
+    // Closing the connection here would wait for the stuck write, which holds the emitter's
+    // monitor, so the dispatcher only unregisters and lends the pool a thread meanwhile
+    private void writeOff(ChangeSubscriber subscriber) {
+        log.debug("Dropping change stream subscriber after a write stuck for over {}", properties.writeTimeout());
+        unregister(subscriber);
+        dropped.increment();
+        if (senders instanceof ThreadPoolExecutor pool) {
+            synchronized (pool) {
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() + 1);
+                pool.setCorePoolSize(pool.getCorePoolSize() + 1);
+            }
+        }
+    }
+
+    // on the stuck sender, once the written off write finally returned
+    private void writtenOffReturned(ChangeSubscriber subscriber) {
+        if (senders instanceof ThreadPoolExecutor pool) {
+            synchronized (pool) {
+                pool.setCorePoolSize(pool.getCorePoolSize() - 1);
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() - 1);
+            }
+        }
+        closeConnection(subscriber, new IOException("Change stream write took longer than " + properties.writeTimeout()));
+    }
+
+    private void close(ChangeSubscriber subscriber, Throwable error) {
+        if (subscriber.closed) {
+            return;
+        }
+        subscriber.closed = true;
+        unregister(subscriber);
+        closeConnection(subscriber, error);
+    }
+
+    private static void closeConnection(ChangeSubscriber subscriber, Throwable error) {
+        try {
+            subscriber.connection.close(error);
+        } catch (RuntimeException e) {
+            log.debug("Failed to close change stream subscriber", e);
+        }
+    }
+
+    private void unregister(ChangeSubscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.remove(subscriber);
+    }
+
+    private static long parseId(String lastEventId) {
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            // not one of ours, the RESET makes the client start over
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] bytes = new byte[first.length + second.length];
+        System.arraycopy(first, 0, bytes, 0, first.length);
+        System.arraycopy(second, 0, bytes, first.length, second.length);
+        return bytes;
+    }
+}
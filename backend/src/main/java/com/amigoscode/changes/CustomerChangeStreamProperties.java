@@ -0,0 +1,17 @@
+package com.amigoscode.changes;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties("customer.changes")
+public record CustomerChangeStreamProperties(
+        @DefaultValue("65536") int bufferSize,
+        @DefaultValue("10000") int maxSubscribers,
+        @DefaultValue("8") int senderThreads,
+        @DefaultValue("15s") Duration heartbeat,
+        @DefaultValue("30m") Duration timeout,
+        @DefaultValue("10s") Duration writeTimeout
+) {
+}
@@ -0,0 +1,100 @@
+package com.amigoscode.collection;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bloom filter with 4-bit counters, sixteen to a long, so entries can be removed
+// again. Callers pass a 64-bit hash, the probe positions come from double hashing.
+// A counter that reaches 15 sticks there: it may cost false positives, never false negatives.
+public final class CountingBloomFilter {
+
+    private static final int COUNTERS_PER_WORD = 16;
+    private static final long COUNTER_MASK = 0xF;
+    private static final int MAX_COUNT = 15;
+    private static final long MAX_COUNTERS = 1L << 31;
+
+    private final AtomicLongArray words;
+    private final long counterMask;
+    private final int hashes;
+
+    public CountingBloomFilter(long expectedEntries, double falsePositiveRate) {
+        if (expectedEntries <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException(
+                    "Invalid bloom filter sizing [%s, %s]".formatted(expectedEntries, falsePositiveRate)
+            );
+        }
+        double ln2 = Math.log(2);
+        double optimal = -expectedEntries * Math.log(falsePositiveRate) / (ln2 * ln2);
+        long counters = Math.max(COUNTERS_PER_WORD, Long.highestOneBit((long) Math.ceil(optimal) - 1) << 1);
+        counters = Math.min(counters, MAX_COUNTERS);
+        this.words = new AtomicLongArray((int) (counters / COUNTERS_PER_WORD));
+        this.counterMask = counters - 1;
+        this.hashes = (int) Math.max(1, Math.round((double) counters / expectedEntries * ln2));
+    }
+
+    public void add(long hash) {
+        long step = step(hash);
+        for (int i = 0; i < hashes; i++) {
+            adjust((hash + i * step) & counterMask, 1);
+        }
+    }
+
+    // only removes what might be present, so a stray remove cannot knock out another entry
+    public void remove(long hash) {
+        if (!mightContain(hash)) {
+            return;
+        }
+        long step = step(hash);
+        for (int i = 0; i < hashes; i++) {
+            adjust((hash + i * step) & counterMask, -1);
+        }
+    }
+
+    public boolean mightContain(long hash) {
+        long step = step(hash);
+        for (int i = 0; i < hashes; i++) {
+            if (count((hash + i * step) & counterMask) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long counters() {
+        return counterMask + 1;
+    }
+
+    public int hashes() {
+        return hashes;
+    }
+
+    // (1 - e^(-kn/m))^k for the given number of entries
+    public double expectedFalsePositiveRate(long entries) {
+        return Math.pow(1 - Math.exp(-(double) hashes * entries / counters()), hashes);
+    }
+
+    private int count(long counter) {
+        int shift = (int) (counter % COUNTERS_PER_WORD) * 4;
+        return (int) (words.get((int) (counter / COUNTERS_PER_WORD)) >>> shift & COUNTER_MASK);
+    }
+
+    private void adjust(long counter, int delta) {
+        int word = (int) (counter / COUNTERS_PER_WORD);
+        int shift = (int) (counter % COUNTERS_PER_WORD) * 4;
+        while (true) {
+            long current = words.get(word);
+            long count = current >>> shift & COUNTER_MASK;
+            if (count == MAX_COUNT || (count == 0 && delta < 0)) {
+                return;
+            }
+            long updated = current + ((long) delta << shift);
+            if (words.compareAndSet(word, current, updated)) {
+                return;
+            }
+        }
+    }
+
+    // odd, so every probe sequence visits distinct counters of the power-of-two table
+    private static long step(long hash) {
+        return Hashing.mix(hash) | 1;
+    }
+}
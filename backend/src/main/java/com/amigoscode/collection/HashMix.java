@@ -0,0 +1,13 @@
+package com.amigoscode.collection;
+
+final class HashMix {
+
+    private HashMix() {
+    }
+
+    // Fibonacci hashing, spreads sequential ids across the table
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
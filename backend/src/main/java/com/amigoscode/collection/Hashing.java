@@ -0,0 +1,43 @@
+package com.amigoscode.collection;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+public final class Hashing {
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(
+            long[].class, ByteOrder.LITTLE_ENDIAN
+    );
+
+    private Hashing() {
+    }
+
+    // 64-bit hash of a byte sequence, eight bytes per step
+    public static long hash64(byte[] bytes) {
+        return hash64(bytes, 0, bytes.length);
+    }
+
+    // same hash as hash64 of a copy of bytes[offset, offset + length)
+    public static long hash64(byte[] bytes, int offset, int length) {
+        long h = 0x9E3779B97F4A7C15L ^ length;
+        int i = offset;
+        int end = offset + length;
+        for (; i + Long.BYTES <= end; i += Long.BYTES) {
+            h ^= mix((long) LONGS.get(bytes, i));
+            h = Long.rotateLeft(h, 27) * 0x9E3779B97F4A7C15L + 0x52DCE729L;
+        }
+        long tail = 0;
+        for (int shift = 0; i < end; i++, shift += 8) {
+            tail |= (bytes[i] & 0xFFL) << shift;
+        }
+        return mix(h ^ mix(tail));
+    }
+
+    // SplitMix64 finalizer
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,91 @@
+package com.amigoscode.collection;
+
+// Distinct count estimate over 64-bit hashes in 2^precision one-byte registers, with a
+// relative standard error of 1.04 / sqrt(2^precision). Two sketches of the same precision
+// merge by taking the register-wise maximum. It can't forget a value: removals are the
+// caller's problem. Not thread safe.
+public final class HyperLogLog {
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Invalid HyperLogLog precision [%s]".formatted(precision));
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    private HyperLogLog(int precision, byte[] registers) {
+        this.precision = precision;
+        this.registers = registers;
+    }
+
+    // the inverse of registers(), e.g. for a sketch read back from storage
+    public static HyperLogLog of(byte[] registers) {
+        int precision = Integer.numberOfTrailingZeros(registers.length);
+        if (registers.length != 1 << precision || precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Invalid HyperLogLog register count [%s]".formatted(registers.length));
+        }
+        return new HyperLogLog(precision, registers.clone());
+    }
+
+    public void add(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // the sentinel bit caps the rank at 64 - precision + 1 when the remaining bits are all zero
+        long remaining = hash << precision | 1L << (precision - 1);
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException(
+                    "Cannot merge HyperLogLog of precision [%s] into [%s]".formatted(other.precision, precision)
+            );
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += Double.longBitsToDouble((1023L - register) << 52); // 2^-register
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // linear counting is far more accurate while many registers are still empty
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public double relativeError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    public int precision() {
+        return precision;
+    }
+
+    public byte[] registers() {
+        return registers.clone();
+    }
+
+    public HyperLogLog copy() {
+        return new HyperLogLog(precision, registers.clone());
+    }
+}
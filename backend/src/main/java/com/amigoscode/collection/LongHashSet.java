@@ -0,0 +1,151 @@
+package com.amigoscode.collection;
+
+import java.util.function.LongConsumer;
+
+// Open addressing set of primitive longs. Zero is the empty-slot marker and is
+// tracked separately. Not thread safe.
+public class LongHashSet {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private boolean containsZero;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    public LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongHashSet(int expectedSize) {
+        allocate(LongObjectHashMap.capacityFor(expectedSize));
+    }
+
+    public static LongHashSet of(long... values) {
+        LongHashSet set = new LongHashSet(values.length);
+        for (long value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(long key) {
+        if (key == 0) {
+            return containsZero;
+        }
+        int i = HashMix.hash(key) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public boolean add(long key) {
+        if (key == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int i = HashMix.hash(key) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    public boolean remove(long key) {
+        if (key == 0) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        int i = HashMix.hash(key) & mask;
+        while (keys[i] != key) {
+            if (keys[i] == 0) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        int gap = i;
+        while (true) {
+            i = (i + 1) & mask;
+            if (keys[i] == 0) {
+                break;
+            }
+            int home = HashMix.hash(keys[i]) & mask;
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                gap = i;
+            }
+        }
+        keys[gap] = 0;
+        size--;
+        return true;
+    }
+
+    public void forEach(LongConsumer action) {
+        if (containsZero) {
+            action.accept(0);
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                action.accept(key);
+            }
+        }
+    }
+
+    public long[] toArray() {
+        long[] result = new long[size];
+        int[] index = {0};
+        forEach(key -> result[index[0]++] = key);
+        return result;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int oldSize = size;
+        allocate(capacity);
+        size = oldSize;
+        for (long key : oldKeys) {
+            if (key != 0) {
+                int i = HashMix.hash(key) & mask;
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+}
@@ -1,8 +1,14 @@
 package com.amigoscode.customer;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable // only used once hibernate.cache.use_second_level_cache is on
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "customer")
+@JsonInclude(JsonInclude.Include.NON_NULL) // sparse fieldsets leave unrequested properties null
 @Table(
         name = "customer",
         uniqueConstraints = {
@@ -0,0 +1,47 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.RequestValidationException;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.Locale;
+
+// One entry of POST /api/v1/customer/batch. Updates merge the non-null fields into
+// the stored row the way PUT does, deletes only need the id.
+public record CustomerBatchOperation(
+        Type op,
+        Long id,
+        String name,
+        String email,
+        Integer age
+) {
+
+    public enum Type {
+        UPDATE,
+        DELETE;
+
+        @JsonCreator
+        public static Type parse(String op) {
+            try {
+                return Type.valueOf(op.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new RequestValidationException(
+                        "Unknown batch operation [%s]".formatted(op)
+                );
+            }
+        }
+
+        @JsonValue
+        public String value() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public static CustomerBatchOperation update(long id, String name, String email, Integer age) {
+        return new CustomerBatchOperation(Type.UPDATE, id, name, email, age);
+    }
+
+    public static CustomerBatchOperation delete(long id) {
+        return new CustomerBatchOperation(Type.DELETE, id, null, null, null);
+    }
+}
@@ -0,0 +1,8 @@
+package com.amigoscode.customer;
+
+import java.util.List;
+
+public record CustomerBatchRequest(
+        List<CustomerBatchOperation> operations
+) {
+}
@@ -0,0 +1,11 @@
+package com.amigoscode.customer;
+
+import java.util.List;
+
+public record CustomerBatchResponse(
+        int updated,
+        int deleted,
+        int rejected,
+        List<CustomerBatchResult> results
+) {
+}
@@ -0,0 +1,19 @@
+package com.amigoscode.customer;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Outcome of the operation at index in the request; status is what the single-customer
+// endpoint would have answered, message is only set for rejected operations.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CustomerBatchResult(
+        int index,
+        CustomerBatchOperation.Type op,
+        Long id,
+        int status,
+        String message
+) {
+
+    public boolean applied() {
+        return status == 200;
+    }
+}
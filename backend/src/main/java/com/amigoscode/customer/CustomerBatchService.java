@@ -0,0 +1,204 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.collection.LongHashSet;
+import com.amigoscode.exception.DuplicateResourceException;
+import com.amigoscode.exception.RequestValidationException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Applies many updates and deletes with a handful of statements in one transaction:
+// one locking read of every targeted row, one email lookup for all new emails, one
+// DELETE ... WHERE id = ANY(?) and one batched UPDATE. Operations that fail validation
+// are reported per item and skipped, the valid ones are applied together.
+@Service
+public class CustomerBatchService {
+
+    private static final int MAX_OPERATIONS = 1000;
+
+    private final CustomerDao customerDao;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public CustomerBatchService(@Qualifier("jdbc") CustomerDao customerDao,
+                                PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher eventPublisher) {
+        this.customerDao = customerDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+    }
+
+    public CustomerBatchResponse apply(CustomerBatchRequest request) {
+        List<CustomerBatchOperation> operations = request == null ? null : request.operations();
+        if (operations == null || operations.isEmpty()) {
+            throw new RequestValidationException("No operations found");
+        }
+        if (operations.size() > MAX_OPERATIONS) {
+            throw new RequestValidationException(
+                    "At most %s operations can be applied at once".formatted(MAX_OPERATIONS)
+            );
+        }
+        Batch batch;
+        try {
+            batch = transactionTemplate.execute(status -> applyInTransaction(operations));
+        } catch (DataIntegrityViolationException e) {
+            // an email taken after the lookup, the whole batch was rolled back
+            throw new DuplicateResourceException("Email already taken");
+        }
+        // only once committed, so caches never see writes that were rolled back
+        batch.events().forEach(eventPublisher::publishEvent);
+
+        int updated = 0;
+        int deleted = 0;
+        int rejected = 0;
+        for (CustomerBatchResult result : batch.results()) {
+            if (!result.applied()) {
+                rejected++;
+            } else if (result.op() == CustomerBatchOperation.Type.UPDATE) {
+                updated++;
+            } else {
+                deleted++;
+            }
+        }
+        return new CustomerBatchResponse(updated, deleted, rejected, Arrays.asList(batch.results()));
+    }
+
+    private Batch applyInTransaction(List<CustomerBatchOperation> operations) {
+        int size = operations.size();
+        CustomerBatchResult[] results = new CustomerBatchResult[size];
+
+        LongHashSet ids = new LongHashSet(size);
+        for (int i = 0; i < size; i++) {
+            CustomerBatchOperation operation = operations.get(i);
+            if (operation == null || operation.op() == null) {
+                results[i] = rejected(i, operation, 400, "op is required");
+            } else if (operation.id() == null) {
+                results[i] = rejected(i, operation, 400, "id is required");
+            } else if (operation.op() == CustomerBatchOperation.Type.UPDATE
+                    && operation.name() == null && operation.email() == null && operation.age() == null) {
+                results[i] = rejected(i, operation, 400, "No data changes found");
+            } else if (!ids.add(operation.id())) {
+                results[i] = rejected(i, operation, 400,
+                        "Customer with id [%s] appears more than once in the batch".formatted(operation.id()));
+            }
+        }
+
+        Map<Long, Customer> stored = new HashMap<>();
+        for (Customer customer : customerDao.selectCustomersByIdsForUpdate(ids.toArray())) {
+            stored.put(customer.getId(), customer);
+        }
+
+        LongHashSet deletes = new LongHashSet();
+        Customer[] updates = new Customer[size];
+        Map<String, Integer> newEmails = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            CustomerBatchOperation operation = operations.get(i);
+            Customer customer = stored.get(operation.id());
+            if (customer == null) {
+                results[i] = rejected(i, operation, 404,
+                        "Customer with id [%s] not found".formatted(operation.id()));
+            } else if (operation.op() == CustomerBatchOperation.Type.DELETE) {
+                deletes.add(operation.id());
+            } else {
+                Customer updated = merge(customer, operation);
+                if (updated == null) {
+                    results[i] = rejected(i, operation, 400, "No data changes found");
+                    continue;
+                }
+                updates[i] = updated;
+                if (!updated.getEmail().equals(customer.getEmail())) {
+                    newEmails.merge(updated.getEmail(), 1, Integer::sum);
+                }
+            }
+        }
+
+        // deletes run first, so an email freed by a delete in this batch can be reused;
+        // an email that another update in this batch moves away from still counts as taken
+        Map<String, Long> owners = newEmails.isEmpty()
+                ? Map.of()
+                : customerDao.selectIdsByEmails(newEmails.keySet());
+        List<Customer> toUpdate = new ArrayList<>();
+        List<Integer> updateIndexes = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Customer updated = updates[i];
+            if (updated == null) {
+                continue;
+            }
+            String email = updated.getEmail();
+            if (newEmails.getOrDefault(email, 0) > 1) {
+                results[i] = rejected(i, operations.get(i), 409, "Email appears more than once in the batch");
+            } else if (newEmails.containsKey(email) && owners.containsKey(email)
+                    && !deletes.contains(owners.get(email))) {
+                results[i] = rejected(i, operations.get(i), 409, "Email already taken");
+            } else {
+                toUpdate.add(updated);
+                updateIndexes.add(i);
+            }
+        }
+
+        if (!deletes.isEmpty()) {
+            customerDao.deleteCustomersByIds(deletes.toArray());
+        }
+        int[] counts = toUpdate.isEmpty() ? new int[0] : customerDao.updateCustomers(toUpdate);
+
+        List<CustomerChangeEvent> events = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            CustomerBatchOperation operation = operations.get(i);
+            if (results[i] == null && operation.op() == CustomerBatchOperation.Type.DELETE) {
+                results[i] = new CustomerBatchResult(i, operation.op(), operation.id(), 200, null);
+                events.add(CustomerChangeEvent.deleted(stored.get(operation.id())));
+            }
+        }
+        for (int j = 0; j < toUpdate.size(); j++) {
+            int i = updateIndexes.get(j);
+            CustomerBatchOperation operation = operations.get(i);
+            // the rows are locked, a missing one means a store without row locks lost it
+            if (counts[j] == 0) {
+                results[i] = rejected(i, operation, 404,
+                        "Customer with id [%s] not found".formatted(operation.id()));
+                continue;
+            }
+            results[i] = new CustomerBatchResult(i, operation.op(), operation.id(), 200, null);
+            events.add(CustomerChangeEvent.updated(stored.get(operation.id()), toUpdate.get(j)));
+        }
+        return new Batch(results, events);
+    }
+
+    // the stored row with the operation's non-null fields applied, null when nothing changes
+    private static Customer merge(Customer customer, CustomerBatchOperation operation) {
+        String name = operation.name() != null ? operation.name() : customer.getName();
+        String email = operation.email() != null ? operation.email() : customer.getEmail();
+        Integer age = operation.age() != null ? operation.age() : customer.getAge();
+        if (name.equals(customer.getName()) && email.equals(customer.getEmail())
+                && Objects.equals(age, customer.getAge())) {
+            return null;
+        }
+        return new Customer(customer.getId(), name, email, age);
+    }
+
+    private static CustomerBatchResult rejected(int index, CustomerBatchOperation operation, int status, String message) {
+        return new CustomerBatchResult(
+                index,
+                operation == null ? null : operation.op(),
+                operation == null ? null : operation.id(),
+                status,
+                message
+        );
+    }
+
+    private record Batch(CustomerBatchResult[] results, List<CustomerChangeEvent> events) {
+    }
+}
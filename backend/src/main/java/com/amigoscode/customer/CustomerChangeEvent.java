@@ -0,0 +1,29 @@
+package com.amigoscode.customer;
+
+// Published by CustomerService after a write reached the CustomerDao. before is the
+// row as it was (null for inserts and for patches, which skip the pre-read), after
+// the row as written (null for deletes).
+public record CustomerChangeEvent(Type type, Customer before, Customer after) {
+
+    public enum Type {
+        INSERTED,
+        UPDATED,
+        DELETED
+    }
+
+    public Long customerId() {
+        return after != null ? after.getId() : before.getId();
+    }
+
+    public static CustomerChangeEvent inserted(Customer after) {
+        return new CustomerChangeEvent(Type.INSERTED, null, after);
+    }
+
+    public static CustomerChangeEvent updated(Customer before, Customer after) {
+        return new CustomerChangeEvent(Type.UPDATED, before, after);
+    }
+
+    public static CustomerChangeEvent deleted(Customer before) {
+        return new CustomerChangeEvent(Type.DELETED, before, null);
+    }
+}
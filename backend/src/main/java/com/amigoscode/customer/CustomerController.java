@@ -1,17 +1,69 @@
 package com.amigoscode.customer;
 
+import com.amigoscode.changes.ChangeStreamFormat;
+import com.amigoscode.changes.CustomerChangeStream;
+import com.amigoscode.idempotency.IdempotencyService;
+import com.amigoscode.idempotency.IdempotentOutcome;
+import com.amigoscode.querycontrol.QueryCancellations;
+import com.amigoscode.responsecache.CustomerResponseCache;
+import com.amigoscode.responsecache.EncodedCustomer;
+import com.amigoscode.stats.CustomerStats;
+import com.amigoscode.stats.CustomerStatsService;
+import com.amigoscode.suggest.CustomerSuggestIndex;
+import com.amigoscode.suggest.CustomerSuggestion;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 @RestController
 @RequestMapping("api/v1/customer")
 public class CustomerController {
 
+    private static final int STREAM_FLUSH_EVERY = 1_000;
+
     private final CustomerService customerService;
+    private final CustomerBatchService customerBatchService;
+    private final IdempotencyService idempotencyService;
+    private final CustomerSuggestIndex customerSuggestIndex;
+    private final CustomerResponseCache customerResponseCache;
+    private final ObjectMapper objectMapper;
+    private final QueryCancellations queryCancellations;
+    private final CustomerStatsService customerStatsService;
+    private final CustomerChangeStream customerChangeStream;
 
-    public CustomerController(CustomerService customerService) {
+    public CustomerController(CustomerService customerService,
+                              CustomerBatchService customerBatchService,
+                              IdempotencyService idempotencyService,
+                              CustomerSuggestIndex customerSuggestIndex,
+                              CustomerResponseCache customerResponseCache,
+                              ObjectMapper objectMapper,
+                              QueryCancellations queryCancellations,
+                              CustomerStatsService customerStatsService,
+                              CustomerChangeStream customerChangeStream) {
         this.customerService = customerService;
+        this.customerBatchService = customerBatchService;
+        this.idempotencyService = idempotencyService;
+        this.customerSuggestIndex = customerSuggestIndex;
+        this.customerResponseCache = customerResponseCache;
+        this.objectMapper = objectMapper;
+        this.queryCancellations = queryCancellations;
+        this.customerStatsService = customerStatsService;
+        this.customerChangeStream = customerChangeStream;
     }
 
     @GetMapping("/greet")
@@ -21,37 +73,178 @@ public class CustomerController {
 
     record GreetResponse(String greet) {}
 
+    // streamed page by page on an async thread; a client that goes away stops the
+    // remaining pages and cancels the one in flight
+    @GetMapping(params = {"!ids", "!fields", "!count"})
+    public ResponseEntity<StreamingResponseBody> streamCustomers() {
+        StreamingResponseBody body = outputStream -> {
+            // one flush per STREAM_FLUSH_EVERY customers instead of one per customer
+            ObjectWriter writer = objectMapper.writerFor(Customer.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            JsonGenerator json = objectMapper.getFactory().createGenerator(outputStream);
+            json.writeStartArray();
+            int[] written = {0};
+            customerService.forEachCustomer(customer -> {
+                try {
+                    writer.writeValue(json, customer);
+                    if (++written[0] % STREAM_FLUSH_EVERY == 0) {
+                        json.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            json.writeEndArray();
+            json.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(queryCancellations.cancelIfAbandoned(body));
+    }
+
     @GetMapping
-    public List<Customer> getCustomers() {
-        return customerService.getAllCustomers();
+    public ResponseEntity<List<Customer>> getCustomers(
+            @RequestParam(name = "ids", required = false) long[] ids,
+            @RequestParam(name = "fields", required = false) String fields,
+            @RequestParam(name = "count", required = false) String count
+    ) {
+        List<Customer> customers;
+        if (ids != null) {
+            customers = customerService.getCustomers(ids);
+            if (fields != null) {
+                Set<CustomerField> projection = CustomerField.parse(fields);
+                customers = customers.stream()
+                        .map(customer -> CustomerField.project(customer, projection))
+                        .toList();
+            }
+        } else if (fields != null) {
+            customers = customerService.getAllCustomers(CustomerField.parse(fields));
+        } else {
+            customers = customerService.getAllCustomers();
+        }
+        if (count == null) {
+            return ResponseEntity.ok(customers);
+        }
+        CustomerCount total = customerService.countCustomers(CustomerCountMode.parse(count));
+        return ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(total.count()))
+                .header("X-Total-Count-Mode", total.mode().name().toLowerCase(Locale.ROOT))
+                .body(customers);
+    }
+
+    @GetMapping("count")
+    public CustomerCount countCustomers(
+            @RequestParam(name = "mode", defaultValue = "estimated") String mode
+    ) {
+        return customerService.countCustomers(CustomerCountMode.parse(mode));
+    }
+
+    // served from memory, never touches the database
+    @GetMapping("suggest")
+    public List<CustomerSuggestion> suggestCustomers(
+            @RequestParam("q") String query,
+            @RequestParam(name = "limit", defaultValue = "10") int limit
+    ) {
+        return customerSuggestIndex.suggest(query, limit);
+    }
+
+    // from the in-memory sketch, never touches the database
+    @GetMapping("stats")
+    public CustomerStats customerStats() {
+        return customerStatsService.stats();
     }
 
-    @GetMapping("{customerId}")
+    // SSE unless only NDJSON is accepted; Last-Event-ID resumes after that change
+    @GetMapping(value = "changes", produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<ResponseBodyEmitter> streamChanges(
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId
+    ) {
+        ChangeStreamFormat format = accept != null
+                && accept.contains(MediaType.APPLICATION_NDJSON_VALUE)
+                && !accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE)
+                ? ChangeStreamFormat.NDJSON
+                : ChangeStreamFormat.SSE;
+        return ResponseEntity.ok()
+                .contentType(format.mediaType())
+                .cacheControl(CacheControl.noStore())
+                .body(customerChangeStream.subscribe(format, lastEventId));
+    }
+
+    // pre-encoded bytes from the response cache, written out without Jackson
+    @GetMapping(value = "{customerId}", params = "!fields")
+    public ResponseEntity<byte[]> getCustomer(
+            @PathVariable("customerId") long customerId,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        EncodedCustomer encoded = customerResponseCache.get(customerId, customerService::getCustomer);
+        if (encoded.etag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(encoded.etag()).build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(encoded.etag())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (encoded.gzip() != null && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(encoded.gzip());
+        }
+        return response.body(encoded.json());
+    }
+
+    @GetMapping(value = "{customerId}", params = "fields")
     public Customer getCustomer(
-            @PathVariable("customerId") Integer customerId
+            @PathVariable("customerId") long customerId,
+            @RequestParam("fields") String fields
     ) {
-        return customerService.getCustomer(customerId);
+        return customerService.getCustomer(customerId, CustomerField.parse(fields));
     }
 
     @PostMapping
-    public void registerCustomer(
+    public ResponseEntity<Void> registerCustomer(
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestBody CustomerRegistrationRequest request
     ) {
-        customerService.addCustomer(request);
+        if (idempotencyKey == null) {
+            customerService.addCustomer(request);
+            return ResponseEntity.ok().build();
+        }
+        IdempotentOutcome outcome = idempotencyService.execute(
+                idempotencyKey,
+                request,
+                () -> customerService.addCustomer(request)
+        );
+        return ResponseEntity.status(outcome.status())
+                .header("Idempotent-Replayed", String.valueOf(outcome.replayed()))
+                .build();
+    }
+
+    // many updates and deletes in one transaction, with a result per operation
+    @PostMapping("batch")
+    public CustomerBatchResponse applyBatch(@RequestBody CustomerBatchRequest request) {
+        return customerBatchService.apply(request);
     }
 
     @DeleteMapping("{customerId}")
     public void deleteCustomer(
-            @PathVariable("customerId") Integer customerId
+            @PathVariable("customerId") long customerId
     ) {
         customerService.deleteCustomerById(customerId);
     }
 
     @PutMapping("{customerId}")
     public void updateCustomer(
-            @PathVariable("customerId") Integer customerId,
+            @PathVariable("customerId") long customerId,
             @RequestBody CustomerUpdateRequest updateRequest
     ) {
         customerService.updateCustomer(customerId, updateRequest);
     }
+
+    @PatchMapping("{customerId}")
+    public Customer patchCustomer(
+            @PathVariable("customerId") long customerId,
+            @RequestBody CustomerUpdateRequest patchRequest
+    ) {
+        return customerService.patchCustomer(customerId, patchRequest);
+    }
 }
@@ -0,0 +1,7 @@
+package com.amigoscode.customer;
+
+public record CustomerCount(
+        long count,
+        CustomerCountMode mode
+) {
+}
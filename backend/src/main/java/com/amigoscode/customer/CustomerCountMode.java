@@ -0,0 +1,24 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.RequestValidationException;
+
+import java.util.Locale;
+
+public enum CustomerCountMode {
+    // planner statistics from pg_class, cheap and approximate
+    ESTIMATED,
+    // count(*) bounded by a statement timeout
+    EXACT,
+    // counter table kept up to date by triggers on customer
+    MAINTAINED;
+
+    public static CustomerCountMode parse(String mode) {
+        try {
+            return CustomerCountMode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RequestValidationException(
+                    "Unknown count mode [%s]".formatted(mode)
+            );
+        }
+    }
+}
@@ -2,23 +2,111 @@ package com.amigoscode.customer;
 
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Repository
 public interface CustomerDao {
 
     List<Customer> selectAllCustomers();
 
-    Optional<Customer> selectCustomerById(Integer id);
+    default List<Customer> selectAllCustomers(Set<CustomerField> fields) {
+        return selectAllCustomers().stream()
+                .map(customer -> CustomerField.project(customer, fields))
+                .toList();
+    }
 
+    // visits every customer without holding them all in memory where the store allows it,
+    // the id is always filled in
+    default void forEachCustomer(Set<CustomerField> fields, Consumer<Customer> action) {
+        EnumSet<CustomerField> withId = EnumSet.of(CustomerField.ID);
+        withId.addAll(fields);
+        selectAllCustomers(withId).forEach(action);
+    }
+
+    Optional<Customer> selectCustomerById(long id);
+
+    default Optional<Customer> selectCustomerById(long id, Set<CustomerField> fields) {
+        return selectCustomerById(id)
+                .map(customer -> CustomerField.project(customer, fields));
+    }
+
+    // keyset page: up to limit customers with id > afterId, in id order
+    default List<Customer> selectCustomersPage(long afterId, int limit) {
+        return selectAllCustomers().stream()
+                .filter(customer -> customer.getId() > afterId)
+                .sorted(Comparator.comparingLong(Customer::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    default List<Customer> selectCustomersByIds(long[] ids) {
+        List<Customer> customers = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            selectCustomerById(id).ifPresent(customers::add);
+        }
+        return customers;
+    }
+
+    // same as selectCustomersByIds, but the rows stay locked until the surrounding transaction ends
+    default List<Customer> selectCustomersByIdsForUpdate(long[] ids) {
+        return selectCustomersByIds(ids);
+    }
+
+    // owning customer id per email, emails nobody has are left out
+    default Map<String, Long> selectIdsByEmails(Collection<String> emails) {
+        Set<String> wanted = new HashSet<>(emails);
+        Map<String, Long> ids = new HashMap<>();
+        for (Customer customer : selectAllCustomers()) {
+            if (wanted.contains(customer.getEmail())) {
+                ids.put(customer.getEmail(), customer.getId());
+            }
+        }
+        return ids;
+    }
+
+    default CustomerCount countCustomers(CustomerCountMode mode) {
+        return new CustomerCount(selectAllCustomers().size(), CustomerCountMode.EXACT);
+    }
+
+    // assigns the generated id to the given customer
     void insertCustomer(Customer customer);
 
     boolean existsPersonWithEmail(String email);
 
-    void deleteCustomerById(Integer id);
+    void deleteCustomerById(long id);
 
-    boolean existsPersonWithId(Integer id);
+    boolean existsPersonWithId(long id);
 
     void updateCustomer(Customer customer);
+
+    // rows written per customer, in order; stores without update counts report 1 for each
+    default int[] updateCustomers(List<Customer> customers) {
+        int[] counts = new int[customers.size()];
+        for (int i = 0; i < counts.length; i++) {
+            updateCustomer(customers.get(i));
+            counts[i] = 1;
+        }
+        return counts;
+    }
+
+    // returns the number of rows deleted
+    default int deleteCustomersByIds(long[] ids) {
+        for (long id : ids) {
+            deleteCustomerById(id);
+        }
+        return ids.length;
+    }
+
+    // writes only the non-null fields of the given customer, returns the row before and after
+    Optional<PatchedCustomer> patchCustomer(Customer patch);
 }
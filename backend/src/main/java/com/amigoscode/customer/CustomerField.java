@@ -0,0 +1,63 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.RequestValidationException;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+public enum CustomerField {
+    ID("id"),
+    NAME("name"),
+    EMAIL("email"),
+    AGE("age");
+
+    public static final Set<CustomerField> ALL = Collections.unmodifiableSet(EnumSet.allOf(CustomerField.class));
+
+    private final String column;
+
+    CustomerField(String column) {
+        this.column = column;
+    }
+
+    public String column() {
+        return column;
+    }
+
+    public static Set<CustomerField> parse(String fields) {
+        EnumSet<CustomerField> parsed = EnumSet.noneOf(CustomerField.class);
+        for (String field : fields.split(",")) {
+            String name = field.trim().toUpperCase(Locale.ROOT);
+            try {
+                parsed.add(CustomerField.valueOf(name));
+            } catch (IllegalArgumentException e) {
+                throw new RequestValidationException(
+                        "Unknown customer field [%s]".formatted(field.trim())
+                );
+            }
+        }
+        // "?fields=," splits into nothing, and an empty projection has no columns to select
+        if (parsed.isEmpty()) {
+            throw new RequestValidationException("At least one customer field must be requested");
+        }
+        return parsed;
+    }
+
+    public static int mask(Set<CustomerField> fields) {
+        int mask = 0;
+        for (CustomerField field : fields) {
+            mask |= 1 << field.ordinal();
+        }
+        return mask;
+    }
+
+    public static Customer project(Customer customer, Set<CustomerField> fields) {
+        return new Customer(
+                fields.contains(ID) ? customer.getId() : null,
+                fields.contains(NAME) ? customer.getName() : null,
+                fields.contains(EMAIL) ? customer.getEmail() : null,
+                fields.contains(AGE) ? customer.getAge() : null
+        );
+    }
+}
@@ -1,20 +1,111 @@
 package com.amigoscode.customer;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
 
 @Repository("jdbc")
 public class CustomerJDBCDataAccessService implements CustomerDao {
 
+    private static final String OUTBOX_PAYLOAD =
+            "jsonb_build_object('id', id, 'name', name, 'email', email, 'age', age)";
+
+    // one UPDATE per combination of name/email/age, indexed by column mask. The row is
+    // locked and read in the FROM subquery, so RETURNING can hand back the pre-image
+    private static final String[] PATCH_SQL = new String[1 << 3];
+    private static final String[] PATCH_OUTBOX_SQL = new String[PATCH_SQL.length];
+
+    static {
+        for (int mask = 1; mask < PATCH_SQL.length; mask++) {
+            StringJoiner columns = new StringJoiner(", ");
+            if ((mask & 1) != 0) {
+                columns.add("name = ?");
+            }
+            if ((mask & 2) != 0) {
+                columns.add("email = ?");
+            }
+            if ((mask & 4) != 0) {
+                columns.add("age = ?");
+            }
+            PATCH_SQL[mask] = """
+                    UPDATE customer c
+                    SET %s
+                    FROM (SELECT id, name, email, age FROM customer WHERE id = ? FOR UPDATE) old
+                    WHERE c.id = old.id
+                    RETURNING c.id, c.name, c.email, c.age,
+                        old.name AS old_name, old.email AS old_email, old.age AS old_age
+                    """.formatted(columns);
+            PATCH_OUTBOX_SQL[mask] = """
+                    WITH written AS (
+                    %s), outboxed AS (
+                        INSERT INTO customer_outbox(customer_id, type, payload)
+                        SELECT id, 'UPDATED', %s
+                        FROM written
+                    )
+                    SELECT id, name, email, age, old_name, old_email, old_age
+                    FROM written
+                    """.formatted(PATCH_SQL[mask], OUTBOX_PAYLOAD);
+        }
+    }
+
+    // SELECT lists and row mappers per requested CustomerField set, indexed by CustomerField.mask
+    private static final String[] PROJECTION_COLUMNS = new String[1 << CustomerField.values().length];
+    private static final CustomerProjectionRowMapper[] PROJECTION_MAPPERS =
+            new CustomerProjectionRowMapper[PROJECTION_COLUMNS.length];
+
+    static {
+        for (int mask = 1; mask < PROJECTION_COLUMNS.length; mask++) {
+            EnumSet<CustomerField> fields = EnumSet.noneOf(CustomerField.class);
+            StringJoiner columns = new StringJoiner(", ");
+            for (CustomerField field : CustomerField.values()) {
+                if ((mask & 1 << field.ordinal()) != 0) {
+                    fields.add(field);
+                    columns.add(field.column());
+                }
+            }
+            PROJECTION_COLUMNS[mask] = columns.toString();
+            PROJECTION_MAPPERS[mask] = new CustomerProjectionRowMapper(fields);
+        }
+    }
+
+    private static final int FOR_EACH_PAGE_SIZE = 10_000;
+
     private final JdbcTemplate jdbcTemplate;
     private final CustomerRowMapper customerRowMapper;
+    private final Duration exactCountTimeout;
+    private final boolean outbox;
 
     public CustomerJDBCDataAccessService(JdbcTemplate jdbcTemplate, CustomerRowMapper customerRowMapper) {
+        this(jdbcTemplate, customerRowMapper, Duration.ofSeconds(2), false);
+    }
+
+    @Autowired
+    public CustomerJDBCDataAccessService(JdbcTemplate jdbcTemplate,
+                                         CustomerRowMapper customerRowMapper,
+                                         @Value("${customer.count.exact-timeout:PT2S}") Duration exactCountTimeout,
+                                         @Value("${customer.outbox.enabled:true}") boolean outbox) {
         this.jdbcTemplate = jdbcTemplate;
         this.customerRowMapper = customerRowMapper;
+        this.exactCountTimeout = exactCountTimeout;
+        this.outbox = outbox;
     }
 
     @Override
@@ -27,7 +118,51 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
     }
 
     @Override
-    public Optional<Customer> selectCustomerById(Integer id) {
+    public List<Customer> selectAllCustomers(Set<CustomerField> fields) {
+        int mask = CustomerField.mask(fields);
+        String sql = """
+                SELECT %s
+                FROM customer
+                """.formatted(PROJECTION_COLUMNS[mask]);
+        return jdbcTemplate.query(sql, PROJECTION_MAPPERS[mask]);
+    }
+
+    @Override
+    public void forEachCustomer(Set<CustomerField> fields, Consumer<Customer> action) {
+        // keyset pages, so no transaction or server-side cursor is needed to stream the table
+        int mask = CustomerField.mask(fields) | 1 << CustomerField.ID.ordinal();
+        String sql = """
+                SELECT %s
+                FROM customer
+                WHERE id > ?
+                ORDER BY id
+                LIMIT ?
+                """.formatted(PROJECTION_COLUMNS[mask]);
+        long after = Long.MIN_VALUE;
+        while (true) {
+            List<Customer> page = jdbcTemplate.query(sql, PROJECTION_MAPPERS[mask], after, FOR_EACH_PAGE_SIZE);
+            page.forEach(action);
+            if (page.size() < FOR_EACH_PAGE_SIZE) {
+                return;
+            }
+            after = page.get(page.size() - 1).getId();
+        }
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(long id, Set<CustomerField> fields) {
+        int mask = CustomerField.mask(fields);
+        String sql = """
+                SELECT %s
+                FROM customer
+                WHERE id = ?
+                """.formatted(PROJECTION_COLUMNS[mask]);
+        return jdbcTemplate.query(sql, PROJECTION_MAPPERS[mask], id).stream()
+                .findFirst();
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(long id) {
         String sql = """
                 SELECT id, name, email, age
                 FROM customer
@@ -38,19 +173,166 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
     }
 
     @Override
-    public void insertCustomer(Customer customer) {
+    public List<Customer> selectCustomersPage(long afterId, int limit) {
+        String sql = """
+                SELECT id, name, email, age
+                FROM customer
+                WHERE id > ?
+                ORDER BY id
+                LIMIT ?
+                """;
+        return jdbcTemplate.query(sql, customerRowMapper, afterId, limit);
+    }
+
+    @Override
+    public List<Customer> selectCustomersByIds(long[] ids) {
+        String sql = """
+                SELECT id, name, email, age
+                FROM customer
+                WHERE id = ANY(?)
+                """;
+        // the driver binds long[] as bigint[] without boxing
+        return jdbcTemplate.query(sql, customerRowMapper, (Object) ids);
+    }
+
+    @Override
+    public List<Customer> selectCustomersByIdsForUpdate(long[] ids) {
+        // locked in id order, so two batches over the same rows cannot deadlock
+        String sql = """
+                SELECT id, name, email, age
+                FROM customer
+                WHERE id = ANY(?)
+                ORDER BY id
+                FOR UPDATE
+                """;
+        return jdbcTemplate.query(sql, customerRowMapper, (Object) ids);
+    }
+
+    @Override
+    public Map<String, Long> selectIdsByEmails(Collection<String> emails) {
         String sql = """
+                SELECT email, id
+                FROM customer
+                WHERE email = ANY(?)
+                """;
+        Map<String, Long> ids = new HashMap<>();
+        jdbcTemplate.query(
+                sql,
+                rs -> {
+                    ids.put(rs.getString("email"), rs.getLong("id"));
+                },
+                (Object) emails.toArray(String[]::new)
+        );
+        return ids;
+    }
+
+    @Override
+    public CustomerCount countCustomers(CustomerCountMode mode) {
+        return switch (mode) {
+            case ESTIMATED -> countEstimated();
+            case EXACT -> countExact();
+            case MAINTAINED -> countMaintained();
+        };
+    }
+
+    private CustomerCount countEstimated() {
+        // reltuples scaled to the current number of pages, the way the planner does,
+        // summed over the partitions once customer is partitioned
+        String sql = """
+                SELECT CASE
+                    WHEN bool_or(c.reltuples < 0) OR sum(c.relpages) = 0 THEN -1
+                    ELSE sum(CASE
+                        WHEN c.relpages = 0 THEN 0
+                        ELSE c.reltuples / c.relpages
+                            * (pg_relation_size(c.oid) / current_setting('block_size')::int)
+                    END)::bigint
+                END
+                FROM pg_class c
+                WHERE c.relkind = 'r'
+                  AND (c.oid = 'customer'::regclass
+                    OR c.oid IN (SELECT inhrelid FROM pg_inherits WHERE inhparent = 'customer'::regclass))
+                """;
+        Long estimate = jdbcTemplate.queryForObject(sql, Long.class);
+        if (estimate == null || estimate < 0) {
+            // never vacuumed or analyzed, the counter table is still cheap
+            return countMaintained();
+        }
+        return new CustomerCount(estimate, CustomerCountMode.ESTIMATED);
+    }
+
+    private CustomerCount countExact() {
+        String sql = """
+                SELECT count(*)
+                FROM customer
+                """;
+        int timeoutSeconds = (int) Math.max(1, (exactCountTimeout.toMillis() + 999) / 1000);
+        try {
+            Long count = jdbcTemplate.query(
+                    connection -> {
+                        PreparedStatement statement = connection.prepareStatement(sql);
+                        statement.setQueryTimeout(timeoutSeconds);
+                        return statement;
+                    },
+                    rs -> rs.next() ? rs.getLong(1) : 0L
+            );
+            return new CustomerCount(count == null ? 0 : count, CustomerCountMode.EXACT);
+        } catch (DataAccessException e) {
+            if (!isQueryCanceled(e)) {
+                throw e;
+            }
+            return countEstimated();
+        }
+    }
+
+    private CustomerCount countMaintained() {
+        String sql = """
+                SELECT COALESCE(sum(row_count), 0)
+                FROM customer_row_count
+                """;
+        Long count = jdbcTemplate.queryForObject(sql, Long.class);
+        return new CustomerCount(count == null ? 0 : count, CustomerCountMode.MAINTAINED);
+    }
+
+    private static boolean isQueryCanceled(DataAccessException e) {
+        return e instanceof QueryTimeoutException
+                || e.getMostSpecificCause() instanceof SQLException sqlException
+                && "57014".equals(sqlException.getSQLState());
+    }
+
+    @Override
+    public void insertCustomer(Customer customer) {
+        if (customer.getId() != null) {
+            // ids handed out elsewhere, e.g. by the sharded dao
+            String sql = """
+                    INSERT INTO customer(id, name, email, age)
+                    VALUES(?, ?, ?, ?)
+                    """;
+            jdbcTemplate.update(
+                    outboxed(sql, CustomerChangeEvent.Type.INSERTED),
+                    customer.getId(), customer.getName(), customer.getEmail(), customer.getAge()
+            );
+            return;
+        }
+        String sql = outbox
+                ? outboxed("""
+                        INSERT INTO customer(name, email, age)
+                        VALUES(?, ?, ?)
+                        """, CustomerChangeEvent.Type.INSERTED) + "RETURNING customer_id\n"
+                : """
                 INSERT INTO customer(name, email, age)
                 VALUES(?, ?, ?)
+                RETURNING id
                 """;
-        int result = jdbcTemplate.update(
+        Long id = jdbcTemplate.queryForObject(
                 sql,
+                Long.class,
                 customer.getName(),
                 customer.getEmail(),
                 customer.getAge()
         );
+        customer.setId(id);
 
-        System.out.println("Insert customer = " + result);
+        System.out.println("Insert customer = " + id);
     }
 
     @Override
@@ -64,18 +346,18 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
     }
 
     @Override
-    public void deleteCustomerById(Integer id) {
+    public void deleteCustomerById(long id) {
         String sql = """
                 DELETE FROM customer
                 WHERE id = ?
                 """;
-        int result = jdbcTemplate.update(sql, id);
+        int result = jdbcTemplate.update(outboxed(sql, CustomerChangeEvent.Type.DELETED), id);
 
         System.out.println("Delete customers = " + result);
     }
 
     @Override
-    public boolean existsPersonWithId(Integer id) {
+    public boolean existsPersonWithId(long id) {
         String sql = """
                 SELECT id, name, email, age
                 FROM customer
@@ -92,7 +374,7 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
                 WHERE id = ?
                 """;
         int result = jdbcTemplate.update(
-                sql,
+                outboxed(sql, CustomerChangeEvent.Type.UPDATED),
                 customer.getName(),
                 customer.getEmail(),
                 customer.getAge(),
@@ -101,4 +383,75 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
 
         System.out.println("Update customers = " + result);
     }
+
+    @Override
+    public int[] updateCustomers(List<Customer> customers) {
+        String sql = """
+                UPDATE customer
+                SET name = ?, email = ?, age = ?
+                WHERE id = ?
+                """;
+        sql = outboxed(sql, CustomerChangeEvent.Type.UPDATED);
+        return jdbcTemplate.batchUpdate(sql, customers, customers.size(), (ps, customer) -> {
+            ps.setString(1, customer.getName());
+            ps.setString(2, customer.getEmail());
+            ps.setInt(3, customer.getAge());
+            ps.setLong(4, customer.getId());
+        })[0];
+    }
+
+    @Override
+    public int deleteCustomersByIds(long[] ids) {
+        String sql = """
+                DELETE FROM customer
+                WHERE id = ANY(?)
+                """;
+        return jdbcTemplate.update(outboxed(sql, CustomerChangeEvent.Type.DELETED), (Object) ids);
+    }
+
+    @Override
+    public Optional<PatchedCustomer> patchCustomer(Customer patch) {
+        List<Object> args = new ArrayList<>(4);
+        int mask = 0;
+        if (patch.getName() != null) {
+            mask |= 1;
+            args.add(patch.getName());
+        }
+        if (patch.getEmail() != null) {
+            mask |= 2;
+            args.add(patch.getEmail());
+        }
+        if (patch.getAge() != null) {
+            mask |= 4;
+            args.add(patch.getAge());
+        }
+        if (mask == 0) {
+            return selectCustomerById(patch.getId()).map(customer -> new PatchedCustomer(customer, customer));
+        }
+        args.add(patch.getId());
+        String sql = outbox ? PATCH_OUTBOX_SQL[mask] : PATCH_SQL[mask];
+        RowMapper<PatchedCustomer> patchedRowMapper = (rs, rowNum) -> new PatchedCustomer(
+                new Customer(rs.getLong("id"), rs.getString("old_name"), rs.getString("old_email"), rs.getInt("old_age")),
+                customerRowMapper.mapRow(rs, rowNum)
+        );
+        return jdbcTemplate.query(sql, patchedRowMapper, args.toArray()).stream()
+                .findFirst();
+    }
+
+    // Appends the written rows to customer_outbox in the same statement, so the outbox
+    // row commits or rolls back with the write and costs no extra round trip. The update
+    // count is still the number of customers written.
+    private String outboxed(String write, CustomerChangeEvent.Type type) {
+        if (!outbox) {
+            return write;
+        }
+        return """
+                WITH written AS (
+                %sRETURNING id, name, email, age
+                )
+                INSERT INTO customer_outbox(customer_id, type, payload)
+                SELECT id, '%s', %s
+                FROM written
+                """.formatted(write, type.name(), OUTBOX_PAYLOAD);
+    }
 }
@@ -1,13 +1,26 @@
 package com.amigoscode.customer;
 
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
+// Reads run in read-only transactions: Hibernate sets FlushMode.MANUAL and loads
+// entities read-only, so nothing is snapshotted or flushed. Lists come back as
+// detached projections; by-id reads stay entity loads so the optional second-level
+// cache (hibernate.cache.use_second_level_cache) can serve them.
 @Repository("jpa")
+@Transactional(readOnly = true)
 public class CustomerJPADataAccessService implements CustomerDao {
 
+    private static final int FOR_EACH_PAGE_SIZE = 10_000;
+
     private final CustomerRepository customerRepository;
 
     public CustomerJPADataAccessService(CustomerRepository customerRepository) {
@@ -16,15 +29,53 @@ public class CustomerJPADataAccessService implements CustomerDao {
 
     @Override
     public List<Customer> selectAllCustomers() {
-        return customerRepository.findAll();
+        return customerRepository.findAllDetached();
+    }
+
+    @Override
+    public void forEachCustomer(Set<CustomerField> fields, Consumer<Customer> action) {
+        EnumSet<CustomerField> withId = EnumSet.of(CustomerField.ID);
+        withId.addAll(fields);
+        Consumer<Customer> visitor = withId.size() == CustomerField.values().length
+                ? action
+                : customer -> action.accept(CustomerField.project(customer, withId));
+        long after = Long.MIN_VALUE;
+        while (true) {
+            List<Customer> page = customerRepository.findDetachedPage(after, PageRequest.ofSize(FOR_EACH_PAGE_SIZE));
+            page.forEach(visitor);
+            if (page.size() < FOR_EACH_PAGE_SIZE) {
+                return;
+            }
+            after = page.get(page.size() - 1).getId();
+        }
     }
 
     @Override
-    public Optional<Customer> selectCustomerById(Integer id) {
+    public Optional<Customer> selectCustomerById(long id) {
         return customerRepository.findById(id);
     }
 
     @Override
+    public List<Customer> selectCustomersPage(long afterId, int limit) {
+        return customerRepository.findDetachedPage(afterId, PageRequest.ofSize(limit));
+    }
+
+    @Override
+    public List<Customer> selectCustomersByIds(long[] ids) {
+        List<Long> boxedIds = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            boxedIds.add(id);
+        }
+        return customerRepository.findAllDetachedById(boxedIds);
+    }
+
+    @Override
+    public CustomerCount countCustomers(CustomerCountMode mode) {
+        return new CustomerCount(customerRepository.count(), CustomerCountMode.EXACT);
+    }
+
+    @Override
+    @Transactional
     public void insertCustomer(Customer customer) {
         customerRepository.save(customer);
     }
@@ -35,17 +86,40 @@ public class CustomerJPADataAccessService implements CustomerDao {
     }
 
     @Override
-    public void deleteCustomerById(Integer id) {
+    @Transactional
+    public void deleteCustomerById(long id) {
         customerRepository.deleteById(id);
     }
 
     @Override
-    public boolean existsPersonWithId(Integer id) {
+    public boolean existsPersonWithId(long id) {
         return customerRepository.existsById(id);
     }
 
     @Override
+    @Transactional
     public void updateCustomer(Customer customer) {
         customerRepository.save(customer);
     }
+
+    @Override
+    @Transactional
+    public Optional<PatchedCustomer> patchCustomer(Customer patch) {
+        return customerRepository.findById(patch.getId())
+                .map(customer -> {
+                    Customer before = new Customer(
+                            customer.getId(), customer.getName(), customer.getEmail(), customer.getAge()
+                    );
+                    if (patch.getName() != null) {
+                        customer.setName(patch.getName());
+                    }
+                    if (patch.getEmail() != null) {
+                        customer.setEmail(patch.getEmail());
+                    }
+                    if (patch.getAge() != null) {
+                        customer.setAge(patch.getAge());
+                    }
+                    return new PatchedCustomer(before, customerRepository.saveAndFlush(customer));
+                });
+    }
 }
@@ -1,5 +1,11 @@
 package com.amigoscode.customer;
 
+import com.amigoscode.collection.LongObjectHashMap;
+import com.amigoscode.journal.CustomerJournal;
+import com.amigoscode.journal.CustomerJournalListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
@@ -9,68 +15,154 @@ import java.util.Optional;
 @Repository("list")
 public class CustomerListDataAccessService implements CustomerDao {
 
-    // db
-    private static final List<Customer> customers;
+    // db, rows are never handed out or mutated in place so a snapshot can read them without the lock
+    private final LongObjectHashMap<Customer> customers = new LongObjectHashMap<>();
+    private final CustomerJournal journal;
+    private long nextId = 1;
 
-    static {
-        customers = new ArrayList<>();
-        Customer alex = new Customer(
-                1L,
+    public CustomerListDataAccessService() {
+        this(CustomerJournal.NONE);
+    }
+
+    @Autowired
+    public CustomerListDataAccessService(CustomerJournal journal) {
+        this.journal = journal;
+        if (journal.recover(new Recovery())) {
+            return;
+        }
+        insertCustomer(new Customer(
                 "Alex",
                 "alex@gmail.com",
                 11
-        );
-        Customer jamila = new Customer(
-                2L,
+        ));
+        insertCustomer(new Customer(
                 "Jamila",
                 "jamila@gmail.com",
                 22
-        );
-        customers.add(alex);
-        customers.add(jamila);
+        ));
+    }
+
+    @Override
+    public synchronized List<Customer> selectAllCustomers() {
+        List<Customer> result = new ArrayList<>(customers.size());
+        customers.forEachValue(customer -> result.add(copyOf(customer)));
+        return result;
     }
 
+    @Override
+    public synchronized Optional<Customer> selectCustomerById(long id) {
+        return Optional.ofNullable(customers.get(id)).map(CustomerListDataAccessService::copyOf);
+    }
 
     @Override
-    public List<Customer> selectAllCustomers() {
-        return customers;
+    public synchronized List<Customer> selectCustomersByIds(long[] ids) {
+        List<Customer> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Customer customer = customers.get(id);
+            if (customer != null) {
+                result.add(copyOf(customer));
+            }
+        }
+        return result;
     }
 
     @Override
-    public Optional<Customer> selectCustomerById(Integer id) {
-        return customers.stream()
-                .filter(customer -> customer.getId().equals(id))
-                .findFirst();
+    public synchronized void insertCustomer(Customer customer) {
+        long id = customer.getId() == null ? nextId : customer.getId();
+        Customer row = new Customer(id, customer.getName(), customer.getEmail(), customer.getAge());
+        // write ahead, memory only changes once the journal has the row
+        journal.upserted(row);
+        nextId = Math.max(nextId, id + 1);
+        customer.setId(id);
+        customers.put(id, row);
     }
 
     @Override
-    public void insertCustomer(Customer customer) {
-        customers.add(customer);
+    public synchronized boolean existsPersonWithEmail(String email) {
+        boolean[] exists = {false};
+        customers.forEachValue(customer -> exists[0] |= customer.getEmail().equals(email));
+        return exists[0];
     }
 
     @Override
-    public boolean existsPersonWithEmail(String email) {
-        return customers.stream()
-                .anyMatch(customer -> customer.getEmail().equals(email));
+    public synchronized void deleteCustomerById(long id) {
+        if (customers.containsKey(id)) {
+            journal.deleted(id);
+            customers.remove(id);
+        }
     }
 
     @Override
-    public void deleteCustomerById(Integer id) {
-//        customers.removeIf(customer -> customer.getId().equals(id));
-        customers.stream()
-                .filter(customer -> customer.getId().equals(id))
-                .findFirst()
-                .ifPresent(customers::remove);
+    public synchronized boolean existsPersonWithId(long id) {
+        return customers.containsKey(id);
     }
 
     @Override
-    public boolean existsPersonWithId(Integer id) {
-        return customers.stream()
-                .anyMatch(customer -> customer.getId().equals(id));
+    public synchronized void updateCustomer(Customer customer) {
+        Customer row = copyOf(customer);
+        journal.upserted(row);
+        customers.put(row.getId(), row);
     }
 
     @Override
-    public void updateCustomer(Customer customer) {
-        customers.add(customer);
+    public synchronized Optional<PatchedCustomer> patchCustomer(Customer patch) {
+        Customer customer = customers.get(patch.getId());
+        if (customer == null) {
+            return Optional.empty();
+        }
+        if (patch.getEmail() != null
+                && !patch.getEmail().equals(customer.getEmail())
+                && existsPersonWithEmail(patch.getEmail())) {
+            throw new DuplicateKeyException("customer_email_unique");
+        }
+        Customer row = new Customer(
+                customer.getId(),
+                patch.getName() != null ? patch.getName() : customer.getName(),
+                patch.getEmail() != null ? patch.getEmail() : customer.getEmail(),
+                patch.getAge() != null ? patch.getAge() : customer.getAge()
+        );
+        journal.upserted(row);
+        customers.put(row.getId(), row);
+        return Optional.of(new PatchedCustomer(copyOf(customer), copyOf(row)));
+    }
+
+    // folds the journal into a fresh snapshot once it has grown past customer.list.journal.compaction-threshold
+    @Scheduled(fixedDelayString = "${customer.list.journal.compaction-interval:PT1M}")
+    public void compact() {
+        if (!journal.needsCompaction()) {
+            return;
+        }
+        long generation;
+        long snapshotNextId;
+        List<Customer> rows;
+        synchronized (this) {
+            generation = journal.rotate();
+            snapshotNextId = nextId;
+            rows = customers.values();
+        }
+        journal.writeSnapshot(generation, snapshotNextId, rows);
+    }
+
+    private static Customer copyOf(Customer customer) {
+        return new Customer(customer.getId(), customer.getName(), customer.getEmail(), customer.getAge());
+    }
+
+    private class Recovery implements CustomerJournalListener {
+
+        @Override
+        public void nextId(long id) {
+            nextId = Math.max(nextId, id);
+        }
+
+        @Override
+        public void upserted(Customer customer) {
+            nextId = Math.max(nextId, customer.getId() + 1);
+            customers.put(customer.getId(), customer);
+        }
+
+        @Override
+        public void deleted(long id) {
+            customers.remove(id);
+        }
     }
 }
@@ -0,0 +1,297 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.collection.Hashing;
+import com.amigoscode.offheap.OffHeapHashIndex;
+import com.amigoscode.offheap.OffHeapRecordStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Keeps customers outside the Java heap: records, the id index and the email
+// index all live in direct memory, so heap usage does not grow with the
+// number of customers. A Customer is only decoded when one is returned.
+//
+// Record layout: id (8) | age (4) | name length (4) | name | email length (4) | email
+@Repository("offheap")
+public class CustomerOffHeapDataAccessService implements CustomerDao {
+
+    private static final int ID = 0;
+    private static final int AGE = 8;
+    private static final int NAME_LENGTH = 12;
+    private static final int NAME = 16;
+
+    private final OffHeapRecordStore records = new OffHeapRecordStore();
+    private final OffHeapHashIndex idIndex;
+    private final OffHeapHashIndex emailIndex;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long nextId = 1;
+
+    public CustomerOffHeapDataAccessService(
+            @Value("${customer.offheap.expected-customers:1024}") long expectedCustomers) {
+        this.idIndex = new OffHeapHashIndex(expectedCustomers);
+        this.emailIndex = new OffHeapHashIndex(expectedCustomers);
+    }
+
+    @Override
+    public List<Customer> selectAllCustomers() {
+        lock.readLock().lock();
+        try {
+            List<Customer> customers = new ArrayList<>((int) Math.min(Integer.MAX_VALUE, idIndex.size()));
+            idIndex.forEachValue(address -> customers.add(decode(address)));
+            return customers;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(long id) {
+        lock.readLock().lock();
+        try {
+            long address = addressOf(id);
+            return address == OffHeapRecordStore.NO_ADDRESS ? Optional.empty() : Optional.of(decode(address));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Customer> selectCustomersByIds(long[] ids) {
+        lock.readLock().lock();
+        try {
+            List<Customer> customers = new ArrayList<>(ids.length);
+            for (long id : ids) {
+                long address = addressOf(id);
+                if (address != OffHeapRecordStore.NO_ADDRESS) {
+                    customers.add(decode(address));
+                }
+            }
+            return customers;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CustomerCount countCustomers(CustomerCountMode mode) {
+        lock.readLock().lock();
+        try {
+            return new CustomerCount(idIndex.size(), CustomerCountMode.EXACT);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void insertCustomer(Customer customer) {
+        byte[] name = customer.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] email = customer.getEmail().getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        try {
+            if (addressOfEmail(email) != OffHeapRecordStore.NO_ADDRESS) {
+                throw new DuplicateKeyException("customer_email_unique");
+            }
+            long id;
+            if (customer.getId() == null) {
+                id = nextId++;
+            } else {
+                id = customer.getId();
+                if (id <= 0 || addressOf(id) != OffHeapRecordStore.NO_ADDRESS) {
+                    throw new DuplicateKeyException("customer_pkey");
+                }
+                nextId = Math.max(nextId, id + 1);
+            }
+            long address = write(id, name, email, customer.getAge());
+            idIndex.put(id, address);
+            emailIndex.put(emailKey(email), address);
+            customer.setId(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean existsPersonWithEmail(String email) {
+        byte[] bytes = email.getBytes(StandardCharsets.UTF_8);
+        lock.readLock().lock();
+        try {
+            return addressOfEmail(bytes) != OffHeapRecordStore.NO_ADDRESS;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteCustomerById(long id) {
+        lock.writeLock().lock();
+        try {
+            long address = addressOf(id);
+            if (address == OffHeapRecordStore.NO_ADDRESS) {
+                return;
+            }
+            byte[] email = emailBytes(address);
+            int size = recordSize(address);
+            idIndex.remove(id, address);
+            emailIndex.remove(emailKey(email), address);
+            records.free(address, size);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean existsPersonWithId(long id) {
+        lock.readLock().lock();
+        try {
+            return addressOf(id) != OffHeapRecordStore.NO_ADDRESS;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateCustomer(Customer customer) {
+        lock.writeLock().lock();
+        try {
+            replace(customer.getId(), customer);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<PatchedCustomer> patchCustomer(Customer patch) {
+        lock.writeLock().lock();
+        try {
+            long address = addressOf(patch.getId());
+            if (address == OffHeapRecordStore.NO_ADDRESS) {
+                return Optional.empty();
+            }
+            Customer before = decode(address);
+            Customer customer = new Customer(before.getId(), before.getName(), before.getEmail(), before.getAge());
+            if (patch.getName() != null) {
+                customer.setName(patch.getName());
+            }
+            if (patch.getEmail() != null) {
+                customer.setEmail(patch.getEmail());
+            }
+            if (patch.getAge() != null) {
+                customer.setAge(patch.getAge());
+            }
+            replace(customer.getId(), customer);
+            return Optional.of(new PatchedCustomer(before, customer));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return records.reservedBytes() + idIndex.offHeapBytes() + emailIndex.offHeapBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void replace(long id, Customer customer) {
+        long address = addressOf(id);
+        if (address == OffHeapRecordStore.NO_ADDRESS) {
+            return;
+        }
+        byte[] name = customer.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] email = customer.getEmail().getBytes(StandardCharsets.UTF_8);
+        byte[] oldEmail = emailBytes(address);
+        boolean emailChanged = !Arrays.equals(oldEmail, email);
+        if (emailChanged && addressOfEmail(email) != OffHeapRecordStore.NO_ADDRESS) {
+            throw new DuplicateKeyException("customer_email_unique");
+        }
+        int oldSize = recordSize(address);
+        int newSize = recordSize(name, email);
+        long newAddress = address;
+        if (records.sameSlot(oldSize, newSize)) {
+            encode(address, id, name, email, customer.getAge());
+        } else {
+            newAddress = write(id, name, email, customer.getAge());
+            idIndex.replace(id, address, newAddress);
+        }
+        if (emailChanged) {
+            emailIndex.remove(emailKey(oldEmail), address);
+            emailIndex.put(emailKey(email), newAddress);
+        } else if (newAddress != address) {
+            emailIndex.replace(emailKey(email), address, newAddress);
+        }
+        if (newAddress != address) {
+            records.free(address, oldSize);
+        }
+    }
+
+    private long addressOf(long id) {
+        return id <= 0 ? OffHeapRecordStore.NO_ADDRESS : idIndex.get(id, address -> true);
+    }
+
+    private long addressOfEmail(byte[] email) {
+        return emailIndex.get(emailKey(email), address -> emailEquals(address, email));
+    }
+
+    private long write(long id, byte[] name, byte[] email, int age) {
+        long address = records.allocate(recordSize(name, email));
+        encode(address, id, name, email, age);
+        return address;
+    }
+
+    private void encode(long address, long id, byte[] name, byte[] email, int age) {
+        records.putLong(address, ID, id);
+        records.putInt(address, AGE, age);
+        records.putInt(address, NAME_LENGTH, name.length);
+        records.putBytes(address, NAME, name);
+        records.putInt(address, NAME + name.length, email.length);
+        records.putBytes(address, NAME + name.length + Integer.BYTES, email);
+    }
+
+    private Customer decode(long address) {
+        int nameLength = records.getInt(address, NAME_LENGTH);
+        int emailOffset = NAME + nameLength;
+        int emailLength = records.getInt(address, emailOffset);
+        return new Customer(
+                records.getLong(address, ID),
+                new String(records.getBytes(address, NAME, nameLength), StandardCharsets.UTF_8),
+                new String(records.getBytes(address, emailOffset + Integer.BYTES, emailLength), StandardCharsets.UTF_8),
+                records.getInt(address, AGE)
+        );
+    }
+
+    private byte[] emailBytes(long address) {
+        int emailOffset = NAME + records.getInt(address, NAME_LENGTH);
+        return records.getBytes(address, emailOffset + Integer.BYTES, records.getInt(address, emailOffset));
+    }
+
+    private boolean emailEquals(long address, byte[] email) {
+        int emailOffset = NAME + records.getInt(address, NAME_LENGTH);
+        return records.getInt(address, emailOffset) == email.length
+                && records.bytesEqual(address, emailOffset + Integer.BYTES, email);
+    }
+
+    private int recordSize(long address) {
+        int nameLength = records.getInt(address, NAME_LENGTH);
+        return NAME + nameLength + Integer.BYTES + records.getInt(address, NAME + nameLength);
+    }
+
+    private static int recordSize(byte[] name, byte[] email) {
+        return NAME + name.length + Integer.BYTES + email.length;
+    }
+
+    private static long emailKey(byte[] email) {
+        long hash = Hashing.hash64(email);
+        // 0 marks an empty index slot
+        return hash == 0 ? 1 : hash;
+    }
+}
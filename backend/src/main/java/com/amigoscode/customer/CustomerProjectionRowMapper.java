@@ -0,0 +1,42 @@
+package com.amigoscode.customer;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+
+// maps a SELECT over a subset of the customer columns, listed in CustomerField order
+public class CustomerProjectionRowMapper implements RowMapper<Customer> {
+
+    private final boolean id;
+    private final boolean name;
+    private final boolean email;
+    private final boolean age;
+
+    public CustomerProjectionRowMapper(Set<CustomerField> fields) {
+        this.id = fields.contains(CustomerField.ID);
+        this.name = fields.contains(CustomerField.NAME);
+        this.email = fields.contains(CustomerField.EMAIL);
+        this.age = fields.contains(CustomerField.AGE);
+    }
+
+    @Override
+    public Customer mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Customer customer = new Customer();
+        int column = 1;
+        if (id) {
+            customer.setId(rs.getLong(column++));
+        }
+        if (name) {
+            customer.setName(rs.getString(column++));
+        }
+        if (email) {
+            customer.setEmail(rs.getString(column++));
+        }
+        if (age) {
+            customer.setAge(rs.getInt(column));
+        }
+        return customer;
+    }
+}
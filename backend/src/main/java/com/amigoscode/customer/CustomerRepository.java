@@ -1,8 +1,36 @@
 package com.amigoscode.customer;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
-public interface CustomerRepository extends JpaRepository<Customer, Integer> {
+import java.util.Collection;
+import java.util.List;
 
+public interface CustomerRepository extends JpaRepository<Customer, Long> {
+
+    // one index probe, the derived query selected the id and let Hibernate check it
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM customer WHERE email = ?1)", nativeQuery = true)
     boolean existsCustomerByEmail(String email);
+
+    // Constructor expressions: Customer objects built straight from the columns, never
+    // managed, so no persistence context entry or dirty-checking snapshot per row.
+
+    @Query("SELECT new com.amigoscode.customer.Customer(c.id, c.name, c.email, c.age) FROM Customer c")
+    List<Customer> findAllDetached();
+
+    @Query("""
+            SELECT new com.amigoscode.customer.Customer(c.id, c.name, c.email, c.age)
+            FROM Customer c
+            WHERE c.id IN ?1
+            """)
+    List<Customer> findAllDetachedById(Collection<Long> ids);
+
+    @Query("""
+            SELECT new com.amigoscode.customer.Customer(c.id, c.name, c.email, c.age)
+            FROM Customer c
+            WHERE c.id > ?1
+            ORDER BY c.id
+            """)
+    List<Customer> findDetachedPage(long afterId, Pageable page);
 }
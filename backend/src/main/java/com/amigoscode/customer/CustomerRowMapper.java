@@ -1,5 +1,6 @@
 package com.amigoscode.customer;
 
+import com.amigoscode.jfr.CustomerRowMappingEvent;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 
@@ -10,11 +11,20 @@ import java.sql.SQLException;
 public class CustomerRowMapper implements RowMapper<Customer> {
     @Override
     public Customer mapRow(ResultSet rs, int rowNum) throws SQLException {
-        return new Customer(
+        CustomerRowMappingEvent event = new CustomerRowMappingEvent();
+        event.begin();
+        Customer customer = new Customer(
                 rs.getLong("id"),
                 rs.getString("name"),
                 rs.getString("email"),
                 rs.getInt("age")
         );
+        event.end();
+        if (event.shouldCommit()) {
+            event.rowNum = rowNum;
+            event.customerId = customer.getId();
+            event.commit();
+        }
+        return customer;
     }
 }
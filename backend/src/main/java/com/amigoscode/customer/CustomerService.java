@@ -1,37 +1,88 @@
 package com.amigoscode.customer;
 
+import com.amigoscode.collection.LongHashSet;
+import com.amigoscode.emailfilter.EmailFilter;
 import com.amigoscode.exception.DuplicateResourceException;
 import com.amigoscode.exception.RequestValidationException;
 import com.amigoscode.exception.ResourceNotFoundException;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 public class CustomerService {
 
+    private static final int MAX_BATCH_IDS = 1000;
+
     private final CustomerDao customerDao;
+    private final EmailFilter emailFilter;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public CustomerService(@Qualifier("jdbc") CustomerDao customerDao) {
+    public CustomerService(@Qualifier("jdbc") CustomerDao customerDao,
+                           EmailFilter emailFilter,
+                           ApplicationEventPublisher eventPublisher) {
         this.customerDao = customerDao;
+        this.emailFilter = emailFilter;
+        this.eventPublisher = eventPublisher;
     }
 
     public List<Customer> getAllCustomers() {
         return customerDao.selectAllCustomers();
     }
 
-    public Customer getCustomer(Integer id) {
+    public List<Customer> getAllCustomers(Set<CustomerField> fields) {
+        requireFields(fields);
+        return customerDao.selectAllCustomers(fields);
+    }
+
+    // page by page, the whole table is never held in memory
+    public void forEachCustomer(Consumer<Customer> action) {
+        customerDao.forEachCustomer(EnumSet.allOf(CustomerField.class), action);
+    }
+
+    // keyset page in id order, for callers that pull at their own pace
+    public List<Customer> getCustomersPage(long afterId, int limit) {
+        return customerDao.selectCustomersPage(afterId, limit);
+    }
+
+    public List<Customer> getCustomers(long[] ids) {
+        if (ids.length > MAX_BATCH_IDS) {
+            throw new RequestValidationException(
+                    "At most %s ids can be requested at once".formatted(MAX_BATCH_IDS)
+            );
+        }
+        return customerDao.selectCustomersByIds(LongHashSet.of(ids).toArray());
+    }
+
+    public Customer getCustomer(long id, Set<CustomerField> fields) {
+        requireFields(fields);
+        return customerDao.selectCustomerById(id, fields)
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Customer with id [%s] not found".formatted(id)
+                ));
+    }
+
+    public Customer getCustomer(long id) {
         return customerDao.selectCustomerById(id)
                 .orElseThrow(() -> new ResourceNotFoundException(
                         "Customer with id [%s] not found".formatted(id)
                 ));
     }
 
+    public CustomerCount countCustomers(CustomerCountMode mode) {
+        return customerDao.countCustomers(mode);
+    }
+
     public void addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
         // check if
         String email = customerRegistrationRequest.email();
-        if (customerDao.existsPersonWithEmail(email)) {
+        if (emailTaken(email)) {
             throw new DuplicateResourceException("Email already taken");
         }
         Customer customer = new Customer(
@@ -39,21 +90,25 @@ public class CustomerService {
                 customerRegistrationRequest.email(),
                 customerRegistrationRequest.age()
         );
-        customerDao.insertCustomer(customer);
+        try {
+            // a skipped check leaves concurrent registrations to the unique constraint
+            customerDao.insertCustomer(customer);
+        } catch (DataIntegrityViolationException e) {
+            throw new DuplicateResourceException("Email already taken");
+        }
+        eventPublisher.publishEvent(CustomerChangeEvent.inserted(customer));
     }
 
-    public void deleteCustomerById(Integer id) {
-        if (!customerDao.existsPersonWithId(id)) {
-            throw new ResourceNotFoundException(
-                    "Customer with id [%s] not found".formatted(id)
-            );
-        }
+    public void deleteCustomerById(long id) {
+        Customer customer = getCustomer(id);
 
         customerDao.deleteCustomerById(id);
+        eventPublisher.publishEvent(CustomerChangeEvent.deleted(customer));
     }
 
-    public void updateCustomer(Integer id, CustomerUpdateRequest updateRequest) {
+    public void updateCustomer(long id, CustomerUpdateRequest updateRequest) {
         Customer customer = getCustomer(id);
+        Customer before = new Customer(customer.getId(), customer.getName(), customer.getEmail(), customer.getAge());
         boolean changes = false;
 
         if (updateRequest.name() != null && !updateRequest.name().equals(customer.getName())) {
@@ -67,7 +122,7 @@ public class CustomerService {
         }
 
         if (updateRequest.email() != null && !updateRequest.email().equals(customer.getEmail())) {
-            if (customerDao.existsPersonWithEmail(updateRequest.email())) {
+            if (emailTaken(updateRequest.email())) {
                 throw new DuplicateResourceException("Email already taken");
             }
             customer.setEmail(updateRequest.email());
@@ -78,6 +133,50 @@ public class CustomerService {
             throw new RequestValidationException("No data changes found");
         }
 
-        customerDao.updateCustomer(customer);
+        try {
+            // the filter only learns this instance's changes, a negative can be stale
+            customerDao.updateCustomer(customer);
+        } catch (DataIntegrityViolationException e) {
+            throw new DuplicateResourceException("Email already taken");
+        }
+        eventPublisher.publishEvent(CustomerChangeEvent.updated(before, customer));
+    }
+
+    public Customer patchCustomer(long id, CustomerUpdateRequest patchRequest) {
+        if (patchRequest.name() == null && patchRequest.email() == null && patchRequest.age() == null) {
+            throw new RequestValidationException("No data changes found");
+        }
+        Customer patch = new Customer(
+                id,
+                patchRequest.name(),
+                patchRequest.email(),
+                patchRequest.age()
+        );
+        try {
+            // no pre-read, the email unique constraint reports taken emails
+            PatchedCustomer patched = customerDao.patchCustomer(patch)
+                    .orElseThrow(() -> new ResourceNotFoundException(
+                            "Customer with id [%s] not found".formatted(id)
+                    ));
+            eventPublisher.publishEvent(CustomerChangeEvent.updated(patched.before(), patched.after()));
+            return patched.after();
+        } catch (DataIntegrityViolationException e) {
+            throw new DuplicateResourceException("Email already taken");
+        }
+    }
+
+    private static void requireFields(Set<CustomerField> fields) {
+        if (fields.isEmpty()) {
+            throw new RequestValidationException("At least one customer field must be requested");
+        }
+    }
+
+    private boolean emailTaken(String email) {
+        if (!emailFilter.mightContain(email)) {
+            return false;
+        }
+        boolean taken = customerDao.existsPersonWithEmail(email);
+        emailFilter.recordLookup(taken);
+        return taken;
     }
 }
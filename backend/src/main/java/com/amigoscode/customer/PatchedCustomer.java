@@ -0,0 +1,8 @@
+package com.amigoscode.customer;
+
+// a patched row as it was before the patch and as it is after it
+public record PatchedCustomer(
+        Customer before,
+        Customer after
+) {
+}
@@ -0,0 +1,163 @@
+package com.amigoscode.emailfilter;
+
+import com.amigoscode.collection.CountingBloomFilter;
+import com.amigoscode.collection.Hashing;
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerChangeEvent;
+import com.amigoscode.customer.CustomerDao;
+import com.amigoscode.customer.CustomerField;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Answers "definitely not taken" for most new emails so registration can skip the
+// existsPersonWithEmail query. Until the filter is built every email is a maybe.
+// It is kept conservative: removals are skipped whenever the filter might not hold
+// the email, which can only add false positives.
+@Component
+public class EmailFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailFilter.class);
+
+    private final CustomerDao customerDao;
+    private final long expectedEmails;
+    private final double falsePositiveRate;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile CountingBloomFilter active;
+    private volatile CountingBloomFilter building;
+    private volatile long capacity;
+
+    private final LongAdder entries = new LongAdder();
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder queriesAvoided = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    public EmailFilter(@Qualifier("jdbc") CustomerDao customerDao,
+                       @Value("${customer.email-filter.expected-emails:1000000}") long expectedEmails,
+                       @Value("${customer.email-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.customerDao = customerDao;
+        this.expectedEmails = expectedEmails;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    public boolean mightContain(String email) {
+        checks.increment();
+        CountingBloomFilter filter = active;
+        if (filter == null || filter.mightContain(key(email))) {
+            return true;
+        }
+        queriesAvoided.increment();
+        return false;
+    }
+
+    // outcome of the query behind a maybe, a miss there is a false positive
+    public void recordLookup(boolean exists) {
+        lookups.increment();
+        if (!exists && active != null) {
+            falsePositives.increment();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildInBackground() {
+        rebuildInBackground(expectedEmails);
+    }
+
+    @EventListener
+    public void onCustomerChange(CustomerChangeEvent event) {
+        String added = event.after() == null ? null : event.after().getEmail();
+        String removed = event.before() == null ? null : event.before().getEmail();
+        if (added != null && added.equals(removed)) {
+            return;
+        }
+        CountingBloomFilter next = building;
+        if (next != null && added != null) {
+            // the scan may or may not reach this row, adding twice is harmless, removing is not
+            next.add(key(added));
+        }
+        CountingBloomFilter filter = active;
+        if (filter == null) {
+            return;
+        }
+        if (added != null) {
+            filter.add(key(added));
+            entries.increment();
+        }
+        if (removed != null && filter.mightContain(key(removed))) {
+            filter.remove(key(removed));
+            entries.decrement();
+        }
+        if (entries.sum() > capacity) {
+            rebuildInBackground(capacity * 2);
+        }
+    }
+
+    public EmailFilterStats stats() {
+        CountingBloomFilter filter = active;
+        long avoided = queriesAvoided.sum();
+        long misses = falsePositives.sum();
+        return new EmailFilterStats(
+                filter != null,
+                rebuilding.get(),
+                capacity,
+                entries.sum(),
+                filter == null ? 0 : filter.counters(),
+                filter == null ? 0 : filter.hashes(),
+                filter == null ? 1 : filter.expectedFalsePositiveRate(entries.sum()),
+                checks.sum(),
+                avoided,
+                lookups.sum(),
+                misses,
+                avoided + misses == 0 ? 0 : (double) misses / (avoided + misses)
+        );
+    }
+
+    public void rebuild(long newCapacity) {
+        long start = System.nanoTime();
+        CountingBloomFilter next = new CountingBloomFilter(newCapacity, falsePositiveRate);
+        building = next;
+        long[] count = {0};
+        customerDao.forEachCustomer(EnumSet.of(CustomerField.EMAIL), customer -> {
+            next.add(key(customer.getEmail()));
+            count[0]++;
+        });
+        capacity = Math.max(newCapacity, count[0] * 2);
+        entries.reset();
+        entries.add(count[0]);
+        active = next;
+        building = null;
+        log.info("Built email filter over {} emails in {} ms", count[0], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void rebuildInBackground(long newCapacity) {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                rebuild(newCapacity);
+            } catch (RuntimeException e) {
+                log.warn("Failed to build email filter, emails keep going to the database", e);
+            } finally {
+                rebuilding.set(false);
+            }
+        }, "email-filter-build");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static long key(String email) {
+        return Hashing.hash64(email.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,21 @@
+package com.amigoscode.emailfilter;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+@Component
+@Endpoint(id = "emailfilter")
+public class EmailFilterEndpoint {
+
+    private final EmailFilter emailFilter;
+
+    public EmailFilterEndpoint(EmailFilter emailFilter) {
+        this.emailFilter = emailFilter;
+    }
+
+    @ReadOperation
+    public EmailFilterStats stats() {
+        return emailFilter.stats();
+    }
+}
@@ -0,0 +1,17 @@
+package com.amigoscode.emailfilter;
+
+public record EmailFilterStats(
+        boolean ready,
+        boolean rebuilding,
+        long capacity,
+        long entries,
+        long counters,
+        int hashes,
+        double expectedFalsePositiveRate,
+        long checks,
+        long queriesAvoided,
+        long lookups,
+        long falsePositives,
+        double observedFalsePositiveRate
+) {
+}
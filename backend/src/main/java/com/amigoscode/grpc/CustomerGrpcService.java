@@ -0,0 +1,177 @@
+package com.amigoscode.grpc;
+
+import com.amigoscode.customer.CustomerRegistrationRequest;
+import com.amigoscode.customer.CustomerService;
+import com.amigoscode.exception.DuplicateResourceException;
+import com.amigoscode.exception.RequestValidationException;
+import com.amigoscode.grpc.v1.BatchGetCustomersRequest;
+import com.amigoscode.grpc.v1.BatchGetCustomersResponse;
+import com.amigoscode.grpc.v1.Customer;
+import com.amigoscode.grpc.v1.CustomerRegistration;
+import com.amigoscode.grpc.v1.CustomerServiceGrpc;
+import com.amigoscode.grpc.v1.GetCustomerRequest;
+import com.amigoscode.grpc.v1.ImportCustomersRequest;
+import com.amigoscode.grpc.v1.ImportCustomersResponse;
+import com.amigoscode.grpc.v1.ListCustomersRequest;
+import com.amigoscode.grpc.v1.ListCustomersResponse;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// customer.proto on top of the same CustomerService as the REST controller, so
+// validation, change events and caches behave alike. Service exceptions become
+// statuses in GrpcExceptionTranslator.
+@Component
+public class CustomerGrpcService extends CustomerServiceGrpc.CustomerServiceImplBase {
+
+    private final CustomerService customerService;
+    private final GrpcProperties properties;
+
+    public CustomerGrpcService(CustomerService customerService, GrpcProperties properties) {
+        this.customerService = customerService;
+        this.properties = properties;
+    }
+
+    @Override
+    public void getCustomer(GetCustomerRequest request, StreamObserver<Customer> responseObserver) {
+        responseObserver.onNext(toMessage(customerService.getCustomer(request.getId())));
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void batchGetCustomers(BatchGetCustomersRequest request,
+                                  StreamObserver<BatchGetCustomersResponse> responseObserver) {
+        long[] ids = new long[request.getIdsCount()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = request.getIds(i);
+        }
+        BatchGetCustomersResponse.Builder response = BatchGetCustomersResponse.newBuilder();
+        for (com.amigoscode.customer.Customer customer : customerService.getCustomers(ids)) {
+            response.addCustomers(toMessage(customer));
+        }
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
+    // keyset pages fetched only while the transport is ready for more, so a slow client
+    // holds back the reads instead of filling memory; see CustomerPager
+    @Override
+    public void listCustomers(ListCustomersRequest request, StreamObserver<ListCustomersResponse> responseObserver) {
+        ServerCallStreamObserver<ListCustomersResponse> call = (ServerCallStreamObserver<ListCustomersResponse>) responseObserver;
+        CustomerPager pager = new CustomerPager(call, request.getAfterId());
+        call.setOnReadyHandler(pager::drain);
+        // without a cancel handler a message sent after cancellation would throw
+        call.setOnCancelHandler(pager::cancel);
+        pager.drain();
+    }
+
+    // each message is applied before the next is requested, HTTP/2 flow control holds
+    // the client back meanwhile. A failure part way leaves what came before imported.
+    @Override
+    public StreamObserver<ImportCustomersRequest> importCustomers(StreamObserver<ImportCustomersResponse> responseObserver) {
+        return new StreamObserver<>() {
+
+            private final ImportCustomersResponse.Builder response = ImportCustomersResponse.newBuilder();
+            private long index;
+
+            @Override
+            public void onNext(ImportCustomersRequest request) {
+                for (CustomerRegistration registration : request.getCustomersList()) {
+                    String rejection = register(registration);
+                    if (rejection == null) {
+                        response.setImported(response.getImported() + 1);
+                    } else {
+                        response.addRejected(ImportCustomersResponse.Rejection.newBuilder()
+                                .setIndex(index)
+                                .setReason(rejection));
+                    }
+                    index++;
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                // the client cancelled, nobody is waiting for the summary
+            }
+
+            @Override
+            public void onCompleted() {
+                responseObserver.onNext(response.build());
+                responseObserver.onCompleted();
+            }
+        };
+    }
+
+    // null when registered, otherwise why not
+    private String register(CustomerRegistration registration) {
+        // proto3 has no nulls, unset strings arrive empty
+        if (registration.getName().isBlank() || registration.getEmail().isBlank()) {
+            return "Name and email are required";
+        }
+        // an unset age would otherwise arrive as 0
+        if (!registration.hasAge()) {
+            return "Age is required";
+        }
+        try {
+            customerService.addCustomer(new CustomerRegistrationRequest(
+                    registration.getName(), registration.getEmail(), registration.getAge()
+            ));
+            return null;
+        } catch (DuplicateResourceException | RequestValidationException e) {
+            return e.getMessage();
+        }
+    }
+
+    static Customer toMessage(com.amigoscode.customer.Customer customer) {
+        Customer.Builder message = Customer.newBuilder().setId(customer.getId());
+        if (customer.getName() != null) {
+            message.setName(customer.getName());
+        }
+        if (customer.getEmail() != null) {
+            message.setEmail(customer.getEmail());
+        }
+        if (customer.getAge() != null) {
+            message.setAge(customer.getAge());
+        }
+        return message.build();
+    }
+
+    // Sends a page per message while the call is ready; onReady picks up where a full
+    // transport buffer stopped it. Callbacks of one call never overlap, no locking needed.
+    private final class CustomerPager {
+
+        private final ServerCallStreamObserver<ListCustomersResponse> call;
+        private long afterId;
+        private boolean done;
+
+        CustomerPager(ServerCallStreamObserver<ListCustomersResponse> call, long afterId) {
+            this.call = call;
+            this.afterId = afterId;
+        }
+
+        void drain() {
+            while (!done && call.isReady()) {
+                List<com.amigoscode.customer.Customer> page =
+                        customerService.getCustomersPage(afterId, properties.listPageSize());
+                if (!page.isEmpty()) {
+                    ListCustomersResponse.Builder response = ListCustomersResponse.newBuilder();
+                    for (com.amigoscode.customer.Customer customer : page) {
+                        response.addCustomers(toMessage(customer));
+                    }
+                    afterId = page.get(page.size() - 1).getId();
+                    call.onNext(response.build());
+                }
+                if (page.size() < properties.listPageSize()) {
+                    done = true;
+                    call.onCompleted();
+                }
+            }
+        }
+
+        void cancel() {
+            done = true;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.amigoscode.grpc;
+
+import io.grpc.ForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+// customer.grpc.calls{method,status}, from the start of a call until its status is sent
+class GrpcCallMetrics implements ServerInterceptor {
+
+    private final MeterRegistry meterRegistry;
+
+    GrpcCallMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call,
+                                                                 Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        long start = System.nanoTime();
+        return next.startCall(new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+            @Override
+            public void close(Status status, Metadata trailers) {
+                Timer.builder("customer.grpc.calls")
+                        .description("gRPC calls served, by method and status")
+                        .tag("method", call.getMethodDescriptor().getBareMethodName())
+                        .tag("status", status.getCode().name())
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                super.close(status, trailers);
+            }
+        }, headers);
+    }
+}
@@ -0,0 +1,115 @@
+package com.amigoscode.grpc;
+
+import com.amigoscode.exception.DuplicateResourceException;
+import com.amigoscode.exception.RequestValidationException;
+import com.amigoscode.exception.ResourceNotFoundException;
+import com.amigoscode.exception.ServiceUnavailableException;
+import com.amigoscode.querycontrol.QueryCancelledException;
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.QueryTimeoutException;
+
+// Closes a call whose handler threw with the status the REST API would answer with
+// as HTTP status, message included. Anything unexpected is INTERNAL and logged.
+class GrpcExceptionTranslator implements ServerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(GrpcExceptionTranslator.class);
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call,
+                                                                 Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        ClosingCall<ReqT, RespT> closingCall = new ClosingCall<>(call);
+        ServerCall.Listener<ReqT> listener;
+        try {
+            listener = next.startCall(closingCall, headers);
+        } catch (RuntimeException e) {
+            closingCall.fail(e);
+            return new ServerCall.Listener<>() {
+            };
+        }
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(listener) {
+            @Override
+            public void onMessage(ReqT message) {
+                try {
+                    super.onMessage(message);
+                } catch (RuntimeException e) {
+                    closingCall.fail(e);
+                }
+            }
+
+            @Override
+            public void onHalfClose() {
+                try {
+                    super.onHalfClose();
+                } catch (RuntimeException e) {
+                    closingCall.fail(e);
+                }
+            }
+
+            @Override
+            public void onReady() {
+                try {
+                    super.onReady();
+                } catch (RuntimeException e) {
+                    closingCall.fail(e);
+                }
+            }
+        };
+    }
+
+    static Status status(Throwable e) {
+        if (e instanceof ResourceNotFoundException) {
+            return Status.NOT_FOUND.withDescription(e.getMessage());
+        }
+        if (e instanceof RequestValidationException) {
+            return Status.INVALID_ARGUMENT.withDescription(e.getMessage());
+        }
+        if (e instanceof DuplicateResourceException) {
+            return Status.ALREADY_EXISTS.withDescription(e.getMessage());
+        }
+        if (e instanceof ServiceUnavailableException) {
+            return Status.UNAVAILABLE.withDescription(e.getMessage());
+        }
+        if (e instanceof QueryTimeoutException) {
+            return Status.DEADLINE_EXCEEDED.withDescription(e.getMessage());
+        }
+        if (e instanceof QueryCancelledException) {
+            return Status.CANCELLED.withDescription(e.getMessage());
+        }
+        return Status.INTERNAL.withDescription("Internal error");
+    }
+
+    // remembers being closed, a handler may have closed the call before it threw
+    private static final class ClosingCall<ReqT, RespT> extends ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT> {
+
+        private boolean closed;
+
+        ClosingCall(ServerCall<ReqT, RespT> delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void close(Status status, Metadata trailers) {
+            closed = true;
+            super.close(status, trailers);
+        }
+
+        void fail(RuntimeException e) {
+            Status status = status(e);
+            if (status.getCode() == Status.Code.INTERNAL) {
+                log.error("gRPC call {} failed", getMethodDescriptor().getFullMethodName(), e);
+            }
+            if (!closed) {
+                close(status, new Metadata());
+            }
+        }
+    }
+}
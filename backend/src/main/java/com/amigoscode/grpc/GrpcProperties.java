@@ -0,0 +1,23 @@
+package com.amigoscode.grpc;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@ConfigurationProperties("customer.grpc")
+public record GrpcProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("9090") int port,
+        @DefaultValue("16") int handlerThreads,
+        @DefaultValue("100") int maxConcurrentCallsPerConnection,
+        @DefaultValue("1MB") DataSize flowControlWindow,
+        @DefaultValue("4MB") DataSize maxInboundMessageSize,
+        @DefaultValue("1m") Duration keepAliveTime,
+        @DefaultValue("20s") Duration keepAliveTimeout,
+        @DefaultValue("30s") Duration permitKeepAliveTime,
+        @DefaultValue("1000") int listPageSize,
+        @DefaultValue("10s") Duration shutdownGrace
+) {
+}
@@ -0,0 +1,107 @@
+package com.amigoscode.grpc;
+
+import io.grpc.Server;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Serves CustomerGrpcService on customer.grpc.port, next to the HTTP server. Netty
+// multiplexes calls as HTTP/2 streams, up to max-concurrent-calls-per-connection per
+// connection, each with flow-control-window bytes of credit; handlers run on a fixed
+// pool rather than the event loops. ServerInterceptor beans (QueryScope, StaleReads) run
+// closest to the service, inside exception translation and customer.grpc.calls.
+@Component
+public class GrpcServer {
+
+    private static final Logger log = LoggerFactory.getLogger(GrpcServer.class);
+
+    private final GrpcProperties properties;
+    private final CustomerGrpcService customerGrpcService;
+    private final ObjectProvider<ServerInterceptor> interceptors;
+    private final MeterRegistry meterRegistry;
+    private volatile Server server;
+    private volatile ExecutorService handlers;
+
+    public GrpcServer(GrpcProperties properties,
+                      CustomerGrpcService customerGrpcService,
+                      ObjectProvider<ServerInterceptor> interceptors,
+                      MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.customerGrpcService = customerGrpcService;
+        this.interceptors = interceptors;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.enabled()) {
+            return;
+        }
+        // the last one sees each call first
+        List<ServerInterceptor> chain = new ArrayList<>(interceptors.orderedStream().toList());
+        chain.add(new GrpcExceptionTranslator());
+        chain.add(new GrpcCallMetrics(meterRegistry));
+
+        ExecutorService executor = Executors.newFixedThreadPool(properties.handlerThreads(), r -> {
+            Thread thread = new Thread(r, "customer-grpc-handler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Server grpcServer = NettyServerBuilder.forPort(properties.port())
+                .executor(executor)
+                .maxConcurrentCallsPerConnection(properties.maxConcurrentCallsPerConnection())
+                .flowControlWindow((int) properties.flowControlWindow().toBytes())
+                .maxInboundMessageSize((int) properties.maxInboundMessageSize().toBytes())
+                .keepAliveTime(properties.keepAliveTime().toMillis(), TimeUnit.MILLISECONDS)
+                .keepAliveTimeout(properties.keepAliveTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .permitKeepAliveTime(properties.permitKeepAliveTime().toMillis(), TimeUnit.MILLISECONDS)
+                .addService(ServerInterceptors.intercept(customerGrpcService, chain))
+                .build();
+        try {
+            grpcServer.start();
+        } catch (IOException e) {
+            executor.shutdownNow();
+            throw new IllegalStateException("Could not start the gRPC server on port " + properties.port(), e);
+        }
+        handlers = executor;
+        server = grpcServer;
+        log.info("gRPC server started on port {}", grpcServer.getPort());
+    }
+
+    // calls in flight get shutdown-grace to finish, then are cancelled
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        Server grpcServer = server;
+        server = null;
+        if (grpcServer == null) {
+            return;
+        }
+        grpcServer.shutdown();
+        if (!grpcServer.awaitTermination(properties.shutdownGrace().toMillis(), TimeUnit.MILLISECONDS)) {
+            grpcServer.shutdownNow();
+            grpcServer.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        handlers.shutdownNow();
+    }
+
+    // the bound port, differs from customer.grpc.port when that is 0; -1 when not serving
+    public int port() {
+        Server grpcServer = server;
+        return grpcServer == null ? -1 : grpcServer.getPort();
+    }
+}
@@ -0,0 +1,13 @@
+package com.amigoscode.idempotency;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface IdempotencyKeyDao {
+
+    Optional<IdempotencyRecord> selectByKey(String key);
+
+    boolean insertIfAbsent(IdempotencyRecord record);
+
+    int deleteCreatedBefore(Instant cutoff);
+}
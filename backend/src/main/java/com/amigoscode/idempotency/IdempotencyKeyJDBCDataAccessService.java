@@ -0,0 +1,64 @@
+package com.amigoscode.idempotency;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public class IdempotencyKeyJDBCDataAccessService implements IdempotencyKeyDao {
+
+    private static final RowMapper<IdempotencyRecord> ROW_MAPPER = (rs, rowNum) -> new IdempotencyRecord(
+            rs.getString("key"),
+            rs.getBytes("request_hash"),
+            rs.getInt("status"),
+            rs.getString("response_body"),
+            rs.getTimestamp("created_at").toInstant()
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotencyKeyJDBCDataAccessService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> selectByKey(String key) {
+        String sql = """
+                SELECT key, request_hash, status, response_body, created_at
+                FROM idempotency_key
+                WHERE key = ?
+                """;
+        return jdbcTemplate.query(sql, ROW_MAPPER, key).stream()
+                .findFirst();
+    }
+
+    @Override
+    public boolean insertIfAbsent(IdempotencyRecord record) {
+        String sql = """
+                INSERT INTO idempotency_key(key, request_hash, status, response_body, created_at)
+                VALUES(?, ?, ?, ?, ?)
+                ON CONFLICT (key) DO NOTHING
+                """;
+        return jdbcTemplate.update(
+                sql,
+                record.key(),
+                record.requestHash(),
+                record.status(),
+                record.responseBody(),
+                Timestamp.from(record.createdAt())
+        ) == 1;
+    }
+
+    @Override
+    public int deleteCreatedBefore(Instant cutoff) {
+        String sql = """
+                DELETE FROM idempotency_key
+                WHERE created_at < ?
+                """;
+        return jdbcTemplate.update(sql, Timestamp.from(cutoff));
+    }
+}
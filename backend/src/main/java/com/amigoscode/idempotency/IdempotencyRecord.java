@@ -0,0 +1,12 @@
+package com.amigoscode.idempotency;
+
+import java.time.Instant;
+
+public record IdempotencyRecord(
+        String key,
+        byte[] requestHash,
+        int status,
+        String responseBody,
+        Instant createdAt
+) {
+}
@@ -0,0 +1,183 @@
+package com.amigoscode.idempotency;
+
+import com.amigoscode.exception.RequestValidationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeyDao idempotencyKeyDao;
+    private final Duration ttl;
+    private final int maxCachedKeys;
+
+    // in-memory index in front of the idempotency_key table
+    private final ConcurrentHashMap<String, IdempotencyRecord> index = new ConcurrentHashMap<>();
+    // one entry per key currently being executed, duplicates wait on it
+    private final ConcurrentHashMap<String, CompletableFuture<IdempotencyRecord>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyKeyDao idempotencyKeyDao,
+                              @Value("${idempotency.ttl:PT24H}") Duration ttl,
+                              @Value("${idempotency.max-cached-keys:100000}") int maxCachedKeys) {
+        this.idempotencyKeyDao = idempotencyKeyDao;
+        this.ttl = ttl;
+        this.maxCachedKeys = maxCachedKeys;
+    }
+
+    public IdempotentOutcome execute(String key, Object request, Runnable action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new RequestValidationException(
+                    "Idempotency-Key must be between 1 and %s characters".formatted(MAX_KEY_LENGTH)
+            );
+        }
+        byte[] requestHash = hash(request);
+
+        IdempotencyRecord existing = lookup(key);
+        if (existing != null) {
+            return replay(existing, requestHash);
+        }
+
+        CompletableFuture<IdempotencyRecord> claim = new CompletableFuture<>();
+        CompletableFuture<IdempotencyRecord> running = inFlight.putIfAbsent(key, claim);
+        if (running != null) {
+            IdempotencyRecord record = running.join();
+            if (record == null) {
+                // the first attempt failed without a recordable outcome, so this one may try again
+                return execute(key, request, action);
+            }
+            return replay(record, requestHash);
+        }
+
+        try {
+            // the previous holder of the key may have finished between lookup and claim
+            existing = lookup(key);
+            if (existing != null) {
+                claim.complete(existing);
+                return replay(existing, requestHash);
+            }
+            return run(key, requestHash, action, claim);
+        } finally {
+            inFlight.remove(key, claim);
+            claim.complete(null);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval:PT10M}")
+    public void removeExpiredKeys() {
+        Instant cutoff = Instant.now().minus(ttl);
+        index.values().removeIf(record -> record.createdAt().isBefore(cutoff));
+        idempotencyKeyDao.deleteCreatedBefore(cutoff);
+    }
+
+    private IdempotentOutcome run(String key,
+                                  byte[] requestHash,
+                                  Runnable action,
+                                  CompletableFuture<IdempotencyRecord> claim) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            HttpStatusCode status = clientErrorStatus(e);
+            if (status == null) {
+                throw e;
+            }
+            claim.complete(store(new IdempotencyRecord(
+                    key, requestHash, status.value(), e.getMessage(), Instant.now()
+            )));
+            throw e;
+        }
+        IdempotencyRecord succeeded = new IdempotencyRecord(
+                key, requestHash, 200, null, Instant.now()
+        );
+        IdempotencyRecord record = store(succeeded);
+        claim.complete(record);
+        if (record != succeeded) {
+            return replay(record, requestHash);
+        }
+        return new IdempotentOutcome(record.status(), false);
+    }
+
+    private IdempotentOutcome replay(IdempotencyRecord record, byte[] requestHash) {
+        if (!MessageDigest.isEqual(record.requestHash(), requestHash)) {
+            throw new RequestValidationException(
+                    "Idempotency-Key [%s] was already used for a different request".formatted(record.key())
+            );
+        }
+        HttpStatusCode status = HttpStatusCode.valueOf(record.status());
+        if (status.isError()) {
+            throw new ResponseStatusException(status, record.responseBody());
+        }
+        return new IdempotentOutcome(record.status(), true);
+    }
+
+    private IdempotencyRecord lookup(String key) {
+        Instant cutoff = Instant.now().minus(ttl);
+        IdempotencyRecord record = index.get(key);
+        if (record == null) {
+            record = idempotencyKeyDao.selectByKey(key).orElse(null);
+            if (record != null) {
+                cache(record);
+            }
+        }
+        if (record == null || record.createdAt().isBefore(cutoff)) {
+            return null;
+        }
+        return record;
+    }
+
+    // inFlight only serializes this instance. Another node can store the key between
+    // lookup and insert, the unique key on idempotency_key picks the winner and its
+    // outcome is the one this and every later attempt answers with
+    private IdempotencyRecord store(IdempotencyRecord record) {
+        IdempotencyRecord stored = idempotencyKeyDao.insertIfAbsent(record)
+                ? record
+                : idempotencyKeyDao.selectByKey(record.key()).orElse(record);
+        cache(stored);
+        return stored;
+    }
+
+    private void cache(IdempotencyRecord record) {
+        // the table stays the source of truth, a full index only means extra lookups
+        if (index.size() < maxCachedKeys) {
+            index.put(record.key(), record);
+        }
+    }
+
+    private static HttpStatusCode clientErrorStatus(RuntimeException e) {
+        HttpStatusCode status = null;
+        if (e instanceof ResponseStatusException responseStatusException) {
+            status = responseStatusException.getStatusCode();
+        } else {
+            ResponseStatus responseStatus = AnnotatedElementUtils.findMergedAnnotation(
+                    e.getClass(), ResponseStatus.class
+            );
+            if (responseStatus != null) {
+                status = responseStatus.code();
+            }
+        }
+        return status != null && status.is4xxClientError() ? status : null;
+    }
+
+    private static byte[] hash(Object request) {
+        try {
+            return MessageDigest.getInstance("SHA-256")
+                    .digest(String.valueOf(request).getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.amigoscode.idempotency;
+
+public record IdempotentOutcome(
+        int status,
+        boolean replayed
+) {
+}
@@ -0,0 +1,110 @@
+package com.amigoscode.ingest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+
+// Walks the lines of one mapped chunk; subclasses turn a line into a staged row or a
+// rejection. One instance per chunk, the scratch buffers are not shared.
+abstract class ChunkParser {
+
+    private final CharsetDecoder utf8 = StandardCharsets.UTF_8.newDecoder();
+    private byte[] line = new byte[1024];
+
+    static ChunkParser of(IngestFormat format, CsvChunkParser.Columns columns) {
+        return switch (format) {
+            case CSV -> new CsvChunkParser(columns);
+            case NDJSON -> new NdjsonChunkParser();
+        };
+    }
+
+    ParsedChunk parse(FileChunk chunk, ByteBuffer mapped) {
+        ParsedChunk.Builder out = new ParsedChunk.Builder(chunk);
+        int limit = mapped.limit();
+        int start = 0;
+        while (start < limit) {
+            int end = start;
+            while (end < limit && mapped.get(end) != '\n') {
+                end++;
+            }
+            int length = end - start;
+            if (length > 0 && mapped.get(end - 1) == '\r') {
+                length--;
+            }
+            if (length > line.length) {
+                line = new byte[Math.max(length, line.length * 2)];
+            }
+            mapped.get(start, line, 0, length);
+            if (!isBlank(line, length)) {
+                parseLine(chunk.start() + start, line, length, out);
+            }
+            start = end + 1;
+        }
+        return out.build();
+    }
+
+    // offset is the line's position in the file, the handle rejections are reported by
+    abstract void parseLine(long offset, byte[] line, int length, ParsedChunk.Builder out);
+
+    void row(ParsedChunk.Builder out, long offset,
+             byte[] name, int nameStart, int nameLength,
+             byte[] email, int emailStart, int emailLength,
+             int age) {
+        if (nameLength == 0) {
+            out.reject(offset, "missing name");
+        } else if (emailLength == 0) {
+            out.reject(offset, "missing email");
+        } else if (age < 0) {
+            out.reject(offset, "invalid age");
+        } else if (!isText(name, nameStart, nameLength) || !isText(email, emailStart, emailLength)) {
+            // COPY would fail the whole chunk on either
+            out.reject(offset, "not UTF-8 text or contains NUL");
+        } else {
+            out.row(offset, name, nameStart, nameLength, email, emailStart, emailLength, age);
+        }
+    }
+
+    // the age in ASCII digits, -1 when it is not a non-negative int
+    static int parseAge(byte[] bytes, int start, int length) {
+        if (length == 0 || length > 10) {
+            return -1;
+        }
+        long age = 0;
+        for (int i = start; i < start + length; i++) {
+            if (bytes[i] < '0' || bytes[i] > '9') {
+                return -1;
+            }
+            age = age * 10 + (bytes[i] - '0');
+        }
+        return age > Integer.MAX_VALUE ? -1 : (int) age;
+    }
+
+    private boolean isText(byte[] bytes, int start, int length) {
+        boolean ascii = true;
+        for (int i = start; i < start + length; i++) {
+            if (bytes[i] == 0) {
+                return false;
+            }
+            ascii &= bytes[i] > 0;
+        }
+        if (ascii) {
+            return true;
+        }
+        try {
+            utf8.reset().decode(ByteBuffer.wrap(bytes, start, length));
+            return true;
+        } catch (CharacterCodingException e) {
+            return false;
+        }
+    }
+
+    private static boolean isBlank(byte[] bytes, int length) {
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] != ' ' && bytes[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,119 @@
+package com.amigoscode.ingest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// RFC 4180 style fields, one record per line: quoted fields may hold commas and
+// doubled quotes but not line breaks, since chunks are cut at line boundaries.
+// Spaces around unquoted fields are trimmed, columns past the last one needed ignored.
+final class CsvChunkParser extends ChunkParser {
+
+    private final Columns columns;
+    private final int fieldCount;
+    private final int[] fieldStart;
+    private final int[] fieldLength;
+    private byte[] fields = new byte[1024];
+
+    CsvChunkParser(Columns columns) {
+        this.columns = columns;
+        this.fieldCount = Math.max(columns.name(), Math.max(columns.email(), columns.age())) + 1;
+        this.fieldStart = new int[fieldCount];
+        this.fieldLength = new int[fieldCount];
+    }
+
+    @Override
+    void parseLine(long offset, byte[] line, int length, ParsedChunk.Builder out) {
+        if (fields.length < length) {
+            fields = new byte[Math.max(length, fields.length * 2)];
+        }
+        int at = 0;
+        int used = 0;
+        int field = 0;
+        while (field < fieldCount) {
+            at = skipSpaces(line, at, length);
+            fieldStart[field] = used;
+            if (at < length && line[at] == '"') {
+                boolean closed = false;
+                at++;
+                while (at < length) {
+                    byte b = line[at++];
+                    if (b != '"') {
+                        fields[used++] = b;
+                    } else if (at < length && line[at] == '"') {
+                        fields[used++] = '"';
+                        at++;
+                    } else {
+                        closed = true;
+                        break;
+                    }
+                }
+                if (!closed) {
+                    out.reject(offset, "unterminated quote");
+                    return;
+                }
+                at = skipSpaces(line, at, length);
+                if (at < length && line[at] != ',') {
+                    out.reject(offset, "text after a closing quote");
+                    return;
+                }
+            } else {
+                int start = at;
+                while (at < length && line[at] != ',') {
+                    at++;
+                }
+                int end = at;
+                while (end > start && (line[end - 1] == ' ' || line[end - 1] == '\t')) {
+                    end--;
+                }
+                System.arraycopy(line, start, fields, used, end - start);
+                used += end - start;
+            }
+            fieldLength[field] = used - fieldStart[field];
+            field++;
+            if (at >= length) {
+                break;
+            }
+            at++;
+        }
+        if (field < fieldCount) {
+            out.reject(offset, "expected at least " + fieldCount + " columns");
+            return;
+        }
+        int age = parseAge(fields, fieldStart[columns.age()], fieldLength[columns.age()]);
+        row(out, offset,
+                fields, fieldStart[columns.name()], fieldLength[columns.name()],
+                fields, fieldStart[columns.email()], fieldLength[columns.email()],
+                age);
+    }
+
+    private static int skipSpaces(byte[] line, int at, int length) {
+        while (at < length && (line[at] == ' ' || line[at] == '\t')) {
+            at++;
+        }
+        return at;
+    }
+
+    // zero-based positions of the columns the job needs
+    record Columns(int name, int email, int age) {
+
+        static final Columns DEFAULT = new Columns(0, 1, 2);
+
+        // by header name, case-insensitive, in any order
+        static Columns fromHeader(String header) {
+            if (header.startsWith("\uFEFF")) {
+                header = header.substring(1);
+            }
+            List<String> names = Arrays.stream(header.split(",", -1))
+                    .map(name -> name.strip().replace("\"", "").toLowerCase(Locale.ROOT))
+                    .toList();
+            int name = names.indexOf("name");
+            int email = names.indexOf("email");
+            int age = names.indexOf("age");
+            if (name < 0 || email < 0 || age < 0) {
+                throw new IllegalArgumentException("CSV header must name the name, email and age columns, got: " + header);
+            }
+            return new Columns(name, email, age);
+        }
+    }
+}
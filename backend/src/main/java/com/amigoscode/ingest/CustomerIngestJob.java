@@ -0,0 +1,335 @@
+package com.amigoscode.ingest;
+
+import com.amigoscode.collection.LongHashSet;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Loads a partner file of customers, CSV or NDJSON, without going through the API.
+// The file is cut into line-aligned chunks (FileChunks) that are memory-mapped and
+// parsed on a fork-join pool, a window of them ahead of the loader. The loader takes
+// chunks in file order and drops emails seen earlier in the file by their 64-bit hash
+// (a collision would drop a distinct email, unlikely below billions of rows). The
+// rest is COPYed into a temporary staging table and merged into customer by one
+// INSERT ... SELECT that skips emails already taken, in one transaction per chunk
+// together with the chunk's customer_ingest_chunk row. Rerunning the same file skips
+// the merged chunks; emails from those are then caught by the merge, not the dedupe.
+@Component
+@Profile("ingest")
+public class CustomerIngestJob {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerIngestJob.class);
+
+    private static final int REJECTIONS_LOGGED = 100;
+
+    private static final String STAGING_SQL = """
+            CREATE TEMPORARY TABLE customer_ingest_staging(
+                line BIGINT NOT NULL,
+                name TEXT NOT NULL,
+                email TEXT NOT NULL,
+                age INT NOT NULL
+            ) ON COMMIT DROP
+            """;
+    private static final String COPY_SQL =
+            "COPY customer_ingest_staging(line, name, email, age) FROM STDIN (FORMAT csv)";
+    // ON CONFLICT covers an email registered concurrently, after the NOT EXISTS looked.
+    // Once customer is partitioned the email claim trigger raises instead, failing the
+    // chunk, and a rerun picks it up again.
+    private static final String MERGE_SQL = """
+            INSERT INTO customer(name, email, age)
+            SELECT name, email, age
+            FROM customer_ingest_staging s
+            WHERE NOT EXISTS (
+                SELECT 1
+                FROM customer c
+                WHERE c.email = s.email
+            )
+            ORDER BY line
+            ON CONFLICT DO NOTHING
+            RETURNING id, name, email, age
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String mergeSql;
+
+    public CustomerIngestJob(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${customer.outbox.enabled:true}") boolean outbox) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // ingested customers are changes like any other for the outbox relay
+        this.mergeSql = outbox
+                ? """
+                WITH written AS (
+                %s), outboxed AS (
+                    INSERT INTO customer_outbox(customer_id, type, payload)
+                    SELECT id, 'INSERTED', jsonb_build_object('id', id, 'name', name, 'email', email, 'age', age)
+                    FROM written
+                )
+                SELECT count(*)
+                FROM written
+                """.formatted(MERGE_SQL)
+                : """
+                WITH written AS (
+                %s)
+                SELECT count(*)
+                FROM written
+                """.formatted(MERGE_SQL);
+    }
+
+    public IngestReport ingest(IngestProperties properties) throws IOException, InterruptedException {
+        if (properties.path() == null) {
+            throw new IllegalArgumentException("ingest.path is required");
+        }
+        Path path = properties.path().toAbsolutePath().normalize();
+        long start = System.nanoTime();
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(heapPool -> heapPool.getType() == MemoryType.HEAP)
+                .toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            IngestJob job = findOrStartJob(path, channel.size(), Files.getLastModifiedTime(path).toInstant(), properties);
+            CsvChunkParser.Columns columns = CsvChunkParser.Columns.DEFAULT;
+            long dataStart = 0;
+            if (job.format() == IngestFormat.CSV && properties.header()) {
+                columns = CsvChunkParser.Columns.fromHeader(FileChunks.firstLine(channel));
+                dataStart = FileChunks.firstLineEnd(channel);
+            }
+            List<FileChunk> chunks = FileChunks.split(channel, dataStart, job.chunkSize());
+            if (job.finished()) {
+                log.info("{} was already ingested", path);
+                return new IngestReport(path, chunks.size(), chunks.size(), 0, 0, 0, 0, 0,
+                        Duration.ofNanos(System.nanoTime() - start), 0, 0, 0);
+            }
+            Set<Integer> merged = mergedChunks(job.id());
+            log.info("Ingesting {} ({} MB, {}) in {} chunks on {} threads, {} chunks already merged",
+                    path, channel.size() >> 20, job.format(), chunks.size(), properties.effectiveThreads(), merged.size());
+
+            Totals totals = new Totals();
+            totals.resumedChunks = merged.size();
+            LongHashSet seen = new LongHashSet();
+            long bytes = channel.size() - dataStart;
+            long progressStep = Math.max(1, bytes / 10);
+            long bytesDone = chunks.stream()
+                    .filter(chunk -> merged.contains(chunk.index()))
+                    .mapToLong(FileChunk::length)
+                    .sum();
+            ForkJoinPool pool = new ForkJoinPool(properties.effectiveThreads());
+            try {
+                // parsers run at most one chunk per thread ahead of the loader, which
+                // bounds memory to about threads + 1 chunks mapped and staged
+                int window = properties.effectiveThreads() + 1;
+                Iterator<FileChunk> pending = chunks.stream()
+                        .filter(chunk -> !merged.contains(chunk.index()))
+                        .iterator();
+                Deque<ForkJoinTask<ParsedChunk>> parsing = new ArrayDeque<>();
+                long mapped = 0;
+                while (true) {
+                    while (parsing.size() < window && pending.hasNext()) {
+                        FileChunk chunk = pending.next();
+                        IngestFormat format = job.format();
+                        CsvChunkParser.Columns chunkColumns = columns;
+                        parsing.add(pool.submit(() -> ChunkParser.of(format, chunkColumns)
+                                .parse(chunk, channel.map(FileChannel.MapMode.READ_ONLY, chunk.start(), chunk.length()))));
+                        mapped += chunk.length();
+                        totals.peakMappedBytes = Math.max(totals.peakMappedBytes, mapped);
+                    }
+                    ForkJoinTask<ParsedChunk> next = parsing.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    ParsedChunk parsed = next.get();
+                    mapped -= parsed.chunk().length();
+                    logRejections(parsed, totals);
+                    if (!load(job.id(), parsed, seen, totals)) {
+                        totals.resumedChunks++;
+                    }
+                    long done = bytesDone + parsed.chunk().length();
+                    if (done / progressStep != bytesDone / progressStep) {
+                        log.info("Ingested {}% of {}: {} rows read, {} inserted ({} rows/sec)",
+                                done * 100 / bytes, path.getFileName(), totals.rowsRead, totals.inserted,
+                                (long) (totals.rowsRead / seconds(start)));
+                    }
+                    bytesDone = done;
+                }
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Parsing " + path + " failed", e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+            jdbcTemplate.update("UPDATE customer_ingest_job SET finished_at = now() WHERE id = ?", job.id());
+
+            // summed per pool peaks, an upper bound of the heap ever used at once
+            long peakHeap = heapPools.stream().mapToLong(heapPool -> heapPool.getPeakUsage().getUsed()).sum();
+            IngestReport report = new IngestReport(path, chunks.size(), totals.resumedChunks,
+                    totals.rowsRead, totals.inserted, totals.duplicates, totals.existing, totals.rejected,
+                    Duration.ofNanos(System.nanoTime() - start), peakHeap, totals.peakMappedBytes, seen.size());
+            log.info("Ingested {}: {} rows read, {} inserted, {} duplicates in the file, {} already existing, "
+                            + "{} rejected in {} ms ({} rows/sec); {}/{} chunks resumed",
+                    path, report.rowsRead(), report.inserted(), report.duplicates(), report.existing(), report.rejected(),
+                    report.elapsed().toMillis(), (long) report.rowsPerSecond(), report.resumedChunks(), report.chunks());
+            log.info("Ingest memory: heap peak {} MB, at most {} MB mapped, {} distinct email hashes held",
+                    report.peakHeapBytes() >> 20, report.peakMappedBytes() >> 20, report.distinctEmails());
+            return report;
+        }
+    }
+
+    // false when another run of the same job merged the chunk meanwhile
+    private boolean load(long jobId, ParsedChunk parsed, LongHashSet seen, Totals totals) {
+        BitSet staged = new BitSet(parsed.rowCount());
+        long duplicates = 0;
+        for (int row = 0; row < parsed.rowCount(); row++) {
+            if (seen.add(parsed.emailHash(row))) {
+                staged.set(row);
+            } else {
+                duplicates++;
+            }
+        }
+        long stagedRows = parsed.rowCount() - duplicates;
+        long dropped = duplicates;
+        Long inserted = transactionTemplate.execute(status -> {
+            // one loader per job at a time, a concurrent run of the same file waits
+            // here and then finds the chunk merged
+            jdbcTemplate.queryForObject("SELECT id FROM customer_ingest_job WHERE id = ? FOR UPDATE", Long.class, jobId);
+            Integer done = jdbcTemplate.queryForObject("""
+                    SELECT count(*)
+                    FROM customer_ingest_chunk
+                    WHERE job_id = ? AND chunk = ?
+                    """, Integer.class, jobId, parsed.chunk().index());
+            if (done != null && done > 0) {
+                return null;
+            }
+            jdbcTemplate.execute(STAGING_SQL);
+            jdbcTemplate.execute((ConnectionCallback<Long>) connection -> copy(connection.unwrap(PGConnection.class), parsed, staged));
+            // the planner knows nothing about a fresh temporary table otherwise
+            jdbcTemplate.execute("ANALYZE customer_ingest_staging");
+            Long written = jdbcTemplate.queryForObject(mergeSql, Long.class);
+            jdbcTemplate.update("""
+                    INSERT INTO customer_ingest_chunk(job_id, chunk, rows_read, inserted, duplicates, existing, rejected)
+                    VALUES (?, ?, ?, ?, ?, ?, ?)
+                    """, jobId, parsed.chunk().index(), parsed.rowsRead(), written, dropped,
+                    stagedRows - written, parsed.rejected());
+            return written;
+        });
+        if (inserted == null) {
+            return false;
+        }
+        totals.rowsRead += parsed.rowsRead();
+        totals.inserted += inserted;
+        totals.duplicates += duplicates;
+        totals.existing += stagedRows - inserted;
+        totals.rejected += parsed.rejected();
+        return true;
+    }
+
+    // runs of consecutive staged rows go to the server as one write each
+    private static long copy(PGConnection connection, ParsedChunk parsed, BitSet staged) throws SQLException {
+        CopyIn copy = connection.getCopyAPI().copyIn(COPY_SQL);
+        try {
+            byte[] rows = parsed.rows();
+            for (int row = staged.nextSetBit(0); row >= 0; ) {
+                int runEnd = staged.nextClearBit(row);
+                int from = parsed.rowStart(row);
+                copy.writeToCopy(rows, from, parsed.rowEnd(runEnd - 1) - from);
+                row = staged.nextSetBit(runEnd);
+            }
+            return copy.endCopy();
+        } finally {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+    }
+
+    // The job of an interrupted run of the same file is resumed with the format and
+    // chunk size it started with, other ones would cut different chunks.
+    private IngestJob findOrStartJob(Path path, long size, Instant modifiedAt, IngestProperties properties) {
+        // timestamptz keeps microseconds
+        Timestamp modified = Timestamp.from(modifiedAt.truncatedTo(ChronoUnit.MICROS));
+        jdbcTemplate.update("""
+                INSERT INTO customer_ingest_job(path, file_size, file_modified_at, format, chunk_size)
+                VALUES (?, ?, ?, ?, ?)
+                ON CONFLICT ON CONSTRAINT customer_ingest_job_file_unique DO NOTHING
+                """, path.toString(), size, modified, properties.effectiveFormat().name(), properties.chunkSize().toBytes());
+        IngestJob job = jdbcTemplate.queryForObject("""
+                SELECT id, format, chunk_size, finished_at IS NOT NULL AS finished
+                FROM customer_ingest_job
+                WHERE path = ? AND file_size = ? AND file_modified_at = ?
+                """, (rs, rowNum) -> new IngestJob(
+                rs.getLong("id"),
+                IngestFormat.valueOf(rs.getString("format")),
+                rs.getLong("chunk_size"),
+                rs.getBoolean("finished")
+        ), path.toString(), size, modified);
+        if (job.format() != properties.effectiveFormat() || job.chunkSize() != properties.chunkSize().toBytes()) {
+            log.warn("Resuming ingest job {} as {} in chunks of {} bytes, as it was started",
+                    job.id(), job.format(), job.chunkSize());
+        }
+        return job;
+    }
+
+    private Set<Integer> mergedChunks(long jobId) {
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT chunk FROM customer_ingest_chunk WHERE job_id = ?", Integer.class, jobId));
+    }
+
+    private static void logRejections(ParsedChunk parsed, Totals totals) {
+        for (String rejection : parsed.rejectionSamples()) {
+            if (totals.rejectionsLogged++ < REJECTIONS_LOGGED) {
+                log.warn("Rejected line at {}", rejection);
+            }
+        }
+    }
+
+    private static double seconds(long startNanos) {
+        return Math.max(1, System.nanoTime() - startNanos) / 1e9;
+    }
+
+    private record IngestJob(long id, IngestFormat format, long chunkSize, boolean finished) {
+    }
+
+    private static final class Totals {
+        long rowsRead;
+        long inserted;
+        long duplicates;
+        long existing;
+        long rejected;
+        int resumedChunks;
+        long peakMappedBytes;
+        int rejectionsLogged;
+    }
+}
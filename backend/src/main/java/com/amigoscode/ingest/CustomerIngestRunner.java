@@ -0,0 +1,33 @@
+package com.amigoscode.ingest;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+// java -jar app.jar --spring.profiles.active=ingest --ingest.path=/data/partner-customers.csv
+// Run the same command again to resume after a failure or a kill.
+@Component
+@Profile("ingest")
+public class CustomerIngestRunner implements CommandLineRunner {
+
+    private final CustomerIngestJob customerIngestJob;
+    private final IngestProperties ingestProperties;
+    private final ApplicationContext applicationContext;
+
+    public CustomerIngestRunner(CustomerIngestJob customerIngestJob,
+                                IngestProperties ingestProperties,
+                                ApplicationContext applicationContext) {
+        this.customerIngestJob = customerIngestJob;
+        this.ingestProperties = ingestProperties;
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        customerIngestJob.ingest(ingestProperties);
+        // an ingest run is a one-off job, like seeding
+        System.exit(SpringApplication.exit(applicationContext, () -> 0));
+    }
+}
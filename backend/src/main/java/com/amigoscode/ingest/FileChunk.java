@@ -0,0 +1,9 @@
+package com.amigoscode.ingest;
+
+// bytes [start, end) of the file, whole lines only
+record FileChunk(int index, long start, long end) {
+
+    long length() {
+        return end - start;
+    }
+}
@@ -0,0 +1,75 @@
+package com.amigoscode.ingest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Cuts a file into chunks of whole lines: each chunk starts at the first line start at
+// or after a multiple of the chunk size. The same file and chunk size always give the
+// same chunks, which is what lets a rerun skip the ones already merged. Only a few
+// bytes around each cut are read here, the chunks themselves are mapped by the parsers.
+final class FileChunks {
+
+    private static final int SCAN_BUFFER = 64 * 1024;
+
+    private FileChunks() {
+    }
+
+    static List<FileChunk> split(FileChannel channel, long dataStart, long chunkSize) throws IOException {
+        if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE) {
+            // a chunk is mapped and scanned as one buffer
+            throw new IllegalArgumentException("Chunk size must be between 1 byte and 2GB");
+        }
+        long size = channel.size();
+        List<FileChunk> chunks = new ArrayList<>();
+        long start = dataStart;
+        for (long cut = (dataStart / chunkSize + 1) * chunkSize; start < size; cut += chunkSize) {
+            long end = cut >= size ? size : lineStartAtOrAfter(channel, cut);
+            if (end > start) {
+                chunks.add(new FileChunk(chunks.size(), start, end));
+                start = end;
+            }
+        }
+        return chunks;
+    }
+
+    // where the first line ends, 0 for an empty file
+    static long firstLineEnd(FileChannel channel) throws IOException {
+        return channel.size() == 0 ? 0 : lineStartAtOrAfter(channel, 1);
+    }
+
+    static String firstLine(FileChannel channel) throws IOException {
+        long end = firstLineEnd(channel);
+        if (end > SCAN_BUFFER) {
+            throw new IllegalArgumentException("First line is longer than " + SCAN_BUFFER + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) end);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+            // positional reads leave the channel position alone
+        }
+        String line = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+        return line.strip();
+    }
+
+    // the position just past the first '\n' at or after position - 1, or the file size
+    private static long lineStartAtOrAfter(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER);
+        long offset = position - 1;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+    }
+}
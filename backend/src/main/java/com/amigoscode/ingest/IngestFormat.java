@@ -0,0 +1,15 @@
+package com.amigoscode.ingest;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+public enum IngestFormat {
+    CSV,
+    NDJSON;
+
+    // .ndjson and .jsonl are NDJSON, anything else is taken as CSV
+    public static IngestFormat of(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl") ? NDJSON : CSV;
+    }
+}
@@ -0,0 +1,25 @@
+package com.amigoscode.ingest;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+@ConfigurationProperties("ingest")
+public record IngestProperties(
+        Path path,
+        IngestFormat format,
+        @DefaultValue("true") boolean header,
+        @DefaultValue("64MB") DataSize chunkSize,
+        @DefaultValue("0") int threads
+) {
+
+    public IngestFormat effectiveFormat() {
+        return format != null ? format : IngestFormat.of(path);
+    }
+
+    public int effectiveThreads() {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+}
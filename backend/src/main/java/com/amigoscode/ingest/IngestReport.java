@@ -0,0 +1,27 @@
+package com.amigoscode.ingest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+// Counts are for this run; chunks merged by an earlier, interrupted run are only
+// counted in resumedChunks.
+public record IngestReport(
+        Path path,
+        int chunks,
+        int resumedChunks,
+        long rowsRead,
+        long inserted,
+        long duplicates,
+        long existing,
+        long rejected,
+        Duration elapsed,
+        long peakHeapBytes,
+        long peakMappedBytes,
+        int distinctEmails
+) {
+
+    public double rowsPerSecond() {
+        long millis = Math.max(1, elapsed.toMillis());
+        return rowsRead * 1000.0 / millis;
+    }
+}
@@ -0,0 +1,61 @@
+package com.amigoscode.ingest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+// One JSON object per line with name, email and age; other fields are skipped. Read
+// with the streaming parser, no tree or bean per line.
+final class NdjsonChunkParser extends ChunkParser {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    @Override
+    void parseLine(long offset, byte[] line, int length, ParsedChunk.Builder out) {
+        String name = null;
+        String email = null;
+        int age = -1;
+        boolean hasAge = false;
+        try (JsonParser parser = JSON.createParser(line, 0, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                out.reject(offset, "not a JSON object");
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "name" -> name = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    case "email" -> email = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    case "age" -> {
+                        hasAge = true;
+                        if (value == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() == JsonParser.NumberType.INT) {
+                            age = parser.getIntValue();
+                        }
+                    }
+                    default -> {
+                    }
+                }
+                parser.skipChildren();
+            }
+        } catch (JsonProcessingException e) {
+            out.reject(offset, "invalid JSON: " + e.getOriginalMessage());
+            return;
+        } catch (IOException e) {
+            // parsing a byte array does no I/O
+            throw new UncheckedIOException(e);
+        }
+        if (!hasAge) {
+            out.reject(offset, "missing age");
+            return;
+        }
+        byte[] nameBytes = name == null ? new byte[0] : name.getBytes(StandardCharsets.UTF_8);
+        byte[] emailBytes = email == null ? new byte[0] : email.getBytes(StandardCharsets.UTF_8);
+        row(out, offset, nameBytes, 0, nameBytes.length, emailBytes, 0, emailBytes.length, age);
+    }
+}
@@ -0,0 +1,155 @@
+package com.amigoscode.ingest;
+
+import com.amigoscode.collection.Hashing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// A chunk's valid rows, already in the CSV form COPY reads into the staging table
+// (line offset, name, email, age), with the 64-bit hash of each row's email for the
+// in-memory dedupe. Rejected rows are only counted, the first few kept as samples.
+final class ParsedChunk {
+
+    static final int REJECTION_SAMPLES = 10;
+
+    private final FileChunk chunk;
+    private final byte[] rows;
+    private final int[] rowEnds;
+    private final long[] emailHashes;
+    private final int rowCount;
+    private final long rejected;
+    private final List<String> rejectionSamples;
+
+    private ParsedChunk(Builder builder) {
+        this.chunk = builder.chunk;
+        this.rows = builder.rows;
+        this.rowEnds = builder.rowEnds;
+        this.emailHashes = builder.emailHashes;
+        this.rowCount = builder.rowCount;
+        this.rejected = builder.rejected;
+        this.rejectionSamples = List.copyOf(builder.rejectionSamples);
+    }
+
+    FileChunk chunk() {
+        return chunk;
+    }
+
+    int rowCount() {
+        return rowCount;
+    }
+
+    long rejected() {
+        return rejected;
+    }
+
+    long rowsRead() {
+        return rowCount + rejected;
+    }
+
+    List<String> rejectionSamples() {
+        return rejectionSamples;
+    }
+
+    long emailHash(int row) {
+        return emailHashes[row];
+    }
+
+    byte[] rows() {
+        return rows;
+    }
+
+    int rowStart(int row) {
+        return row == 0 ? 0 : rowEnds[row - 1];
+    }
+
+    int rowEnd(int row) {
+        return rowEnds[row];
+    }
+
+    static final class Builder {
+
+        private final FileChunk chunk;
+        private byte[] rows;
+        private int length;
+        private int[] rowEnds = new int[1024];
+        private long[] emailHashes = new long[1024];
+        private int rowCount;
+        private long rejected;
+        private final List<String> rejectionSamples = new ArrayList<>();
+
+        Builder(FileChunk chunk) {
+            this.chunk = chunk;
+            // the offset column and quotes make staged rows somewhat longer than their lines
+            this.rows = new byte[(int) Math.min(Integer.MAX_VALUE - 8, chunk.length() + chunk.length() / 2 + 64)];
+        }
+
+        void row(long offset, byte[] name, int nameStart, int nameLength,
+                 byte[] email, int emailStart, int emailLength, int age) {
+            ensure(20 + 2 * (nameLength + emailLength) + 20);
+            appendDecimal(offset);
+            append((byte) ',');
+            appendQuoted(name, nameStart, nameLength);
+            append((byte) ',');
+            appendQuoted(email, emailStart, emailLength);
+            append((byte) ',');
+            appendDecimal(age);
+            append((byte) '\n');
+            if (rowCount == rowEnds.length) {
+                rowEnds = Arrays.copyOf(rowEnds, rowCount * 2);
+                emailHashes = Arrays.copyOf(emailHashes, rowCount * 2);
+            }
+            rowEnds[rowCount] = length;
+            emailHashes[rowCount] = Hashing.hash64(email, emailStart, emailLength);
+            rowCount++;
+        }
+
+        void reject(long offset, String reason) {
+            rejected++;
+            if (rejectionSamples.size() < REJECTION_SAMPLES) {
+                rejectionSamples.add("byte " + offset + ": " + reason);
+            }
+        }
+
+        ParsedChunk build() {
+            return new ParsedChunk(this);
+        }
+
+        private void appendQuoted(byte[] bytes, int start, int count) {
+            append((byte) '"');
+            for (int i = start; i < start + count; i++) {
+                if (bytes[i] == '"') {
+                    append((byte) '"');
+                }
+                append(bytes[i]);
+            }
+            append((byte) '"');
+        }
+
+        private void appendDecimal(long value) {
+            if (value < 0) {
+                append((byte) '-');
+                value = -value;
+            }
+            int digits = 1;
+            for (long rest = value / 10; rest > 0; rest /= 10) {
+                digits++;
+            }
+            for (int i = digits - 1; i >= 0; i--) {
+                rows[length + i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            length += digits;
+        }
+
+        private void append(byte b) {
+            rows[length++] = b;
+        }
+
+        private void ensure(int more) {
+            if (length + more > rows.length) {
+                rows = Arrays.copyOf(rows, Math.max(length + more, rows.length + rows.length / 2));
+            }
+        }
+    }
+}
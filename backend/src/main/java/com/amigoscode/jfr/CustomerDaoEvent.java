@@ -0,0 +1,36 @@
+package com.amigoscode.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.amigoscode.customer.DaoCall")
+@Label("Customer DAO Call")
+@Description("A CustomerDao method call with the SQL it ran")
+@Category({"Amigoscode", "Customer"})
+@StackTrace(false)
+public class CustomerDaoEvent extends Event {
+
+    @Label("DAO")
+    String dao;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("SQL Shape")
+    @Description("Last statement run during the call, literals replaced by ?")
+    String sqlShape;
+
+    @Label("Statements")
+    int statementCount;
+
+    @Label("Row Count")
+    @Description("Rows returned, or rows changed for calls without a result")
+    long rowCount;
+
+    @Label("Failure")
+    String failure;
+}
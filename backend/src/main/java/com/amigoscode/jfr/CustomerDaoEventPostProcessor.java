@@ -0,0 +1,62 @@
+package com.amigoscode.jfr;
+
+import com.amigoscode.customer.CustomerDao;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+// Wraps every CustomerDao bean so each call is a CustomerDaoEvent. With no recording
+// listening the interceptor only pays for an isEnabled() check.
+@Component
+public class CustomerDaoEventPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof CustomerDao)) {
+            return bean;
+        }
+        DaoCallInterceptor interceptor = new DaoCallInterceptor(AopUtils.getTargetClass(bean).getSimpleName());
+        if (bean instanceof Advised advised && !advised.isFrozen()) {
+            advised.addAdvice(0, interceptor);
+            return bean;
+        }
+        // class proxy, so methods outside CustomerDao (e.g. @Scheduled compact) stay reachable
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        return proxyFactory.getProxy();
+    }
+
+    private record DaoCallInterceptor(String dao) implements MethodInterceptor {
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            CustomerDaoEvent event = new CustomerDaoEvent();
+            if (!event.isEnabled() || invocation.getMethod().getDeclaringClass() == Object.class) {
+                return invocation.proceed();
+            }
+            CustomerDaoEvent previous = CustomerDaoEvents.enter(event);
+            event.begin();
+            try {
+                Object result = invocation.proceed();
+                event.rowCount = CustomerDaoEvents.rowCount(result, event.rowCount);
+                return result;
+            } catch (Throwable e) {
+                event.failure = e.getClass().getName();
+                throw e;
+            } finally {
+                CustomerDaoEvents.exit(previous);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.dao = dao;
+                    event.operation = invocation.getMethod().getName();
+                    event.commit();
+                }
+            }
+        }
+    }
+}
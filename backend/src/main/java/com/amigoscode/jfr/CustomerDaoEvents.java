@@ -0,0 +1,61 @@
+package com.amigoscode.jfr;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+// The DAO call in flight on this thread, so statements run underneath it can be
+// attributed to it. Only set while a recording has CustomerDaoEvent enabled.
+public final class CustomerDaoEvents {
+
+    private static final ThreadLocal<CustomerDaoEvent> CURRENT = new ThreadLocal<>();
+
+    private CustomerDaoEvents() {
+    }
+
+    public static void statementExecuted(String sqlShape, long rows) {
+        CustomerDaoEvent event = CURRENT.get();
+        if (event == null) {
+            return;
+        }
+        event.sqlShape = sqlShape;
+        event.statementCount++;
+        if (rows > 0) {
+            event.rowCount += rows;
+        }
+    }
+
+    static CustomerDaoEvent enter(CustomerDaoEvent event) {
+        CustomerDaoEvent previous = CURRENT.get();
+        CURRENT.set(event);
+        return previous;
+    }
+
+    static void exit(CustomerDaoEvent previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    // rows the call handed back; calls returning nothing keep the statements' update counts
+    static long rowCount(Object result, long updated) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Map<?, ?> map) {
+            return map.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (result instanceof Object[] array) {
+            return array.length;
+        }
+        if (result == null || result instanceof Boolean || result instanceof Number) {
+            return updated;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,24 @@
+package com.amigoscode.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.amigoscode.customer.Exception")
+@Label("Customer Exception")
+@Category({"Amigoscode", "Customer"})
+public class CustomerExceptionEvent extends Event {
+
+    @Label("Exception Class")
+    Class<?> exceptionClass;
+
+    @Label("Message")
+    String message;
+
+    @Label("Route")
+    String route;
+
+    @Label("Handler")
+    String handler;
+}
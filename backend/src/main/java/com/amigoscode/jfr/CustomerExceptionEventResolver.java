@@ -0,0 +1,35 @@
+package com.amigoscode.jfr;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+// Sees every exception a handler throws before the real resolvers map it to a
+// status, records it and lets resolution carry on.
+@Component
+public class CustomerExceptionEventResolver implements HandlerExceptionResolver, Ordered {
+
+    @Override
+    public ModelAndView resolveException(HttpServletRequest request,
+                                         HttpServletResponse response,
+                                         Object handler,
+                                         Exception ex) {
+        CustomerExceptionEvent event = new CustomerExceptionEvent();
+        if (event.shouldCommit()) {
+            event.exceptionClass = ex.getClass();
+            event.message = ex.getMessage();
+            event.route = CustomerRequestEventFilter.route(request);
+            event.handler = handler != null ? handler.toString() : null;
+            event.commit();
+        }
+        return null;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,25 @@
+package com.amigoscode.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.amigoscode.customer.Request")
+@Label("Customer Request")
+@Description("An HTTP request handled by the customer API")
+@Category({"Amigoscode", "Customer"})
+@StackTrace(false)
+public class CustomerRequestEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Route")
+    String route;
+
+    @Label("Status")
+    int status;
+}
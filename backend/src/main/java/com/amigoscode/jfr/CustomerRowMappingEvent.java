@@ -0,0 +1,25 @@
+package com.amigoscode.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// one per row, so off unless a recording asks for it
+@Name("com.amigoscode.customer.RowMapping")
+@Label("Customer Row Mapping")
+@Category({"Amigoscode", "Customer"})
+@Enabled(false)
+@Threshold("20 us")
+@StackTrace(false)
+public class CustomerRowMappingEvent extends Event {
+
+    @Label("Row Number")
+    public int rowNum;
+
+    @Label("Customer Id")
+    public long customerId;
+}
@@ -0,0 +1,189 @@
+package com.amigoscode.jfr;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Time-bounded JFR recordings on demand:
+//   POST   /actuator/flightrecorder        start (duration, settings)
+//   GET    /actuator/flightrecorder        list
+//   GET    /actuator/flightrecorder/{id}   dump the .jfr so far
+//   POST   /actuator/flightrecorder/{id}   stop early
+//   DELETE /actuator/flightrecorder/{id}   discard
+@Component
+@Endpoint(id = "flightrecorder")
+public class FlightRecorderEndpoint {
+
+    static final String CUSTOMER_SETTINGS = "customer";
+
+    // JDK "profile" settings plus the customer events, sampling tightened and the
+    // noisiest JDK events dropped so a recording is usable on a busy instance
+    private static final Map<String, String> CUSTOMER_OVERRIDES = Map.ofEntries(
+            Map.entry("com.amigoscode.customer.Request#enabled", "true"),
+            Map.entry("com.amigoscode.customer.Request#threshold", "0 ms"),
+            Map.entry("com.amigoscode.customer.DaoCall#enabled", "true"),
+            Map.entry("com.amigoscode.customer.DaoCall#threshold", "0 ms"),
+            Map.entry("com.amigoscode.customer.RowMapping#enabled", "true"),
+            Map.entry("com.amigoscode.customer.RowMapping#threshold", "20 us"),
+            Map.entry("com.amigoscode.customer.Exception#enabled", "true"),
+            Map.entry("jdk.ExecutionSample#period", "10 ms"),
+            Map.entry("jdk.NativeMethodSample#period", "20 ms"),
+            Map.entry("jdk.ObjectAllocationSample#throttle", "150/s"),
+            Map.entry("jdk.JavaMonitorEnter#threshold", "5 ms"),
+            Map.entry("jdk.ThreadPark#threshold", "5 ms"),
+            Map.entry("jdk.SocketRead#threshold", "5 ms"),
+            Map.entry("jdk.SocketWrite#threshold", "5 ms"),
+            Map.entry("jdk.OldObjectSample#enabled", "false"),
+            Map.entry("jdk.ClassLoad#enabled", "false")
+    );
+
+    // environment variables and system properties carry credentials, datasource
+    // passwords included, and must never end up in a dump, whatever the settings
+    private static final Map<String, String> PRIVACY_OVERRIDES = Map.of(
+            "jdk.InitialEnvironmentVariable#enabled", "false",
+            "jdk.InitialSystemProperty#enabled", "false"
+    );
+
+    private final FlightRecorderProperties properties;
+    private final Path dumpDir;
+    private final Map<Long, Recording> recordings = new ConcurrentHashMap<>();
+    private final Map<Long, String> settingsNames = new ConcurrentHashMap<>();
+
+    public FlightRecorderEndpoint(FlightRecorderProperties properties) {
+        this.properties = properties;
+        this.dumpDir = properties.dumpDir() != null
+                ? properties.dumpDir()
+                : Path.of(System.getProperty("java.io.tmpdir"), "amigoscode-jfr");
+    }
+
+    @ReadOperation
+    public List<FlightRecordingInfo> recordings() {
+        return recordings.values().stream()
+                .sorted(Comparator.comparingLong(Recording::getId))
+                .map(this::info)
+                .toList();
+    }
+
+    @WriteOperation
+    public synchronized FlightRecordingInfo start(@Nullable Duration duration, @Nullable String settings) {
+        Duration length = duration != null ? duration : properties.defaultDuration();
+        if (length.isNegative() || length.isZero() || length.compareTo(properties.maxDuration()) > 0) {
+            throw new InvalidEndpointRequestException(
+                    "duration must be between 0 and " + properties.maxDuration(), "Invalid duration");
+        }
+        if (recordings.size() >= properties.maxRecordings()) {
+            throw new InvalidEndpointRequestException(
+                    "at most %d recordings, delete one first".formatted(properties.maxRecordings()),
+                    "Too many recordings");
+        }
+        String settingsName = settings != null ? settings : CUSTOMER_SETTINGS;
+        Recording recording = new Recording(settings(settingsName));
+        recording.setName("customer-" + recording.getId());
+        recording.setDuration(length);
+        recording.setToDisk(true);
+        recording.setMaxSize(properties.maxSize().toBytes());
+        recording.start();
+        recordings.put(recording.getId(), recording);
+        settingsNames.put(recording.getId(), settingsName);
+        return info(recording);
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public Resource dump(@Selector long id) {
+        Recording recording = recordings.get(id);
+        if (recording == null) {
+            return null;
+        }
+        try {
+            Files.createDirectories(dumpDir);
+            Path file = dumpDir.resolve("recording-" + id + ".jfr");
+            recording.dump(file);
+            return new FileSystemResource(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @WriteOperation
+    public FlightRecordingInfo stop(@Selector long id) {
+        Recording recording = recordings.get(id);
+        if (recording == null) {
+            return null;
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        return info(recording);
+    }
+
+    @DeleteOperation
+    public void delete(@Selector long id) {
+        Recording recording = recordings.remove(id);
+        settingsNames.remove(id);
+        if (recording == null) {
+            return;
+        }
+        recording.close();
+        try {
+            Files.deleteIfExists(dumpDir.resolve("recording-" + id + ".jfr"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    void closeAll() {
+        recordings.keySet().forEach(this::delete);
+    }
+
+    static Map<String, String> settings(String name) {
+        try {
+            boolean customer = name.equals(CUSTOMER_SETTINGS);
+            Map<String, String> settings = new HashMap<>(
+                    Configuration.getConfiguration(customer ? "profile" : name).getSettings());
+            if (customer) {
+                settings.putAll(CUSTOMER_OVERRIDES);
+            }
+            settings.putAll(PRIVACY_OVERRIDES);
+            return settings;
+        } catch (IOException | ParseException e) {
+            throw new InvalidEndpointRequestException(
+                    "settings must be customer, default or profile", "Unknown settings " + name);
+        }
+    }
+
+    private FlightRecordingInfo info(Recording recording) {
+        return new FlightRecordingInfo(
+                recording.getId(),
+                recording.getName(),
+                recording.getState().name(),
+                settingsNames.get(recording.getId()),
+                recording.getStartTime(),
+                recording.getDuration(),
+                recording.getSize()
+        );
+    }
+}
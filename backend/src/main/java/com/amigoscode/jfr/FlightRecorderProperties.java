@@ -0,0 +1,18 @@
+package com.amigoscode.jfr;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties("flightrecorder")
+public record FlightRecorderProperties(
+        Path dumpDir,
+        @DefaultValue("1m") Duration defaultDuration,
+        @DefaultValue("10m") Duration maxDuration,
+        @DefaultValue("250MB") DataSize maxSize,
+        @DefaultValue("4") int maxRecordings
+) {
+}
@@ -0,0 +1,15 @@
+package com.amigoscode.jfr;
+
+import java.time.Duration;
+import java.time.Instant;
+
+public record FlightRecordingInfo(
+        long id,
+        String name,
+        String state,
+        String settings,
+        Instant startTime,
+        Duration duration,
+        long size
+) {
+}
@@ -0,0 +1,41 @@
+package com.amigoscode.journal;
+
+import com.amigoscode.customer.Customer;
+
+import java.io.Closeable;
+import java.util.Collection;
+
+// Durability for an in-memory CustomerDao: a snapshot plus an append-only log
+// of the mutations made since. Callers serialize upserted/deleted/rotate.
+public interface CustomerJournal extends Closeable {
+
+    CustomerJournal NONE = new CustomerJournal() {
+    };
+
+    // replays the snapshot and the log tail, returns false when nothing was persisted yet
+    default boolean recover(CustomerJournalListener listener) {
+        return false;
+    }
+
+    default void upserted(Customer customer) {
+    }
+
+    default void deleted(long id) {
+    }
+
+    default boolean needsCompaction() {
+        return false;
+    }
+
+    // starts a new log generation, the next snapshot covers everything before it
+    default long rotate() {
+        return 0;
+    }
+
+    default void writeSnapshot(long generation, long nextId, Collection<Customer> customers) {
+    }
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,18 @@
+package com.amigoscode.journal;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+@Configuration
+public class CustomerJournalConfig {
+
+    @Bean
+    CustomerJournal customerJournal(CustomerJournalProperties properties) throws IOException {
+        if (properties.dataDir() == null) {
+            return CustomerJournal.NONE;
+        }
+        return new MappedCustomerJournal(properties);
+    }
+}
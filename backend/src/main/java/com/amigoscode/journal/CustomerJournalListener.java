@@ -0,0 +1,12 @@
+package com.amigoscode.journal;
+
+import com.amigoscode.customer.Customer;
+
+public interface CustomerJournalListener {
+
+    void nextId(long nextId);
+
+    void upserted(Customer customer);
+
+    void deleted(long id);
+}
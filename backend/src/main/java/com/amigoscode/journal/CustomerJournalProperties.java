@@ -0,0 +1,18 @@
+package com.amigoscode.journal;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties("customer.list.journal")
+public record CustomerJournalProperties(
+        Path dataDir,
+        @DefaultValue("batch") FsyncPolicy fsync,
+        @DefaultValue("50ms") Duration fsyncInterval,
+        @DefaultValue("256") int fsyncBatchSize,
+        @DefaultValue("64MB") DataSize compactionThreshold
+) {
+}
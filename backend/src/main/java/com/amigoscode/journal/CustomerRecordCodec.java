@@ -0,0 +1,60 @@
+package com.amigoscode.journal;
+
+import com.amigoscode.customer.Customer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+// Frames are length | crc32c | payload, a customer payload is
+// id (8) | age (4) | name length (4) | name | email length (4) | email
+final class CustomerRecordCodec {
+
+    static final int FRAME_HEADER = 2 * Integer.BYTES;
+    static final int MAX_FRAME = 1 << 20;
+
+    private CustomerRecordCodec() {
+    }
+
+    static int customerSize(byte[] name, byte[] email) {
+        return Long.BYTES + 3 * Integer.BYTES + name.length + email.length;
+    }
+
+    static void putCustomer(ByteBuffer buffer, Customer customer, byte[] name, byte[] email) {
+        buffer.putLong(customer.getId());
+        buffer.putInt(customer.getAge());
+        buffer.putInt(name.length);
+        buffer.put(name);
+        buffer.putInt(email.length);
+        buffer.put(email);
+    }
+
+    static Customer getCustomer(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        int age = buffer.getInt();
+        String name = getString(buffer);
+        String email = getString(buffer);
+        return new Customer(id, name, email, age);
+    }
+
+    static void finishFrame(ByteBuffer frame) {
+        int length = frame.position() - FRAME_HEADER;
+        CRC32C crc = new CRC32C();
+        crc.update(frame.array(), FRAME_HEADER, length);
+        frame.putInt(0, length);
+        frame.putInt(Integer.BYTES, (int) crc.getValue());
+        frame.flip();
+    }
+
+    static boolean checksumMatches(ByteBuffer payload, int expected) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue() == expected;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,10 @@
+package com.amigoscode.journal;
+
+public enum FsyncPolicy {
+    // force every append before returning
+    ALWAYS,
+    // force in the background every fsync-interval, or once fsync-batch-size appends are pending
+    BATCH,
+    // leave it to the operating system
+    NEVER
+}
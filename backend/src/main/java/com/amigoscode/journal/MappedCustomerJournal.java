@@ -0,0 +1,356 @@
+package com.amigoscode.journal;
+
+import com.amigoscode.customer.Customer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// snapshot.bin holds the full state up to a log generation, journal-<generation>.log
+// files hold the mutations from that generation on. Recovery maps the snapshot,
+// replays the logs and cuts a torn tail off the last one. An invalid frame in any
+// earlier log fails recovery, newer generations must not be applied over a gap.
+public class MappedCustomerJournal implements CustomerJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedCustomerJournal.class);
+
+    private static final String SNAPSHOT = "snapshot.bin";
+    private static final String SNAPSHOT_TMP = "snapshot.tmp";
+    private static final String LOG_PREFIX = "journal-";
+    private static final String LOG_SUFFIX = ".log";
+
+    // magic | version | generation | next id | customer count
+    private static final int MAGIC = 0x43534e50;
+    private static final int VERSION = 1;
+    private static final int SNAPSHOT_HEADER = 2 * Integer.BYTES + 3 * Long.BYTES;
+    private static final long SNAPSHOT_WINDOW = 64L << 20;
+
+    private static final byte UPSERT = 1;
+    private static final byte DELETE = 2;
+
+    private final Path dataDir;
+    private final FsyncPolicy fsync;
+    private final int fsyncBatchSize;
+    private final long compactionThreshold;
+    private final ScheduledExecutorService flusher;
+    private final Object snapshotLock = new Object();
+
+    private FileChannel logChannel;
+    private long generation;
+    private long uncompactedBytes;
+    private int pendingSync;
+    // one scratch frame per lock: log appends hold this, snapshots hold snapshotLock
+    private ByteBuffer logFrame = ByteBuffer.allocate(4096);
+    private ByteBuffer snapshotFrame = ByteBuffer.allocate(4096);
+
+    public MappedCustomerJournal(CustomerJournalProperties properties) throws IOException {
+        this.dataDir = Files.createDirectories(properties.dataDir());
+        this.fsync = properties.fsync();
+        this.fsyncBatchSize = Math.max(1, properties.fsyncBatchSize());
+        this.compactionThreshold = properties.compactionThreshold().toBytes();
+        if (fsync == FsyncPolicy.BATCH) {
+            long interval = Math.max(1, properties.fsyncInterval().toMillis());
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "customer-journal-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::sync, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean recover(CustomerJournalListener listener) {
+        try {
+            long start = System.nanoTime();
+            long snapshotGeneration = 0;
+            boolean found = false;
+            Path snapshot = dataDir.resolve(SNAPSHOT);
+            if (Files.exists(snapshot)) {
+                snapshotGeneration = readSnapshot(snapshot, listener);
+                found = true;
+            }
+            long nextGeneration = snapshotGeneration;
+            List<Path> logs = logFiles();
+            for (int i = 0; i < logs.size(); i++) {
+                Path file = logs.get(i);
+                long fileGeneration = generationOf(file);
+                if (fileGeneration < snapshotGeneration) {
+                    // already folded into the snapshot, left behind by an interrupted compaction
+                    Files.delete(file);
+                    continue;
+                }
+                uncompactedBytes += replay(file, listener, i == logs.size() - 1);
+                nextGeneration = fileGeneration + 1;
+                found = true;
+            }
+            openLog(nextGeneration);
+            log.info("Recovered customers from {} in {} ms",
+                    dataDir, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return found;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void upserted(Customer customer) {
+        byte[] name = customer.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] email = customer.getEmail().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = logFrame = frame(logFrame, 1 + CustomerRecordCodec.customerSize(name, email));
+        buffer.put(UPSERT);
+        CustomerRecordCodec.putCustomer(buffer, customer, name, email);
+        append(buffer);
+    }
+
+    @Override
+    public synchronized void deleted(long id) {
+        ByteBuffer buffer = logFrame = frame(logFrame, 1 + Long.BYTES);
+        buffer.put(DELETE);
+        buffer.putLong(id);
+        append(buffer);
+    }
+
+    @Override
+    public synchronized boolean needsCompaction() {
+        return uncompactedBytes >= compactionThreshold;
+    }
+
+    @Override
+    public synchronized long rotate() {
+        try {
+            logChannel.force(false);
+            logChannel.close();
+            openLog(generation + 1);
+            uncompactedBytes = 0;
+            return generation;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void writeSnapshot(long generation, long nextId, Collection<Customer> customers) {
+        synchronized (snapshotLock) {
+            try {
+                long start = System.nanoTime();
+                Path tmp = dataDir.resolve(SNAPSHOT_TMP);
+                try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    long size = writeFrames(channel, customers);
+                    MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, SNAPSHOT_HEADER);
+                    header.putInt(MAGIC).putInt(VERSION).putLong(generation).putLong(nextId).putLong(customers.size());
+                    header.force();
+                    channel.truncate(size);
+                    channel.force(true);
+                }
+                Files.move(tmp, dataDir.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE);
+                syncDirectory();
+                for (Path file : logFiles()) {
+                    if (generationOf(file) < generation) {
+                        Files.delete(file);
+                    }
+                }
+                log.info("Wrote snapshot of {} customers in {} ms",
+                        customers.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        synchronized (this) {
+            if (logChannel == null) {
+                return;
+            }
+            try {
+                logChannel.force(false);
+                logChannel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close customer journal", e);
+            }
+        }
+    }
+
+    // group commit: appends since the last tick share one fsync, taken outside
+    // the monitor so writers are not held up by the disk
+    void sync() {
+        FileChannel channel;
+        synchronized (this) {
+            if (pendingSync == 0 || logChannel == null) {
+                return;
+            }
+            pendingSync = 0;
+            channel = logChannel;
+        }
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // rotated or closed, both force the log before closing it
+        } catch (IOException e) {
+            log.warn("Failed to fsync customer journal", e);
+        }
+    }
+
+    // the scratch buffer, or a bigger one to keep in its place, positioned at the payload
+    private static ByteBuffer frame(ByteBuffer scratch, int payload) {
+        int size = CustomerRecordCodec.FRAME_HEADER + payload;
+        ByteBuffer buffer = scratch.capacity() < size ? ByteBuffer.allocate(Integer.highestOneBit(size) << 1) : scratch;
+        buffer.clear();
+        buffer.position(CustomerRecordCodec.FRAME_HEADER);
+        return buffer;
+    }
+
+    private void append(ByteBuffer buffer) {
+        if (logChannel == null) {
+            throw new IllegalStateException("Customer journal has not been recovered");
+        }
+        CustomerRecordCodec.finishFrame(buffer);
+        try {
+            int bytes = buffer.remaining();
+            while (buffer.hasRemaining()) {
+                logChannel.write(buffer);
+            }
+            uncompactedBytes += bytes;
+            if (fsync == FsyncPolicy.ALWAYS) {
+                logChannel.force(false);
+            } else if (fsync == FsyncPolicy.BATCH && ++pendingSync >= fsyncBatchSize) {
+                pendingSync = 0;
+                logChannel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long readSnapshot(Path snapshot, CustomerJournalListener listener) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, SNAPSHOT_HEADER);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IllegalStateException("Unrecognised customer snapshot " + snapshot);
+            }
+            long snapshotGeneration = header.getLong();
+            listener.nextId(header.getLong());
+            long count = header.getLong();
+            MappedFrameReader reader = new MappedFrameReader(channel, SNAPSHOT_HEADER);
+            for (long i = 0; i < count; i++) {
+                ByteBuffer payload = reader.next();
+                if (payload == null) {
+                    throw new IllegalStateException("Customer snapshot " + snapshot + " is corrupt at " + reader.position());
+                }
+                listener.upserted(CustomerRecordCodec.getCustomer(payload));
+            }
+            return snapshotGeneration;
+        }
+    }
+
+    // only the last log can have been torn by a crash, it is written until the next starts
+    private long replay(Path file, CustomerJournalListener listener, boolean last) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedFrameReader reader = new MappedFrameReader(channel, 0);
+            ByteBuffer payload;
+            while ((payload = reader.next()) != null) {
+                byte op = payload.get();
+                if (op == UPSERT) {
+                    listener.upserted(CustomerRecordCodec.getCustomer(payload));
+                } else if (op == DELETE) {
+                    listener.deleted(payload.getLong());
+                } else {
+                    throw new IllegalStateException("Unknown journal operation " + op + " in " + file);
+                }
+            }
+            long valid = reader.position();
+            if (valid < channel.size() && !last) {
+                throw new IllegalStateException("Customer journal " + file + " is corrupt at byte " + valid
+                        + " of " + channel.size() + " and newer journals follow it");
+            }
+            if (valid < channel.size()) {
+                log.warn("Truncating torn tail of {} at byte {} of {}", file, valid, channel.size());
+                channel.truncate(valid);
+                channel.force(true);
+            }
+            return valid;
+        }
+    }
+
+    private long writeFrames(FileChannel channel, Collection<Customer> customers) throws IOException {
+        long position = SNAPSHOT_HEADER;
+        MappedByteBuffer window = null;
+        long windowStart = 0;
+        for (Customer customer : customers) {
+            byte[] name = customer.getName().getBytes(StandardCharsets.UTF_8);
+            byte[] email = customer.getEmail().getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = snapshotFrame = frame(snapshotFrame, CustomerRecordCodec.customerSize(name, email));
+            CustomerRecordCodec.putCustomer(buffer, customer, name, email);
+            CustomerRecordCodec.finishFrame(buffer);
+            if (window == null || position + buffer.remaining() > windowStart + window.capacity()) {
+                if (window != null) {
+                    window.force();
+                }
+                windowStart = position;
+                window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, SNAPSHOT_WINDOW);
+            }
+            window.put((int) (position - windowStart), buffer, 0, buffer.remaining());
+            position += buffer.remaining();
+        }
+        if (window != null) {
+            window.force();
+        }
+        return position;
+    }
+
+    private void openLog(long nextGeneration) throws IOException {
+        generation = nextGeneration;
+        logChannel = FileChannel.open(dataDir.resolve(LOG_PREFIX + String.format("%019d", generation) + LOG_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        pendingSync = 0;
+    }
+
+    private void syncDirectory() {
+        try (FileChannel directory = FileChannel.open(dataDir, StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // not every platform lets a directory be opened for fsync
+        }
+    }
+
+    private List<Path> logFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dataDir)) {
+            List<Path> logs = new ArrayList<>();
+            files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(LOG_PREFIX) && name.endsWith(LOG_SUFFIX);
+            }).sorted().forEach(logs::add);
+            return logs;
+        }
+    }
+
+    private static long generationOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length()));
+    }
+}
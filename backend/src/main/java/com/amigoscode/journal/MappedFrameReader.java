@@ -0,0 +1,59 @@
+package com.amigoscode.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Walks the frames of a file through read-only memory-mapped windows, so a
+// multi-gigabyte snapshot is decoded without copying it through the heap.
+final class MappedFrameReader {
+
+    private static final long WINDOW = 1L << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+
+    MappedFrameReader(FileChannel channel, long start) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.position = start;
+    }
+
+    long position() {
+        return position;
+    }
+
+    // the payload of the next intact frame, or null at the end or at a torn or corrupt frame
+    ByteBuffer next() throws IOException {
+        if (size - position < CustomerRecordCodec.FRAME_HEADER) {
+            return null;
+        }
+        ensure(CustomerRecordCodec.FRAME_HEADER);
+        int offset = (int) (position - windowStart);
+        int length = window.getInt(offset);
+        int checksum = window.getInt(offset + Integer.BYTES);
+        if (length < 0 || length > CustomerRecordCodec.MAX_FRAME
+                || size - position < CustomerRecordCodec.FRAME_HEADER + (long) length) {
+            return null;
+        }
+        ensure(CustomerRecordCodec.FRAME_HEADER + length);
+        offset = (int) (position - windowStart);
+        ByteBuffer payload = window.slice(offset + CustomerRecordCodec.FRAME_HEADER, length);
+        if (!CustomerRecordCodec.checksumMatches(payload, checksum)) {
+            return null;
+        }
+        position += CustomerRecordCodec.FRAME_HEADER + length;
+        return payload;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (window == null || position + bytes > windowStart + window.capacity()) {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, size - position));
+        }
+    }
+}
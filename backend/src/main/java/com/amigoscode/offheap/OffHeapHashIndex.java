@@ -0,0 +1,150 @@
+package com.amigoscode.offheap;
+
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+// Open addressing multimap from non-zero long keys to non-negative long values,
+// stored as [key, value] pairs in an OffHeapLongArray. Several entries may share
+// a key (hash collisions of the indexed data), get() takes a predicate that
+// confirms the right one. Not thread safe.
+public final class OffHeapHashIndex {
+
+    public static final long NO_VALUE = -1;
+
+    private static final long MIN_CAPACITY = 1024;
+
+    private OffHeapLongArray table;
+    private long capacity;
+    private long mask;
+    private long size;
+
+    public OffHeapHashIndex(long expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long offHeapBytes() {
+        return table.length() * Long.BYTES;
+    }
+
+    public long get(long key, LongPredicate matches) {
+        for (long i = home(key); ; i = (i + 1) & mask) {
+            long k = table.get(i << 1);
+            if (k == 0) {
+                return NO_VALUE;
+            }
+            if (k == key) {
+                long value = table.get((i << 1) + 1);
+                if (matches.test(value)) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    public void put(long key, long value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("0 is reserved for empty slots");
+        }
+        if (size + 1 > capacity >>> 1) {
+            rehash(capacity << 1);
+        }
+        insert(key, value);
+        size++;
+    }
+
+    public boolean replace(long key, long oldValue, long newValue) {
+        long slot = slot(key, oldValue);
+        if (slot < 0) {
+            return false;
+        }
+        table.set((slot << 1) + 1, newValue);
+        return true;
+    }
+
+    public boolean remove(long key, long value) {
+        long gap = slot(key, value);
+        if (gap < 0) {
+            return false;
+        }
+        for (long i = (gap + 1) & mask; ; i = (i + 1) & mask) {
+            long k = table.get(i << 1);
+            if (k == 0) {
+                break;
+            }
+            long home = home(k);
+            // move the entry back if the gap lies between its home slot and where it sits
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                table.set(gap << 1, k);
+                table.set((gap << 1) + 1, table.get((i << 1) + 1));
+                gap = i;
+            }
+        }
+        table.set(gap << 1, 0);
+        size--;
+        return true;
+    }
+
+    public void forEachValue(LongConsumer action) {
+        for (long i = 0; i < capacity; i++) {
+            if (table.get(i << 1) != 0) {
+                action.accept(table.get((i << 1) + 1));
+            }
+        }
+    }
+
+    private long slot(long key, long value) {
+        for (long i = home(key); ; i = (i + 1) & mask) {
+            long k = table.get(i << 1);
+            if (k == 0) {
+                return -1;
+            }
+            if (k == key && table.get((i << 1) + 1) == value) {
+                return i;
+            }
+        }
+    }
+
+    private void insert(long key, long value) {
+        long i = home(key);
+        while (table.get(i << 1) != 0) {
+            i = (i + 1) & mask;
+        }
+        table.set(i << 1, key);
+        table.set((i << 1) + 1, value);
+    }
+
+    private void rehash(long newCapacity) {
+        OffHeapLongArray old = table;
+        long oldCapacity = capacity;
+        allocate(newCapacity);
+        for (long i = 0; i < oldCapacity; i++) {
+            long k = old.get(i << 1);
+            if (k != 0) {
+                insert(k, old.get((i << 1) + 1));
+            }
+        }
+    }
+
+    private void allocate(long newCapacity) {
+        table = new OffHeapLongArray(newCapacity << 1);
+        capacity = newCapacity;
+        mask = newCapacity - 1;
+    }
+
+    private long home(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (h ^ (h >>> 32)) & mask;
+    }
+
+    private static long capacityFor(long expectedSize) {
+        long capacity = MIN_CAPACITY;
+        while (capacity >>> 1 < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
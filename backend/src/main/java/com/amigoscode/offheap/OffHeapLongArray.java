@@ -0,0 +1,41 @@
+package com.amigoscode.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+// Fixed length array of longs in direct memory, split into 8 MB chunks so it
+// can grow past the 2 GB limit of a single buffer. Starts zeroed.
+public final class OffHeapLongArray {
+
+    private static final int CHUNK_SHIFT = 20;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final LongBuffer[] chunks;
+    private final long length;
+
+    public OffHeapLongArray(long length) {
+        this.length = length;
+        int chunkCount = (int) ((length + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+        chunks = new LongBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            int size = (int) Math.min(CHUNK_SIZE, length - ((long) i << CHUNK_SHIFT));
+            chunks[i] = ByteBuffer.allocateDirect(size * Long.BYTES)
+                    .order(ByteOrder.nativeOrder())
+                    .asLongBuffer();
+        }
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public long get(long index) {
+        return chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+    }
+
+    public void set(long index, long value) {
+        chunks[(int) (index >>> CHUNK_SHIFT)].put((int) (index & CHUNK_MASK), value);
+    }
+}
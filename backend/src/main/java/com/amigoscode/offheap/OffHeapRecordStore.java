@@ -0,0 +1,125 @@
+package com.amigoscode.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Slab allocator for variable length records in direct memory. Records are
+// rounded up to power-of-two size classes. Freed slots go on a per-class
+// free list threaded through the slots themselves, so deletes leave no heap
+// garbage and the next record of that class reuses the slot.
+// Addresses are (slab << SLAB_SHIFT) | offset. Not thread safe.
+public final class OffHeapRecordStore {
+
+    public static final long NO_ADDRESS = -1;
+    public static final int MAX_RECORD_SIZE = 1 << 16;
+
+    private static final int SLAB_SHIFT = 24;
+    private static final int SLAB_SIZE = 1 << SLAB_SHIFT;
+    private static final int SLAB_MASK = SLAB_SIZE - 1;
+    private static final int MIN_CLASS_SHIFT = 5;
+    private static final int MAX_CLASS_SHIFT = 16;
+
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final long[] freeHeads = new long[MAX_CLASS_SHIFT + 1];
+    private int slabOffset = SLAB_SIZE;
+    private long usedBytes;
+
+    public OffHeapRecordStore() {
+        Arrays.fill(freeHeads, NO_ADDRESS);
+    }
+
+    public long allocate(int size) {
+        int sizeClass = sizeClass(size);
+        long head = freeHeads[sizeClass];
+        usedBytes += 1L << sizeClass;
+        if (head != NO_ADDRESS) {
+            freeHeads[sizeClass] = getLong(head, 0);
+            return head;
+        }
+        int slotSize = 1 << sizeClass;
+        if (slabOffset + slotSize > SLAB_SIZE) {
+            slabs.add(ByteBuffer.allocateDirect(SLAB_SIZE).order(ByteOrder.nativeOrder()));
+            slabOffset = 0;
+        }
+        long address = ((long) (slabs.size() - 1) << SLAB_SHIFT) | slabOffset;
+        slabOffset += slotSize;
+        return address;
+    }
+
+    public void free(long address, int size) {
+        int sizeClass = sizeClass(size);
+        putLong(address, 0, freeHeads[sizeClass]);
+        freeHeads[sizeClass] = address;
+        usedBytes -= 1L << sizeClass;
+    }
+
+    public boolean sameSlot(int size, int otherSize) {
+        return sizeClass(size) == sizeClass(otherSize);
+    }
+
+    public long usedBytes() {
+        return usedBytes;
+    }
+
+    public long reservedBytes() {
+        return (long) slabs.size() * SLAB_SIZE;
+    }
+
+    public long getLong(long address, int offset) {
+        return slab(address).getLong(offset(address) + offset);
+    }
+
+    public void putLong(long address, int offset, long value) {
+        slab(address).putLong(offset(address) + offset, value);
+    }
+
+    public int getInt(long address, int offset) {
+        return slab(address).getInt(offset(address) + offset);
+    }
+
+    public void putInt(long address, int offset, int value) {
+        slab(address).putInt(offset(address) + offset, value);
+    }
+
+    public byte[] getBytes(long address, int offset, int length) {
+        byte[] bytes = new byte[length];
+        slab(address).get(offset(address) + offset, bytes);
+        return bytes;
+    }
+
+    public void putBytes(long address, int offset, byte[] bytes) {
+        slab(address).put(offset(address) + offset, bytes);
+    }
+
+    public boolean bytesEqual(long address, int offset, byte[] bytes) {
+        ByteBuffer slab = slab(address);
+        int start = offset(address) + offset;
+        for (int i = 0; i < bytes.length; i++) {
+            if (slab.get(start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ByteBuffer slab(long address) {
+        return slabs.get((int) (address >>> SLAB_SHIFT));
+    }
+
+    private static int offset(long address) {
+        return (int) (address & SLAB_MASK);
+    }
+
+    private static int sizeClass(int size) {
+        if (size > MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException(
+                    "Record of %s bytes exceeds the %s byte limit".formatted(size, MAX_RECORD_SIZE)
+            );
+        }
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1);
+        return Math.max(MIN_CLASS_SHIFT, shift);
+    }
+}
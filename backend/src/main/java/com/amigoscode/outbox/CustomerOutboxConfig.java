@@ -0,0 +1,21 @@
+package com.amigoscode.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CustomerOutboxConfig {
+
+    @Bean
+    public CustomerOutboxSink customerOutboxSink(CustomerOutboxProperties properties,
+                                                 ApplicationEventPublisher eventPublisher,
+                                                 ObjectMapper objectMapper) {
+        return switch (properties.sink()) {
+            case LISTENER -> new ListenerOutboxSink(eventPublisher);
+            case FILE -> new FileOutboxSink(properties.file().path(), objectMapper);
+            case WEBHOOK -> new WebhookOutboxSink(properties.webhook(), objectMapper);
+        };
+    }
+}
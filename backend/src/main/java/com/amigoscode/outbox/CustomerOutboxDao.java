@@ -0,0 +1,20 @@
+package com.amigoscode.outbox;
+
+import java.time.Duration;
+import java.util.List;
+
+public interface CustomerOutboxDao {
+
+    // oldest available messages first, leased to the caller until the lease runs out;
+    // a message whose customer has an older one leased or backing off is held back.
+    // Must run in a transaction, claims of concurrent relays are serialized
+    List<CustomerOutboxMessage> claimAvailable(int limit, Duration lease);
+
+    int delete(long[] ids);
+
+    // ends the lease without counting an attempt
+    int release(long[] ids);
+
+    // backoff doubles with every attempt, up to maxBackoff; ends the lease
+    int retryLater(long[] ids, Duration backoff, Duration maxBackoff, String error);
+}
@@ -0,0 +1,102 @@
+package com.amigoscode.outbox;
+
+import com.amigoscode.customer.CustomerChangeEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.List;
+
+@Repository
+public class CustomerOutboxJDBCDataAccessService implements CustomerOutboxDao {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+    // pg_advisory_xact_lock key, held by one claim at a time
+    private static final long CLAIM_LOCK = 0x6f7574626f78L;
+
+    private static final RowMapper<CustomerOutboxMessage> ROW_MAPPER = (rs, rowNum) -> new CustomerOutboxMessage(
+            rs.getLong("id"),
+            rs.getLong("customer_id"),
+            CustomerChangeEvent.Type.valueOf(rs.getString("type")),
+            rs.getString("payload"),
+            rs.getTimestamp("created_at").toInstant(),
+            rs.getInt("attempts")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CustomerOutboxJDBCDataAccessService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Two relays claiming at once could each see the other's older message of a
+    // customer as still free and split that customer between them, so claims take
+    // turns; each is one short statement
+    @Override
+    public List<CustomerOutboxMessage> claimAvailable(int limit, Duration lease) {
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + CLAIM_LOCK + ")");
+        String sql = """
+                WITH claimed AS (
+                    UPDATE customer_outbox
+                    SET claimed_until = now() + ? * interval '1 millisecond'
+                    WHERE id IN (
+                        SELECT id
+                        FROM customer_outbox c
+                        WHERE available_at <= now()
+                          AND (claimed_until IS NULL OR claimed_until <= now())
+                          AND NOT EXISTS (
+                              SELECT 1
+                              FROM customer_outbox older
+                              WHERE older.customer_id = c.customer_id
+                                AND older.id < c.id
+                                AND (older.available_at > now() OR older.claimed_until > now())
+                          )
+                        ORDER BY id
+                        LIMIT ?
+                        FOR UPDATE SKIP LOCKED
+                    )
+                    RETURNING id, customer_id, type, payload, created_at, attempts
+                )
+                SELECT id, customer_id, type, payload, created_at, attempts
+                FROM claimed
+                ORDER BY id
+                """;
+        return jdbcTemplate.query(sql, ROW_MAPPER, lease.toMillis(), limit);
+    }
+
+    @Override
+    public int delete(long[] ids) {
+        String sql = """
+                DELETE FROM customer_outbox
+                WHERE id = ANY(?)
+                """;
+        return jdbcTemplate.update(sql, (Object) ids);
+    }
+
+    @Override
+    public int release(long[] ids) {
+        String sql = """
+                UPDATE customer_outbox
+                SET claimed_until = NULL
+                WHERE id = ANY(?)
+                """;
+        return jdbcTemplate.update(sql, (Object) ids);
+    }
+
+    @Override
+    public int retryLater(long[] ids, Duration backoff, Duration maxBackoff, String error) {
+        String sql = """
+                UPDATE customer_outbox
+                SET attempts = attempts + 1,
+                    available_at = now() + least(? * power(2, least(attempts, 30)), ?) * interval '1 millisecond',
+                    last_error = ?,
+                    claimed_until = NULL
+                WHERE id = ANY(?)
+                """;
+        if (error != null && error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        return jdbcTemplate.update(sql, backoff.toMillis(), maxBackoff.toMillis(), error, (Object) ids);
+    }
+}
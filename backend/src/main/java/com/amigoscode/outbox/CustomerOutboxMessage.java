@@ -0,0 +1,19 @@
+package com.amigoscode.outbox;
+
+import com.amigoscode.customer.CustomerChangeEvent;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.Instant;
+
+// One customer_outbox row as handed to a sink. id grows with every change, so consumers
+// can order and deduplicate by it; customer is the row as written (as deleted for
+// deletes), passed through as the stored JSON.
+public record CustomerOutboxMessage(
+        long id,
+        long customerId,
+        CustomerChangeEvent.Type type,
+        @JsonRawValue String customer,
+        Instant createdAt,
+        int attempts
+) {
+}
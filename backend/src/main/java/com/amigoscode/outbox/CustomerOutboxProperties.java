@@ -0,0 +1,40 @@
+package com.amigoscode.outbox;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties("customer.outbox")
+public record CustomerOutboxProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("listener") Sink sink,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("1s") Duration pollInterval,
+        @DefaultValue("1s") Duration retryBackoff,
+        @DefaultValue("5m") Duration maxRetryBackoff,
+        @DefaultValue("5s") Duration backpressurePause,
+        @DefaultValue("1m") Duration claimLease,
+        @DefaultValue File file,
+        @DefaultValue Webhook webhook
+) {
+
+    public enum Sink {
+        LISTENER,
+        FILE,
+        WEBHOOK
+    }
+
+    public record File(
+            @DefaultValue("customer-outbox.ndjson") Path path
+    ) {
+    }
+
+    public record Webhook(
+            URI url,
+            @DefaultValue("5s") Duration timeout
+    ) {
+    }
+}
@@ -0,0 +1,179 @@
+package com.amigoscode.outbox;
+
+import com.amigoscode.customer.CustomerChangeEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Drains customer_outbox into the configured sink on one background thread. Each batch
+// is claimed with a lease in a short transaction, published with no row lock or
+// transaction open, then deleted. Delivery is at least once: a crash after publishing,
+// or a lease running out mid-publish, redelivers the batch. Per customer, messages go
+// out in id order, a message is not claimed while an older one of its customer is
+// leased or backing off after a failure. Relays in several instances share the work.
+// Requests only ever pay for the outbox row in their own statement and a wake-up signal.
+//
+// customer.outbox.published/failures/backpressure{sink}, customer.outbox.publish,
+// customer.outbox.batch.size and customer.outbox.lag (age of the oldest message in the
+// last batch).
+@Component
+public class CustomerOutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerOutboxRelay.class);
+
+    private final CustomerOutboxDao outboxDao;
+    private final CustomerOutboxSink sink;
+    private final CustomerOutboxProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Semaphore wakeUp = new Semaphore(0);
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final Counter published;
+    private final Counter failures;
+    private final Counter backpressure;
+    private final Timer publishTimer;
+    private final DistributionSummary batchSizes;
+    private volatile Thread thread;
+
+    public CustomerOutboxRelay(CustomerOutboxDao outboxDao,
+                               CustomerOutboxSink sink,
+                               CustomerOutboxProperties properties,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry) {
+        this.outboxDao = outboxDao;
+        this.sink = sink;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.published = Counter.builder("customer.outbox.published")
+                .description("Customer changes handed to the sink")
+                .tag("sink", sink.name())
+                .register(meterRegistry);
+        this.failures = Counter.builder("customer.outbox.failures")
+                .description("Customer changes whose publication failed and will be retried")
+                .tag("sink", sink.name())
+                .register(meterRegistry);
+        this.backpressure = Counter.builder("customer.outbox.backpressure")
+                .description("Batches the sink refused for now")
+                .tag("sink", sink.name())
+                .register(meterRegistry);
+        this.publishTimer = Timer.builder("customer.outbox.publish")
+                .description("Time the sink took per delivered batch")
+                .tag("sink", sink.name())
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("customer.outbox.batch.size")
+                .description("Messages per delivered batch")
+                .register(meterRegistry);
+        TimeGauge.builder("customer.outbox.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Age of the oldest message in the last delivered batch")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.enabled()) {
+            return;
+        }
+        Thread relay = new Thread(this::run, "customer-outbox-relay");
+        relay.setDaemon(true);
+        thread = relay;
+        relay.start();
+        log.info("Relaying the customer outbox to the {} sink", sink.name());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        Thread relay = thread;
+        thread = null;
+        if (relay != null) {
+            relay.interrupt();
+            relay.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    // the change is already in the outbox, look now rather than at the next poll
+    @EventListener
+    public void onCustomerChange(CustomerChangeEvent event) {
+        if (wakeUp.availablePermits() == 0) {
+            wakeUp.release();
+        }
+    }
+
+    private void run() {
+        while (thread == Thread.currentThread()) {
+            Duration pause;
+            try {
+                pause = relayBatch();
+            } catch (RuntimeException e) {
+                log.warn("Failed to relay the customer outbox, retrying in {}", properties.retryBackoff(), e);
+                pause = properties.retryBackoff();
+            }
+            try {
+                if (pause == null) {
+                    wakeUp.tryAcquire(properties.pollInterval().toMillis(), TimeUnit.MILLISECONDS);
+                    wakeUp.drainPermits();
+                } else if (!pause.isZero()) {
+                    // failures and backpressure wait it out, new changes don't cut it short
+                    Thread.sleep(pause.toMillis());
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // relays one batch; null once the outbox is drained, zero when more is waiting,
+    // otherwise how long to hold off
+    Duration relayBatch() {
+        List<CustomerOutboxMessage> batch = transactionTemplate.execute(
+                status -> outboxDao.claimAvailable(properties.batchSize(), properties.claimLease())
+        );
+        if (batch == null || batch.isEmpty()) {
+            lagMillis.set(0);
+            return null;
+        }
+        long[] ids = new long[batch.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = batch.get(i).id();
+        }
+        long start = System.nanoTime();
+        try {
+            sink.publish(batch);
+        } catch (OutboxBackpressureException e) {
+            // released exactly as they were, the refusal is no failed attempt
+            outboxDao.release(ids);
+            backpressure.increment();
+            return e.retryAfter() != null ? e.retryAfter() : properties.backpressurePause();
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            outboxDao.retryLater(ids, properties.retryBackoff(), properties.maxRetryBackoff(), e.toString());
+            failures.increment(batch.size());
+            log.warn("Failed to publish {} customer changes to the {} sink", batch.size(), sink.name(), e);
+            return properties.retryBackoff();
+        }
+        publishTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        outboxDao.delete(ids);
+        published.increment(batch.size());
+        batchSizes.record(batch.size());
+        lagMillis.set(Math.max(0, Duration.between(batch.get(0).createdAt(), Instant.now()).toMillis()));
+        return batch.size() < properties.batchSize() ? null : Duration.ZERO;
+    }
+}
@@ -0,0 +1,13 @@
+package com.amigoscode.outbox;
+
+import java.util.List;
+
+// Where the relay hands customer changes to. A batch counts as delivered once publish
+// returns; any exception redelivers all of it later, so sinks must tolerate duplicates.
+public interface CustomerOutboxSink {
+
+    String name();
+
+    // throw OutboxBackpressureException to have the relay hold off without counting a failed attempt
+    void publish(List<CustomerOutboxMessage> messages) throws Exception;
+}
@@ -0,0 +1,64 @@
+package com.amigoscode.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Appends one JSON line per message and forces them to disk before the batch is taken
+// out of the outbox. Only the relay thread calls it.
+public class FileOutboxSink implements CustomerOutboxSink {
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private FileChannel channel;
+
+    public FileOutboxSink(Path path, ObjectMapper objectMapper) {
+        this.path = path;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public void publish(List<CustomerOutboxMessage> messages) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream(messages.size() * 128);
+        for (CustomerOutboxMessage message : messages) {
+            objectMapper.writeValue(lines, message);
+            lines.write('\n');
+        }
+        FileChannel file = channel();
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) {
+                file.write(buffer);
+            }
+            file.force(false);
+        } catch (IOException e) {
+            // reopened for the retry, which appends the whole batch again
+            file.close();
+            channel = null;
+            throw e;
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+}
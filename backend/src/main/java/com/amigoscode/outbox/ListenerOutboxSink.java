@@ -0,0 +1,27 @@
+package com.amigoscode.outbox;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+
+// Publishes every message as an application event on the relay thread, so in-process
+// consumers subscribe with @EventListener on CustomerOutboxMessage. A slow listener
+// slows the relay, never a request.
+public class ListenerOutboxSink implements CustomerOutboxSink {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ListenerOutboxSink(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public String name() {
+        return "listener";
+    }
+
+    @Override
+    public void publish(List<CustomerOutboxMessage> messages) {
+        messages.forEach(eventPublisher::publishEvent);
+    }
+}
@@ -0,0 +1,19 @@
+package com.amigoscode.outbox;
+
+import java.time.Duration;
+
+// The sink can't take more right now; the messages stay in the outbox untouched.
+public class OutboxBackpressureException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public OutboxBackpressureException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    // null when the sink didn't say
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,65 @@
+package com.amigoscode.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+// POSTs each batch as one JSON array. 2xx delivers it, 429 and 503 are backpressure
+// (honouring a Retry-After in seconds), anything else is a failed attempt.
+public class WebhookOutboxSink implements CustomerOutboxSink {
+
+    private final CustomerOutboxProperties.Webhook webhook;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+
+    public WebhookOutboxSink(CustomerOutboxProperties.Webhook webhook, ObjectMapper objectMapper) {
+        if (webhook.url() == null) {
+            throw new IllegalStateException("customer.outbox.webhook.url is required for the webhook sink");
+        }
+        this.webhook = webhook;
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(webhook.timeout())
+                .build();
+    }
+
+    @Override
+    public String name() {
+        return "webhook";
+    }
+
+    @Override
+    public void publish(List<CustomerOutboxMessage> messages) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(webhook.url())
+                .timeout(webhook.timeout())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(messages)))
+                .build();
+        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        int status = response.statusCode();
+        if (status >= 200 && status < 300) {
+            return;
+        }
+        if (status == 429 || status == 503) {
+            throw new OutboxBackpressureException(
+                    "Webhook answered " + status,
+                    response.headers().firstValue("Retry-After").map(WebhookOutboxSink::seconds).orElse(null)
+            );
+        }
+        throw new IOException("Webhook answered " + status);
+    }
+
+    private static Duration seconds(String retryAfter) {
+        try {
+            return Duration.ofSeconds(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException e) {
+            // an HTTP date, the configured pause will do
+            return null;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.amigoscode.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Runs the copy on a background thread so the application keeps serving while it moves.
+@Component
+@ConditionalOnProperty(prefix = "customer.partitioning", name = "migrate", havingValue = "true")
+public class CustomerPartitionMigrationRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerPartitionMigrationRunner.class);
+
+    private final CustomerPartitionMigrator migrator;
+    private final int batchSize;
+    private final Duration pause;
+
+    public CustomerPartitionMigrationRunner(CustomerPartitionMigrator migrator,
+                                            @Value("${customer.partitioning.batch-size:10000}") int batchSize,
+                                            @Value("${customer.partitioning.pause:PT0.05S}") Duration pause) {
+        this.migrator = migrator;
+        this.batchSize = batchSize;
+        this.pause = pause;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread thread = new Thread(() -> {
+            try {
+                migrator.migrate(batchSize, pause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("Partitioning customer failed, it resumes from the last batch on the next run", e);
+            }
+        }, "customer-partition-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -0,0 +1,206 @@
+package com.amigoscode.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+
+// Second half of V6__Customer_Hash_Partitioning: installs the mirror and email claim
+// triggers, copies customer into customer_partitioned in short id-ordered batches
+// while the mirror keeps new writes in step, then swaps the tables in one brief
+// exclusive-lock transaction. Until a migration starts, writes pay for none of it.
+// Progress lives in customer_partition_migration, so a restart resumes the copy.
+@Component
+public class CustomerPartitionMigrator {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerPartitionMigrator.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public CustomerPartitionMigrator(JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public boolean isCutOver() {
+        String sql = """
+                SELECT cut_over_at IS NOT NULL
+                FROM customer_partition_migration
+                WHERE id = 1
+                """;
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class));
+    }
+
+    public void migrate(int batchSize, Duration pause) throws InterruptedException {
+        if (isCutOver()) {
+            log.info("customer is already partitioned");
+            return;
+        }
+        startMirroring();
+        long start = System.nanoTime();
+        long copied = 0;
+        long rows;
+        while ((rows = copyBatch(batchSize)) > 0) {
+            copied += rows;
+            if (!pause.isZero()) {
+                // leave room for foreground traffic and for autovacuum to keep up
+                Thread.sleep(pause.toMillis());
+            }
+        }
+        cutOver();
+        log.info("Partitioned customer, copied {} rows in {} ms", copied, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Nothing writes to customer_partitioned before this, so it starts out empty. CREATE
+    // TRIGGER waits for in-flight writes to customer, and every later one is mirrored;
+    // earlier ones are already in customer for the backfill to copy.
+    void startMirroring() {
+        transactionTemplate.executeWithoutResult(status -> {
+            String startedSql = """
+                    SELECT mirror_started_at IS NOT NULL
+                    FROM customer_partition_migration
+                    WHERE id = 1
+                    FOR UPDATE
+                    """;
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(startedSql, Boolean.class))) {
+                return;
+            }
+            jdbcTemplate.execute("""
+                    CREATE TRIGGER customer_email_claim
+                        AFTER INSERT OR UPDATE OR DELETE ON customer_partitioned
+                        FOR EACH ROW EXECUTE FUNCTION customer_email_claim();
+
+                    CREATE TRIGGER customer_partition_mirror
+                        AFTER INSERT OR UPDATE OR DELETE ON customer
+                        FOR EACH ROW EXECUTE FUNCTION customer_partition_mirror();
+
+                    UPDATE customer_partition_migration
+                    SET mirror_started_at = now()
+                    WHERE id = 1;
+                    """);
+            log.info("Mirroring customer writes into customer_partitioned");
+        });
+    }
+
+    // rows copied, 0 once the copy has caught up with the mirror trigger
+    long copyBatch(int batchSize) {
+        Long copied = transactionTemplate.execute(status -> {
+            String progressSql = """
+                    SELECT last_copied_id
+                    FROM customer_partition_migration
+                    WHERE id = 1
+                    FOR UPDATE
+                    """;
+            Long lastCopiedId = jdbcTemplate.queryForObject(progressSql, Long.class);
+            // FOR SHARE holds writers to these rows until the copy commits, after
+            // which their mirror trigger finds the copied row to update or delete
+            String copySql = """
+                    WITH batch AS (
+                        SELECT id, name, email, age
+                        FROM customer
+                        WHERE id > ?
+                        ORDER BY id
+                        LIMIT ?
+                        FOR SHARE
+                    ), copied AS (
+                        INSERT INTO customer_partitioned(id, name, email, age)
+                        SELECT id, name, email, age
+                        FROM batch
+                        ON CONFLICT (id) DO NOTHING
+                    )
+                    SELECT count(*) AS rows, max(id) AS last_id
+                    FROM batch
+                    """;
+            Map<String, Object> batch = jdbcTemplate.queryForMap(copySql, lastCopiedId, batchSize);
+            long rows = ((Number) batch.get("rows")).longValue();
+            if (rows > 0) {
+                String advanceSql = """
+                        UPDATE customer_partition_migration
+                        SET last_copied_id = ?
+                        WHERE id = 1
+                        """;
+                jdbcTemplate.update(advanceSql, ((Number) batch.get("last_id")).longValue());
+            }
+            return rows;
+        });
+        return copied == null ? 0 : copied;
+    }
+
+    void cutOver() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("LOCK TABLE customer IN ACCESS EXCLUSIVE MODE");
+            // anything the batches have not reached, the lock keeps it from moving
+            jdbcTemplate.update("""
+                    INSERT INTO customer_partitioned(id, name, email, age)
+                    SELECT id, name, email, age
+                    FROM customer
+                    WHERE id > (SELECT last_copied_id FROM customer_partition_migration WHERE id = 1)
+                    ON CONFLICT (id) DO NOTHING
+                    """);
+            jdbcTemplate.execute("""
+                    DROP TRIGGER customer_partition_mirror ON customer;
+                    DROP TRIGGER customer_row_count_insert ON customer;
+                    DROP TRIGGER customer_row_count_delete ON customer;
+                    DROP TRIGGER customer_row_count_truncate ON customer;
+
+                    ALTER TABLE customer RENAME TO customer_legacy;
+                    ALTER TABLE customer_legacy RENAME CONSTRAINT customer_pkey TO customer_legacy_pkey;
+                    ALTER TABLE customer_legacy RENAME CONSTRAINT customer_email_unique TO customer_legacy_email_unique;
+
+                    ALTER TABLE customer_partitioned RENAME TO customer;
+                    ALTER TABLE customer RENAME CONSTRAINT customer_partitioned_pkey TO customer_pkey;
+                    ALTER INDEX customer_partitioned_email_idx RENAME TO customer_email_idx;
+                    ALTER SEQUENCE customer_id_seq OWNED BY customer.id;
+                    """);
+            jdbcTemplate.execute("""
+                    DO $$
+                    DECLARE
+                        part RECORD;
+                    BEGIN
+                        FOR part IN
+                            SELECT c.relname
+                            FROM pg_inherits i
+                            JOIN pg_class c ON c.oid = i.inhrelid
+                            WHERE i.inhparent = 'customer'::regclass
+                        LOOP
+                            EXECUTE format('ALTER TABLE %I RENAME TO %I',
+                                part.relname, replace(part.relname, 'customer_partitioned_', 'customer_'));
+                        END LOOP;
+                    END;
+                    $$
+                    """);
+            // V4's counter triggers move with the table, statement triggers on the
+            // partitioned parent see the rows of every partition. The slots are kept
+            // as they are: the mirror and the copy leave both tables with the same
+            // rows, and a recount here would scan every row under the lock
+            jdbcTemplate.execute("""
+                    CREATE TRIGGER customer_row_count_insert
+                        AFTER INSERT ON customer
+                        REFERENCING NEW TABLE AS inserted
+                        FOR EACH STATEMENT EXECUTE FUNCTION customer_row_count_inserted();
+
+                    CREATE TRIGGER customer_row_count_delete
+                        AFTER DELETE ON customer
+                        REFERENCING OLD TABLE AS deleted
+                        FOR EACH STATEMENT EXECUTE FUNCTION customer_row_count_deleted();
+
+                    CREATE TRIGGER customer_row_count_truncate
+                        AFTER TRUNCATE ON customer
+                        FOR EACH STATEMENT EXECUTE FUNCTION customer_row_count_truncated();
+
+                    UPDATE customer_partition_migration
+                    SET cut_over_at = now()
+                    WHERE id = 1;
+                    """);
+        });
+        // customer_legacy stays behind for a rollback window, drop it by hand
+        log.info("Cut over to partitioned customer, customer_legacy can be dropped once verified");
+    }
+}
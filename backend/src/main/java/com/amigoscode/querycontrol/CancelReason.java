@@ -0,0 +1,12 @@
+package com.amigoscode.querycontrol;
+
+public enum CancelReason {
+    // the client went away, nobody will read the response
+    CLIENT_DISCONNECT,
+    // a streamed response failed to write, so nobody is reading it any more
+    ABANDONED_STREAM,
+    // the async request outlived its endpoint timeout
+    ASYNC_TIMEOUT,
+    // the gRPC caller's deadline passed
+    DEADLINE_EXCEEDED
+}
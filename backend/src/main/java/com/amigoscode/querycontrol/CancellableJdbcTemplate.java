@@ -0,0 +1,55 @@
+package com.amigoscode.querycontrol;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Applies the current request's endpoint timeout to every statement and registers
+// it with the request's QueryScope so it can be cancelled when the client goes away.
+public class CancellableJdbcTemplate extends JdbcTemplate {
+
+    private static final String QUERY_CANCELED = "57014";
+
+    private final QueryCancellations cancellations;
+
+    public CancellableJdbcTemplate(DataSource dataSource, QueryCancellations cancellations) {
+        super(dataSource);
+        this.cancellations = cancellations;
+    }
+
+    @Override
+    protected void applyStatementSettings(Statement stmt) throws SQLException {
+        super.applyStatementSettings(stmt);
+        QueryScope scope = QueryScope.current();
+        if (scope == null) {
+            return;
+        }
+        scope.register(stmt);
+        // a tighter timeout the DAO set itself (e.g. the exact count) wins
+        int current = stmt.getQueryTimeout();
+        if (current == 0 || scope.timeoutSeconds() < current) {
+            stmt.setQueryTimeout(scope.timeoutSeconds());
+        }
+    }
+
+    @Override
+    protected DataAccessException translateException(String task, String sql, SQLException ex) {
+        if (!QUERY_CANCELED.equals(ex.getSQLState())) {
+            return super.translateException(task, sql, ex);
+        }
+        QueryScope scope = QueryScope.current();
+        if (scope != null && scope.isCancelled()) {
+            return new QueryCancelledException(
+                    "%s cancelled (%s)".formatted(task, scope.cancelReason()), ex);
+        }
+        cancellations.timedOut(scope == null ? null : scope.route());
+        return new StatementTimeoutException(
+                scope == null
+                        ? task + " was cancelled by its statement timeout"
+                        : "%s exceeded the %ss query timeout of %s".formatted(task, scope.timeoutSeconds(), scope.route()),
+                ex);
+    }
+}
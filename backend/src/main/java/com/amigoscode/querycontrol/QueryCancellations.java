@@ -0,0 +1,57 @@
+package com.amigoscode.querycontrol;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+
+// customer.query.cancellations{reason} and customer.query.timeouts{route}
+@Component
+public class QueryCancellations {
+
+    private final MeterRegistry meterRegistry;
+
+    public QueryCancellations(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void cancel(QueryScope scope, CancelReason reason) {
+        if (scope != null && scope.cancel(reason)) {
+            Counter.builder("customer.query.cancellations")
+                    .description("Requests whose in-flight queries were cancelled")
+                    .tag("reason", reason.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    void timedOut(String route) {
+        Counter.builder("customer.query.timeouts")
+                .description("Statements cancelled by their endpoint's query timeout")
+                .tag("route", route == null ? "none" : route)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // A write failing mid-stream means nobody reads the rest: stop the request's
+    // queries. The container only notices a closed connection when a write fails,
+    // so this fires between pages, not while a page query runs; that query and
+    // the unstreamed ?ids=/?fields= lists stay bounded by their route's timeout.
+    public StreamingResponseBody cancelIfAbandoned(StreamingResponseBody body) {
+        return outputStream -> {
+            try {
+                body.writeTo(outputStream);
+            } catch (IOException e) {
+                cancel(QueryScope.current(), CancelReason.ABANDONED_STREAM);
+                throw e;
+            } catch (UncheckedIOException e) {
+                cancel(QueryScope.current(), CancelReason.ABANDONED_STREAM);
+                throw e.getCause();
+            }
+        };
+    }
+}
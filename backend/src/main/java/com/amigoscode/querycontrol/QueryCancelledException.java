@@ -0,0 +1,11 @@
+package com.amigoscode.querycontrol;
+
+import org.springframework.dao.TransientDataAccessException;
+
+// the client is gone, so there is no response status to pick
+public class QueryCancelledException extends TransientDataAccessException {
+
+    public QueryCancelledException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
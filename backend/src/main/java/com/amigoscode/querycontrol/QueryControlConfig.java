@@ -0,0 +1,53 @@
+package com.amigoscode.querycontrol;
+
+import io.grpc.ServerInterceptor;
+import org.springframework.boot.autoconfigure.jdbc.JdbcProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class QueryControlConfig implements WebMvcConfigurer {
+
+    private final QueryControlProperties properties;
+    private final QueryCancellations cancellations;
+
+    public QueryControlConfig(QueryControlProperties properties, QueryCancellations cancellations) {
+        this.properties = properties;
+        this.cancellations = cancellations;
+    }
+
+    // replaces Boot's JdbcTemplate, keeping its spring.jdbc.template.* settings
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource, JdbcProperties jdbcProperties) {
+        CancellableJdbcTemplate jdbcTemplate = new CancellableJdbcTemplate(dataSource, cancellations);
+        JdbcProperties.Template template = jdbcProperties.getTemplate();
+        jdbcTemplate.setFetchSize(template.getFetchSize());
+        jdbcTemplate.setMaxRows(template.getMaxRows());
+        if (template.getQueryTimeout() != null) {
+            jdbcTemplate.setQueryTimeout((int) template.getQueryTimeout().getSeconds());
+        }
+        return jdbcTemplate;
+    }
+
+    // picked up by GrpcServer
+    @Bean
+    public ServerInterceptor queryScopeServerInterceptor() {
+        return new QueryScopeServerInterceptor(properties, cancellations);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new QueryScopeInterceptor(properties)).addPathPatterns("/api/**");
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new QueryScopeCallableInterceptor(cancellations));
+    }
+}
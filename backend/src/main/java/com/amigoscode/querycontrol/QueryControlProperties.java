@@ -0,0 +1,23 @@
+package com.amigoscode.querycontrol;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+// timeouts keyed by "METHOD /route/{pattern}", anything unlisted gets default-timeout
+@ConfigurationProperties("customer.query")
+public record QueryControlProperties(
+        @DefaultValue("5s") Duration defaultTimeout,
+        Map<String, Duration> timeouts
+) {
+
+    public QueryControlProperties {
+        timeouts = timeouts == null ? Map.of() : Map.copyOf(timeouts);
+    }
+
+    Duration timeoutFor(String method, String route) {
+        return timeouts.getOrDefault(method + " " + route, defaultTimeout);
+    }
+}
@@ -0,0 +1,98 @@
+package com.amigoscode.querycontrol;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The statements one request has open and the timeout its endpoint allows them.
+// Bound to whichever thread runs the request's queries; cancel() may come from any
+// thread (the container's async error callbacks) and cancels whatever is in flight.
+public final class QueryScope {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryScope.class);
+
+    private static final ThreadLocal<QueryScope> CURRENT = new ThreadLocal<>();
+
+    private final String route;
+    private final int timeoutSeconds;
+    private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+    private volatile CancelReason cancelReason;
+
+    QueryScope(String route, Duration timeout) {
+        this.route = route;
+        // JDBC query timeouts are whole seconds, round up rather than to "no timeout"
+        this.timeoutSeconds = (int) Math.max(1, (timeout.toMillis() + 999) / 1000);
+    }
+
+    public static QueryScope current() {
+        return CURRENT.get();
+    }
+
+    void bind() {
+        CURRENT.set(this);
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    public String route() {
+        return route;
+    }
+
+    public int timeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public CancelReason cancelReason() {
+        return cancelReason;
+    }
+
+    public boolean isCancelled() {
+        return cancelReason != null;
+    }
+
+    void register(Statement statement) throws SQLException {
+        // statements closed by JdbcTemplate are dropped here, so a long streaming
+        // request only ever tracks the one or two it has open
+        statements.removeIf(QueryScope::isClosed);
+        statements.add(statement);
+        if (cancelReason != null) {
+            statements.remove(statement);
+            throw new SQLException("Request cancelled: " + cancelReason, "57014");
+        }
+    }
+
+    // true the first time only, so each cancelled request is counted once
+    boolean cancel(CancelReason reason) {
+        synchronized (this) {
+            if (cancelReason != null) {
+                return false;
+            }
+            cancelReason = reason;
+        }
+        for (Statement statement : statements) {
+            try {
+                // PgJDBC only sends a cancel request while this statement is executing
+                statement.cancel();
+            } catch (SQLException e) {
+                log.debug("Could not cancel statement for {}", route, e);
+            }
+        }
+        statements.clear();
+        return true;
+    }
+
+    private static boolean isClosed(Statement statement) {
+        try {
+            return statement.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.amigoscode.querycontrol;
+
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+
+import java.util.concurrent.Callable;
+
+// Carries the request's QueryScope onto the async thread of Callable and
+// StreamingResponseBody handlers. A request past its async timeout, or one whose
+// connection failed on a write, is reported on one of the container's own threads;
+// the scope is cancelled from there, which cancels the statement still running.
+class QueryScopeCallableInterceptor implements CallableProcessingInterceptor {
+
+    private final QueryCancellations cancellations;
+
+    QueryScopeCallableInterceptor(QueryCancellations cancellations) {
+        this.cancellations = cancellations;
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        QueryScope scope = scope(request);
+        if (scope != null) {
+            scope.bind();
+        }
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        QueryScope.unbind();
+    }
+
+    @Override
+    public <T> Object handleTimeout(NativeWebRequest request, Callable<T> task) {
+        cancellations.cancel(scope(request), CancelReason.ASYNC_TIMEOUT);
+        return RESULT_NONE;
+    }
+
+    @Override
+    public <T> Object handleError(NativeWebRequest request, Callable<T> task, Throwable t) {
+        cancellations.cancel(scope(request), CancelReason.ABANDONED_STREAM);
+        return RESULT_NONE;
+    }
+
+    private static QueryScope scope(NativeWebRequest request) {
+        return (QueryScope) request.getAttribute(QueryScopeInterceptor.SCOPE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+}
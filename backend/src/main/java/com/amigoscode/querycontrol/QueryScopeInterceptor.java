@@ -0,0 +1,45 @@
+package com.amigoscode.querycontrol;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+// Opens a QueryScope per request with the timeout configured for its route.
+class QueryScopeInterceptor implements AsyncHandlerInterceptor {
+
+    static final String SCOPE_ATTRIBUTE = QueryScope.class.getName();
+
+    private final QueryControlProperties properties;
+
+    QueryScopeInterceptor(QueryControlProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        QueryScope scope = (QueryScope) request.getAttribute(SCOPE_ATTRIBUTE);
+        if (scope == null || request.getDispatcherType() != DispatcherType.ASYNC) {
+            String route = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            scope = new QueryScope(
+                    request.getMethod() + " " + route,
+                    properties.timeoutFor(request.getMethod(), route)
+            );
+            request.setAttribute(SCOPE_ATTRIBUTE, scope);
+        }
+        scope.bind();
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // the queries continue on an async thread, QueryScopeCallableInterceptor binds it there
+        QueryScope.unbind();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        QueryScope.unbind();
+    }
+}
@@ -0,0 +1,96 @@
+package com.amigoscode.querycontrol;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// QueryScopeInterceptor for gRPC calls: the timeout configured for "GRPC <full method
+// name>", or less when the caller's deadline is sooner. A call's callbacks may each run
+// on a different handler thread, the scope is bound around every one of them. The
+// call's context is cancelled on another thread when the client cancels or the
+// deadline passes, which cancels the statement in flight.
+class QueryScopeServerInterceptor implements ServerInterceptor {
+
+    private static final String METHOD = "GRPC";
+
+    private final QueryControlProperties properties;
+    private final QueryCancellations cancellations;
+
+    QueryScopeServerInterceptor(QueryControlProperties properties, QueryCancellations cancellations) {
+        this.properties = properties;
+        this.cancellations = cancellations;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call,
+                                                                 Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        String route = call.getMethodDescriptor().getFullMethodName();
+        Duration timeout = properties.timeoutFor(METHOD, route);
+        Context context = Context.current();
+        Deadline deadline = context.getDeadline();
+        if (deadline != null) {
+            Duration remaining = Duration.ofNanos(Math.max(0, deadline.timeRemaining(TimeUnit.NANOSECONDS)));
+            if (remaining.compareTo(timeout) < 0) {
+                timeout = remaining;
+            }
+        }
+        QueryScope scope = new QueryScope(METHOD + " " + route, timeout);
+        context.addListener(cancelled -> {
+            // a call that completed normally cancels its context without a cause
+            Throwable cause = cancelled.cancellationCause();
+            if (cause != null) {
+                cancellations.cancel(scope, cause instanceof TimeoutException
+                        ? CancelReason.DEADLINE_EXCEEDED
+                        : CancelReason.CLIENT_DISCONNECT);
+            }
+        }, Runnable::run);
+
+        ServerCall.Listener<ReqT> listener;
+        scope.bind();
+        try {
+            listener = next.startCall(call, headers);
+        } finally {
+            QueryScope.unbind();
+        }
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(listener) {
+            @Override
+            public void onMessage(ReqT message) {
+                scope.bind();
+                try {
+                    super.onMessage(message);
+                } finally {
+                    QueryScope.unbind();
+                }
+            }
+
+            @Override
+            public void onHalfClose() {
+                scope.bind();
+                try {
+                    super.onHalfClose();
+                } finally {
+                    QueryScope.unbind();
+                }
+            }
+
+            @Override
+            public void onReady() {
+                scope.bind();
+                try {
+                    super.onReady();
+                } finally {
+                    QueryScope.unbind();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package com.amigoscode.querycontrol;
+
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.SERVICE_UNAVAILABLE)
+public class StatementTimeoutException extends QueryTimeoutException {
+
+    public StatementTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
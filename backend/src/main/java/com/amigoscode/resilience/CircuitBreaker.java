@@ -0,0 +1,161 @@
+package com.amigoscode.resilience;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+
+// Count-based circuit breaker. Closed, it keeps the outcome of the last window-size
+// calls and opens once at least minimum-calls were seen and either the failure rate or
+// the rate of calls slower than slow-call-duration reaches its threshold. Timed calls
+// still running past slow-call-duration count as slow already, otherwise a database
+// that stopped answering would never produce an outcome. Open, it rejects every call
+// for open-duration, then lets half-open-probes calls through: all of them fine closes
+// it with a fresh window, one bad outcome opens it again.
+public final class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final CircuitBreakerProperties properties;
+    private final LongSupplier nanoClock;
+    private final long slowCallNanos;
+
+    // all guarded by this
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private int calls;
+    private int next;
+    private int failures;
+    private int slowCalls;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesAdmitted;
+    private int probesPassed;
+    // start times of the timed calls in flight, with their count
+    private final TreeMap<Long, Integer> inFlight = new TreeMap<>();
+
+    public CircuitBreaker(String name, CircuitBreakerProperties properties, LongSupplier nanoClock) {
+        this.name = name;
+        this.properties = properties;
+        this.nanoClock = nanoClock;
+        this.slowCallNanos = properties.slowCallDuration().toNanos();
+        this.failed = new boolean[properties.windowSize()];
+        this.slow = new boolean[properties.windowSize()];
+    }
+
+    // false when the call must not reach the database; otherwise onResult must follow
+    // with the same start, timed unless latency says nothing about the database's health
+    public synchronized boolean tryAcquire(long startNanos, boolean timed) {
+        if (state == State.CLOSED) {
+            openIfStuck(startNanos);
+        }
+        if (state == State.OPEN) {
+            if (startNanos - openedAt < properties.openDuration().toNanos()) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probesAdmitted = 0;
+            probesPassed = 0;
+            log.info("Circuit {} half open, probing with {} calls", name, properties.halfOpenProbes());
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesAdmitted >= properties.halfOpenProbes()) {
+                return false;
+            }
+            probesAdmitted++;
+        }
+        if (timed) {
+            inFlight.merge(startNanos, 1, Integer::sum);
+        }
+        return true;
+    }
+
+    public synchronized void onResult(long startNanos, boolean timed, boolean failure) {
+        boolean slowCall = false;
+        if (timed) {
+            inFlight.computeIfPresent(startNanos, (start, count) -> count == 1 ? null : count - 1);
+            slowCall = nanoClock.getAsLong() - startNanos >= slowCallNanos;
+        }
+        switch (state) {
+            case CLOSED -> {
+                record(failure, slowCall);
+                if (calls >= properties.minimumCalls()
+                        && (failures >= properties.failureRate() * calls
+                        || slowCalls >= properties.slowCallRate() * calls)) {
+                    open("%s of %s calls failed, %s were slow".formatted(failures, calls, slowCalls));
+                }
+            }
+            case HALF_OPEN -> {
+                if (failure || slowCall) {
+                    open("a probe " + (failure ? "failed" : "was slow"));
+                } else if (++probesPassed >= properties.halfOpenProbes()) {
+                    close();
+                }
+            }
+            // admitted before it opened, the verdict is already in
+            case OPEN -> {
+            }
+        }
+    }
+
+    public long now() {
+        return nanoClock.getAsLong();
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    private void openIfStuck(long now) {
+        int stuck = 0;
+        for (int count : inFlight.headMap(now - slowCallNanos, true).values()) {
+            stuck += count;
+        }
+        if (stuck == 0) {
+            return;
+        }
+        int seen = calls + stuck;
+        if (seen >= properties.minimumCalls() && slowCalls + stuck >= properties.slowCallRate() * seen) {
+            open("%s calls are running for more than %s".formatted(stuck, properties.slowCallDuration()));
+        }
+    }
+
+    private void record(boolean failure, boolean slowCall) {
+        if (calls == failed.length) {
+            failures -= failed[next] ? 1 : 0;
+            slowCalls -= slow[next] ? 1 : 0;
+        } else {
+            calls++;
+        }
+        failed[next] = failure;
+        slow[next] = slowCall;
+        failures += failure ? 1 : 0;
+        slowCalls += slowCall ? 1 : 0;
+        next = (next + 1) % failed.length;
+    }
+
+    private void open(String reason) {
+        state = State.OPEN;
+        openedAt = nanoClock.getAsLong();
+        // the stuck ones finish whenever they do, their outcome no longer matters
+        inFlight.clear();
+        log.warn("Circuit {} open for {}: {}", name, properties.openDuration(), reason);
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        calls = 0;
+        next = 0;
+        failures = 0;
+        slowCalls = 0;
+        log.info("Circuit {} closed", name);
+    }
+}
@@ -0,0 +1,144 @@
+package com.amigoscode.resilience;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerField;
+import com.amigoscode.customer.PatchedCustomer;
+import com.amigoscode.exception.ServiceUnavailableException;
+import com.amigoscode.querycontrol.QueryCancelledException;
+import io.micrometer.core.instrument.Counter;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+// Runs CustomerDao calls through a CircuitBreaker. Successful reads refresh
+// LastKnownGoodCustomers; single and batch lookups by id fall back to those copies
+// while the circuit is open or the database fails them, and everything else gets a
+// 503 right away instead of waiting for timeouts.
+class CircuitBreakerInterceptor implements MethodInterceptor {
+
+    // scans and bulk writes take long by design, only their failures count
+    private static final Set<String> UNTIMED = Set.of(
+            "selectAllCustomers", "forEachCustomer", "countCustomers", "updateCustomers", "deleteCustomersByIds"
+    );
+
+    private final CircuitBreaker circuitBreaker;
+    private final LastKnownGoodCustomers copies;
+    private final Counter rejected;
+    private final Counter staleReads;
+
+    CircuitBreakerInterceptor(CircuitBreaker circuitBreaker,
+                              LastKnownGoodCustomers copies,
+                              Counter rejected,
+                              Counter staleReads) {
+        this.circuitBreaker = circuitBreaker;
+        this.copies = copies;
+        this.rejected = rejected;
+        this.staleReads = staleReads;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (invocation.getMethod().getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+        boolean timed = !UNTIMED.contains(invocation.getMethod().getName());
+        long start = circuitBreaker.now();
+        if (!circuitBreaker.tryAcquire(start, timed)) {
+            rejected.increment();
+            return fallback(invocation, null);
+        }
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            boolean outage = isOutage(e);
+            circuitBreaker.onResult(start, timed, outage);
+            if (outage) {
+                return fallback(invocation, e);
+            }
+            throw e;
+        }
+        circuitBreaker.onResult(start, timed, false);
+        remember(invocation, result);
+        return result;
+    }
+
+    // the database is not answering, as opposed to answering with an error
+    static boolean isOutage(Throwable e) {
+        return !(e instanceof QueryCancelledException)
+                && (e instanceof DataAccessResourceFailureException
+                || e instanceof QueryTimeoutException
+                || e instanceof TransientDataAccessResourceException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof CannotCreateTransactionException);
+    }
+
+    private Object fallback(MethodInvocation invocation, Throwable cause) {
+        Object[] args = invocation.getArguments();
+        Object stale = switch (invocation.getMethod().getName()) {
+            case "selectCustomerById" -> {
+                LastKnownGoodCustomers.Copy copy = copies.get((long) args[0]);
+                if (copy == null) {
+                    yield null;
+                }
+                StaleReads.mark(copy.asOfMillis());
+                @SuppressWarnings("unchecked")
+                Customer customer = args.length > 1
+                        ? CustomerField.project(copy.customer(), (Set<CustomerField>) args[1])
+                        : copy.customer();
+                yield Optional.of(customer);
+            }
+            case "selectCustomersByIds" -> {
+                long[] ids = (long[]) args[0];
+                List<Customer> customers = new ArrayList<>(ids.length);
+                long asOf = Long.MAX_VALUE;
+                for (long id : ids) {
+                    LastKnownGoodCustomers.Copy copy = copies.get(id);
+                    // a partial batch would look like deleted customers
+                    if (copy == null) {
+                        yield null;
+                    }
+                    customers.add(copy.customer());
+                    asOf = Math.min(asOf, copy.asOfMillis());
+                }
+                if (asOf != Long.MAX_VALUE) {
+                    StaleReads.mark(asOf);
+                }
+                yield customers;
+            }
+            default -> null;
+        };
+        if (stale != null) {
+            staleReads.increment();
+            return stale;
+        }
+        throw new ServiceUnavailableException("Customer database is unavailable, try again later", cause);
+    }
+
+    private void remember(MethodInvocation invocation, Object result) {
+        switch (invocation.getMethod().getName()) {
+            case "selectCustomerById", "patchCustomer" -> {
+                Optional<?> customer = ((Optional<?>) result)
+                        .map(row -> row instanceof PatchedCustomer patched ? patched.after() : row);
+                Object[] args = invocation.getArguments();
+                if (customer.isEmpty() && args[0] instanceof Long id) {
+                    copies.forget(id);
+                } else if (args.length == 1 || CustomerField.ALL.equals(args[1])) {
+                    customer.ifPresent(c -> copies.remember((Customer) c));
+                }
+            }
+            case "selectCustomersByIds" -> ((List<?>) result).forEach(c -> copies.remember((Customer) c));
+            default -> {
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.amigoscode.resilience;
+
+import com.amigoscode.customer.CustomerDao;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+// Puts a CircuitBreaker in front of the CustomerDao beans named in
+// customer.circuit-breaker.daos, one per bean. Dependencies are looked up when the
+// first dao is wrapped, so they are regular beans rather than early ones.
+//
+// customer.db.circuit.state{dao} (0 closed, 1 open, 2 half open),
+// customer.db.circuit.rejected{dao} and customer.db.stale.reads{dao}.
+@Component
+public class CircuitBreakerPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<CircuitBreakerProperties> properties;
+    private final ObjectProvider<LastKnownGoodCustomers> copies;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public CircuitBreakerPostProcessor(ObjectProvider<CircuitBreakerProperties> properties,
+                                       ObjectProvider<LastKnownGoodCustomers> copies,
+                                       ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties;
+        this.copies = copies;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof CustomerDao)) {
+            return bean;
+        }
+        CircuitBreakerProperties circuitBreakerProperties = properties.getObject();
+        if (!circuitBreakerProperties.enabled() || !circuitBreakerProperties.daos().contains(beanName)) {
+            return bean;
+        }
+        MeterRegistry registry = meterRegistry.getObject();
+        CircuitBreaker circuitBreaker = new CircuitBreaker(beanName, circuitBreakerProperties, System::nanoTime);
+        Gauge.builder("customer.db.circuit.state", circuitBreaker, cb -> cb.state().ordinal())
+                .description("0 closed, 1 open, 2 half open")
+                .tag("dao", beanName)
+                .register(registry);
+        CircuitBreakerInterceptor interceptor = new CircuitBreakerInterceptor(
+                circuitBreaker,
+                copies.getObject(),
+                Counter.builder("customer.db.circuit.rejected")
+                        .description("Dao calls failed fast while the circuit was open")
+                        .tag("dao", beanName)
+                        .register(registry),
+                Counter.builder("customer.db.stale.reads")
+                        .description("Reads answered from last-known-good copies")
+                        .tag("dao", beanName)
+                        .register(registry)
+        );
+        if (bean instanceof Advised advised && !advised.isFrozen()) {
+            advised.addAdvice(interceptor);
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        return proxyFactory.getProxy();
+    }
+}
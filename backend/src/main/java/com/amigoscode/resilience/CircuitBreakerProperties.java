@@ -0,0 +1,22 @@
+package com.amigoscode.resilience;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Set;
+
+@ConfigurationProperties("customer.circuit-breaker")
+public record CircuitBreakerProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("jdbc") Set<String> daos,
+        @DefaultValue("1s") Duration slowCallDuration,
+        @DefaultValue("0.5") double slowCallRate,
+        @DefaultValue("0.5") double failureRate,
+        @DefaultValue("50") int windowSize,
+        @DefaultValue("10") int minimumCalls,
+        @DefaultValue("10s") Duration openDuration,
+        @DefaultValue("3") int halfOpenProbes,
+        @DefaultValue("100000") int staleCopies
+) {
+}
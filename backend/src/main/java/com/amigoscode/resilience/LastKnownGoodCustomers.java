@@ -0,0 +1,74 @@
+package com.amigoscode.resilience;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// The most recently read or written customers as they were when the database last
+// returned them, for reads while it is unavailable. Least recently used copies are
+// evicted past stale-copies entries. Customer is mutable, so copies go in and out.
+@Component
+public class LastKnownGoodCustomers {
+
+    record Copy(Customer customer, long asOfMillis) {
+    }
+
+    private final Map<Long, Copy> copies;
+
+    public LastKnownGoodCustomers(CircuitBreakerProperties properties) {
+        int maxCopies = properties.staleCopies();
+        this.copies = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Copy> eldest) {
+                return size() > maxCopies;
+            }
+        };
+    }
+
+    public void remember(Customer customer) {
+        if (customer == null || customer.getId() == null) {
+            return;
+        }
+        Copy copy = new Copy(copyOf(customer), System.currentTimeMillis());
+        synchronized (copies) {
+            copies.put(customer.getId(), copy);
+        }
+    }
+
+    public void forget(long id) {
+        synchronized (copies) {
+            copies.remove(id);
+        }
+    }
+
+    Copy get(long id) {
+        Copy copy;
+        synchronized (copies) {
+            copy = copies.get(id);
+        }
+        return copy == null ? null : new Copy(copyOf(copy.customer()), copy.asOfMillis());
+    }
+
+    public int size() {
+        synchronized (copies) {
+            return copies.size();
+        }
+    }
+
+    @EventListener
+    public void onCustomerChange(CustomerChangeEvent event) {
+        if (event.type() == CustomerChangeEvent.Type.DELETED) {
+            forget(event.customerId());
+        } else {
+            remember(event.after());
+        }
+    }
+
+    private static Customer copyOf(Customer customer) {
+        return new Customer(customer.getId(), customer.getName(), customer.getEmail(), customer.getAge());
+    }
+}
@@ -0,0 +1,50 @@
+package com.amigoscode.resilience;
+
+import io.grpc.Context;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Marks the current request as answered from LastKnownGoodCustomers, so the response
+// says so and nothing caches it as current. HTTP requests keep the mark in a request
+// attribute, gRPC calls in a Context value set up by StaleReadsServerInterceptor.
+public final class StaleReads {
+
+    private static final String AS_OF_ATTRIBUTE = StaleReads.class.getName() + ".asOf";
+    static final Context.Key<AtomicLong> CALL_AS_OF = Context.key("stale-as-of");
+    static final long NOT_STALE = Long.MAX_VALUE;
+
+    private StaleReads() {
+    }
+
+    // keeps the oldest, a response is as stale as its stalest part
+    static void mark(long asOfMillis) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            AtomicLong callAsOf = CALL_AS_OF.get();
+            if (callAsOf != null) {
+                callAsOf.accumulateAndGet(asOfMillis, Math::min);
+            }
+            return;
+        }
+        Long marked = (Long) attributes.getAttribute(AS_OF_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (marked == null || asOfMillis < marked) {
+            attributes.setAttribute(AS_OF_ATTRIBUTE, asOfMillis, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    // epoch millis of the oldest stale copy the current request used, null when none
+    public static Long asOf() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            AtomicLong callAsOf = CALL_AS_OF.get();
+            return callAsOf == null || callAsOf.get() == NOT_STALE ? null : callAsOf.get();
+        }
+        return (Long) attributes.getAttribute(AS_OF_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    public static boolean served() {
+        return asOf() != null;
+    }
+}
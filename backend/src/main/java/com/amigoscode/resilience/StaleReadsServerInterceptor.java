@@ -0,0 +1,42 @@
+package com.amigoscode.resilience;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.ForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// The gRPC side of StaleResponseAdvice: a call answered from last-known-good copies
+// ends with a stale-as-of trailer, the epoch millis of the oldest copy it used.
+// Trailers rather than headers, a streamed list may fall back after its first page.
+@Component
+public class StaleReadsServerInterceptor implements ServerInterceptor {
+
+    static final Metadata.Key<String> STALE_AS_OF =
+            Metadata.Key.of("stale-as-of", Metadata.ASCII_STRING_MARSHALLER);
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call,
+                                                                 Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        AtomicLong asOf = new AtomicLong(StaleReads.NOT_STALE);
+        Context context = Context.current().withValue(StaleReads.CALL_AS_OF, asOf);
+        ServerCall<ReqT, RespT> marking = new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+            @Override
+            public void close(Status status, Metadata trailers) {
+                long oldest = asOf.get();
+                if (oldest != StaleReads.NOT_STALE) {
+                    trailers.put(STALE_AS_OF, Long.toString(oldest));
+                }
+                super.close(status, trailers);
+            }
+        };
+        return Contexts.interceptCall(context, marking, headers, next);
+    }
+}
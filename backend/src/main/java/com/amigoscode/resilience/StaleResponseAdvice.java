@@ -0,0 +1,41 @@
+package com.amigoscode.resilience;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.concurrent.TimeUnit;
+
+// Warning: 110 and Age on responses built from last-known-good copies
+@ControllerAdvice
+public class StaleResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body,
+                                  MethodParameter returnType,
+                                  MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request,
+                                  ServerHttpResponse response) {
+        Long asOf = StaleReads.asOf();
+        if (asOf != null) {
+            long age = TimeUnit.MILLISECONDS.toSeconds(Math.max(0, System.currentTimeMillis() - asOf));
+            response.getHeaders().set(HttpHeaders.WARNING, STALE_WARNING);
+            response.getHeaders().set(HttpHeaders.AGE, Long.toString(age));
+            response.getHeaders().setCacheControl("no-store");
+        }
+        return body;
+    }
+}
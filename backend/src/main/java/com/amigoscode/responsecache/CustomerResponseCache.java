@@ -0,0 +1,185 @@
+package com.amigoscode.responsecache;
+
+import com.amigoscode.collection.Hashing;
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerChangeEvent;
+import com.amigoscode.resilience.StaleReads;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+import java.util.zip.GZIPOutputStream;
+
+// Single-customer GET responses kept as encoded bytes, so a hit skips the DAO and
+// Jackson. Striped LRU maps, each evicting least recently used entries until it
+// is back under its share of the byte budget. Writes invalidate through
+// CustomerChangeEvent, and a load that raced with an invalidation or was answered
+// from a stale copy is not cached. Those events only cover writes made through this
+// instance, so entries also expire after a ttl, which bounds how long a write from
+// another instance, the ingest job or plain SQL can go unseen.
+@Component
+public class CustomerResponseCache {
+
+    private static final int STRIPES = 64;
+
+    private final ObjectMapper objectMapper;
+    private final int gzipMinBytes;
+    private final long stripeBudget;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    @Autowired
+    public CustomerResponseCache(ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${customer.response-cache.max-size:64MB}") DataSize maxSize,
+                                 @Value("${customer.response-cache.gzip-min-size:256B}") DataSize gzipMinSize,
+                                 @Value("${customer.response-cache.ttl:30s}") Duration ttl) {
+        this(objectMapper, meterRegistry, maxSize, gzipMinSize, ttl, System::nanoTime);
+    }
+
+    CustomerResponseCache(ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry,
+                          DataSize maxSize,
+                          DataSize gzipMinSize,
+                          Duration ttl,
+                          LongSupplier nanoClock) {
+        this.objectMapper = objectMapper;
+        this.gzipMinBytes = (int) gzipMinSize.toBytes();
+        this.stripeBudget = Math.max(1, maxSize.toBytes() / STRIPES);
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.hits = meterRegistry.counter("customer.response.cache", "result", "hit");
+        this.misses = meterRegistry.counter("customer.response.cache", "result", "miss");
+        this.evictions = meterRegistry.counter("customer.response.cache.evictions");
+        Gauge.builder("customer.response.cache.size", this, CustomerResponseCache::sizeInBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public EncodedCustomer get(long id, LongFunction<Customer> loader) {
+        Stripe stripe = stripeFor(id);
+        long stamp;
+        synchronized (stripe) {
+            Entry cached = stripe.entries.get(id);
+            if (cached != null) {
+                if (nanoClock.getAsLong() - cached.loadedAt() < ttlNanos) {
+                    hits.increment();
+                    return cached.encoded();
+                }
+                stripe.entries.remove(id);
+                stripe.bytes -= cached.encoded().sizeInBytes();
+            }
+            stamp = stripe.invalidations;
+        }
+        misses.increment();
+        long loadedAt = nanoClock.getAsLong();
+        EncodedCustomer encoded = encode(loader.apply(id));
+        synchronized (stripe) {
+            if (stripe.invalidations == stamp && !StaleReads.served() && encoded.sizeInBytes() <= stripeBudget) {
+                Entry previous = stripe.entries.put(id, new Entry(encoded, loadedAt));
+                stripe.bytes += encoded.sizeInBytes() - (previous == null ? 0 : previous.encoded().sizeInBytes());
+                evict(stripe);
+            }
+        }
+        return encoded;
+    }
+
+    public void invalidate(long id) {
+        Stripe stripe = stripeFor(id);
+        synchronized (stripe) {
+            stripe.invalidations++;
+            Entry removed = stripe.entries.remove(id);
+            if (removed != null) {
+                stripe.bytes -= removed.encoded().sizeInBytes();
+            }
+        }
+    }
+
+    @EventListener
+    public void onCustomerChange(CustomerChangeEvent event) {
+        invalidate(event.customerId());
+    }
+
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                bytes += stripe.bytes;
+            }
+        }
+        return bytes;
+    }
+
+    EncodedCustomer encode(Customer customer) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(customer);
+            byte[] gzip = json.length >= gzipMinBytes ? gzip(json) : null;
+            if (gzip != null && gzip.length >= json.length) {
+                gzip = null;
+            }
+            String etag = "\"" + Long.toHexString(Hashing.hash64(json)) + "\"";
+            return new EncodedCustomer(customer.getId(), json, gzip, etag);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode customer " + customer.getId(), e);
+        }
+    }
+
+    private void evict(Stripe stripe) {
+        Iterator<Entry> eldest = stripe.entries.values().iterator();
+        while (stripe.bytes > stripeBudget && eldest.hasNext()) {
+            stripe.bytes -= eldest.next().encoded().sizeInBytes();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private Stripe stripeFor(long id) {
+        return stripes[(int) (Hashing.mix(id) >>> 58)];
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // loadedAt is taken before the load, so the ttl never outlives the read it covers
+    private record Entry(EncodedCustomer encoded, long loadedAt) {
+    }
+
+    private static final class Stripe {
+
+        // access order, so iteration starts at the least recently used entry
+        private final Map<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes;
+        private long invalidations;
+    }
+}
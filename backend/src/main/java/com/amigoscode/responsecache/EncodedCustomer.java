@@ -0,0 +1,11 @@
+package com.amigoscode.responsecache;
+
+// A customer as it goes over the wire: the JSON bytes, a gzip variant when that
+// is smaller, and a strong ETag derived from the JSON.
+public record EncodedCustomer(long id, byte[] json, byte[] gzip, String etag) {
+
+    public long sizeInBytes() {
+        // bytes plus a rough allowance for the record, arrays, etag and map entry
+        return json.length + (gzip == null ? 0 : gzip.length) + etag.length() + 128;
+    }
+}
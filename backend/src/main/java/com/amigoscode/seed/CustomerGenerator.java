@@ -0,0 +1,50 @@
+package com.amigoscode.seed;
+
+import com.amigoscode.collection.Hashing;
+import com.amigoscode.customer.Customer;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+// Every row is derived from (seed, row) only, so any range can be generated
+// on any thread and the dataset is identical between runs.
+public class CustomerGenerator {
+
+    private static final String[] FIRST_NAMES = {
+            "Alex", "Jamila", "Ying", "Maria", "James", "Fatima", "Lucas", "Aisha",
+            "Noah", "Olivia", "Mohammed", "Sofia", "Liam", "Emma", "Hiroshi", "Chloe",
+            "Mateo", "Amara", "Ethan", "Zara", "Oscar", "Lina", "Ivan", "Nora",
+            "Kwame", "Elena", "Arjun", "Mei", "Samuel", "Leila", "Diego", "Hana"
+    };
+    private static final String[] LAST_NAMES = {
+            "Yang", "Smith", "Garcia", "Kim", "Johnson", "Khan", "Silva", "Nguyen",
+            "Brown", "Martin", "Rossi", "Muller", "Ahmed", "Novak", "Tanaka", "Lopez",
+            "Okafor", "Jensen", "Petrov", "Costa", "Hansen", "Dubois", "Singh", "Chen"
+    };
+    // most customers use a handful of providers, ordered by popularity
+    private static final String[] DOMAINS = {
+            "gmail.com", "outlook.com", "yahoo.com", "icloud.com", "hotmail.com",
+            "proton.me", "amigoscode.com", "example.org"
+    };
+
+    private final long seed;
+
+    public CustomerGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public Customer generate(long row) {
+        SplittableRandom random = new SplittableRandom(Hashing.mix(seed * 0x9E3779B97F4A7C15L + row));
+        String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        double u = random.nextDouble();
+        String domain = DOMAINS[(int) (u * u * DOMAINS.length)];
+        // the row number keeps emails unique, the seed keeps datasets apart
+        String email = "%s.%s+%d-%d@%s".formatted(
+                firstName, lastName, seed, row, domain
+        ).toLowerCase(Locale.ROOT);
+        // exponential tail: mostly young adults, a few up to 99
+        int age = 16 + (int) Math.min(83, -Math.log(1 - random.nextDouble()) * 14);
+        return new Customer(firstName + " " + lastName, email, age);
+    }
+}
@@ -0,0 +1,33 @@
+package com.amigoscode.seed;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+// java -jar app.jar --spring.profiles.active=seed --seed.rows=1000000 --seed.target=copy
+@Component
+@Profile("seed")
+public class CustomerSeedRunner implements CommandLineRunner {
+
+    private final CustomerSeeder customerSeeder;
+    private final SeedProperties seedProperties;
+    private final ApplicationContext applicationContext;
+
+    public CustomerSeedRunner(CustomerSeeder customerSeeder,
+                              SeedProperties seedProperties,
+                              ApplicationContext applicationContext) {
+        this.customerSeeder = customerSeeder;
+        this.seedProperties = seedProperties;
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        customerSeeder.seed(seedProperties);
+        // a seeding run is a one-off job. The list target too: the API serves the jdbc
+        // CustomerDao, so the seeded list would only hold memory until shutdown.
+        System.exit(SpringApplication.exit(applicationContext, () -> 0));
+    }
+}
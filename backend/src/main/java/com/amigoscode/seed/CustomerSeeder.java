@@ -0,0 +1,137 @@
+package com.amigoscode.seed;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerDao;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+@Profile("seed")
+public class CustomerSeeder {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerSeeder.class);
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final CustomerDao listCustomerDao;
+
+    public CustomerSeeder(DataSource dataSource,
+                          JdbcTemplate jdbcTemplate,
+                          @Qualifier("list") CustomerDao listCustomerDao) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.listCustomerDao = listCustomerDao;
+    }
+
+    public SeedReport seed(SeedProperties properties) throws InterruptedException {
+        CustomerGenerator generator = new CustomerGenerator(properties.seed());
+        long rows = properties.rows();
+        int batchSize = properties.batchSize();
+        AtomicLong loaded = new AtomicLong();
+        long progressStep = Math.max(batchSize, rows / 10);
+
+        log.info("Seeding {} customers into {} with seed {} on {} threads",
+                rows, properties.target(), properties.seed(), properties.effectiveThreads());
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(properties.effectiveThreads());
+        try {
+            List<Future<?>> chunks = new ArrayList<>();
+            for (long from = 0; from < rows; from += batchSize) {
+                long chunkFrom = from;
+                long chunkTo = Math.min(rows, from + batchSize);
+                chunks.add(executor.submit(() -> {
+                    load(properties.target(), generator, chunkFrom, chunkTo);
+                    long total = loaded.addAndGet(chunkTo - chunkFrom);
+                    if (total / progressStep != (total - (chunkTo - chunkFrom)) / progressStep) {
+                        log.info("Seeded {}/{} customers ({} rows/sec)",
+                                total, rows, (long) (total / seconds(start)));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Seeding failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        SeedReport report = new SeedReport(rows, properties.target(), Duration.ofNanos(System.nanoTime() - start));
+        log.info("Seeded {} customers into {} in {} ms ({} rows/sec)",
+                report.rows(), report.target(), report.elapsed().toMillis(), (long) report.rowsPerSecond());
+        return report;
+    }
+
+    private void load(SeedTarget target, CustomerGenerator generator, long from, long to) throws Exception {
+        switch (target) {
+            case COPY -> copy(generator, from, to);
+            case BATCH -> batchInsert(generator, from, to);
+            case LIST -> {
+                for (long row = from; row < to; row++) {
+                    Customer customer = generator.generate(row);
+                    // the in-memory DAO is not thread safe, only generation runs in parallel
+                    synchronized (listCustomerDao) {
+                        listCustomerDao.insertCustomer(customer);
+                    }
+                }
+            }
+        }
+    }
+
+    private void copy(CustomerGenerator generator, long from, long to) throws Exception {
+        StringBuilder csv = new StringBuilder((int) (to - from) * 64);
+        for (long row = from; row < to; row++) {
+            Customer customer = generator.generate(row);
+            // generated names and emails never contain commas or quotes
+            csv.append(customer.getName()).append(',')
+                    .append(customer.getEmail()).append(',')
+                    .append(customer.getAge()).append('\n');
+        }
+        byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+        try (Connection connection = dataSource.getConnection()) {
+            connection.unwrap(PGConnection.class)
+                    .getCopyAPI()
+                    .copyIn("COPY customer(name, email, age) FROM STDIN (FORMAT csv)", new ByteArrayInputStream(bytes));
+        }
+    }
+
+    private void batchInsert(CustomerGenerator generator, long from, long to) {
+        List<Customer> customers = new ArrayList<>((int) (to - from));
+        for (long row = from; row < to; row++) {
+            customers.add(generator.generate(row));
+        }
+        String sql = """
+                INSERT INTO customer(name, email, age)
+                VALUES(?, ?, ?)
+                """;
+        jdbcTemplate.batchUpdate(sql, customers, customers.size(), (ps, customer) -> {
+            ps.setString(1, customer.getName());
+            ps.setString(2, customer.getEmail());
+            ps.setInt(3, customer.getAge());
+        });
+    }
+
+    private static double seconds(long startNanos) {
+        return Math.max(1, System.nanoTime() - startNanos) / 1e9;
+    }
+}
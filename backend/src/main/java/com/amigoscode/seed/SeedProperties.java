@@ -0,0 +1,18 @@
+package com.amigoscode.seed;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties("seed")
+public record SeedProperties(
+        @DefaultValue("10000") long rows,
+        @DefaultValue("42") long seed,
+        @DefaultValue("copy") SeedTarget target,
+        @DefaultValue("10000") int batchSize,
+        @DefaultValue("0") int threads
+) {
+
+    public int effectiveThreads() {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+}
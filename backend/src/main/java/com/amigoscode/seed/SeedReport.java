@@ -0,0 +1,15 @@
+package com.amigoscode.seed;
+
+import java.time.Duration;
+
+public record SeedReport(
+        long rows,
+        SeedTarget target,
+        Duration elapsed
+) {
+
+    public double rowsPerSecond() {
+        long millis = Math.max(1, elapsed.toMillis());
+        return rows * 1000.0 / millis;
+    }
+}
@@ -0,0 +1,10 @@
+package com.amigoscode.seed;
+
+public enum SeedTarget {
+    // COPY ... FROM STDIN into the customer table
+    COPY,
+    // batched INSERT statements
+    BATCH,
+    // the in-memory "list" CustomerDao, only to time the generator: nothing serves it
+    LIST
+}
@@ -0,0 +1,55 @@
+package com.amigoscode.shard;
+
+import com.amigoscode.collection.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+// Each node owns virtualNodes points on a 64-bit ring, a key belongs to the first
+// point at or after its hash. Adding a node moves only ~1/N of the keys.
+public final class ConsistentHashRing<T> {
+
+    private final long[] points;
+    private final Object[] owners;
+
+    public ConsistentHashRing(List<String> names, List<T> nodes, int virtualNodes) {
+        if (names.size() != nodes.size() || nodes.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("A ring needs at least one named node and one virtual node");
+        }
+        int size = nodes.size() * virtualNodes;
+        long[] hashes = new long[size];
+        int[] nodeOf = new int[size];
+        Integer[] order = new Integer[size];
+        for (int n = 0; n < nodes.size(); n++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                int i = n * virtualNodes + v;
+                hashes[i] = Hashing.hash64((names.get(n) + "#" + v).getBytes(StandardCharsets.UTF_8));
+                nodeOf[i] = n;
+                order[i] = i;
+            }
+        }
+        Arrays.sort(order, (a, b) -> Long.compareUnsigned(hashes[a], hashes[b]));
+        this.points = new long[size];
+        this.owners = new Object[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = hashes[order[i]];
+            owners[i] = nodes.get(nodeOf[order[i]]);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public T route(long hash) {
+        int low = 0;
+        int high = points.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(points[mid], hash) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return (T) owners[low == points.length ? 0 : low];
+    }
+}
@@ -0,0 +1,45 @@
+package com.amigoscode.shard;
+
+import com.amigoscode.customer.CustomerRowMapper;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(prefix = "customer.shards", name = "enabled", havingValue = "true")
+public class ShardConfig {
+
+    @Bean("sharded")
+    ShardedCustomerDataAccessService shardedCustomerDao(ShardProperties properties,
+                                                        CustomerRowMapper customerRowMapper) {
+        if (properties.nodes() == null || properties.nodes().isEmpty()) {
+            throw new IllegalStateException("customer.shards.nodes must list at least one shard");
+        }
+        List<String> names = new ArrayList<>();
+        List<DataSource> dataSources = new ArrayList<>();
+        for (ShardProperties.Node node : properties.nodes()) {
+            DataSource dataSource = DataSourceBuilder.create()
+                    .url(node.url())
+                    .username(node.username())
+                    .password(node.password())
+                    .build();
+            // every shard carries the full schema, including its slice of the email claims
+            Flyway.configure().dataSource(dataSource).load().migrate();
+            names.add(node.name());
+            dataSources.add(dataSource);
+        }
+        return new ShardedCustomerDataAccessService(
+                names,
+                dataSources,
+                customerRowMapper,
+                properties.virtualNodes(),
+                new SnowflakeIdGenerator(properties.workerId())
+        );
+    }
+}
@@ -0,0 +1,19 @@
+package com.amigoscode.shard;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+@ConfigurationProperties("customer.shards")
+public record ShardProperties(
+        @DefaultValue("false") boolean enabled,
+        List<Node> nodes,
+        @DefaultValue("128") int virtualNodes,
+        @DefaultValue("0") long workerId
+) {
+
+    // the name places the shard on the ring, renaming it moves its customers
+    public record Node(String name, String url, String username, String password) {
+    }
+}
@@ -0,0 +1,338 @@
+package com.amigoscode.shard;
+
+import com.amigoscode.collection.Hashing;
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerCount;
+import com.amigoscode.customer.CustomerCountMode;
+import com.amigoscode.customer.CustomerDao;
+import com.amigoscode.customer.CustomerField;
+import com.amigoscode.customer.CustomerJDBCDataAccessService;
+import com.amigoscode.customer.CustomerRowMapper;
+import com.amigoscode.customer.PatchedCustomer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Customers live on the shard their id hashes to. Emails are claimed in
+// customer_email_claim on the shard the email hashes to, which keeps them unique
+// across shards. A claim is taken before the row is written and released after
+// the row is gone, so a crash in between leaves a stale claim, never a duplicate.
+public class ShardedCustomerDataAccessService implements CustomerDao, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedCustomerDataAccessService.class);
+
+    private static final int FOR_EACH_PAGE_SIZE = 10_000;
+
+    private final List<Shard> shards;
+    private final ConsistentHashRing<Shard> ring;
+    private final SnowflakeIdGenerator idGenerator;
+    private final ExecutorService scatter;
+
+    public ShardedCustomerDataAccessService(List<String> names,
+                                            List<DataSource> dataSources,
+                                            CustomerRowMapper customerRowMapper,
+                                            int virtualNodes,
+                                            SnowflakeIdGenerator idGenerator) {
+        List<Shard> shards = new ArrayList<>(dataSources.size());
+        for (int i = 0; i < dataSources.size(); i++) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSources.get(i));
+            shards.add(new Shard(
+                    names.get(i),
+                    dataSources.get(i),
+                    jdbcTemplate,
+                    new CustomerJDBCDataAccessService(jdbcTemplate, customerRowMapper)
+            ));
+        }
+        this.shards = List.copyOf(shards);
+        this.ring = new ConsistentHashRing<>(names, this.shards, virtualNodes);
+        this.idGenerator = idGenerator;
+        this.scatter = Executors.newFixedThreadPool(shards.size(), runnable -> {
+            Thread thread = new Thread(runnable, "customer-shard-scatter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public List<Customer> selectAllCustomers() {
+        return mergeById(scatter(shards, shard -> shard.dao().selectCustomersPage(Long.MIN_VALUE, Integer.MAX_VALUE)),
+                Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Customer> selectCustomersPage(long afterId, int limit) {
+        return mergeById(scatter(shards, shard -> shard.dao().selectCustomersPage(afterId, limit)), limit);
+    }
+
+    @Override
+    public void forEachCustomer(Set<CustomerField> fields, Consumer<Customer> action) {
+        Set<CustomerField> projection = EnumSet.of(CustomerField.ID);
+        projection.addAll(fields);
+        long after = Long.MIN_VALUE;
+        while (true) {
+            List<Customer> page = selectCustomersPage(after, FOR_EACH_PAGE_SIZE);
+            page.forEach(customer -> action.accept(CustomerField.project(customer, projection)));
+            if (page.size() < FOR_EACH_PAGE_SIZE) {
+                return;
+            }
+            after = page.get(page.size() - 1).getId();
+        }
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(long id) {
+        return shardForId(id).dao().selectCustomerById(id);
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(long id, Set<CustomerField> fields) {
+        return shardForId(id).dao().selectCustomerById(id, fields);
+    }
+
+    @Override
+    public List<Customer> selectCustomersByIds(long[] ids) {
+        Map<Shard, List<Long>> byShard = new IdentityHashMap<>();
+        for (long id : ids) {
+            byShard.computeIfAbsent(shardForId(id), shard -> new ArrayList<>()).add(id);
+        }
+        List<Shard> targets = new ArrayList<>(byShard.keySet());
+        List<Customer> customers = new ArrayList<>(ids.length);
+        scatter(targets, shard -> shard.dao().selectCustomersByIds(
+                byShard.get(shard).stream().mapToLong(Long::longValue).toArray()
+        )).forEach(customers::addAll);
+        return customers;
+    }
+
+    @Override
+    public CustomerCount countCustomers(CustomerCountMode mode) {
+        long total = 0;
+        CustomerCountMode reported = mode;
+        for (CustomerCount count : scatter(shards, shard -> shard.dao().countCustomers(mode))) {
+            total += count.count();
+            if (count.mode() != mode) {
+                // a shard fell back, the sum is only as good as its weakest part
+                reported = CustomerCountMode.ESTIMATED;
+            }
+        }
+        return new CustomerCount(total, reported);
+    }
+
+    @Override
+    public void insertCustomer(Customer customer) {
+        long id = idGenerator.nextId();
+        claimEmail(customer.getEmail(), id);
+        Customer row = new Customer(id, customer.getName(), customer.getEmail(), customer.getAge());
+        try {
+            shardForId(id).dao().insertCustomer(row);
+        } catch (RuntimeException e) {
+            releaseEmail(customer.getEmail(), id);
+            throw e;
+        }
+        customer.setId(id);
+    }
+
+    @Override
+    public boolean existsPersonWithEmail(String email) {
+        String sql = """
+                SELECT count(*)
+                FROM customer_email_claim
+                WHERE email = ?
+                """;
+        Long count = shardForEmail(email).jdbcTemplate().queryForObject(sql, Long.class, email);
+        return count != null && count > 0;
+    }
+
+    @Override
+    public void deleteCustomerById(long id) {
+        Shard shard = shardForId(id);
+        Optional<Customer> existing = shard.dao().selectCustomerById(id);
+        shard.dao().deleteCustomerById(id);
+        existing.ifPresent(customer -> releaseEmail(customer.getEmail(), id));
+    }
+
+    @Override
+    public boolean existsPersonWithId(long id) {
+        return shardForId(id).dao().existsPersonWithId(id);
+    }
+
+    @Override
+    public void updateCustomer(Customer customer) {
+        Shard shard = shardForId(customer.getId());
+        Optional<Customer> existing = shard.dao().selectCustomerById(customer.getId());
+        if (existing.isEmpty()) {
+            return;
+        }
+        String previousEmail = existing.get().getEmail();
+        boolean emailChanged = !previousEmail.equals(customer.getEmail());
+        if (emailChanged) {
+            claimEmail(customer.getEmail(), customer.getId());
+        }
+        try {
+            shard.dao().updateCustomer(customer);
+        } catch (RuntimeException e) {
+            if (emailChanged) {
+                releaseEmail(customer.getEmail(), customer.getId());
+            }
+            throw e;
+        }
+        if (emailChanged) {
+            releaseEmail(previousEmail, customer.getId());
+        }
+    }
+
+    @Override
+    public Optional<PatchedCustomer> patchCustomer(Customer patch) {
+        Shard shard = shardForId(patch.getId());
+        if (patch.getEmail() == null) {
+            return shard.dao().patchCustomer(patch);
+        }
+        Optional<Customer> existing = shard.dao().selectCustomerById(patch.getId());
+        if (existing.isEmpty()) {
+            return Optional.empty();
+        }
+        String previousEmail = existing.get().getEmail();
+        if (previousEmail.equals(patch.getEmail())) {
+            return shard.dao().patchCustomer(patch);
+        }
+        claimEmail(patch.getEmail(), patch.getId());
+        Optional<PatchedCustomer> patched;
+        try {
+            patched = shard.dao().patchCustomer(patch);
+        } catch (RuntimeException e) {
+            releaseEmail(patch.getEmail(), patch.getId());
+            throw e;
+        }
+        releaseEmail(patched.isPresent() ? previousEmail : patch.getEmail(), patch.getId());
+        return patched;
+    }
+
+    @Override
+    public void close() {
+        scatter.shutdownNow();
+        for (Shard shard : shards) {
+            if (shard.dataSource() instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Failed to close shard {}", shard.name(), e);
+                }
+            }
+        }
+    }
+
+    String shardNameForId(long id) {
+        return shardForId(id).name();
+    }
+
+    private Shard shardForId(long id) {
+        return ring.route(Hashing.mix(id));
+    }
+
+    private Shard shardForEmail(String email) {
+        return ring.route(Hashing.hash64(email.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void claimEmail(String email, long customerId) {
+        String sql = """
+                INSERT INTO customer_email_claim(email, customer_id)
+                VALUES (?, ?)
+                ON CONFLICT (email) DO NOTHING
+                """;
+        if (shardForEmail(email).jdbcTemplate().update(sql, email, customerId) == 0) {
+            throw new DuplicateKeyException("customer_email_claim_pkey");
+        }
+    }
+
+    private void releaseEmail(String email, long customerId) {
+        String sql = """
+                DELETE FROM customer_email_claim
+                WHERE email = ? AND customer_id = ?
+                """;
+        shardForEmail(email).jdbcTemplate().update(sql, email, customerId);
+    }
+
+    private <R> List<R> scatter(List<Shard> targets, Function<Shard, R> query) {
+        if (targets.size() == 1) {
+            return List.of(query.apply(targets.get(0)));
+        }
+        List<Future<R>> futures = new ArrayList<>(targets.size());
+        for (Shard shard : targets) {
+            futures.add(scatter.submit(() -> query.apply(shard)));
+        }
+        List<R> results = new ArrayList<>(targets.size());
+        try {
+            for (Future<R> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Interrupted while querying shards", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+    // k-way merge of id-ordered shard results
+    private static List<Customer> mergeById(List<List<Customer>> sorted, int limit) {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(Comparator.comparingLong(Cursor::headId));
+        int total = 0;
+        for (List<Customer> customers : sorted) {
+            total += customers.size();
+            if (!customers.isEmpty()) {
+                heads.add(new Cursor(customers));
+            }
+        }
+        List<Customer> merged = new ArrayList<>(Math.min(total, limit));
+        while (!heads.isEmpty() && merged.size() < limit) {
+            Cursor cursor = heads.poll();
+            merged.add(cursor.customers.get(cursor.index++));
+            if (cursor.index < cursor.customers.size()) {
+                heads.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    private record Shard(String name, DataSource dataSource, JdbcTemplate jdbcTemplate, CustomerJDBCDataAccessService dao) {
+    }
+
+    private static final class Cursor {
+
+        private final List<Customer> customers;
+        private int index;
+
+        private Cursor(List<Customer> customers) {
+            this.customers = customers;
+        }
+
+        private long headId() {
+            return customers.get(index).getId();
+        }
+    }
+}
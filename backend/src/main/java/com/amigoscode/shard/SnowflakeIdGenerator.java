@@ -0,0 +1,49 @@
+package com.amigoscode.shard;
+
+import java.time.Instant;
+import java.util.function.LongSupplier;
+
+// 41 bits of milliseconds since 2023-01-01, 10 bits of worker id, 12 bits of
+// sequence: unique across application instances with distinct worker ids and
+// roughly time ordered, so keyset pagination over ids follows insertion order.
+public class SnowflakeIdGenerator {
+
+    static final long EPOCH = Instant.parse("2023-01-01T00:00:00Z").toEpochMilli();
+    static final int WORKER_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_WORKER = (1L << WORKER_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long worker;
+    private final LongSupplier clock;
+    private long lastMillis = -1;
+    private long sequence;
+
+    public SnowflakeIdGenerator(long worker) {
+        this(worker, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(long worker, LongSupplier clock) {
+        if (worker < 0 || worker > MAX_WORKER) {
+            throw new IllegalArgumentException("Worker id must be between 0 and " + MAX_WORKER);
+        }
+        this.worker = worker;
+        this.clock = clock;
+    }
+
+    public synchronized long nextId() {
+        // a clock that steps back keeps using the last timestamp instead of repeating ids,
+        // an exhausted sequence borrows the next millisecond
+        long millis = Math.max(clock.getAsLong(), lastMillis);
+        if (millis == lastMillis) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                millis++;
+            }
+        } else {
+            sequence = 0;
+        }
+        lastMillis = millis;
+        return (millis - EPOCH) << (WORKER_BITS + SEQUENCE_BITS) | worker << SEQUENCE_BITS | sequence;
+    }
+}
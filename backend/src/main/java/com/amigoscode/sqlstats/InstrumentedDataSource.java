@@ -0,0 +1,34 @@
+package com.amigoscode.sqlstats;
+
+import com.amigoscode.jfr.CustomerDaoEvents;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class InstrumentedDataSource extends DelegatingDataSource {
+
+    private final SqlStatsRecorder recorder;
+
+    public InstrumentedDataSource(DataSource target, SqlStatsRecorder recorder) {
+        super(target);
+        this.recorder = recorder;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return JdbcProxies.connection(obtainTargetDataSource().getConnection(), this::record);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return JdbcProxies.connection(obtainTargetDataSource().getConnection(username, password), this::record);
+    }
+
+    private void record(SqlExecution execution) {
+        // EXPLAIN runs on the raw data source so it is not timed itself
+        String shape = recorder.record(execution, obtainTargetDataSource());
+        CustomerDaoEvents.statementExecuted(shape, execution.rows());
+    }
+}
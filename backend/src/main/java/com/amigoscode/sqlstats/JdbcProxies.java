@@ -0,0 +1,151 @@
+package com.amigoscode.sqlstats;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// JDK proxies that time every execute* call on statements handed out by a connection.
+final class JdbcProxies {
+
+    private JdbcProxies() {
+    }
+
+    static Connection connection(Connection target, Consumer<SqlExecution> recorder) {
+        return (Connection) Proxy.newProxyInstance(
+                JdbcProxies.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConnectionHandler(target, recorder)
+        );
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // unwrap and isWrapperFor must see through the proxy, e.g. for PGConnection's CopyManager
+    private static Object unwrap(Object proxy, Object target, Method method, Object[] args) throws Throwable {
+        Class<?> type = (Class<?>) args[0];
+        if (method.getName().equals("unwrap")) {
+            return type.isInstance(proxy) ? proxy : invoke(target, method, args);
+        }
+        return type.isInstance(proxy) || (boolean) invoke(target, method, args);
+    }
+
+    private record ConnectionHandler(Connection target, Consumer<SqlExecution> recorder) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("unwrap") || name.equals("isWrapperFor")) {
+                return unwrap(proxy, target, method, args);
+            }
+            Object result = JdbcProxies.invoke(target, method, args);
+            Class<?> type;
+            String sql = null;
+            if (name.equals("createStatement")) {
+                type = Statement.class;
+            } else if (name.equals("prepareStatement")) {
+                type = PreparedStatement.class;
+                sql = (String) args[0];
+            } else if (name.equals("prepareCall")) {
+                type = CallableStatement.class;
+                sql = (String) args[0];
+            } else {
+                return result;
+            }
+            return Proxy.newProxyInstance(
+                    JdbcProxies.class.getClassLoader(),
+                    new Class<?>[]{type},
+                    new StatementHandler(result, proxy, sql, recorder)
+            );
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+
+        private final Object target;
+        private final Object connection;
+        private final String preparedSql;
+        private final Consumer<SqlExecution> recorder;
+        private List<SqlExecution.Binding> bindings = new ArrayList<>();
+
+        private StatementHandler(Object target, Object connection, String preparedSql, Consumer<SqlExecution> recorder) {
+            this.target = target;
+            this.connection = connection;
+            this.preparedSql = preparedSql;
+            this.recorder = recorder;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("unwrap") || name.equals("isWrapperFor")) {
+                return unwrap(proxy, target, method, args);
+            }
+            if (name.equals("getConnection")) {
+                return connection;
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                bindings.add(new SqlExecution.Binding(method, args.clone()));
+            } else if (name.equals("clearParameters")) {
+                bindings = new ArrayList<>();
+            }
+            if (!name.startsWith("execute")) {
+                return JdbcProxies.invoke(target, method, args);
+            }
+            boolean prepared = args == null || args.length == 0 || !(args[0] instanceof String);
+            String sql = prepared ? preparedSql : (String) args[0];
+            long start = System.nanoTime();
+            Object result = null;
+            try {
+                result = JdbcProxies.invoke(target, method, args);
+                return result;
+            } finally {
+                if (sql != null) {
+                    recorder.accept(new SqlExecution(
+                            sql, System.nanoTime() - start, rows(result), prepared ? bindings : List.of()));
+                }
+                if (prepared) {
+                    // parameters stay bound for the next execute, the recorded list must not change under it
+                    bindings = new ArrayList<>(bindings);
+                }
+            }
+        }
+    }
+
+    private static long rows(Object result) {
+        if (result instanceof Integer count) {
+            return count;
+        }
+        if (result instanceof Long count) {
+            return count;
+        }
+        if (result instanceof int[] counts) {
+            long rows = 0;
+            for (int count : counts) {
+                rows += Math.max(count, 0);
+            }
+            return rows;
+        }
+        if (result instanceof long[] counts) {
+            long rows = 0;
+            for (long count : counts) {
+                rows += Math.max(count, 0);
+            }
+            return rows;
+        }
+        return -1;
+    }
+}
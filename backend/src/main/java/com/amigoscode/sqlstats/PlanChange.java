@@ -0,0 +1,6 @@
+package com.amigoscode.sqlstats;
+
+import java.time.Instant;
+
+public record PlanChange(String shape, Instant detectedAt, String previousFingerprint, String fingerprint) {
+}
@@ -0,0 +1,14 @@
+package com.amigoscode.sqlstats;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.Instant;
+
+public record SlowQuerySample(
+        String shape,
+        Instant sampledAt,
+        long durationMicros,
+        String planFingerprint,
+        JsonNode plan
+) {
+}
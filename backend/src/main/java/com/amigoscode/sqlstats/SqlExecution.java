@@ -0,0 +1,12 @@
+package com.amigoscode.sqlstats;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+// One timed statement with its update count (-1 for queries) and the parameter
+// setter calls needed to run it again.
+record SqlExecution(String sql, long nanos, long rows, List<Binding> bindings) {
+
+    record Binding(Method setter, Object[] args) {
+    }
+}
@@ -0,0 +1,54 @@
+package com.amigoscode.sqlstats;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Groups statements that differ only in literals and layout: string and numeric
+// literals become ?, runs of whitespace a single space.
+final class SqlShape {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w$.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    // writes, row locks and sequence calls, anywhere in the statement incl. CTEs
+    private static final Pattern SIDE_EFFECT = Pattern.compile(
+            "\\b(?:INSERT|UPDATE|DELETE|MERGE|SHARE|NEXTVAL|SETVAL)\\b", Pattern.CASE_INSENSITIVE);
+
+    private SqlShape() {
+    }
+
+    static String of(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    // statements EXPLAIN can run, everything else (DDL, SET, LOCK, COPY, DO) is only timed
+    static boolean isExplainable(String sql) {
+        String head = sql.stripLeading();
+        int end = 0;
+        while (end < head.length() && Character.isLetter(head.charAt(end))) {
+            end++;
+        }
+        return switch (head.substring(0, end).toUpperCase(Locale.ROOT)) {
+            case "SELECT", "INSERT", "UPDATE", "DELETE", "WITH", "VALUES" -> true;
+            default -> false;
+        };
+    }
+
+    // Statements EXPLAIN ANALYZE can run again without side effects. Rolling back does
+    // not return sequence values, undo trigger side effects elsewhere or avoid waiting on
+    // the original transaction's row locks, so writes and locking reads are only planned.
+    static boolean isSafeToAnalyze(String sql) {
+        String head = sql.stripLeading();
+        int end = 0;
+        while (end < head.length() && Character.isLetter(head.charAt(end))) {
+            end++;
+        }
+        return switch (head.substring(0, end).toUpperCase(Locale.ROOT)) {
+            // literals are blanked first, a quoted 'update' is no write
+            case "SELECT", "WITH", "VALUES" -> !SIDE_EFFECT.matcher(of(sql)).find();
+            default -> false;
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package com.amigoscode.sqlstats;
+
+public record SqlShapeStats(
+        String shape,
+        long count,
+        double totalMillis,
+        long meanMicros,
+        long p50Micros,
+        long p99Micros,
+        long maxMicros,
+        long slowCount,
+        String planFingerprint
+) {
+}
@@ -0,0 +1,30 @@
+package com.amigoscode.sqlstats;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+@Component
+public class SqlStatsDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<SqlStatsRecorder> recorder;
+    private final ObjectProvider<SqlStatsProperties> properties;
+
+    public SqlStatsDataSourcePostProcessor(ObjectProvider<SqlStatsRecorder> recorder,
+                                           ObjectProvider<SqlStatsProperties> properties) {
+        this.recorder = recorder;
+        this.properties = properties;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource
+                && !(bean instanceof InstrumentedDataSource)
+                && properties.getObject().enabled()) {
+            return new InstrumentedDataSource(dataSource, recorder.getObject());
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,27 @@
+package com.amigoscode.sqlstats;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+@Component
+@Endpoint(id = "sqlstats")
+public class SqlStatsEndpoint {
+
+    private final SqlStatsRecorder recorder;
+
+    public SqlStatsEndpoint(SqlStatsRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @ReadOperation
+    public SqlStatsReport report() {
+        return recorder.report();
+    }
+
+    @DeleteOperation
+    public void reset() {
+        recorder.reset();
+    }
+}
@@ -0,0 +1,17 @@
+package com.amigoscode.sqlstats;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties("sql-stats")
+public record SqlStatsProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("200ms") Duration slowThreshold,
+        @DefaultValue("1m") Duration sampleInterval,
+        @DefaultValue("256") int maxSamples,
+        @DefaultValue("1000") int maxShapes,
+        @DefaultValue("5s") Duration explainTimeout
+) {
+}
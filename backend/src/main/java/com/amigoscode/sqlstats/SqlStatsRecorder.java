@@ -0,0 +1,285 @@
+package com.amigoscode.sqlstats;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-shape timings for every statement going through the instrumented DataSource.
+// A statement slower than sql-stats.slow-threshold gets, at most once per
+// sample-interval and shape, an EXPLAIN on a background thread: with ANALYZE and
+// BUFFERS for plain reads, a plan only for writes and locking reads (see
+// SqlShape.isSafeToAnalyze). It runs in a transaction that is rolled back.
+@Component
+public class SqlStatsRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlStatsRecorder.class);
+
+    static final String OTHER_SHAPE = "<other>";
+
+    private final SqlStatsProperties properties;
+    private final ObjectMapper objectMapper;
+    private final long slowNanos;
+    private final long sampleIntervalNanos;
+    private final Map<String, String> shapeBySql = new ConcurrentHashMap<>();
+    private final Map<String, ShapeStats> shapes = new ConcurrentHashMap<>();
+    private final Deque<SlowQuerySample> samples = new ArrayDeque<>();
+    private final Deque<PlanChange> planChanges = new ArrayDeque<>();
+    private final ThreadPoolExecutor explainer;
+
+    public SqlStatsRecorder(SqlStatsProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.slowNanos = properties.slowThreshold().toNanos();
+        this.sampleIntervalNanos = properties.sampleInterval().toNanos();
+        // one EXPLAIN at a time, a burst of slow queries drops samples instead of piling on
+        this.explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(16),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "sql-stats-explain");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    String record(SqlExecution execution, DataSource dataSource) {
+        String shape = shapeOf(execution.sql());
+        ShapeStats stats = statsFor(shape);
+        stats.record(execution.nanos());
+        if (execution.nanos() >= slowNanos) {
+            stats.slow.increment();
+            if (SqlShape.isExplainable(execution.sql()) && stats.claimSample(System.nanoTime(), sampleIntervalNanos)) {
+                explainer.execute(() -> explain(stats, execution, dataSource));
+            }
+        }
+        return shape;
+    }
+
+    public SqlStatsReport report() {
+        List<SqlShapeStats> shapeStats = new ArrayList<>(shapes.size());
+        shapes.forEach((shape, stats) -> shapeStats.add(stats.snapshot(shape)));
+        shapeStats.sort(Comparator.comparingDouble(SqlShapeStats::totalMillis).reversed());
+        synchronized (samples) {
+            return new SqlStatsReport(shapeStats, List.copyOf(samples), List.copyOf(planChanges));
+        }
+    }
+
+    public void reset() {
+        shapes.clear();
+        synchronized (samples) {
+            samples.clear();
+            planChanges.clear();
+        }
+    }
+
+    private String shapeOf(String sql) {
+        String shape = shapeBySql.get(sql);
+        if (shape == null) {
+            shape = SqlShape.of(sql);
+            if (shapeBySql.size() < properties.maxShapes() * 4) {
+                shapeBySql.put(sql, shape);
+            }
+        }
+        return shape;
+    }
+
+    private ShapeStats statsFor(String shape) {
+        ShapeStats stats = shapes.get(shape);
+        if (stats != null) {
+            return stats;
+        }
+        if (shapes.size() >= properties.maxShapes()) {
+            // unbounded literal SQL must not grow the map without limit
+            return shapes.computeIfAbsent(OTHER_SHAPE, key -> new ShapeStats());
+        }
+        return shapes.computeIfAbsent(shape, key -> new ShapeStats());
+    }
+
+    void explain(ShapeStats stats, SqlExecution execution, DataSource dataSource) {
+        String shape = SqlShape.of(execution.sql());
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SET LOCAL statement_timeout = " + properties.explainTimeout().toMillis());
+                }
+                String plan;
+                String options = SqlShape.isSafeToAnalyze(execution.sql()) ? "ANALYZE, BUFFERS, FORMAT JSON" : "FORMAT JSON";
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "EXPLAIN (" + options + ") " + execution.sql())) {
+                    for (SqlExecution.Binding binding : execution.bindings()) {
+                        binding.setter().invoke(statement, binding.args());
+                    }
+                    try (ResultSet rs = statement.executeQuery()) {
+                        rs.next();
+                        plan = rs.getString(1);
+                    }
+                }
+                addSample(stats, shape, execution.nanos(), redact(objectMapper.readTree(plan)));
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (Exception e) {
+            log.debug("Could not EXPLAIN slow statement {}", shape, e);
+        }
+    }
+
+    private void addSample(ShapeStats stats, String shape, long nanos, JsonNode plan) {
+        String fingerprint = fingerprint(plan.path(0).path("Plan"));
+        String previous = stats.planFingerprint;
+        stats.planFingerprint = fingerprint;
+        Instant now = Instant.now();
+        synchronized (samples) {
+            samples.addLast(new SlowQuerySample(shape, now, nanos / 1_000, fingerprint, plan));
+            while (samples.size() > properties.maxSamples()) {
+                samples.removeFirst();
+            }
+            if (previous != null && !previous.equals(fingerprint)) {
+                log.warn("Plan changed for {}: {} -> {}", shape, previous, fingerprint);
+                planChanges.addLast(new PlanChange(shape, now, previous, fingerprint));
+                while (planChanges.size() > properties.maxSamples()) {
+                    planChanges.removeFirst();
+                }
+            }
+        }
+    }
+
+    // The plan is made with the statement's real bindings, its conditions quote them,
+    // e.g. ((email)::text = 'alex@gmail.com'::text). Customer data must not be kept
+    // or served from the endpoint, so every literal in the plan's text becomes ?.
+    static JsonNode redact(JsonNode node) {
+        if (node instanceof ObjectNode object) {
+            Iterator<Map.Entry<String, JsonNode>> fields = object.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (field.getValue().isTextual()) {
+                    field.setValue(object.textNode(SqlShape.of(field.getValue().asText())));
+                } else {
+                    redact(field.getValue());
+                }
+            }
+        } else if (node instanceof ArrayNode array) {
+            for (int i = 0; i < array.size(); i++) {
+                if (array.get(i).isTextual()) {
+                    array.set(i, array.textNode(SqlShape.of(array.get(i).asText())));
+                } else {
+                    redact(array.get(i));
+                }
+            }
+        }
+        return node;
+    }
+
+    // plan shape without costs, timings or row counts, e.g. Limit(Index Scan[customer_pkey on customer])
+    static String fingerprint(JsonNode node) {
+        StringBuilder fingerprint = new StringBuilder(node.path("Node Type").asText());
+        String index = node.path("Index Name").asText("");
+        String relation = node.path("Relation Name").asText("");
+        if (!index.isEmpty() || !relation.isEmpty()) {
+            fingerprint.append('[');
+            fingerprint.append(index.isEmpty() ? relation : index + " on " + relation);
+            fingerprint.append(']');
+        }
+        JsonNode children = node.path("Plans");
+        if (children.isArray() && !children.isEmpty()) {
+            fingerprint.append('(');
+            for (int i = 0; i < children.size(); i++) {
+                if (i > 0) {
+                    fingerprint.append(", ");
+                }
+                fingerprint.append(fingerprint(children.get(i)));
+            }
+            fingerprint.append(')');
+        }
+        return fingerprint.toString();
+    }
+
+    static final class ShapeStats {
+
+        // bucket i holds durations below 2^i microseconds
+        private static final int BUCKETS = 40;
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder slow = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong lastSampleNanos = new AtomicLong(Long.MIN_VALUE);
+        private volatile String planFingerprint;
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            long micros = nanos / 1_000;
+            buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+        }
+
+        boolean claimSample(long now, long interval) {
+            long last = lastSampleNanos.get();
+            return (last == Long.MIN_VALUE || now - last >= interval) && lastSampleNanos.compareAndSet(last, now);
+        }
+
+        SqlShapeStats snapshot(String shape) {
+            long n = count.sum();
+            long total = totalNanos.sum();
+            return new SqlShapeStats(
+                    shape,
+                    n,
+                    total / 1_000_000.0,
+                    n == 0 ? 0 : total / n / 1_000,
+                    percentile(0.50),
+                    percentile(0.99),
+                    maxNanos.get() / 1_000,
+                    slow.sum(),
+                    planFingerprint
+            );
+        }
+
+        // upper bound of the bucket holding the percentile, within a factor of two
+        private long percentile(double percentile) {
+            long[] counts = new long[BUCKETS];
+            long n = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                n += counts[i];
+            }
+            long rank = (long) Math.ceil(percentile * n);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank && counts[i] > 0) {
+                    return 1L << i;
+                }
+            }
+            return 0;
+        }
+    }
+}
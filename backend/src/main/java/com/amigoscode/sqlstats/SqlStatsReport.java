@@ -0,0 +1,10 @@
+package com.amigoscode.sqlstats;
+
+import java.util.List;
+
+public record SqlStatsReport(
+        List<SqlShapeStats> shapes,
+        List<SlowQuerySample> slowQueries,
+        List<PlanChange> planChanges
+) {
+}
@@ -0,0 +1,166 @@
+package com.amigoscode.stats;
+
+import com.amigoscode.collection.Hashing;
+import com.amigoscode.collection.HyperLogLog;
+import com.amigoscode.customer.Customer;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+// Mergeable summary of the customer table: one counter per age, so quantiles and
+// bucket counts are exact and removals are too, plus a HyperLogLog over email domains,
+// which only ever grows. Not thread safe, CustomerStatsService serializes access.
+public final class CustomerSketch {
+
+    // ages outside 0..MAX_AGE are counted at the nearest end
+    static final int MAX_AGE = 255;
+
+    private final long[] ageCounts;
+    private final HyperLogLog emailDomains;
+    private long customers;
+
+    public CustomerSketch(int domainPrecision) {
+        this(new long[MAX_AGE + 1], new HyperLogLog(domainPrecision), 0);
+    }
+
+    CustomerSketch(long[] ageCounts, HyperLogLog emailDomains, long customers) {
+        if (ageCounts.length != MAX_AGE + 1) {
+            throw new IllegalArgumentException("Expected %s age counters, got %s".formatted(MAX_AGE + 1, ageCounts.length));
+        }
+        this.ageCounts = ageCounts;
+        this.emailDomains = emailDomains;
+        this.customers = customers;
+    }
+
+    public void add(Customer customer) {
+        customers++;
+        addAge(customer.getAge(), 1);
+        addDomain(customer.getEmail());
+    }
+
+    // false when the email domain stays counted, the HyperLogLog can't take it back
+    public boolean remove(Customer customer) {
+        customers--;
+        addAge(customer.getAge(), -1);
+        return customer.getEmail() == null;
+    }
+
+    // false when the old email domain stays counted
+    public boolean update(Customer before, Customer after) {
+        if (!Objects.equals(before.getAge(), after.getAge())) {
+            addAge(before.getAge(), -1);
+            addAge(after.getAge(), 1);
+        }
+        if (after.getEmail() == null || after.getEmail().equals(before.getEmail())) {
+            return true;
+        }
+        addDomain(after.getEmail());
+        return before.getEmail() == null || domain(before.getEmail()).equals(domain(after.getEmail()));
+    }
+
+    public void merge(CustomerSketch other) {
+        for (int age = 0; age <= MAX_AGE; age++) {
+            ageCounts[age] += other.ageCounts[age];
+        }
+        emailDomains.merge(other.emailDomains);
+        customers += other.customers;
+    }
+
+    public long customers() {
+        return customers;
+    }
+
+    long[] ageCounts() {
+        return ageCounts.clone();
+    }
+
+    HyperLogLog emailDomains() {
+        return emailDomains.copy();
+    }
+
+    public CustomerStats.AgeStats ageStats(List<Double> quantiles, List<Integer> bucketBounds) {
+        long total = 0;
+        long sum = 0;
+        int min = -1;
+        int max = -1;
+        for (int age = 0; age <= MAX_AGE; age++) {
+            long count = ageCounts[age];
+            if (count > 0) {
+                total += count;
+                sum += count * age;
+                max = age;
+                if (min < 0) {
+                    min = age;
+                }
+            }
+        }
+
+        Map<String, Integer> quantileAges = new LinkedHashMap<>();
+        for (double quantile : quantiles) {
+            quantileAges.put(quantileName(quantile), total == 0 ? null : quantile(quantile, total));
+        }
+
+        List<CustomerStats.AgeBucket> buckets = new ArrayList<>(bucketBounds.size() + 1);
+        int from = 0;
+        for (int i = 0; i <= bucketBounds.size(); i++) {
+            int to = i < bucketBounds.size() ? Math.min(bucketBounds.get(i), MAX_AGE + 1) : MAX_AGE + 1;
+            long count = 0;
+            for (int age = from; age < to; age++) {
+                count += ageCounts[age];
+            }
+            buckets.add(new CustomerStats.AgeBucket(from, i < bucketBounds.size() ? to - 1 : null, count));
+            from = to;
+        }
+
+        return new CustomerStats.AgeStats(
+                total == 0 ? null : min,
+                total == 0 ? null : max,
+                total == 0 ? null : (double) sum / total,
+                quantileAges,
+                buckets
+        );
+    }
+
+    public CustomerStats.EmailDomainStats emailDomainStats() {
+        return new CustomerStats.EmailDomainStats(emailDomains.estimate(), emailDomains.relativeError());
+    }
+
+    // nearest rank: the smallest age with at least quantile * total customers at or below it
+    private int quantile(double quantile, long total) {
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int age = 0; age <= MAX_AGE; age++) {
+            seen += ageCounts[age];
+            if (seen >= rank) {
+                return age;
+            }
+        }
+        return MAX_AGE;
+    }
+
+    private void addAge(Integer age, int delta) {
+        if (age != null) {
+            ageCounts[Math.max(0, Math.min(MAX_AGE, age))] += delta;
+        }
+    }
+
+    private void addDomain(String email) {
+        if (email != null) {
+            emailDomains.add(Hashing.hash64(domain(email).getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    static String domain(String email) {
+        return email.substring(email.lastIndexOf('@') + 1).toLowerCase(Locale.ROOT);
+    }
+
+    static String quantileName(double quantile) {
+        return "p" + BigDecimal.valueOf(quantile).movePointRight(2).stripTrailingZeros().toPlainString();
+    }
+}
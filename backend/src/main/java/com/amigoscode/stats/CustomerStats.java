@@ -0,0 +1,38 @@
+package com.amigoscode.stats;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+// unreconciledChanges counts writes the sketch could not apply exactly since builtAt:
+// patches without the previous row, and removed emails the domain estimate still counts.
+public record CustomerStats(
+        long customers,
+        AgeStats age,
+        EmailDomainStats emailDomains,
+        Source source,
+        Instant builtAt,
+        long unreconciledChanges
+) {
+
+    public enum Source {
+        SCAN,
+        CHECKPOINT
+    }
+
+    public record AgeStats(
+            Integer min,
+            Integer max,
+            Double mean,
+            Map<String, Integer> quantiles,
+            List<AgeBucket> buckets
+    ) {
+    }
+
+    // to is inclusive, null for the open-ended last bucket
+    public record AgeBucket(int from, Integer to, long count) {
+    }
+
+    public record EmailDomainStats(long distinct, double relativeError) {
+    }
+}
@@ -0,0 +1,13 @@
+package com.amigoscode.stats;
+
+import java.time.Instant;
+
+public record CustomerStatsCheckpoint(
+        long customers,
+        long[] ageCounts,
+        byte[] emailDomainRegisters,
+        long unreconciledChanges,
+        Instant builtAt,
+        Instant checkpointedAt
+) {
+}
@@ -0,0 +1,10 @@
+package com.amigoscode.stats;
+
+import java.util.Optional;
+
+public interface CustomerStatsCheckpointDao {
+
+    Optional<CustomerStatsCheckpoint> selectLatest();
+
+    void upsert(CustomerStatsCheckpoint checkpoint);
+}
@@ -0,0 +1,71 @@
+package com.amigoscode.stats;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Optional;
+
+@Repository
+public class CustomerStatsCheckpointJDBCDataAccessService implements CustomerStatsCheckpointDao {
+
+    private static final RowMapper<CustomerStatsCheckpoint> ROW_MAPPER = (rs, rowNum) -> {
+        Long[] ageCounts = (Long[]) rs.getArray("age_counts").getArray();
+        long[] counts = new long[ageCounts.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = ageCounts[i];
+        }
+        return new CustomerStatsCheckpoint(
+                rs.getLong("customers"),
+                counts,
+                rs.getBytes("email_domain_registers"),
+                rs.getLong("unreconciled_changes"),
+                rs.getTimestamp("built_at").toInstant(),
+                rs.getTimestamp("checkpointed_at").toInstant()
+        );
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CustomerStatsCheckpointJDBCDataAccessService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<CustomerStatsCheckpoint> selectLatest() {
+        String sql = """
+                SELECT customers, age_counts, email_domain_registers, unreconciled_changes, built_at, checkpointed_at
+                FROM customer_stats_checkpoint
+                WHERE id = 1
+                """;
+        return jdbcTemplate.query(sql, ROW_MAPPER).stream()
+                .findFirst();
+    }
+
+    @Override
+    public void upsert(CustomerStatsCheckpoint checkpoint) {
+        String sql = """
+                INSERT INTO customer_stats_checkpoint(
+                    id, customers, age_counts, email_domain_registers, unreconciled_changes, built_at, checkpointed_at
+                )
+                VALUES(1, ?, ?, ?, ?, ?, ?)
+                ON CONFLICT (id) DO UPDATE
+                SET customers = excluded.customers,
+                    age_counts = excluded.age_counts,
+                    email_domain_registers = excluded.email_domain_registers,
+                    unreconciled_changes = excluded.unreconciled_changes,
+                    built_at = excluded.built_at,
+                    checkpointed_at = excluded.checkpointed_at
+                """;
+        jdbcTemplate.update(
+                sql,
+                checkpoint.customers(),
+                checkpoint.ageCounts(),
+                checkpoint.emailDomainRegisters(),
+                checkpoint.unreconciledChanges(),
+                Timestamp.from(checkpoint.builtAt()),
+                Timestamp.from(checkpoint.checkpointedAt())
+        );
+    }
+}
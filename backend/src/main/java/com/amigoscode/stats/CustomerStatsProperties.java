@@ -0,0 +1,16 @@
+package com.amigoscode.stats;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+@ConfigurationProperties("customer.stats")
+public record CustomerStatsProperties(
+        @DefaultValue("true") boolean scanOnStart,
+        @DefaultValue("14") int domainPrecision,
+        @DefaultValue({"0.25", "0.5", "0.75", "0.9", "0.99"}) List<Double> quantiles,
+        @DefaultValue({"18", "25", "35", "45", "55", "65"}) List<Integer> ageBuckets,
+        @DefaultValue("0.01") double maxUnreconciled
+) {
+}
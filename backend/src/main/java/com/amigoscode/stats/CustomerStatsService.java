@@ -0,0 +1,234 @@
+package com.amigoscode.stats;
+
+import com.amigoscode.collection.HyperLogLog;
+import com.amigoscode.customer.CustomerChangeEvent;
+import com.amigoscode.customer.CustomerDao;
+import com.amigoscode.customer.CustomerField;
+import com.amigoscode.exception.ServiceUnavailableException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Customer stats from an in-memory CustomerSketch instead of table scans. The sketch is
+// built by one streaming scan, follows CustomerChangeEvents from then on and is
+// checkpointed to customer_stats_checkpoint, which also serves stats right after a
+// restart. Writes the sketch can't apply exactly are counted, and once they pass
+// max-unreconciled of all customers the sketch is rebuilt in the background.
+@Service
+public class CustomerStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerStatsService.class);
+
+    // small tables shouldn't be rescanned for every few patches
+    private static final long MIN_UNRECONCILED_BEFORE_REBUILD = 1_000;
+
+    private final CustomerDao customerDao;
+    private final CustomerStatsCheckpointDao checkpointDao;
+    private final CustomerStatsProperties properties;
+    private final List<Integer> ageBuckets;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    // all guarded by this
+    private CustomerSketch active;
+    private CustomerStats.Source source;
+    private Instant builtAt;
+    private long unreconciled;
+    private boolean building;
+    private long changesDuringBuild;
+    private long version;
+    private long checkpointedVersion;
+    private CustomerStats snapshot;
+    private long snapshotVersion = -1;
+
+    public CustomerStatsService(@Qualifier("jdbc") CustomerDao customerDao,
+                                CustomerStatsCheckpointDao checkpointDao,
+                                CustomerStatsProperties properties) {
+        this.customerDao = customerDao;
+        this.checkpointDao = checkpointDao;
+        this.properties = properties;
+        this.ageBuckets = properties.ageBuckets().stream().sorted().distinct().toList();
+    }
+
+    // recomputed only after a change, otherwise the previous answer is returned as is
+    public synchronized CustomerStats stats() {
+        if (active == null) {
+            throw new ServiceUnavailableException("Customer stats are still being built");
+        }
+        if (snapshotVersion != version) {
+            snapshot = new CustomerStats(
+                    active.customers(),
+                    active.ageStats(properties.quantiles(), ageBuckets),
+                    active.emailDomainStats(),
+                    source,
+                    builtAt,
+                    unreconciled
+            );
+            snapshotVersion = version;
+        }
+        return snapshot;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        try {
+            loadCheckpoint();
+        } catch (RuntimeException e) {
+            log.warn("Failed to load customer stats checkpoint", e);
+        }
+        boolean loaded;
+        synchronized (this) {
+            loaded = active != null;
+        }
+        if (properties.scanOnStart() || !loaded) {
+            rebuildInBackground();
+        }
+    }
+
+    @EventListener
+    public void onCustomerChange(CustomerChangeEvent event) {
+        boolean rebuild;
+        synchronized (this) {
+            if (building) {
+                // the scan may or may not have passed this row already
+                changesDuringBuild++;
+            }
+            if (active == null) {
+                return;
+            }
+            boolean exact = switch (event.type()) {
+                case INSERTED -> {
+                    active.add(event.after());
+                    yield true;
+                }
+                case DELETED -> active.remove(event.before());
+                // without the previous row there is nothing to take out
+                case UPDATED -> event.before() != null && active.update(event.before(), event.after());
+            };
+            version++;
+            if (!exact) {
+                unreconciled++;
+            }
+            rebuild = unreconciled > Math.max(
+                    MIN_UNRECONCILED_BEFORE_REBUILD,
+                    (long) (properties.maxUnreconciled() * active.customers())
+            );
+        }
+        if (rebuild) {
+            rebuildInBackground();
+        }
+    }
+
+    public void rebuild() {
+        long start = System.nanoTime();
+        synchronized (this) {
+            building = true;
+            changesDuringBuild = 0;
+        }
+        CustomerSketch next = new CustomerSketch(properties.domainPrecision());
+        try {
+            customerDao.forEachCustomer(EnumSet.of(CustomerField.AGE, CustomerField.EMAIL), next::add);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                building = false;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            active = next;
+            source = CustomerStats.Source.SCAN;
+            builtAt = Instant.now();
+            unreconciled = changesDuringBuild;
+            building = false;
+            version++;
+        }
+        log.info("Built customer stats over {} customers in {} ms",
+                next.customers(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Scheduled(fixedDelayString = "${customer.stats.checkpoint-interval:PT5M}")
+    public void checkpoint() {
+        CustomerStatsCheckpoint checkpoint;
+        long checkpointVersion;
+        synchronized (this) {
+            if (active == null || version == checkpointedVersion) {
+                return;
+            }
+            checkpoint = new CustomerStatsCheckpoint(
+                    active.customers(),
+                    active.ageCounts(),
+                    active.emailDomains().registers(),
+                    unreconciled,
+                    builtAt,
+                    Instant.now()
+            );
+            checkpointVersion = version;
+        }
+        checkpointDao.upsert(checkpoint);
+        synchronized (this) {
+            checkpointedVersion = Math.max(checkpointedVersion, checkpointVersion);
+        }
+    }
+
+    @PreDestroy
+    public void checkpointOnShutdown() {
+        try {
+            checkpoint();
+        } catch (RuntimeException e) {
+            log.warn("Failed to checkpoint customer stats on shutdown", e);
+        }
+    }
+
+    private void loadCheckpoint() {
+        CustomerStatsCheckpoint checkpoint = checkpointDao.selectLatest().orElse(null);
+        if (checkpoint == null) {
+            return;
+        }
+        HyperLogLog emailDomains = HyperLogLog.of(checkpoint.emailDomainRegisters());
+        if (emailDomains.precision() != properties.domainPrecision()) {
+            log.info("Ignoring customer stats checkpoint with domain precision {}, configured is {}",
+                    emailDomains.precision(), properties.domainPrecision());
+            return;
+        }
+        CustomerSketch sketch = new CustomerSketch(checkpoint.ageCounts(), emailDomains, checkpoint.customers());
+        synchronized (this) {
+            if (active != null) {
+                return;
+            }
+            active = sketch;
+            source = CustomerStats.Source.CHECKPOINT;
+            builtAt = checkpoint.builtAt();
+            unreconciled = checkpoint.unreconciledChanges();
+            version++;
+            checkpointedVersion = version;
+        }
+        log.info("Loaded customer stats checkpoint of {} customers taken at {}",
+                checkpoint.customers(), checkpoint.checkpointedAt());
+    }
+
+    private void rebuildInBackground() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.warn("Failed to build customer stats", e);
+            } finally {
+                rebuilding.set(false);
+            }
+        }, "customer-stats-build");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
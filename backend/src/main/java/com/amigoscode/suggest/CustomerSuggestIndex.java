@@ -0,0 +1,203 @@
+package com.amigoscode.suggest;
+
+import com.amigoscode.collection.LongHashSet;
+import com.amigoscode.collection.LongObjectHashMap;
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerChangeEvent;
+import com.amigoscode.customer.CustomerDao;
+import com.amigoscode.customer.CustomerField;
+import com.amigoscode.exception.RequestValidationException;
+import com.amigoscode.exception.ServiceUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// In-memory typeahead over customer names and emails. Keys are the normalized full
+// name, every later word of it (so "smi" finds "John Smith") and the email. Built
+// from the DAO once the application is ready, then kept current by CustomerChangeEvents.
+@Component
+public class CustomerSuggestIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerSuggestIndex.class);
+
+    static final int MAX_LIMIT = 50;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private final CustomerDao customerDao;
+    private final RadixTrie trie = new RadixTrie();
+    private final LongObjectHashMap<CustomerSuggestion> suggestions = new LongObjectHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // ids changed by events while the initial scan runs, the scan must not overwrite them
+    private LongHashSet changedDuringBuild;
+    private volatile boolean ready;
+
+    public CustomerSuggestIndex(@Qualifier("jdbc") CustomerDao customerDao) {
+        this.customerDao = customerDao;
+    }
+
+    // shortest matching key first, so "sam" ranks Sam before Samantha and an exact
+    // email before longer ones; see RadixTrie.visit
+    public List<CustomerSuggestion> suggest(String query, int limit) {
+        if (!ready) {
+            throw new ServiceUnavailableException("Customer suggestions are still being built");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new RequestValidationException(
+                    "Suggestion limit must be between 1 and %s".formatted(MAX_LIMIT)
+            );
+        }
+        String prefix = normalize(query);
+        if (prefix.isEmpty()) {
+            throw new RequestValidationException("Suggestion query must not be blank");
+        }
+        List<CustomerSuggestion> result = new ArrayList<>(limit);
+        LongHashSet seen = new LongHashSet();
+        lock.readLock().lock();
+        try {
+            trie.visit(prefix, id -> {
+                if (seen.add(id)) {
+                    result.add(suggestions.get(id));
+                }
+                return result.size() < limit;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildInBackground() {
+        Thread thread = new Thread(() -> {
+            try {
+                build();
+            } catch (RuntimeException e) {
+                log.warn("Failed to build customer suggest index", e);
+            }
+        }, "customer-suggest-build");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void build() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            changedDuringBuild = new LongHashSet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        List<Customer> batch = new ArrayList<>(1024);
+        customerDao.forEachCustomer(EnumSet.of(CustomerField.NAME, CustomerField.EMAIL), customer -> {
+            batch.add(customer);
+            if (batch.size() == 1024) {
+                addScanned(batch);
+                batch.clear();
+            }
+        });
+        addScanned(batch);
+        lock.writeLock().lock();
+        try {
+            changedDuringBuild = null;
+            ready = true;
+            log.info("Built customer suggest index over {} customers, {} keys in {} ms",
+                    suggestions.size(), trie.keys(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onCustomerChange(CustomerChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            long id = event.customerId();
+            if (changedDuringBuild != null) {
+                changedDuringBuild.add(id);
+            }
+            remove(id);
+            if (event.after() != null) {
+                add(event.after());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addScanned(List<Customer> customers) {
+        lock.writeLock().lock();
+        try {
+            for (Customer customer : customers) {
+                if (!changedDuringBuild.contains(customer.getId())) {
+                    add(customer);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(Customer customer) {
+        CustomerSuggestion suggestion = new CustomerSuggestion(customer.getId(), customer.getName(), customer.getEmail());
+        suggestions.put(suggestion.id(), suggestion);
+        for (String key : keys(suggestion)) {
+            trie.add(key, suggestion.id());
+        }
+    }
+
+    private void remove(long id) {
+        CustomerSuggestion suggestion = suggestions.remove(id);
+        if (suggestion == null) {
+            return;
+        }
+        for (String key : keys(suggestion)) {
+            trie.remove(key, id);
+        }
+    }
+
+    private static Set<String> keys(CustomerSuggestion suggestion) {
+        Set<String> keys = new LinkedHashSet<>();
+        if (suggestion.name() != null) {
+            String name = normalize(suggestion.name());
+            keys.add(name);
+            int space = name.indexOf(' ');
+            while (space >= 0) {
+                keys.add(name.substring(space + 1));
+                space = name.indexOf(' ', space + 1);
+            }
+        }
+        if (suggestion.email() != null) {
+            keys.add(normalize(suggestion.email()));
+        }
+        keys.remove("");
+        return keys;
+    }
+
+    // case-folded, accents stripped and whitespace collapsed
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        String stripped = MARKS.matcher(decomposed).replaceAll("");
+        return SPACES.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+}
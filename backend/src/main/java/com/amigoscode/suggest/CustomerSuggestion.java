@@ -0,0 +1,4 @@
+package com.amigoscode.suggest;
+
+public record CustomerSuggestion(long id, String name, String email) {
+}
@@ -0,0 +1,217 @@
+package com.amigoscode.suggest;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.function.LongPredicate;
+
+// Compressed prefix tree from string keys to customer ids. Edges carry whole
+// label runs, children are kept sorted by first char, so a prefix lookup is a
+// descent of at most |prefix| chars followed by a best-first walk. Not thread-safe.
+final class RadixTrie {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final long[] NO_IDS = new long[0];
+
+    private final Node root = new Node("");
+    private long keys;
+
+    long keys() {
+        return keys;
+    }
+
+    void add(String key, long id) {
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            int index = node.childIndex(key.charAt(i));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(i));
+                leaf.addId(id);
+                node.insertChild(-index - 1, leaf);
+                keys++;
+                return;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                Node split = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                split.children = new Node[]{child};
+                node.children[index] = split;
+                child = split;
+            }
+            node = child;
+            i += common;
+        }
+        if (node.idCount == 0) {
+            keys++;
+        }
+        node.addId(id);
+    }
+
+    void remove(String key, long id) {
+        Node parent = null;
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            int index = node.childIndex(key.charAt(i));
+            if (index < 0) {
+                return;
+            }
+            Node child = node.children[index];
+            if (!key.startsWith(child.label, i)) {
+                return;
+            }
+            parent = node;
+            node = child;
+            i += child.label.length();
+        }
+        if (!node.removeId(id) || node.idCount > 0) {
+            return;
+        }
+        keys--;
+        if (node == root) {
+            return;
+        }
+        if (node.children.length == 0) {
+            parent.removeChild(node);
+            if (parent != root && parent.idCount == 0 && parent.children.length == 1) {
+                parent.mergeWithOnlyChild();
+            }
+        } else if (node.children.length == 1) {
+            node.mergeWithOnlyChild();
+        }
+    }
+
+    // ids of the keys starting with prefix, shortest key first and keys of one length
+    // in key order, until visitor returns false: the completions closest to what was
+    // typed come first, and only the nodes needed for them are expanded
+    void visit(String prefix, LongPredicate visitor) {
+        Node node = root;
+        String key = "";
+        int i = 0;
+        while (i < prefix.length()) {
+            int index = node.childIndex(prefix.charAt(i));
+            if (index < 0) {
+                return;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, prefix, i);
+            if (i + common < prefix.length() && common < child.label.length()) {
+                return;
+            }
+            node = child;
+            key += child.label;
+            i += common;
+        }
+        PriorityQueue<Reached> queue = new PriorityQueue<>();
+        queue.add(new Reached(node, key));
+        while (!queue.isEmpty()) {
+            Reached reached = queue.poll();
+            for (int j = 0; j < reached.node.idCount; j++) {
+                if (!visitor.test(reached.node.ids[j])) {
+                    return;
+                }
+            }
+            for (Node child : reached.node.children) {
+                queue.add(new Reached(child, reached.key + child.label));
+            }
+        }
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private record Reached(Node node, String key) implements Comparable<Reached> {
+
+        @Override
+        public int compareTo(Reached other) {
+            int byLength = Integer.compare(key.length(), other.key.length());
+            return byLength != 0 ? byLength : key.compareTo(other.key);
+        }
+    }
+
+    private static final class Node {
+
+        private String label;
+        private Node[] children = NO_CHILDREN;
+        private long[] ids = NO_IDS;
+        private int idCount;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private int childIndex(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char c = children[mid].label.charAt(0);
+                if (c < first) {
+                    low = mid + 1;
+                } else if (c > first) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private void insertChild(int index, Node child) {
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, index);
+            grown[index] = child;
+            System.arraycopy(children, index, grown, index + 1, children.length - index);
+            children = grown;
+        }
+
+        private void removeChild(Node child) {
+            int index = childIndex(child.label.charAt(0));
+            Node[] shrunk = new Node[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, index);
+            System.arraycopy(children, index + 1, shrunk, index, shrunk.length - index);
+            children = shrunk.length == 0 ? NO_CHILDREN : shrunk;
+        }
+
+        private void mergeWithOnlyChild() {
+            Node child = children[0];
+            label = label + child.label;
+            children = child.children;
+            ids = child.ids;
+            idCount = child.idCount;
+        }
+
+        private void addId(long id) {
+            for (int i = 0; i < idCount; i++) {
+                if (ids[i] == id) {
+                    return;
+                }
+            }
+            if (idCount == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(1, idCount * 2));
+            }
+            ids[idCount++] = id;
+        }
+
+        private boolean removeId(long id) {
+            for (int i = 0; i < idCount; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--idCount];
+                    if (idCount == 0) {
+                        ids = NO_IDS;
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.amigoscode.warmup;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerCountMode;
+import com.amigoscode.customer.CustomerDao;
+import com.amigoscode.customer.CustomerJDBCDataAccessService;
+import com.amigoscode.customer.CustomerRowMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Runs after the context is up but before ApplicationReadyEvent, which is what turns
+// readiness to ACCEPTING_TRAFFIC, so the pod only joins the load balancer once done.
+// First every pooled connection is opened and the DAO's read statements are run on
+// it past PgJDBC's prepareThreshold (5), so they are server-prepared everywhere. Then
+// synthetic read-only requests go through the real HTTP stack on loopback, warming
+// the JIT and filling the response cache, until max-requests or the budget runs out.
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class CustomerWarmUp implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerWarmUp.class);
+
+    private final WarmUpProperties properties;
+    private final DataSource dataSource;
+    private final CustomerRowMapper customerRowMapper;
+    private final Environment environment;
+    private volatile WarmUpReport report;
+
+    public CustomerWarmUp(WarmUpProperties properties,
+                          DataSource dataSource,
+                          CustomerRowMapper customerRowMapper,
+                          Environment environment) {
+        this.properties = properties;
+        this.dataSource = dataSource;
+        this.customerRowMapper = customerRowMapper;
+        this.environment = environment;
+    }
+
+    public WarmUpReport report() {
+        return report;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.enabled()) {
+            return;
+        }
+        Instant startedAt = Instant.now();
+        long start = System.nanoTime();
+        long deadline = start + properties.budget().toNanos();
+        List<Customer> sample = new ArrayList<>();
+        int connections = 0;
+        try {
+            connections = primeConnections(sample, deadline);
+        } catch (SQLException | DataAccessException e) {
+            log.warn("Warm-up could not prime pooled connections", e);
+        }
+        long[] latencies = sendRequests(sample, deadline);
+        int window = Math.min(properties.reportWindow(), latencies.length / 2);
+        report = new WarmUpReport(
+                startedAt,
+                Duration.ofNanos(System.nanoTime() - start),
+                System.nanoTime() >= deadline,
+                connections,
+                latencies.length,
+                WarmUpReport.Latency.of(latencies, 0, window),
+                WarmUpReport.Latency.of(latencies, latencies.length - window, latencies.length)
+        );
+        log.info("Warm-up took {} ms: {} connections primed, {} requests, p99 {} us cold -> {} us warm",
+                report.elapsed().toMillis(), connections, latencies.length,
+                report.cold().p99Micros(), report.warm().p99Micros());
+    }
+
+    private int primeConnections(List<Customer> sample, long deadline) throws SQLException {
+        int poolSize = poolSize();
+        List<Connection> held = new ArrayList<>(poolSize);
+        try {
+            // holding them all at once makes the pool open every connection now
+            while (held.size() < poolSize && System.nanoTime() < deadline) {
+                held.add(dataSource.getConnection());
+            }
+            for (Connection connection : held) {
+                CustomerDao dao = new CustomerJDBCDataAccessService(
+                        new JdbcTemplate(new SingleConnectionDataSource(connection, true)),
+                        customerRowMapper
+                );
+                if (sample.isEmpty()) {
+                    sample.addAll(dao.selectCustomersPage(0, properties.sampleSize()));
+                }
+                for (int i = 0; i < properties.statementExecutions() && System.nanoTime() < deadline; i++) {
+                    exercise(dao, sample, i);
+                }
+            }
+        } finally {
+            held.forEach(JdbcUtils::closeConnection);
+        }
+        return held.size();
+    }
+
+    // every read statement the request path runs, with the exact SQL text the DAO uses
+    private void exercise(CustomerDao dao, List<Customer> sample, int round) {
+        Customer customer = sample.isEmpty()
+                ? new Customer(0L, "", "warmup@invalid", 0)
+                : sample.get(round % sample.size());
+        dao.selectCustomerById(customer.getId());
+        dao.existsPersonWithId(customer.getId());
+        dao.existsPersonWithEmail(customer.getEmail());
+        dao.selectCustomersByIds(new long[]{customer.getId()});
+        dao.selectCustomersPage(0, properties.sampleSize());
+        dao.countCustomers(CustomerCountMode.ESTIMATED);
+    }
+
+    private int poolSize() throws SQLException {
+        if (dataSource.isWrapperFor(HikariDataSource.class)) {
+            return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+        }
+        return 1;
+    }
+
+    private long[] sendRequests(List<Customer> sample, long deadline) {
+        Integer port = environment.getProperty("local.server.port", Integer.class);
+        if (port == null || properties.maxRequests() <= 0) {
+            return new long[0];
+        }
+        List<URI> uris = uris("http://localhost:" + port + "/api/v1/customer", sample);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(2))
+                .build();
+        long[] latencies = new long[properties.maxRequests()];
+        int sent = 0;
+        while (sent < latencies.length && System.nanoTime() < deadline) {
+            HttpRequest request = HttpRequest.newBuilder(uris.get(sent % uris.size()))
+                    .header("Accept-Encoding", sent % 2 == 0 ? "gzip" : "identity")
+                    .timeout(Duration.ofSeconds(5))
+                    .GET()
+                    .build();
+            long begin = System.nanoTime();
+            try {
+                client.send(request, HttpResponse.BodyHandlers.discarding());
+            } catch (IOException e) {
+                log.warn("Warm-up request {} failed, stopping early", request.uri(), e);
+                break;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            latencies[sent++] = System.nanoTime() - begin;
+        }
+        return Arrays.copyOf(latencies, sent);
+    }
+
+    static List<URI> uris(String base, List<Customer> sample) {
+        List<URI> uris = new ArrayList<>();
+        uris.add(URI.create(base + "/count"));
+        if (sample.isEmpty()) {
+            // a miss still runs the lookup and the not-found path
+            uris.add(URI.create(base + "/0"));
+            uris.add(URI.create(base + "?ids=0"));
+            return uris;
+        }
+        String ids = sample.stream()
+                .limit(10)
+                .map(customer -> String.valueOf(customer.getId()))
+                .collect(Collectors.joining(","));
+        for (Customer customer : sample) {
+            uris.add(URI.create(base + "/" + customer.getId()));
+            uris.add(URI.create(base + "/" + customer.getId() + "?fields=id,name,email"));
+            uris.add(URI.create(base + "?ids=" + ids));
+            String name = customer.getName() == null ? "" : customer.getName().strip();
+            if (!name.isEmpty()) {
+                String prefix = name.substring(0, Math.min(2, name.length()));
+                uris.add(URI.create(base + "/suggest?q=" + URLEncoder.encode(prefix, StandardCharsets.UTF_8)));
+            }
+        }
+        return uris;
+    }
+}
@@ -0,0 +1,21 @@
+package com.amigoscode.warmup;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+@Component
+@Endpoint(id = "warmup")
+public class WarmUpEndpoint {
+
+    private final CustomerWarmUp warmUp;
+
+    public WarmUpEndpoint(CustomerWarmUp warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    @ReadOperation
+    public WarmUpReport report() {
+        return warmUp.report();
+    }
+}
@@ -0,0 +1,17 @@
+package com.amigoscode.warmup;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties("customer.warmup")
+public record WarmUpProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("30s") Duration budget,
+        @DefaultValue("100") int sampleSize,
+        @DefaultValue("6") int statementExecutions,
+        @DefaultValue("5000") int maxRequests,
+        @DefaultValue("200") int reportWindow
+) {
+}
@@ -0,0 +1,37 @@
+package com.amigoscode.warmup;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+
+// cold: the first report-window synthetic requests, warm: the last ones
+public record WarmUpReport(
+        Instant startedAt,
+        Duration elapsed,
+        boolean budgetExhausted,
+        int connectionsPrimed,
+        int requests,
+        Latency cold,
+        Latency warm
+) {
+
+    public record Latency(long p50Micros, long p99Micros, long maxMicros) {
+
+        static Latency of(long[] nanos, int from, int to) {
+            if (from >= to) {
+                return new Latency(0, 0, 0);
+            }
+            long[] sorted = Arrays.copyOfRange(nanos, from, to);
+            Arrays.sort(sorted);
+            return new Latency(
+                    percentile(sorted, 0.50) / 1_000,
+                    percentile(sorted, 0.99) / 1_000,
+                    sorted[sorted.length - 1] / 1_000
+            );
+        }
+
+        private static long percentile(long[] sorted, double percentile) {
+            return sorted[(int) Math.ceil(percentile * sorted.length) - 1];
+        }
+    }
+}
@@ -0,0 +1,6 @@
+-- The relay claims a batch by leasing it (claimed_until) and publishes with no row
+-- lock or transaction open. A message is only claimed while no older message of the
+-- same customer is leased or backing off, which the index below answers per row.
+ALTER TABLE customer_outbox ADD COLUMN claimed_until TIMESTAMPTZ;
+
+CREATE INDEX customer_outbox_customer_id_idx ON customer_outbox(customer_id, id);
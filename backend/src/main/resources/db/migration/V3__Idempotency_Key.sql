@@ -0,0 +1,10 @@
+CREATE TABLE idempotency_key(
+    key TEXT PRIMARY KEY,
+    request_hash BYTEA NOT NULL,
+    status INT NOT NULL,
+    response_body TEXT,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idempotency_key_created_at_idx
+    ON idempotency_key (created_at);
@@ -0,0 +1,50 @@
+-- Trigger-maintained row count for customer, spread over slots so that
+-- concurrent writers from different connections do not queue on one row.
+CREATE TABLE customer_row_count(
+    slot INT PRIMARY KEY,
+    row_count BIGINT NOT NULL
+);
+
+INSERT INTO customer_row_count(slot, row_count)
+SELECT slot, CASE WHEN slot = 0 THEN (SELECT count(*) FROM customer) ELSE 0 END
+FROM generate_series(0, 15) AS slot;
+
+CREATE FUNCTION customer_row_count_inserted() RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE customer_row_count
+    SET row_count = row_count + (SELECT count(*) FROM inserted)
+    WHERE slot = pg_backend_pid() % 16;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION customer_row_count_deleted() RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE customer_row_count
+    SET row_count = row_count - (SELECT count(*) FROM deleted)
+    WHERE slot = pg_backend_pid() % 16;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION customer_row_count_truncated() RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE customer_row_count
+    SET row_count = 0;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER customer_row_count_insert
+    AFTER INSERT ON customer
+    REFERENCING NEW TABLE AS inserted
+    FOR EACH STATEMENT EXECUTE FUNCTION customer_row_count_inserted();
+
+CREATE TRIGGER customer_row_count_delete
+    AFTER DELETE ON customer
+    REFERENCING OLD TABLE AS deleted
+    FOR EACH STATEMENT EXECUTE FUNCTION customer_row_count_deleted();
+
+CREATE TRIGGER customer_row_count_truncate
+    AFTER TRUNCATE ON customer
+    FOR EACH STATEMENT EXECUTE FUNCTION customer_row_count_truncated();
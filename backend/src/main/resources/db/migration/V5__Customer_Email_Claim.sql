@@ -0,0 +1,6 @@
+-- Global email uniqueness for the sharded CustomerDao: each email is claimed on the
+-- shard its hash routes to, independently of the shard holding the customer row.
+CREATE TABLE customer_email_claim(
+    email TEXT PRIMARY KEY,
+    customer_id BIGINT NOT NULL
+);
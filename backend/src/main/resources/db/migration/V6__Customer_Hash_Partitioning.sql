@@ -0,0 +1,88 @@
+-- First half of moving customer onto a hash-partitioned table. This migration
+-- only creates the empty table and the trigger functions, so it runs in moments on
+-- any table size and costs writes nothing. CustomerPartitionMigrator installs the
+-- triggers when it starts, then copies the existing rows over in batches and swaps
+-- the tables.
+--
+-- The partition count is read from the customer.partition_count setting, e.g.
+-- ALTER DATABASE customer SET customer.partition_count = 32, and defaults to 8.
+CREATE TABLE customer_partitioned(
+    id BIGINT NOT NULL DEFAULT nextval('customer_id_seq'),
+    name TEXT NOT NULL,
+    email TEXT NOT NULL,
+    age INT NOT NULL,
+    PRIMARY KEY (id)
+) PARTITION BY HASH (id);
+
+DO $$
+DECLARE
+    partitions INT := COALESCE(NULLIF(current_setting('customer.partition_count', true), '')::int, 8);
+BEGIN
+    FOR remainder IN 0..partitions - 1 LOOP
+        EXECUTE format(
+            'CREATE TABLE customer_partitioned_p%s PARTITION OF customer_partitioned
+                 FOR VALUES WITH (MODULUS %s, REMAINDER %s)',
+            remainder, partitions, remainder
+        );
+    END LOOP;
+END;
+$$;
+
+CREATE INDEX customer_partitioned_email_idx
+    ON customer_partitioned (email);
+
+-- A unique index on a table hashed by id cannot cover email, so uniqueness
+-- moves to this table, kept in step by row triggers on the partitioned table
+-- (customer_email_claim, installed with the mirror).
+CREATE TABLE customer_email(
+    email TEXT PRIMARY KEY,
+    customer_id BIGINT NOT NULL
+);
+
+CREATE FUNCTION customer_email_claim() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO customer_email(email, customer_id) VALUES (NEW.email, NEW.id);
+    ELSIF TG_OP = 'UPDATE' THEN
+        IF NEW.email IS DISTINCT FROM OLD.email OR NEW.id <> OLD.id THEN
+            INSERT INTO customer_email(email, customer_id) VALUES (NEW.email, NEW.id);
+            DELETE FROM customer_email WHERE email = OLD.email AND customer_id = OLD.id;
+        END IF;
+    ELSE
+        DELETE FROM customer_email WHERE email = OLD.email AND customer_id = OLD.id;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Dual write while the migration runs: every change to customer is replayed on
+-- customer_partitioned by the customer_partition_mirror trigger. Rows the backfill
+-- has not reached yet are simply not there to update or delete.
+CREATE FUNCTION customer_partition_mirror() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO customer_partitioned(id, name, email, age)
+        VALUES (NEW.id, NEW.name, NEW.email, NEW.age)
+        ON CONFLICT (id) DO UPDATE
+            SET name = EXCLUDED.name, email = EXCLUDED.email, age = EXCLUDED.age;
+    ELSIF TG_OP = 'UPDATE' THEN
+        UPDATE customer_partitioned
+        SET name = NEW.name, email = NEW.email, age = NEW.age
+        WHERE id = NEW.id;
+    ELSE
+        DELETE FROM customer_partitioned WHERE id = OLD.id;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TABLE customer_partition_migration(
+    id INT PRIMARY KEY CHECK (id = 1),
+    last_copied_id BIGINT NOT NULL,
+    mirror_started_at TIMESTAMPTZ,
+    cut_over_at TIMESTAMPTZ
+);
+
+INSERT INTO customer_partition_migration(id, last_copied_id)
+SELECT 1, COALESCE(min(id) - 1, 0)
+FROM customer;
@@ -0,0 +1,11 @@
+-- Last checkpoint of the in-memory customer stats sketch, so stats can be served
+-- right after a restart while the streaming scan rebuilds them.
+CREATE TABLE customer_stats_checkpoint(
+    id SMALLINT PRIMARY KEY CHECK (id = 1),
+    customers BIGINT NOT NULL,
+    age_counts BIGINT[] NOT NULL,
+    email_domain_registers BYTEA NOT NULL,
+    unreconciled_changes BIGINT NOT NULL,
+    built_at TIMESTAMPTZ NOT NULL,
+    checkpointed_at TIMESTAMPTZ NOT NULL
+);
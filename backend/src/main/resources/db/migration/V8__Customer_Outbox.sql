@@ -0,0 +1,13 @@
+-- Customer changes waiting to be published, written by the same statement as the
+-- change itself (see CustomerJDBCDataAccessService) and deleted by the relay once
+-- the sink took them. Rows come and go all the time, so vacuum it early.
+CREATE TABLE customer_outbox(
+    id BIGSERIAL PRIMARY KEY,
+    customer_id BIGINT NOT NULL,
+    type TEXT NOT NULL,
+    payload JSONB NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    available_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    attempts INT NOT NULL DEFAULT 0,
+    last_error TEXT
+) WITH (autovacuum_vacuum_scale_factor = 0.01, autovacuum_vacuum_threshold = 1000);
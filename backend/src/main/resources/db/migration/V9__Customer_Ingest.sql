@@ -0,0 +1,26 @@
+-- Bulk file ingestion (see CustomerIngestJob). A job is one file, recognised again by
+-- path, size and modification time; its chunk rows commit with the customers merged
+-- from that chunk, so a rerun of an interrupted job skips what is already in.
+CREATE TABLE customer_ingest_job(
+    id BIGSERIAL PRIMARY KEY,
+    path TEXT NOT NULL,
+    file_size BIGINT NOT NULL,
+    file_modified_at TIMESTAMPTZ NOT NULL,
+    format TEXT NOT NULL,
+    chunk_size BIGINT NOT NULL,
+    started_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    finished_at TIMESTAMPTZ,
+    CONSTRAINT customer_ingest_job_file_unique UNIQUE (path, file_size, file_modified_at)
+);
+
+CREATE TABLE customer_ingest_chunk(
+    job_id BIGINT NOT NULL REFERENCES customer_ingest_job (id) ON DELETE CASCADE,
+    chunk INT NOT NULL,
+    rows_read BIGINT NOT NULL,
+    inserted BIGINT NOT NULL,
+    duplicates BIGINT NOT NULL,
+    existing BIGINT NOT NULL,
+    rejected BIGINT NOT NULL,
+    merged_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    PRIMARY KEY (job_id, chunk)
+);
@@ -0,0 +1,49 @@
+package com.amigoscode.changes;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerChangeRingTest {
+
+    @Test
+    void append_pastCapacity_oldestOverwritten() {
+        CustomerChangeRing underTest = new CustomerChangeRing(4, 100);
+        assertThat(underTest.head()).isEqualTo(99);
+        assertThat(underTest.canResumeAfter(99)).isTrue();
+
+        for (int i = 0; i < 6; i++) {
+            underTest.append(id -> ChangeFrame.of(id, "{}".getBytes(StandardCharsets.US_ASCII)));
+        }
+
+        assertThat(underTest.head()).isEqualTo(105);
+        assertThat(underTest.get(101)).isNull();
+        assertThat(underTest.get(102).id()).isEqualTo(102);
+        assertThat(underTest.get(105).id()).isEqualTo(105);
+        // 102..105 are still there
+        assertThat(underTest.canResumeAfter(101)).isTrue();
+        assertThat(underTest.canResumeAfter(100)).isFalse();
+        assertThat(underTest.canResumeAfter(105)).isTrue();
+        assertThat(underTest.canResumeAfter(106)).isFalse();
+    }
+
+    @Test
+    void new_capacityNotPowerOfTwo_throwIllegalArgumentException() {
+        assertThatThrownBy(() -> new CustomerChangeRing(1000, 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Ring capacity must be a power of two, got [1000]");
+    }
+
+    @Test
+    void frameOf_idSplicedIntoBody() {
+        ChangeFrame frame = ChangeFrame.of(7, "{\"type\":\"DELETED\"}".getBytes(StandardCharsets.US_ASCII));
+
+        assertThat(new String(frame.ndjson(), StandardCharsets.US_ASCII))
+                .isEqualTo("{\"id\":7,\"type\":\"DELETED\"}\n");
+        assertThat(new String(frame.sse(), StandardCharsets.US_ASCII))
+                .isEqualTo("id: 7\ndata: {\"id\":7,\"type\":\"DELETED\"}\n\n");
+    }
+}
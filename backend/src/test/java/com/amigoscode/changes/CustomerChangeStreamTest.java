@@ -0,0 +1,250 @@
+package com.amigoscode.changes;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerChangeEvent;
+import com.amigoscode.exception.ServiceUnavailableException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerChangeStreamTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void onCustomerChange_subscribers_receiveEncodedOnce() {
+        CustomerChangeStream underTest = stream(8, 10, Duration.ofMinutes(1));
+        RecordingConnection sse = new RecordingConnection();
+        RecordingConnection ndjson = new RecordingConnection();
+        underTest.subscribe(ChangeStreamFormat.SSE, null, sse);
+        underTest.subscribe(ChangeStreamFormat.NDJSON, null, ndjson);
+
+        underTest.onCustomerChange(CustomerChangeEvent.inserted(new Customer(1L, "Alex", "alex@gmail.com", 20)));
+        underTest.onCustomerChange(CustomerChangeEvent.deleted(new Customer(1L, "Alex", "alex@gmail.com", 20)));
+        underTest.dispatch();
+
+        long first = firstId(ndjson);
+        assertThat(sse.text()).isEqualTo("""
+                retry: 1000
+
+                id: %s
+                data: {"id":%s,"type":"INSERTED","customerId":1,"customer":{"id":1,"name":"Alex","email":"alex@gmail.com","age":20}}
+
+                id: %s
+                data: {"id":%s,"type":"DELETED","customerId":1,"customer":{"id":1,"name":"Alex","email":"alex@gmail.com","age":20}}
+
+                """.formatted(first, first, first + 1, first + 1));
+        assertThat(ndjson.text().lines()).hasSize(2);
+        assertThat(meterRegistry.counter("customer.changes.published").count()).isEqualTo(2);
+    }
+
+    @Test
+    void subscribe_lastEventIdStillBuffered_missedChangesResent() {
+        CustomerChangeStream underTest = stream(8, 10, Duration.ofMinutes(1));
+        RecordingConnection before = new RecordingConnection();
+        underTest.subscribe(ChangeStreamFormat.NDJSON, null, before);
+        for (int age = 1; age <= 3; age++) {
+            underTest.onCustomerChange(CustomerChangeEvent.updated(null, new Customer(1L, "Alex", "alex@gmail.com", age)));
+        }
+        underTest.dispatch();
+        long first = firstId(before);
+
+        RecordingConnection resumed = new RecordingConnection();
+        underTest.subscribe(ChangeStreamFormat.NDJSON, String.valueOf(first), resumed);
+
+        assertThat(resumed.text().lines())
+                .containsExactlyElementsOf(before.text().lines().skip(1).toList());
+    }
+
+    @Test
+    void subscribe_lastEventIdUnknown_resetThenLive() {
+        CustomerChangeStream underTest = stream(8, 10, Duration.ofMinutes(1));
+        RecordingConnection resumed = new RecordingConnection();
+
+        underTest.subscribe(ChangeStreamFormat.NDJSON, "not-an-id", resumed);
+        underTest.onCustomerChange(CustomerChangeEvent.inserted(new Customer(1L, "Alex", "alex@gmail.com", 20)));
+        underTest.dispatch();
+
+        List<String> lines = resumed.text().lines().toList();
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).endsWith(",\"type\":\"RESET\"}");
+        assertThat(lines.get(1)).contains("\"type\":\"INSERTED\"");
+    }
+
+    @Test
+    void dispatch_subscriberLappedByRing_droppedOthersServed() {
+        CustomerChangeStream underTest = stream(4, 10, Duration.ofMinutes(1));
+        RecordingConnection slow = new RecordingConnection();
+        underTest.subscribe(ChangeStreamFormat.NDJSON, null, slow);
+
+        for (int age = 1; age <= 5; age++) {
+            underTest.onCustomerChange(CustomerChangeEvent.updated(null, new Customer(1L, "Alex", "alex@gmail.com", age)));
+        }
+        RecordingConnection live = new RecordingConnection();
+        underTest.subscribe(ChangeStreamFormat.NDJSON, null, live);
+        underTest.onCustomerChange(CustomerChangeEvent.deleted(new Customer(1L, "Alex", "alex@gmail.com", 5)));
+        underTest.dispatch();
+
+        assertThat(slow.closed).isTrue();
+        assertThat(slow.text()).isEmpty();
+        assertThat(live.closed).isFalse();
+        assertThat(live.text().lines()).singleElement().asString().contains("\"type\":\"DELETED\"");
+        assertThat(underTest.subscriberCount()).isEqualTo(1);
+        assertThat(meterRegistry.counter("customer.changes.dropped").count()).isEqualTo(1);
+    }
+
+    @Test
+    void dispatch_writeFails_subscriberClosedWithError() {
+        CustomerChangeStream underTest = stream(8, 10, Duration.ofMinutes(1));
+        RecordingConnection broken = new RecordingConnection();
+        underTest.subscribe(ChangeStreamFormat.NDJSON, null, broken);
+        broken.failWrites = true;
+
+        underTest.onCustomerChange(CustomerChangeEvent.inserted(new Customer(1L, "Alex", "alex@gmail.com", 20)));
+        underTest.dispatch();
+
+        assertThat(broken.closed).isTrue();
+        assertThat(broken.error).isInstanceOf(IOException.class);
+        assertThat(underTest.subscriberCount()).isZero();
+    }
+
+    @Test
+    void dispatch_moreStuckClientsThanSenders_stuckDroppedOthersServed() throws Exception {
+        ThreadPoolExecutor senders = (ThreadPoolExecutor) Executors.newFixedThreadPool(2);
+        CustomerChangeStream underTest = new CustomerChangeStream(
+                new CustomerChangeStreamProperties(8, 10, 2, Duration.ofMinutes(1), Duration.ofMinutes(30),
+                        Duration.ofMillis(50)),
+                new ObjectMapper(),
+                meterRegistry,
+                senders
+        );
+        CountDownLatch unstick = new CountDownLatch(1);
+        List<RecordingConnection> stuck = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            RecordingConnection connection = new RecordingConnection();
+            connection.stuckUntil = unstick;
+            stuck.add(connection);
+            underTest.subscribe(ChangeStreamFormat.NDJSON, null, connection);
+        }
+        RecordingConnection live = new RecordingConnection();
+        try {
+            // both senders block on stuck clients, the other two queue behind them
+            underTest.onCustomerChange(CustomerChangeEvent.inserted(new Customer(1L, "Alex", "alex@gmail.com", 20)));
+            underTest.dispatch();
+            underTest.subscribe(ChangeStreamFormat.NDJSON, null, live);
+            underTest.onCustomerChange(CustomerChangeEvent.deleted(new Customer(1L, "Alex", "alex@gmail.com", 20)));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while ((live.text().isEmpty() || underTest.subscriberCount() > 1) && System.nanoTime() < deadline) {
+                underTest.dispatch();
+                Thread.sleep(20);
+            }
+
+            assertThat(live.text().lines()).singleElement().asString().contains("\"type\":\"DELETED\"");
+            assertThat(underTest.subscriberCount()).isEqualTo(1);
+            assertThat(meterRegistry.counter("customer.changes.dropped").count()).isEqualTo(4);
+
+            unstick.countDown();
+            deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (senders.getMaximumPoolSize() != 2 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertThat(senders.getMaximumPoolSize()).isEqualTo(2);
+            assertThat(stuck).allSatisfy(connection -> {
+                assertThat(connection.closed).isTrue();
+                assertThat(connection.error).hasMessageContaining("took longer than");
+            });
+        } finally {
+            unstick.countDown();
+            underTest.stop();
+        }
+    }
+
+    @Test
+    void dispatch_idle_heartbeat() {
+        CustomerChangeStream underTest = stream(8, 10, Duration.ZERO);
+        RecordingConnection sse = new RecordingConnection();
+        underTest.subscribe(ChangeStreamFormat.SSE, null, sse);
+
+        underTest.dispatch();
+
+        assertThat(sse.text()).isEqualTo("retry: 1000\n\n:\n\n");
+    }
+
+    @Test
+    void subscribe_maxSubscribersReached_throwServiceUnavailableException() {
+        CustomerChangeStream underTest = stream(8, 1, Duration.ofMinutes(1));
+        underTest.subscribe(ChangeStreamFormat.SSE, null, new RecordingConnection());
+
+        assertThatThrownBy(() -> underTest.subscribe(ChangeStreamFormat.SSE, null, new RecordingConnection()))
+                .isInstanceOf(ServiceUnavailableException.class)
+                .hasMessage("Too many change stream subscribers");
+    }
+
+    // senders run inline, so everything is written by the time a call returns
+    private CustomerChangeStream stream(int bufferSize, int maxSubscribers, Duration heartbeat) {
+        return new CustomerChangeStream(
+                new CustomerChangeStreamProperties(bufferSize, maxSubscribers, 1, heartbeat, Duration.ofMinutes(30),
+                        Duration.ofSeconds(10)),
+                new ObjectMapper(),
+                meterRegistry,
+                Runnable::run
+        );
+    }
+
+    private static long firstId(RecordingConnection connection) {
+        String line = connection.text().lines().findFirst().orElseThrow();
+        return Long.parseLong(line.substring("{\"id\":".length(), line.indexOf(',')));
+    }
+
+    private static class RecordingConnection implements ChangeSubscriber.Connection {
+
+        private final List<byte[]> writes = new CopyOnWriteArrayList<>();
+        private boolean failWrites;
+        // a client that stopped reading, writes block and ignore interrupts like a full socket
+        private CountDownLatch stuckUntil;
+        private volatile boolean closed;
+        private volatile Throwable error;
+
+        @Override
+        public void write(byte[] bytes) throws IOException {
+            if (failWrites) {
+                throw new IOException("Broken pipe");
+            }
+            while (stuckUntil != null) {
+                try {
+                    stuckUntil.await();
+                    break;
+                } catch (InterruptedException e) {
+                    // keep blocking
+                }
+            }
+            writes.add(bytes);
+        }
+
+        @Override
+        public void close(Throwable error) {
+            this.error = error;
+            this.closed = true;
+        }
+
+        String text() {
+            StringBuilder text = new StringBuilder();
+            writes.forEach(bytes -> text.append(new String(bytes, StandardCharsets.UTF_8)));
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.amigoscode.collection;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountingBloomFilterTest {
+
+    @Test
+    void mightContain_addedKeys_noFalseNegatives() {
+        CountingBloomFilter underTest = new CountingBloomFilter(10_000, 0.01);
+        for (long i = 0; i < 10_000; i++) {
+            underTest.add(Hashing.mix(i));
+        }
+
+        for (long i = 0; i < 10_000; i++) {
+            assertThat(underTest.mightContain(Hashing.mix(i))).isTrue();
+        }
+    }
+
+    @Test
+    void mightContain_unknownKeys_falsePositiveRateNearTarget() {
+        CountingBloomFilter underTest = new CountingBloomFilter(10_000, 0.01);
+        for (long i = 0; i < 10_000; i++) {
+            underTest.add(Hashing.mix(i));
+        }
+
+        int falsePositives = 0;
+        for (long i = 10_000; i < 110_000; i++) {
+            if (underTest.mightContain(Hashing.mix(i))) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+        assertThat(underTest.expectedFalsePositiveRate(10_000)).isLessThan(0.02);
+    }
+
+    @Test
+    void remove_addedKey_noLongerContainedAndOthersKept() {
+        CountingBloomFilter underTest = new CountingBloomFilter(1_000, 0.01);
+        for (long i = 0; i < 1_000; i++) {
+            underTest.add(Hashing.mix(i));
+        }
+
+        underTest.remove(Hashing.mix(7));
+
+        assertThat(underTest.mightContain(Hashing.mix(7))).isFalse();
+        for (long i = 0; i < 1_000; i++) {
+            if (i != 7) {
+                assertThat(underTest.mightContain(Hashing.mix(i))).isTrue();
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.amigoscode.collection;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimate_manyDistinctValues_withinThreeStandardErrors() {
+        HyperLogLog underTest = new HyperLogLog(14);
+        for (long i = 0; i < 1_000_000; i++) {
+            underTest.add(Hashing.mix(i));
+        }
+
+        assertThat(underTest.estimate()).isBetween(
+                (long) (1_000_000 * (1 - 3 * underTest.relativeError())),
+                (long) (1_000_000 * (1 + 3 * underTest.relativeError()))
+        );
+    }
+
+    @Test
+    void estimate_fewValuesAddedRepeatedly_nearExact() {
+        HyperLogLog underTest = new HyperLogLog(14);
+        for (int round = 0; round < 100; round++) {
+            for (long i = 0; i < 50; i++) {
+                underTest.add(Hashing.mix(i));
+            }
+        }
+
+        assertThat(underTest.estimate()).isEqualTo(50);
+        assertThat(new HyperLogLog(14).estimate()).isZero();
+    }
+
+    @Test
+    void merge_overlappingSketches_estimateOfUnion() {
+        HyperLogLog first = new HyperLogLog(12);
+        HyperLogLog second = new HyperLogLog(12);
+        HyperLogLog union = new HyperLogLog(12);
+        for (long i = 0; i < 60_000; i++) {
+            first.add(Hashing.mix(i));
+            union.add(Hashing.mix(i));
+        }
+        for (long i = 40_000; i < 100_000; i++) {
+            second.add(Hashing.mix(i));
+            union.add(Hashing.mix(i));
+        }
+
+        first.merge(second);
+
+        assertThat(first.estimate()).isEqualTo(union.estimate());
+        assertThat(first.registers()).isEqualTo(union.registers());
+    }
+
+    @Test
+    void merge_differentPrecision_throwIllegalArgumentException() {
+        assertThatThrownBy(() -> new HyperLogLog(12).merge(new HyperLogLog(14)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void of_registers_sameEstimateAndIndependentCopy() {
+        HyperLogLog original = new HyperLogLog(10);
+        for (long i = 0; i < 5_000; i++) {
+            original.add(Hashing.mix(i));
+        }
+
+        HyperLogLog restored = HyperLogLog.of(original.registers());
+        restored.add(Hashing.mix(-1));
+
+        assertThat(restored.precision()).isEqualTo(10);
+        assertThat(HyperLogLog.of(original.registers()).estimate()).isEqualTo(original.estimate());
+        assertThatThrownBy(() -> HyperLogLog.of(new byte[1000]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,40 @@
+package com.amigoscode.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongHashSetTest {
+
+    @Test
+    void addContainsRemove_randomOperations_matchHashSet() {
+        LongHashSet underTest = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(5_000) - 100;
+            if (random.nextInt(3) == 0) {
+                assertThat(underTest.remove(key)).isEqualTo(expected.remove(key));
+            } else {
+                assertThat(underTest.add(key)).isEqualTo(expected.add(key));
+            }
+        }
+
+        assertThat(underTest.size()).isEqualTo(expected.size());
+        for (long key = -100; key < 4_900; key++) {
+            assertThat(underTest.contains(key)).isEqualTo(expected.contains(key));
+        }
+    }
+
+    @Test
+    void of_duplicates_toArrayDeduplicated() {
+        LongHashSet underTest = LongHashSet.of(3, 1, 3, 0, 1);
+
+        assertThat(underTest.toArray()).containsExactlyInAnyOrder(0, 1, 3);
+    }
+}
@@ -0,0 +1,43 @@
+package com.amigoscode.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongObjectHashMapTest {
+
+    @Test
+    void putGetRemove_randomOperations_matchHashMap() {
+        LongObjectHashMap<String> underTest = new LongObjectHashMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(5_000) - 100;
+            if (random.nextInt(3) == 0) {
+                assertThat(underTest.remove(key)).isEqualTo(expected.remove(key));
+            } else {
+                String value = "v" + i;
+                assertThat(underTest.put(key, value)).isEqualTo(expected.put(key, value));
+            }
+        }
+
+        assertThat(underTest.size()).isEqualTo(expected.size());
+        expected.forEach((key, value) -> assertThat(underTest.get(key)).isEqualTo(value));
+        assertThat(underTest.values()).containsExactlyInAnyOrderElementsOf(expected.values());
+    }
+
+    @Test
+    void get_missingKey_null() {
+        LongObjectHashMap<String> underTest = new LongObjectHashMap<>();
+        underTest.put(0, "zero");
+
+        assertThat(underTest.get(0)).isEqualTo("zero");
+        assertThat(underTest.get(1)).isNull();
+        assertThat(underTest.containsKey(1)).isFalse();
+    }
+}
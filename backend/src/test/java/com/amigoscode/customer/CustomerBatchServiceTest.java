@@ -0,0 +1,199 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.DuplicateResourceException;
+import com.amigoscode.exception.RequestValidationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerBatchServiceTest {
+
+    @Mock
+    private CustomerDao customerDao;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    private CustomerBatchService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerBatchService(customerDao, transactionManager, eventPublisher);
+    }
+
+    @Test
+    void apply_updatesAndDeletes_oneLockingReadOneDeleteOneBatchedUpdate() {
+        Customer alex = new Customer(1L, "Alex", "alex@gmail.com", 19);
+        Customer jamila = new Customer(2L, "Jamila", "jamila@gmail.com", 23);
+        when(customerDao.selectCustomersByIdsForUpdate(any())).thenReturn(List.of(alex, jamila));
+        when(customerDao.updateCustomers(any())).thenReturn(new int[]{1});
+
+        CustomerBatchResponse response = underTest.apply(new CustomerBatchRequest(List.of(
+                CustomerBatchOperation.update(1, null, null, 20),
+                CustomerBatchOperation.delete(2)
+        )));
+
+        assertThat(response.updated()).isEqualTo(1);
+        assertThat(response.deleted()).isEqualTo(1);
+        assertThat(response.rejected()).isZero();
+        assertThat(response.results()).extracting(CustomerBatchResult::status).containsExactly(200, 200);
+
+        verify(customerDao).deleteCustomersByIds(new long[]{2});
+        ArgumentCaptor<List<Customer>> updatesCaptor = ArgumentCaptor.forClass(List.class);
+        verify(customerDao).updateCustomers(updatesCaptor.capture());
+        assertThat(updatesCaptor.getValue()).singleElement()
+                .satisfies(updated -> {
+                    assertThat(updated.getId()).isEqualTo(1);
+                    assertThat(updated.getName()).isEqualTo("Alex");
+                    assertThat(updated.getEmail()).isEqualTo("alex@gmail.com");
+                    assertThat(updated.getAge()).isEqualTo(20);
+                });
+        verify(customerDao, never()).updateCustomer(any());
+        verify(customerDao, never()).deleteCustomerById(anyLong());
+        // no email changed, so nothing to look up
+        verify(customerDao, never()).selectIdsByEmails(any());
+        verify(eventPublisher, times(2)).publishEvent(any(CustomerChangeEvent.class));
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void apply_invalidOperations_rejectedPerItemOthersApplied() {
+        Customer alex = new Customer(1L, "Alex", "alex@gmail.com", 19);
+        Customer jamila = new Customer(2L, "Jamila", "jamila@gmail.com", 23);
+        when(customerDao.selectCustomersByIdsForUpdate(any())).thenReturn(List.of(alex, jamila));
+
+        CustomerBatchResponse response = underTest.apply(new CustomerBatchRequest(List.of(
+                new CustomerBatchOperation(null, 1L, null, null, null),
+                new CustomerBatchOperation(CustomerBatchOperation.Type.DELETE, null, null, null, null),
+                CustomerBatchOperation.update(1, null, null, null),
+                CustomerBatchOperation.update(2, "Jamila", null, 23),
+                CustomerBatchOperation.delete(1),
+                CustomerBatchOperation.delete(1),
+                CustomerBatchOperation.delete(99)
+        )));
+
+        assertThat(response.results()).extracting(CustomerBatchResult::status)
+                .containsExactly(400, 400, 400, 400, 200, 400, 404);
+        assertThat(response.results()).extracting(CustomerBatchResult::message)
+                .containsExactly(
+                        "op is required",
+                        "id is required",
+                        "No data changes found",
+                        "No data changes found",
+                        null,
+                        "Customer with id [1] appears more than once in the batch",
+                        "Customer with id [99] not found"
+                );
+        assertThat(response.deleted()).isEqualTo(1);
+        assertThat(response.rejected()).isEqualTo(6);
+        verify(customerDao).deleteCustomersByIds(new long[]{1});
+        verify(customerDao, never()).updateCustomers(any());
+    }
+
+    @Test
+    void apply_emailCollisions_withinBatchAndAgainstTable() {
+        Customer alex = new Customer(1L, "Alex", "alex@gmail.com", 19);
+        Customer jamila = new Customer(2L, "Jamila", "jamila@gmail.com", 23);
+        Customer ali = new Customer(3L, "Ali", "ali@gmail.com", 30);
+        Customer maria = new Customer(4L, "Maria", "maria@gmail.com", 41);
+        when(customerDao.selectCustomersByIdsForUpdate(any())).thenReturn(List.of(alex, jamila, ali, maria));
+        // taken by customer 7, outside the batch, and by customer 4, deleted in the batch
+        when(customerDao.selectIdsByEmails(any())).thenReturn(Map.of(
+                "taken@gmail.com", 7L,
+                "maria@gmail.com", 4L
+        ));
+
+        CustomerBatchResponse response = underTest.apply(new CustomerBatchRequest(List.of(
+                CustomerBatchOperation.update(1, null, "same@gmail.com", null),
+                CustomerBatchOperation.update(2, null, "same@gmail.com", null),
+                CustomerBatchOperation.update(3, null, "taken@gmail.com", null),
+                CustomerBatchOperation.delete(4),
+                CustomerBatchOperation.update(5, null, "maria@gmail.com", null)
+        )));
+
+        // customer 5 isn't stored, a 404 comes before the email checks
+        assertThat(response.results()).extracting(CustomerBatchResult::status)
+                .containsExactly(409, 409, 409, 200, 404);
+        assertThat(response.results()).extracting(CustomerBatchResult::message)
+                .containsExactly(
+                        "Email appears more than once in the batch",
+                        "Email appears more than once in the batch",
+                        "Email already taken",
+                        null,
+                        "Customer with id [5] not found"
+                );
+        verify(customerDao, never()).updateCustomers(any());
+    }
+
+    @Test
+    void apply_emailFreedByDeleteInBatch_reused() {
+        Customer alex = new Customer(1L, "Alex", "alex@gmail.com", 19);
+        Customer maria = new Customer(4L, "Maria", "maria@gmail.com", 41);
+        when(customerDao.selectCustomersByIdsForUpdate(any())).thenReturn(List.of(alex, maria));
+        when(customerDao.selectIdsByEmails(any())).thenReturn(Map.of("maria@gmail.com", 4L));
+        when(customerDao.updateCustomers(any())).thenReturn(new int[]{1});
+
+        CustomerBatchResponse response = underTest.apply(new CustomerBatchRequest(List.of(
+                CustomerBatchOperation.update(1, null, "maria@gmail.com", null),
+                CustomerBatchOperation.delete(4)
+        )));
+
+        assertThat(response.results()).extracting(CustomerBatchResult::status).containsExactly(200, 200);
+        var inOrder = inOrder(customerDao);
+        inOrder.verify(customerDao).deleteCustomersByIds(new long[]{4});
+        inOrder.verify(customerDao).updateCustomers(any());
+    }
+
+    @Test
+    void apply_uniqueViolationOnWrite_rolledBackAndDuplicateResourceException() {
+        Customer alex = new Customer(1L, "Alex", "alex@gmail.com", 19);
+        when(customerDao.selectCustomersByIdsForUpdate(any())).thenReturn(List.of(alex));
+        when(customerDao.selectIdsByEmails(any())).thenReturn(Map.of());
+        when(customerDao.updateCustomers(any())).thenThrow(new DuplicateKeyException("customer_email_unique"));
+
+        assertThatThrownBy(() -> underTest.apply(new CustomerBatchRequest(List.of(
+                CustomerBatchOperation.update(1, null, "raced@gmail.com", null)
+        ))))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("Email already taken");
+
+        verify(transactionManager).rollback(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void apply_noOperations_throwRequestValidationException() {
+        assertThatThrownBy(() -> underTest.apply(new CustomerBatchRequest(List.of())))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("No operations found");
+
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void apply_tooManyOperations_throwRequestValidationException() {
+        List<CustomerBatchOperation> operations = Collections.nCopies(1001, CustomerBatchOperation.delete(1));
+
+        assertThatThrownBy(() -> underTest.apply(new CustomerBatchRequest(operations)))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("At most 1000 operations can be applied at once");
+
+        verifyNoInteractions(customerDao);
+    }
+}
@@ -5,7 +5,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -49,9 +53,9 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
         );
         underTest.insertCustomer(testCustomer);
 
-        int id = underTest.selectAllCustomers().stream()
+        long id = underTest.selectAllCustomers().stream()
                 .filter(customer -> customer.getEmail().equals(email))
-                .map(customer -> Math.toIntExact(customer.getId()))
+                .map(Customer::getId)
                 .findFirst()
                 .orElseThrow();
 
@@ -67,10 +71,166 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
                 });
     }
 
+    @Test
+    void selectAllCustomers_idAndEmail_onlyIdAndEmailSelected() {
+        String email = "test-" + UUID.randomUUID() + "@gmail.com";
+        underTest.insertCustomer(new Customer(
+                "Test name",
+                email,
+                1
+        ));
+
+        List<Customer> customers = underTest.selectAllCustomers(
+                EnumSet.of(CustomerField.ID, CustomerField.EMAIL)
+        );
+
+        assertThat(customers)
+                .filteredOn(customer -> customer.getEmail().equals(email))
+                .singleElement()
+                .satisfies(customer -> {
+                    assertThat(customer.getId()).isNotNull();
+                    assertThat(customer.getName()).isNull();
+                    assertThat(customer.getAge()).isNull();
+                });
+    }
+
+    @Test
+    void countCustomers_maintained_followsInsertsAndDeletes() {
+        long before = underTest.countCustomers(CustomerCountMode.MAINTAINED).count();
+        String email = "test-" + UUID.randomUUID() + "@gmail.com";
+        underTest.insertCustomer(new Customer(
+                "Test name",
+                email,
+                1
+        ));
+        long afterInsert = underTest.countCustomers(CustomerCountMode.MAINTAINED).count();
+        long id = underTest.selectAllCustomers().stream()
+                .filter(customer -> customer.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+        underTest.deleteCustomerById(id);
+        long afterDelete = underTest.countCustomers(CustomerCountMode.MAINTAINED).count();
+
+        assertThat(afterInsert).isEqualTo(before + 1);
+        assertThat(afterDelete).isEqualTo(before);
+    }
+
+    @Test
+    void countCustomers_exact_matchesSelectAll() {
+        underTest.insertCustomer(new Customer(
+                "Test name",
+                "test-" + UUID.randomUUID() + "@gmail.com",
+                1
+        ));
+
+        CustomerCount count = underTest.countCustomers(CustomerCountMode.EXACT);
+
+        assertThat(count.mode()).isEqualTo(CustomerCountMode.EXACT);
+        assertThat(count.count()).isEqualTo(underTest.selectAllCustomers().size());
+    }
+
+    @Test
+    void countCustomers_estimated_neverNegative() {
+        CustomerCount count = underTest.countCustomers(CustomerCountMode.ESTIMATED);
+
+        assertThat(count.count()).isNotNegative();
+    }
+
+    @Test
+    void selectCustomersByIds() {
+        Customer first = new Customer("Test name", "test-" + UUID.randomUUID() + "@gmail.com", 1);
+        Customer second = new Customer("Test name", "test-" + UUID.randomUUID() + "@gmail.com", 2);
+        underTest.insertCustomer(first);
+        underTest.insertCustomer(second);
+
+        List<Customer> customers = underTest.selectCustomersByIds(
+                new long[]{first.getId(), second.getId(), -1}
+        );
+
+        assertThat(customers)
+                .extracting(Customer::getEmail)
+                .containsExactlyInAnyOrder(first.getEmail(), second.getEmail());
+    }
+
+    @Test
+    void selectCustomersByIdsForUpdate_lockedRowsInIdOrder() {
+        Customer first = new Customer("Test name", "test-" + UUID.randomUUID() + "@gmail.com", 1);
+        Customer second = new Customer("Test name", "test-" + UUID.randomUUID() + "@gmail.com", 2);
+        underTest.insertCustomer(first);
+        underTest.insertCustomer(second);
+
+        List<Customer> customers = underTest.selectCustomersByIdsForUpdate(
+                new long[]{second.getId(), first.getId(), -1}
+        );
+
+        assertThat(customers)
+                .extracting(Customer::getId)
+                .containsExactly(first.getId(), second.getId());
+    }
+
+    @Test
+    void selectIdsByEmails_onlyTakenEmails() {
+        Customer customer = new Customer("Test name", "test-" + UUID.randomUUID() + "@gmail.com", 1);
+        underTest.insertCustomer(customer);
+        String free = "test-" + UUID.randomUUID() + "@gmail.com";
+
+        Map<String, Long> ids = underTest.selectIdsByEmails(List.of(customer.getEmail(), free));
+
+        assertThat(ids).containsExactly(Map.entry(customer.getEmail(), customer.getId()));
+    }
+
+    @Test
+    void updateCustomers_countPerCustomer() {
+        Customer customer = new Customer("Test name", "test-" + UUID.randomUUID() + "@gmail.com", 1);
+        underTest.insertCustomer(customer);
+        String email = "test-" + UUID.randomUUID() + "@gmail.com";
+
+        int[] counts = underTest.updateCustomers(List.of(
+                new Customer(customer.getId(), "New name", email, 2),
+                new Customer(-1L, "Test name", "test-" + UUID.randomUUID() + "@gmail.com", 3)
+        ));
+
+        assertThat(counts).containsExactly(1, 0);
+        assertThat(underTest.selectCustomerById(customer.getId()))
+                .hasValueSatisfying(updated -> {
+                    assertThat(updated.getName()).isEqualTo("New name");
+                    assertThat(updated.getEmail()).isEqualTo(email);
+                    assertThat(updated.getAge()).isEqualTo(2);
+                });
+    }
+
+    @Test
+    void deleteCustomersByIds_rowsDeleted() {
+        Customer first = new Customer("Test name", "test-" + UUID.randomUUID() + "@gmail.com", 1);
+        Customer second = new Customer("Test name", "test-" + UUID.randomUUID() + "@gmail.com", 2);
+        underTest.insertCustomer(first);
+        underTest.insertCustomer(second);
+
+        int deleted = underTest.deleteCustomersByIds(new long[]{first.getId(), second.getId(), -1});
+
+        assertThat(deleted).isEqualTo(2);
+        assertThat(underTest.selectCustomersByIds(new long[]{first.getId(), second.getId()})).isEmpty();
+    }
+
+    @Test
+    void forEachCustomer_visitsEveryRowInIdOrder() {
+        Customer customer = new Customer("Test name", "test-" + UUID.randomUUID() + "@gmail.com", 1);
+        underTest.insertCustomer(customer);
+        List<Customer> visited = new ArrayList<>();
+
+        underTest.forEachCustomer(EnumSet.of(CustomerField.EMAIL), visited::add);
+
+        assertThat(visited).hasSize(underTest.selectAllCustomers().size());
+        assertThat(visited).extracting(Customer::getId).isSorted();
+        assertThat(visited).extracting(Customer::getEmail).contains(customer.getEmail());
+        assertThat(visited).extracting(Customer::getName).containsOnlyNulls();
+    }
+
     // Amigoscode naming*
     @Test
     void willReturnEmptyWhenSelectCustomerById() {
-        int idThatDoesNotExist = -1;
+        long idThatDoesNotExist = -1;
 
         Optional<Customer> actualCustomer = underTest.selectCustomerById(idThatDoesNotExist);
 
@@ -93,6 +253,7 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
                 .filter(customer -> customer.getEmail().equals(testCustomer.getEmail()))
                 .findFirst();
 
+        assertThat(testCustomer.getId()).isNotNull();
         assertThat(customerResultBeforeInsert)
                 .isEmpty();
         assertThat(customerResultAfterInsert)
@@ -137,9 +298,9 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
                 1
         );
         underTest.insertCustomer(testCustomer);
-        int id = underTest.selectAllCustomers().stream()
+        long id = underTest.selectAllCustomers().stream()
                 .filter(customer -> customer.getEmail().equals(email))
-                .map(customer -> Math.toIntExact(customer.getId()))
+                .map(Customer::getId)
                 .findFirst()
                 .orElseThrow();
 
@@ -154,7 +315,7 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
     // featureBeingTested_stateUnderTest_expectedBehavior
     @Test
     void personExistsWithId_idDoesNotExist_false() {
-        int idThatDoesNotExist = -1;
+        long idThatDoesNotExist = -1;
 
         boolean personExistsWithId = underTest.existsPersonWithId(idThatDoesNotExist);
 
@@ -172,9 +333,9 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
         );
 
         underTest.insertCustomer(testCustomer);
-        int id = underTest.selectAllCustomers().stream()
+        long id = underTest.selectAllCustomers().stream()
                 .filter(customer -> customer.getEmail().equals(email))
-                .map(customer -> Math.toIntExact(customer.getId()))
+                .map(Customer::getId)
                 .findFirst()
                 .orElseThrow();
         boolean personExistsWithId = underTest.existsPersonWithId(id);
@@ -205,7 +366,7 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
                 .orElseThrow();
         newCustomer.setId(id);
         underTest.updateCustomer(newCustomer);
-        Optional<Customer> updatedCustomer = underTest.selectCustomerById(Math.toIntExact(id));
+        Optional<Customer> updatedCustomer = underTest.selectCustomerById(id);
 
         assertThat(updatedCustomer)
                 .isPresent()
@@ -215,4 +376,89 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
                     assertThat(customer.getAge()).isEqualTo(newCustomer.getAge());
                 });
     }
-}
\ No newline at end of file
+
+    @Test
+    void patchCustomer_onlyAge_otherColumnsKept() {
+        String email = "test-" + UUID.randomUUID() + "@gmail.com";
+        Customer testCustomer = new Customer(
+                "Test name",
+                email,
+                1
+        );
+        underTest.insertCustomer(testCustomer);
+        Long id = underTest.selectAllCustomers().stream()
+                .filter(customer -> customer.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+
+        Optional<PatchedCustomer> patchedCustomer = underTest.patchCustomer(new Customer(id, null, null, 5));
+
+        assertThat(patchedCustomer)
+                .isPresent()
+                .hasValueSatisfying(patched -> {
+                    Customer customer = patched.after();
+                    assertThat(customer.getId()).isEqualTo(id);
+                    assertThat(customer.getName()).isEqualTo(testCustomer.getName());
+                    assertThat(customer.getEmail()).isEqualTo(email);
+                    assertThat(customer.getAge()).isEqualTo(5);
+                    assertThat(patched.before().getId()).isEqualTo(id);
+                    assertThat(patched.before().getEmail()).isEqualTo(email);
+                    assertThat(patched.before().getAge()).isEqualTo(1);
+                });
+    }
+
+    @Test
+    void patchCustomer_idDoesNotExist_empty() {
+        Optional<PatchedCustomer> patchedCustomer = underTest.patchCustomer(new Customer(-1L, "Test name", null, null));
+
+        assertThat(patchedCustomer).isEmpty();
+    }
+
+    @Test
+    void writes_outboxEnabled_oneOutboxRowPerChangedCustomer() {
+        CustomerJDBCDataAccessService outboxed = new CustomerJDBCDataAccessService(
+                getJdbcTemplate(), customerRowMapper, Duration.ofSeconds(2), true
+        );
+        String email = "test-" + UUID.randomUUID() + "@gmail.com";
+        Customer customer = new Customer("Test name", email, 1);
+
+        outboxed.insertCustomer(customer);
+        long id = customer.getId();
+        outboxed.updateCustomer(new Customer(id, "New name", email, 2));
+        Optional<PatchedCustomer> patched = outboxed.patchCustomer(new Customer(id, null, null, 3));
+        outboxed.patchCustomer(new Customer(-1L, null, null, 3));
+        int deleted = outboxed.deleteCustomersByIds(new long[]{id, -1L});
+
+        assertThat(patched).hasValueSatisfying(p -> {
+            assertThat(p.after().getName()).isEqualTo("New name");
+            assertThat(p.before().getAge()).isEqualTo(2);
+        });
+        assertThat(deleted).isEqualTo(1);
+        List<Map<String, Object>> rows = getJdbcTemplate().queryForList("""
+                SELECT type, payload ->> 'name' AS name, (payload ->> 'age')::int AS age
+                FROM customer_outbox
+                WHERE customer_id = ?
+                ORDER BY id
+                """, id);
+        assertThat(rows).extracting(row -> row.get("type"))
+                .containsExactly("INSERTED", "UPDATED", "UPDATED", "DELETED");
+        assertThat(rows).extracting(row -> row.get("age"))
+                .containsExactly(1, 2, 3, 3);
+        assertThat(rows.get(0).get("name")).isEqualTo("Test name");
+    }
+
+    @Test
+    void writes_outboxDisabled_noOutboxRows() {
+        String email = "test-" + UUID.randomUUID() + "@gmail.com";
+        Customer customer = new Customer("Test name", email, 1);
+
+        underTest.insertCustomer(customer);
+        underTest.deleteCustomerById(customer.getId());
+
+        Integer rows = getJdbcTemplate().queryForObject(
+                "SELECT count(*) FROM customer_outbox WHERE customer_id = ?", Integer.class, customer.getId()
+        );
+        assertThat(rows).isZero();
+    }
+}
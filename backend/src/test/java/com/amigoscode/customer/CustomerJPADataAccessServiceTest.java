@@ -5,8 +5,17 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class CustomerJPADataAccessServiceTest {
 
@@ -30,14 +39,39 @@ class CustomerJPADataAccessServiceTest {
     void selectAllCustomers() {
         underTest.selectAllCustomers();
 
-//        Mockito.verify(customerRepository).findAll();
         verify(customerRepository)
-                .findAll();
+                .findAllDetached();
+    }
+
+    @Test
+    void selectCustomersByIds() {
+        underTest.selectCustomersByIds(new long[]{1, 2});
+
+        verify(customerRepository)
+                .findAllDetachedById(List.of(1L, 2L));
+    }
+
+    @Test
+    void forEachCustomer_fullPage_readsNextPageAfterLastId() {
+        List<Customer> fullPage = LongStream.rangeClosed(1, 10_000)
+                .mapToObj(id -> new Customer(id, "Name " + id, id + "@gmail.com", 20))
+                .toList();
+        when(customerRepository.findDetachedPage(Long.MIN_VALUE, PageRequest.ofSize(10_000))).thenReturn(fullPage);
+        when(customerRepository.findDetachedPage(10_000, PageRequest.ofSize(10_000)))
+                .thenReturn(List.of(new Customer(10_001L, "Last", "last@gmail.com", 30)));
+        List<Customer> visited = new ArrayList<>();
+
+        underTest.forEachCustomer(EnumSet.of(CustomerField.EMAIL), visited::add);
+
+        assertThat(visited).hasSize(10_001);
+        assertThat(visited.get(10_000).getId()).isEqualTo(10_001L);
+        assertThat(visited.get(10_000).getEmail()).isEqualTo("last@gmail.com");
+        assertThat(visited.get(10_000).getName()).isNull();
     }
 
     @Test
     void selectCustomerById() {
-        int id = 1;
+        long id = 1;
 
         underTest.selectCustomerById(id);
 
@@ -71,7 +105,7 @@ class CustomerJPADataAccessServiceTest {
 
     @Test
     void deleteCustomerById() {
-        int id = 1;
+        long id = 1;
 
         underTest.deleteCustomerById(id);
 
@@ -81,7 +115,7 @@ class CustomerJPADataAccessServiceTest {
 
     @Test
     void existsPersonWithId() {
-        int id = 1;
+        long id = 1;
 
         underTest.existsPersonWithId(id);
 
@@ -102,4 +136,27 @@ class CustomerJPADataAccessServiceTest {
         verify(customerRepository)
                 .save(customer);
     }
+
+    @Test
+    void patchCustomer() {
+        Customer customer = new Customer(
+                1L,
+                "Test name",
+                "test@gmail.com",
+                1
+        );
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(customer));
+        when(customerRepository.saveAndFlush(customer)).thenReturn(customer);
+
+        Optional<PatchedCustomer> patched = underTest.patchCustomer(new Customer(1L, null, null, 2));
+
+        assertThat(patched).hasValueSatisfying(p -> {
+            assertThat(p.after()).isSameAs(customer);
+            assertThat(p.before().getAge()).isEqualTo(1);
+        });
+        assertThat(customer.getName()).isEqualTo("Test name");
+        assertThat(customer.getAge()).isEqualTo(2);
+        verify(customerRepository)
+                .saveAndFlush(customer);
+    }
 }
\ No newline at end of file
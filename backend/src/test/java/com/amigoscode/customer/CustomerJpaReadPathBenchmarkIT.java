@@ -0,0 +1,176 @@
+package com.amigoscode.customer;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Latency and allocated bytes of full-table reads and by-id lookups on the old JPA path
+// (managed entities in read-write transactions), the tuned JPA DAO with and without the
+// second-level cache, and the JDBC DAO. Size with -Dbenchmark.rows=..., e.g.
+// mvn verify -Dit.test=CustomerJpaReadPathBenchmarkIT
+@Testcontainers
+class CustomerJpaReadPathBenchmarkIT {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 100_000);
+    private static final int SAMPLES = Integer.getInteger("benchmark.samples", 5_000);
+    private static final int LIST_ROUNDS = Integer.getInteger("benchmark.listRounds", 10);
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:latest")
+                    .withDatabaseName("amigoscode-jpa-benchmark")
+                    .withUsername("amigoscode")
+                    .withPassword("test-password");
+
+    private static DataSource dataSource;
+    private static EntityManagerFactory plainEntityManagerFactory;
+    private static EntityManagerFactory cachedEntityManagerFactory;
+
+    @BeforeAll
+    static void beforeAll() {
+        dataSource = DataSourceBuilder.create()
+                .url(postgreSQLContainer.getJdbcUrl())
+                .username(postgreSQLContainer.getUsername())
+                .password(postgreSQLContainer.getPassword())
+                .build();
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("""
+                INSERT INTO customer(name, email, age)
+                SELECT 'Customer ' || n, 'customer' || n || '@gmail.com', 16 + n % 80
+                FROM generate_series(1, ?) AS n
+                """, ROWS);
+        jdbcTemplate.execute("VACUUM ANALYZE customer");
+        plainEntityManagerFactory = entityManagerFactory(false);
+        cachedEntityManagerFactory = entityManagerFactory(true);
+    }
+
+    @AfterAll
+    static void afterAll() {
+        plainEntityManagerFactory.close();
+        cachedEntityManagerFactory.close();
+    }
+
+    @Test
+    void readPaths_latencyAndAllocation() {
+        JpaTransactionManager plainTransactions = new JpaTransactionManager(plainEntityManagerFactory);
+        CustomerRepository plainRepository = repository(plainEntityManagerFactory);
+        TransactionTemplate readWrite = new TransactionTemplate(plainTransactions);
+        CustomerDao tuned = transactional(
+                new CustomerJPADataAccessService(plainRepository), plainTransactions
+        );
+        CustomerDao cached = transactional(
+                new CustomerJPADataAccessService(repository(cachedEntityManagerFactory)),
+                new JpaTransactionManager(cachedEntityManagerFactory)
+        );
+        CustomerDao jdbc = new CustomerJDBCDataAccessService(new JdbcTemplate(dataSource), new CustomerRowMapper());
+
+        run("jpa legacy",
+                () -> readWrite.execute(status -> plainRepository.findAll()),
+                id -> readWrite.execute(status -> plainRepository.findById(id)));
+        run("jpa tuned", tuned::selectAllCustomers, tuned::selectCustomerById);
+        run("jpa tuned+L2", cached::selectAllCustomers, cached::selectCustomerById);
+        run("jdbc", jdbc::selectAllCustomers, jdbc::selectCustomerById);
+    }
+
+    private static void run(String path,
+                            Supplier<List<Customer>> selectAll,
+                            LongFunction<Optional<Customer>> selectById) {
+        // one untimed pass of each so class loading and plan caching don't land in the samples
+        assertThat(selectAll.get()).hasSize(ROWS);
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            selectById.apply(1 + random.nextLong(ROWS));
+        }
+
+        long[] lists = new long[LIST_ROUNDS];
+        long listBytes = allocatedBytes();
+        for (int i = 0; i < LIST_ROUNDS; i++) {
+            long start = System.nanoTime();
+            assertThat(selectAll.get()).hasSize(ROWS);
+            lists[i] = System.nanoTime() - start;
+        }
+        listBytes = (allocatedBytes() - listBytes) / LIST_ROUNDS;
+
+        long[] lookups = new long[SAMPLES];
+        random = new SplittableRandom(42);
+        long lookupBytes = allocatedBytes();
+        for (int i = 0; i < SAMPLES; i++) {
+            long id = 1 + random.nextLong(ROWS);
+            long start = System.nanoTime();
+            assertThat(selectById.apply(id)).isPresent();
+            lookups[i] = System.nanoTime() - start;
+        }
+        lookupBytes = (allocatedBytes() - lookupBytes) / SAMPLES;
+
+        System.out.printf(
+                "%-13s list p50 %7d us p99 %7d us %,9d KB/call | lookup p50 %5d us p99 %5d us %,7d B/call%n",
+                path,
+                percentile(lists, 0.50), percentile(lists, 0.99), listBytes / 1024,
+                percentile(lookups, 0.50), percentile(lookups, 0.99), lookupBytes);
+    }
+
+    private static EntityManagerFactory entityManagerFactory(boolean secondLevelCache) {
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan(Customer.class.getPackageName());
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(Map.of(
+                "hibernate.cache.use_second_level_cache", secondLevelCache,
+                "hibernate.cache.region.factory_class", "jcache",
+                "hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider",
+                "hibernate.javax.cache.uri", Customer.class.getResource("/ehcache.xml").toString()
+        ));
+        factoryBean.afterPropertiesSet();
+        return factoryBean.getObject();
+    }
+
+    private static CustomerRepository repository(EntityManagerFactory entityManagerFactory) {
+        return new JpaRepositoryFactory(SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory))
+                .getRepository(CustomerRepository.class);
+    }
+
+    private static CustomerDao transactional(CustomerDao dao, JpaTransactionManager transactionManager) {
+        ProxyFactory proxyFactory = new ProxyFactory(dao);
+        proxyFactory.addAdvice(new TransactionInterceptor(transactionManager, new AnnotationTransactionAttributeSource()));
+        return (CustomerDao) proxyFactory.getProxy();
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    private static long percentile(long[] nanos, double percentile) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(percentile * (sorted.length - 1)))] / 1_000;
+    }
+}
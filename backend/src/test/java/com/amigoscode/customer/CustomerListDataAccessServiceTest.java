@@ -0,0 +1,76 @@
+package com.amigoscode.customer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerListDataAccessServiceTest {
+
+    private CustomerListDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerListDataAccessService();
+    }
+
+    @Test
+    void insertCustomer_assignsIdAndIsSelectableById() {
+        Customer customer = new Customer("Test name", "test@gmail.com", 20);
+
+        underTest.insertCustomer(customer);
+
+        assertThat(customer.getId()).isNotNull();
+        assertThat(underTest.selectCustomerById(customer.getId()))
+                .hasValueSatisfying(selected -> assertThat(selected).usingRecursiveComparison().isEqualTo(customer));
+        assertThat(underTest.existsPersonWithEmail("test@gmail.com")).isTrue();
+    }
+
+    @Test
+    void updateCustomer_existingId_replacedNotDuplicated() {
+        Customer customer = new Customer("Test name", "test@gmail.com", 20);
+        underTest.insertCustomer(customer);
+        int sizeBefore = underTest.selectAllCustomers().size();
+
+        underTest.updateCustomer(new Customer(customer.getId(), "New name", "test@gmail.com", 21));
+
+        assertThat(underTest.selectAllCustomers()).hasSize(sizeBefore);
+        assertThat(underTest.selectCustomerById(customer.getId()))
+                .hasValueSatisfying(updated -> assertThat(updated.getName()).isEqualTo("New name"));
+    }
+
+    @Test
+    void deleteCustomerById_existingId_removed() {
+        Customer customer = new Customer("Test name", "test@gmail.com", 20);
+        underTest.insertCustomer(customer);
+
+        underTest.deleteCustomerById(customer.getId());
+
+        assertThat(underTest.existsPersonWithId(customer.getId())).isFalse();
+        assertThat(underTest.selectCustomerById(customer.getId())).isEqualTo(Optional.empty());
+    }
+
+    @Test
+    void selectCustomerById_returnsCopy_storedRowUnchanged() {
+        Customer customer = new Customer("Test name", "test@gmail.com", 20);
+        underTest.insertCustomer(customer);
+
+        underTest.selectCustomerById(customer.getId()).orElseThrow().setName("Changed");
+        customer.setName("Changed too");
+
+        assertThat(underTest.selectCustomerById(customer.getId()))
+                .hasValueSatisfying(selected -> assertThat(selected.getName()).isEqualTo("Test name"));
+    }
+
+    @Test
+    void selectCustomersByIds_missingIdsSkipped() {
+        Customer customer = new Customer("Test name", "test@gmail.com", 20);
+        underTest.insertCustomer(customer);
+
+        assertThat(underTest.selectCustomersByIds(new long[]{customer.getId(), -1}))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactly(customer);
+    }
+}
@@ -0,0 +1,100 @@
+package com.amigoscode.customer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerOffHeapDataAccessServiceTest {
+
+    private CustomerOffHeapDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerOffHeapDataAccessService(16);
+    }
+
+    @Test
+    void insertCustomer_selectCustomerById_roundTrip() {
+        Customer customer = new Customer("Zoë Test", "zoe@gmail.com", 20);
+
+        underTest.insertCustomer(customer);
+        Optional<Customer> actualCustomer = underTest.selectCustomerById(customer.getId());
+
+        assertThat(actualCustomer)
+                .isPresent()
+                .hasValueSatisfying(c -> {
+                    assertThat(c.getId()).isEqualTo(customer.getId());
+                    assertThat(c.getName()).isEqualTo("Zoë Test");
+                    assertThat(c.getEmail()).isEqualTo("zoe@gmail.com");
+                    assertThat(c.getAge()).isEqualTo(20);
+                });
+        assertThat(underTest.existsPersonWithEmail("zoe@gmail.com")).isTrue();
+        assertThat(underTest.existsPersonWithEmail("other@gmail.com")).isFalse();
+    }
+
+    @Test
+    void insertCustomer_existingEmail_throwDuplicateKeyException() {
+        underTest.insertCustomer(new Customer("Test name", "test@gmail.com", 20));
+
+        assertThatThrownBy(() -> underTest.insertCustomer(new Customer("Other", "test@gmail.com", 30)))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    void patchCustomer_longerName_movedAndIndexesUpdated() {
+        Customer customer = new Customer("A", "a@gmail.com", 20);
+        underTest.insertCustomer(customer);
+
+        Optional<PatchedCustomer> patched = underTest.patchCustomer(new Customer(
+                customer.getId(), "A much longer name than the original one", "b@gmail.com", null
+        ));
+
+        assertThat(patched).hasValueSatisfying(p -> {
+            assertThat(p.after().getName()).isEqualTo("A much longer name than the original one");
+            assertThat(p.after().getAge()).isEqualTo(20);
+            assertThat(p.before().getName()).isEqualTo("A");
+            assertThat(p.before().getEmail()).isEqualTo("a@gmail.com");
+        });
+        assertThat(underTest.existsPersonWithEmail("a@gmail.com")).isFalse();
+        assertThat(underTest.existsPersonWithEmail("b@gmail.com")).isTrue();
+        assertThat(underTest.selectCustomerById(customer.getId()))
+                .hasValueSatisfying(c -> assertThat(c.getEmail()).isEqualTo("b@gmail.com"));
+    }
+
+    @Test
+    void deleteCustomerById_existingId_removedFromBothIndexes() {
+        Customer customer = new Customer("Test name", "test@gmail.com", 20);
+        underTest.insertCustomer(customer);
+
+        underTest.deleteCustomerById(customer.getId());
+
+        assertThat(underTest.existsPersonWithId(customer.getId())).isFalse();
+        assertThat(underTest.existsPersonWithEmail("test@gmail.com")).isFalse();
+        assertThat(underTest.selectAllCustomers()).isEmpty();
+    }
+
+    @Test
+    void insertAndDelete_manyCycles_freedSlotsReused() {
+        for (int i = 0; i < 1_000; i++) {
+            underTest.insertCustomer(new Customer("Test name", "test-" + i + "@gmail.com", 20));
+        }
+        long reservedAfterFirstRound = underTest.offHeapBytes();
+
+        for (int round = 0; round < 20; round++) {
+            for (Customer customer : underTest.selectAllCustomers()) {
+                underTest.deleteCustomerById(customer.getId());
+            }
+            for (int i = 0; i < 1_000; i++) {
+                underTest.insertCustomer(new Customer("Test name", "test-" + i + "@gmail.com", 20));
+            }
+        }
+
+        assertThat(underTest.countCustomers(CustomerCountMode.EXACT).count()).isEqualTo(1_000);
+        assertThat(underTest.offHeapBytes()).isEqualTo(reservedAfterFirstRound);
+    }
+}
@@ -0,0 +1,49 @@
+package com.amigoscode.customer;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.EnumSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class CustomerProjectionRowMapperTest {
+
+    @Test
+    void mapRow_idAndEmail_onlyIdAndEmailMapped() throws SQLException {
+        CustomerProjectionRowMapper underTest = new CustomerProjectionRowMapper(
+                EnumSet.of(CustomerField.ID, CustomerField.EMAIL)
+        );
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getLong(1)).thenReturn(1L);
+        when(resultSet.getString(2)).thenReturn("test@gmail.com");
+
+        Customer actualCustomer = underTest.mapRow(resultSet, 1);
+
+        assertThat(actualCustomer.getId()).isEqualTo(1L);
+        assertThat(actualCustomer.getEmail()).isEqualTo("test@gmail.com");
+        assertThat(actualCustomer.getName()).isNull();
+        assertThat(actualCustomer.getAge()).isNull();
+        verify(resultSet, never()).getInt(anyInt());
+    }
+
+    @Test
+    void mapRow_allFields_allFieldsMapped() throws SQLException {
+        CustomerProjectionRowMapper underTest = new CustomerProjectionRowMapper(CustomerField.ALL);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getLong(1)).thenReturn(1L);
+        when(resultSet.getString(2)).thenReturn("Test name");
+        when(resultSet.getString(3)).thenReturn("test@gmail.com");
+        when(resultSet.getInt(4)).thenReturn(19);
+
+        Customer actualCustomer = underTest.mapRow(resultSet, 1);
+
+        assertThat(actualCustomer.getId()).isEqualTo(1L);
+        assertThat(actualCustomer.getName()).isEqualTo("Test name");
+        assertThat(actualCustomer.getEmail()).isEqualTo("test@gmail.com");
+        assertThat(actualCustomer.getAge()).isEqualTo(19);
+    }
+}
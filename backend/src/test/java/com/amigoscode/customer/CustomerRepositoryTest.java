@@ -6,8 +6,12 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.PageRequest;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -22,6 +26,9 @@ class CustomerRepositoryTest extends AbstractTestcontainers {
     @Autowired
     private ApplicationContext applicationContext;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     @BeforeEach
     void setUp() {
         Customer testCustomer = new Customer(
@@ -56,4 +63,39 @@ class CustomerRepositoryTest extends AbstractTestcontainers {
         assertThat(customerExistWithEmail)
                 .isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    void findAllDetached_savedCustomer_returnedUnmanaged() {
+        Customer saved = underTest.saveAndFlush(new Customer(
+                "Test name",
+                "test-" + UUID.randomUUID() + "@gmail.com",
+                1
+        ));
+        entityManager.clear();
+
+        List<Customer> customers = underTest.findAllDetached();
+
+        assertThat(customers)
+                .anySatisfy(customer -> assertThat(customer.getEmail()).isEqualTo(saved.getEmail()));
+        assertThat(customers)
+                .noneMatch(entityManager.getEntityManager()::contains);
+    }
+
+    @Test
+    void findDetachedPage_afterId_nextIdsInOrder() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(underTest.saveAndFlush(new Customer(
+                    "Test name",
+                    "test-" + UUID.randomUUID() + "@gmail.com",
+                    1
+            )).getId());
+        }
+
+        List<Customer> page = underTest.findDetachedPage(ids.get(0), PageRequest.ofSize(2));
+
+        assertThat(page)
+                .extracting(Customer::getId)
+                .containsExactly(ids.get(1), ids.get(2));
+    }
+}
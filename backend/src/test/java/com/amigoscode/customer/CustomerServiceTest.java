@@ -1,5 +1,6 @@
 package com.amigoscode.customer;
 
+import com.amigoscode.emailfilter.EmailFilter;
 import com.amigoscode.exception.DuplicateResourceException;
 import com.amigoscode.exception.RequestValidationException;
 import com.amigoscode.exception.ResourceNotFoundException;
@@ -9,8 +10,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 
+import java.util.EnumSet;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -21,11 +26,16 @@ class CustomerServiceTest {
 
     @Mock
     private CustomerDao customerDao;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    private EmailFilter emailFilter;
     private CustomerService underTest;
 
     @BeforeEach
     void setUp() {
-        underTest = new CustomerService(customerDao);
+        // not built yet, so every email is a maybe and goes to the dao
+        emailFilter = new EmailFilter(customerDao, 1000, 0.01);
+        underTest = new CustomerService(customerDao, emailFilter, eventPublisher);
     }
 
     @Test
@@ -35,11 +45,71 @@ class CustomerServiceTest {
         verify(customerDao).selectAllCustomers();
     }
 
+    @Test
+    void getAllCustomers_fields_projectionPassedToDao() {
+        Set<CustomerField> fields = EnumSet.of(CustomerField.ID, CustomerField.EMAIL);
+
+        underTest.getAllCustomers(fields);
+
+        verify(customerDao).selectAllCustomers(fields);
+    }
+
+    @Test
+    void getAllCustomers_emptyFields_throwRequestValidationException() {
+        assertThatThrownBy(() -> underTest.getAllCustomers(CustomerField.parse(",")))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("At least one customer field must be requested");
+        assertThatThrownBy(() -> underTest.getAllCustomers(EnumSet.noneOf(CustomerField.class)))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("At least one customer field must be requested");
+
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void getCustomers_duplicateIds_deduplicatedBeforeDao() {
+        underTest.getCustomers(new long[]{1, 2, 1});
+
+        ArgumentCaptor<long[]> idsArgumentCaptor = ArgumentCaptor.forClass(long[].class);
+        verify(customerDao).selectCustomersByIds(idsArgumentCaptor.capture());
+        assertThat(idsArgumentCaptor.getValue()).containsExactlyInAnyOrder(1, 2);
+    }
+
+    @Test
+    void getCustomers_tooManyIds_throwRequestValidationException() {
+        assertThatThrownBy(() -> underTest.getCustomers(new long[1001]))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("At most 1000 ids can be requested at once");
+
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void getCustomer_fieldsAndNonExistingId_throwResourceNotFoundException() {
+        long id = 1;
+        Set<CustomerField> fields = EnumSet.of(CustomerField.EMAIL);
+        when(customerDao.selectCustomerById(id, fields))
+                .thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> underTest.getCustomer(id, fields))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("Customer with id [%s] not found".formatted(id));
+    }
+
+    @Test
+    void getCustomer_emptyFields_throwRequestValidationException() {
+        assertThatThrownBy(() -> underTest.getCustomer(1, EnumSet.noneOf(CustomerField.class)))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("At least one customer field must be requested");
+
+        verifyNoInteractions(customerDao);
+    }
+
     @Test
     void getCustomer_existingId_returnOptionalCustomer() {
-        int id = 1;
+        long id = 1;
         Customer customer = new Customer(
-                (long) id,
+                id,
                 "Test name",
                 "@gmail.com",
                 20
@@ -54,7 +124,7 @@ class CustomerServiceTest {
 
     @Test
     void getCustomer_nonExistingId_throwResourceNotFoundException() {
-        int id = 1;
+        long id = 1;
         when(customerDao.selectCustomerById(id))
                 .thenReturn(Optional.empty());
 
@@ -63,6 +133,16 @@ class CustomerServiceTest {
                 .hasMessage("Customer with id [%s] not found".formatted(id));
     }
 
+    @Test
+    void countCustomers() {
+        CustomerCount count = new CustomerCount(42, CustomerCountMode.MAINTAINED);
+        when(customerDao.countCustomers(CustomerCountMode.MAINTAINED)).thenReturn(count);
+
+        CustomerCount returnedCount = underTest.countCustomers(CustomerCountMode.MAINTAINED);
+
+        assertThat(returnedCount).isEqualTo(count);
+    }
+
     @Test
     void addCustomer_nonExistingEmail_customerInserted() {
         String email = "test@gmail.com";
@@ -82,6 +162,33 @@ class CustomerServiceTest {
         assertThat(capturedCustomer.getName()).isEqualTo(customerRegistrationRequest.name());
         assertThat(capturedCustomer.getEmail()).isEqualTo(customerRegistrationRequest.email());
         assertThat(capturedCustomer.getAge()).isEqualTo(customerRegistrationRequest.age());
+        verify(eventPublisher).publishEvent(any(CustomerChangeEvent.class));
+    }
+
+    @Test
+    void addCustomer_filterBuiltAndUnknownEmail_existsQuerySkipped() {
+        emailFilter.rebuild(1000);
+        CustomerRegistrationRequest customerRegistrationRequest = new CustomerRegistrationRequest(
+                "Test name", "test@gmail.com", 20
+        );
+
+        underTest.addCustomer(customerRegistrationRequest);
+
+        verify(customerDao, never()).existsPersonWithEmail(any());
+        verify(customerDao).insertCustomer(any());
+        assertThat(emailFilter.stats().queriesAvoided()).isEqualTo(1);
+    }
+
+    @Test
+    void addCustomer_concurrentDuplicate_throwDuplicateResourceException() {
+        String email = "test@gmail.com";
+        when(customerDao.existsPersonWithEmail(email)).thenReturn(false);
+        doThrow(new DuplicateKeyException("customer_email_unique")).when(customerDao).insertCustomer(any());
+
+        assertThatThrownBy(() -> underTest.addCustomer(new CustomerRegistrationRequest("Test name", email, 20)))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("Email already taken");
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
@@ -101,31 +208,33 @@ class CustomerServiceTest {
 
     @Test
     void deleteCustomerById_existingId_customerDeleted() {
-        int id = 1;
-        when(customerDao.existsPersonWithId(id)).thenReturn(true);
+        long id = 1;
+        Customer customer = new Customer(id, "Test name", "test@gmail.com", 11);
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
 
         underTest.deleteCustomerById(id);
 
         verify(customerDao).deleteCustomerById(id);
+        verify(eventPublisher).publishEvent(CustomerChangeEvent.deleted(customer));
     }
 
     @Test
     void deleteCustomerById_noneExistingId_throwResourceNotFoundException() {
-        int id = 1;
-        when(customerDao.existsPersonWithId(id)).thenReturn(false);
+        long id = 1;
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> underTest.deleteCustomerById(id))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessage("Customer with id [%s] not found".formatted(id));
 
-        verify(customerDao, never()).deleteCustomerById(any());
+        verify(customerDao, never()).deleteCustomerById(anyLong());
     }
 
     @Test
     void updateCustomer_existingIdAndNonExistingEmailAndNewFields_customerUpdated() {
-        int id = 1;
+        long id = 1;
         Customer customer = new Customer(
-                (long) id, "Test name", "test@gmail.com", 11
+                id, "Test name", "test@gmail.com", 11
         );
         String newEmail = "test-updated@gmail.com";
         when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
@@ -150,9 +259,9 @@ class CustomerServiceTest {
     // Skip for email and age because it's basically the same
     @Test
     void updateCustomer_existingIdAndNonExistingEmailAndNewName_customerUpdated() {
-        int id = 1;
+        long id = 1;
         Customer customer = new Customer(
-                (long) id, "Test name", "test@gmail.com", 11
+                id, "Test name", "test@gmail.com", 11
         );
         when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
         CustomerUpdateRequest customerUpdateRequestInput = new CustomerUpdateRequest(
@@ -174,9 +283,9 @@ class CustomerServiceTest {
 
     @Test
     void updateCustomer_existingIdAndExistingEmailAndNewEmail_throwDuplicateResourceException() {
-        int id = 1;
+        long id = 1;
         Customer customer = new Customer(
-                (long) id, "Test name", "test@gmail.com", 11
+                id, "Test name", "test@gmail.com", 11
         );
         String newEmail = "test-updated@gmail.com";
         when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
@@ -192,11 +301,30 @@ class CustomerServiceTest {
         verify(customerDao, never()).updateCustomer(any());
     }
 
+    @Test
+    void updateCustomer_filterSaysNoButEmailTaken_throwDuplicateResourceException() {
+        // built before another instance registered the email
+        emailFilter.rebuild(1000);
+        long id = 1;
+        Customer customer = new Customer(
+                id, "Test name", "test@gmail.com", 11
+        );
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        doThrow(new DuplicateKeyException("customer_email_unique")).when(customerDao).updateCustomer(any());
+
+        assertThatThrownBy(() -> underTest.updateCustomer(id, new CustomerUpdateRequest(null, "taken@gmail.com", null)))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("Email already taken");
+
+        verify(customerDao, never()).existsPersonWithEmail(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
     @Test
     void updateCustomer_existingIdAndNonExistingEmailAndNoChanges_throwRequestValidationException() {
-        int id = 1;
+        long id = 1;
         Customer customer = new Customer(
-                (long) id, "Test name", "test@gmail.com", 11
+                id, "Test name", "test@gmail.com", 11
         );
         when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
         CustomerUpdateRequest customerUpdateRequestInput = new CustomerUpdateRequest(
@@ -209,4 +337,80 @@ class CustomerServiceTest {
 
         verify(customerDao, never()).updateCustomer(any());
     }
+
+    @Test
+    void patchCustomer_existingIdAndNewAge_onlyAgePatchedAndPreImagePublished() {
+        long id = 1;
+        Customer before = new Customer(
+                id, "Test name", "test@gmail.com", 21
+        );
+        Customer patched = new Customer(
+                id, "Test name", "test@gmail.com", 22
+        );
+        when(customerDao.patchCustomer(any())).thenReturn(Optional.of(new PatchedCustomer(before, patched)));
+        CustomerUpdateRequest patchRequest = new CustomerUpdateRequest(
+                null, null, 22
+        );
+
+        Customer returnedCustomer = underTest.patchCustomer(id, patchRequest);
+
+        ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(
+                Customer.class
+        );
+        verify(customerDao).patchCustomer(customerArgumentCaptor.capture());
+        Customer capturedPatch = customerArgumentCaptor.getValue();
+        assertThat(capturedPatch.getId()).isEqualTo(1L);
+        assertThat(capturedPatch.getName()).isNull();
+        assertThat(capturedPatch.getEmail()).isNull();
+        assertThat(capturedPatch.getAge()).isEqualTo(22);
+        assertThat(returnedCustomer).isEqualTo(patched);
+        ArgumentCaptor<CustomerChangeEvent> eventArgumentCaptor = ArgumentCaptor.forClass(
+                CustomerChangeEvent.class
+        );
+        verify(eventPublisher).publishEvent(eventArgumentCaptor.capture());
+        assertThat(eventArgumentCaptor.getValue().before()).isSameAs(before);
+        assertThat(eventArgumentCaptor.getValue().after()).isSameAs(patched);
+        verify(customerDao, never()).selectCustomerById(anyLong());
+        verify(customerDao, never()).existsPersonWithEmail(any());
+    }
+
+    @Test
+    void patchCustomer_nonExistingId_throwResourceNotFoundException() {
+        long id = 1;
+        when(customerDao.patchCustomer(any())).thenReturn(Optional.empty());
+        CustomerUpdateRequest patchRequest = new CustomerUpdateRequest(
+                "Test name", null, null
+        );
+
+        assertThatThrownBy(() -> underTest.patchCustomer(id, patchRequest))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("Customer with id [%s] not found".formatted(id));
+    }
+
+    @Test
+    void patchCustomer_existingEmail_throwDuplicateResourceException() {
+        long id = 1;
+        when(customerDao.patchCustomer(any()))
+                .thenThrow(new DuplicateKeyException("customer_email_unique"));
+        CustomerUpdateRequest patchRequest = new CustomerUpdateRequest(
+                null, "taken@gmail.com", null
+        );
+
+        assertThatThrownBy(() -> underTest.patchCustomer(id, patchRequest))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("Email already taken");
+    }
+
+    @Test
+    void patchCustomer_noFields_throwRequestValidationException() {
+        CustomerUpdateRequest patchRequest = new CustomerUpdateRequest(
+                null, null, null
+        );
+
+        assertThatThrownBy(() -> underTest.patchCustomer(1, patchRequest))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("No data changes found");
+
+        verify(customerDao, never()).patchCustomer(any());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,175 @@
+package com.amigoscode.grpc;
+
+import com.amigoscode.AbstractTestcontainers;
+import com.amigoscode.customer.Customer;
+import com.amigoscode.grpc.v1.BatchGetCustomersRequest;
+import com.amigoscode.grpc.v1.CustomerServiceGrpc;
+import com.amigoscode.grpc.v1.GetCustomerRequest;
+import com.amigoscode.grpc.v1.ListCustomersRequest;
+import com.amigoscode.grpc.v1.ListCustomersResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.grpc.ManagedChannel;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+// Internal-caller throughput and latency of by-id lookups, 100-id batches and full
+// listings over REST (JSON over a pool of HTTP/1.1 connections) and gRPC (protobuf
+// calls multiplexed on one HTTP/2 connection), both served by this application, both
+// clients decoding what they receive. Size with -Dbenchmark.rows=..., e.g.
+// mvn verify -Dit.test=CustomerGrpcBenchmarkIT
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+        "customer.grpc.port=0",
+        "customer.warmup.enabled=false"
+})
+class CustomerGrpcBenchmarkIT extends AbstractTestcontainers {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 100_000);
+    private static final int CALLS = Integer.getInteger("benchmark.calls", 20_000);
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 16);
+    private static final int BATCH = 100;
+    private static final int LIST_ROUNDS = Integer.getInteger("benchmark.listRounds", 3);
+
+    @LocalServerPort
+    private int httpPort;
+    @Autowired
+    private GrpcServer grpcServer;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private HttpClient http;
+    private ManagedChannel channel;
+
+    @BeforeAll
+    static void seed() {
+        getJdbcTemplate().update("""
+                INSERT INTO customer(name, email, age)
+                SELECT 'Customer ' || n, 'customer' || n || '@gmail.com', 16 + n % 80
+                FROM generate_series(1, ?) AS n
+                """, ROWS);
+        getJdbcTemplate().execute("VACUUM ANALYZE customer");
+    }
+
+    @BeforeEach
+    void setUp() {
+        http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        channel = NettyChannelBuilder.forAddress("localhost", grpcServer.port()).usePlaintext().build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.shutdownNow();
+    }
+
+    @Test
+    void restAndGrpc_lookupsBatchesAndListings() throws Exception {
+        CustomerServiceGrpc.CustomerServiceBlockingStub grpc = CustomerServiceGrpc.newBlockingStub(channel);
+
+        run("rest lookup", CALLS, id -> get("/" + id, Customer.class).getId());
+        run("grpc lookup", CALLS, id -> grpc.getCustomer(GetCustomerRequest.newBuilder().setId(id).build()).getId());
+
+        run("rest batch", CALLS / 10, id -> get("?ids=" + batch(id).mapToObj(Long::toString).collect(Collectors.joining(",")),
+                Customer[].class).length);
+        run("grpc batch", CALLS / 10, id -> grpc.batchGetCustomers(BatchGetCustomersRequest.newBuilder()
+                .addAllIds(batch(id).boxed().toList())
+                .build()).getCustomersCount());
+
+        run("rest list", LIST_ROUNDS, ignored -> get("", Customer[].class).length);
+        run("grpc list", LIST_ROUNDS, ignored -> {
+            long count = 0;
+            Iterator<ListCustomersResponse> pages = grpc.listCustomers(ListCustomersRequest.getDefaultInstance());
+            while (pages.hasNext()) {
+                count += pages.next().getCustomersCount();
+            }
+            return count;
+        });
+    }
+
+    // calls spread over THREADS callers with random ids, after an untimed round of the same
+    private static void run(String mode, int calls, LongUnaryOperator call) throws Exception {
+        measure(calls, call);
+        long start = System.nanoTime();
+        long[] latencies = measure(calls, call);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-12s %,9.0f calls/s p50 %,8d us p99 %,8d us%n",
+                mode, calls / seconds, percentile(latencies, 0.50), percentile(latencies, 0.99));
+    }
+
+    private static long[] measure(int calls, LongUnaryOperator call) throws InterruptedException, ExecutionException {
+        int threads = Math.min(THREADS, calls);
+        long[] latencies = new long[calls];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] callers = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                int caller = t;
+                callers[t] = executor.submit(() -> {
+                    SplittableRandom random = new SplittableRandom(caller);
+                    for (int i = caller; i < calls; i += threads) {
+                        long id = 1 + random.nextLong(ROWS - BATCH);
+                        long callStart = System.nanoTime();
+                        assertThat(call.applyAsLong(id)).isPositive();
+                        latencies[i] = System.nanoTime() - callStart;
+                    }
+                });
+            }
+            for (Future<?> future : callers) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return latencies;
+    }
+
+    private <T> T get(String path, Class<T> type) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + httpPort + "/api/v1/customer" + path))
+                .header("Accept", "application/json")
+                .build();
+        try {
+            HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            assertThat(response.statusCode()).isEqualTo(200);
+            return objectMapper.readValue(response.body(), type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static LongStream batch(long firstId) {
+        return LongStream.range(firstId, firstId + BATCH);
+    }
+
+    private static long percentile(long[] nanos, double percentile) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(percentile * (sorted.length - 1)))] / 1_000;
+    }
+}
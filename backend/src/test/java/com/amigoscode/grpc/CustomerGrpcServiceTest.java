@@ -0,0 +1,218 @@
+package com.amigoscode.grpc;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerRegistrationRequest;
+import com.amigoscode.customer.CustomerService;
+import com.amigoscode.exception.DuplicateResourceException;
+import com.amigoscode.exception.RequestValidationException;
+import com.amigoscode.exception.ResourceNotFoundException;
+import com.amigoscode.grpc.v1.BatchGetCustomersRequest;
+import com.amigoscode.grpc.v1.CustomerRegistration;
+import com.amigoscode.grpc.v1.CustomerServiceGrpc;
+import com.amigoscode.grpc.v1.GetCustomerRequest;
+import com.amigoscode.grpc.v1.ImportCustomersRequest;
+import com.amigoscode.grpc.v1.ImportCustomersResponse;
+import com.amigoscode.grpc.v1.ListCustomersRequest;
+import com.amigoscode.grpc.v1.ListCustomersResponse;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerGrpcServiceTest {
+
+    private static final int PAGE_SIZE = 2;
+
+    @Mock
+    private CustomerService customerService;
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        GrpcProperties properties = new GrpcProperties(
+                true, 0, 2, 100, DataSize.ofMegabytes(1), DataSize.ofMegabytes(4),
+                Duration.ofMinutes(1), Duration.ofSeconds(20), Duration.ofSeconds(30), PAGE_SIZE, Duration.ofSeconds(1)
+        );
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+                .directExecutor()
+                .addService(ServerInterceptors.intercept(
+                        new CustomerGrpcService(customerService, properties), new GrpcExceptionTranslator()
+                ))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    void getCustomer_found_returnsIt() {
+        when(customerService.getCustomer(1)).thenReturn(new Customer(1L, "Alex", "alex@gmail.com", 20));
+
+        com.amigoscode.grpc.v1.Customer customer = CustomerServiceGrpc.newBlockingStub(channel)
+                .getCustomer(GetCustomerRequest.newBuilder().setId(1).build());
+
+        assertThat(customer.getId()).isEqualTo(1);
+        assertThat(customer.getName()).isEqualTo("Alex");
+        assertThat(customer.getEmail()).isEqualTo("alex@gmail.com");
+        assertThat(customer.getAge()).isEqualTo(20);
+    }
+
+    @Test
+    void getCustomer_notFound_statusNotFoundWithMessage() {
+        when(customerService.getCustomer(1)).thenThrow(new ResourceNotFoundException("Customer with id [1] not found"));
+
+        assertThatThrownBy(() -> CustomerServiceGrpc.newBlockingStub(channel)
+                .getCustomer(GetCustomerRequest.newBuilder().setId(1).build()))
+                .isInstanceOfSatisfying(StatusRuntimeException.class, e -> {
+                    assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.NOT_FOUND);
+                    assertThat(e.getStatus().getDescription()).isEqualTo("Customer with id [1] not found");
+                });
+    }
+
+    @Test
+    void batchGetCustomers_tooManyIds_invalidArgument() {
+        when(customerService.getCustomers(any())).thenThrow(new RequestValidationException("At most 1000 ids can be requested at once"));
+
+        assertThatThrownBy(() -> CustomerServiceGrpc.newBlockingStub(channel)
+                .batchGetCustomers(BatchGetCustomersRequest.newBuilder().addIds(1).build()))
+                .isInstanceOfSatisfying(StatusRuntimeException.class, e ->
+                        assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT));
+    }
+
+    @Test
+    void listCustomers_severalPages_streamedInIdOrderFromAfterId() {
+        when(customerService.getCustomersPage(10, PAGE_SIZE)).thenReturn(List.of(customer(11), customer(12)));
+        when(customerService.getCustomersPage(12, PAGE_SIZE)).thenReturn(List.of(customer(13), customer(14)));
+        when(customerService.getCustomersPage(14, PAGE_SIZE)).thenReturn(List.of(customer(15)));
+
+        List<Long> ids = new ArrayList<>();
+        CustomerServiceGrpc.newBlockingStub(channel)
+                .listCustomers(ListCustomersRequest.newBuilder().setAfterId(10).build())
+                .forEachRemaining(page -> page.getCustomersList().forEach(customer -> ids.add(customer.getId())));
+
+        assertThat(ids).containsExactly(11L, 12L, 13L, 14L, 15L);
+    }
+
+    @Test
+    void listCustomers_clientNotReading_nextPageNotFetched() throws InterruptedException {
+        when(customerService.getCustomersPage(0, PAGE_SIZE)).thenReturn(List.of(customer(1), customer(2)));
+        CountDownLatch received = new CountDownLatch(1);
+
+        CustomerServiceGrpc.newStub(channel).listCustomers(ListCustomersRequest.getDefaultInstance(),
+                new ClientResponseObserver<ListCustomersRequest, ListCustomersResponse>() {
+                    @Override
+                    public void beforeStart(ClientCallStreamObserver<ListCustomersRequest> requestStream) {
+                        // asks for one message and never for more
+                        requestStream.disableAutoRequestWithInitial(1);
+                    }
+
+                    @Override
+                    public void onNext(ListCustomersResponse page) {
+                        received.countDown();
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                    }
+                });
+
+        assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+        verify(customerService, times(1)).getCustomersPage(anyLong(), anyInt());
+    }
+
+    @Test
+    void importCustomers_rejectionsReportedByIndex() throws Exception {
+        doAnswer(invocation -> {
+            CustomerRegistrationRequest request = invocation.getArgument(0);
+            if (request.email().equals("taken@gmail.com")) {
+                throw new DuplicateResourceException("Email already taken");
+            }
+            return null;
+        }).when(customerService).addCustomer(any());
+        CompletableFuture<ImportCustomersResponse> response = new CompletableFuture<>();
+
+        StreamObserver<ImportCustomersRequest> requests = CustomerServiceGrpc.newStub(channel)
+                .importCustomers(new StreamObserver<>() {
+                    @Override
+                    public void onNext(ImportCustomersResponse value) {
+                        response.complete(value);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        response.completeExceptionally(t);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                    }
+                });
+        requests.onNext(ImportCustomersRequest.newBuilder()
+                .addCustomers(registration("Alex", "alex@gmail.com", 20))
+                .addCustomers(registration("Taken", "taken@gmail.com", 30))
+                .build());
+        requests.onNext(ImportCustomersRequest.newBuilder()
+                .addCustomers(registration("", "nameless@gmail.com", 40))
+                .addCustomers(registration("Jamila", "jamila@gmail.com", 50))
+                .addCustomers(CustomerRegistration.newBuilder().setName("Ageless").setEmail("ageless@gmail.com"))
+                .build());
+        requests.onCompleted();
+
+        ImportCustomersResponse summary = response.get(5, TimeUnit.SECONDS);
+        assertThat(summary.getImported()).isEqualTo(2);
+        assertThat(summary.getRejectedList())
+                .extracting(ImportCustomersResponse.Rejection::getIndex, ImportCustomersResponse.Rejection::getReason)
+                .containsExactly(
+                        tuple(1L, "Email already taken"),
+                        tuple(2L, "Name and email are required"),
+                        tuple(4L, "Age is required")
+                );
+        verify(customerService).addCustomer(new CustomerRegistrationRequest("Jamila", "jamila@gmail.com", 50));
+    }
+
+    private static Customer customer(long id) {
+        return new Customer(id, "Customer " + id, "customer" + id + "@gmail.com", 30);
+    }
+
+    private static CustomerRegistration registration(String name, String email, int age) {
+        return CustomerRegistration.newBuilder().setName(name).setEmail(email).setAge(age).build();
+    }
+}
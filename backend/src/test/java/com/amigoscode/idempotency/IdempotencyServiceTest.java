@@ -0,0 +1,175 @@
+package com.amigoscode.idempotency;
+
+import com.amigoscode.exception.DuplicateResourceException;
+import com.amigoscode.exception.RequestValidationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyKeyDao idempotencyKeyDao;
+    private IdempotencyService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new IdempotencyService(idempotencyKeyDao, Duration.ofHours(1), 100);
+    }
+
+    @Test
+    void execute_newKey_actionRunAndOutcomeStored() {
+        when(idempotencyKeyDao.selectByKey("key")).thenReturn(Optional.empty());
+        AtomicInteger runs = new AtomicInteger();
+
+        IdempotentOutcome outcome = underTest.execute("key", "request", runs::incrementAndGet);
+
+        assertThat(outcome.status()).isEqualTo(200);
+        assertThat(outcome.replayed()).isFalse();
+        assertThat(runs).hasValue(1);
+        ArgumentCaptor<IdempotencyRecord> recordArgumentCaptor = ArgumentCaptor.forClass(
+                IdempotencyRecord.class
+        );
+        verify(idempotencyKeyDao).insertIfAbsent(recordArgumentCaptor.capture());
+        assertThat(recordArgumentCaptor.getValue().key()).isEqualTo("key");
+        assertThat(recordArgumentCaptor.getValue().status()).isEqualTo(200);
+    }
+
+    @Test
+    void execute_repeatedKey_replayedWithoutRunningAction() {
+        when(idempotencyKeyDao.selectByKey("key")).thenReturn(Optional.empty());
+        AtomicInteger runs = new AtomicInteger();
+        underTest.execute("key", "request", runs::incrementAndGet);
+
+        IdempotentOutcome outcome = underTest.execute("key", "request", runs::incrementAndGet);
+
+        assertThat(outcome.status()).isEqualTo(200);
+        assertThat(outcome.replayed()).isTrue();
+        assertThat(runs).hasValue(1);
+        verify(idempotencyKeyDao, times(1)).insertIfAbsent(any());
+    }
+
+    @Test
+    void execute_repeatedKeyWithDifferentRequest_throwRequestValidationException() {
+        when(idempotencyKeyDao.selectByKey("key")).thenReturn(Optional.empty());
+        underTest.execute("key", "request", () -> {});
+
+        assertThatThrownBy(() -> underTest.execute("key", "other request", () -> {}))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Idempotency-Key [key] was already used for a different request");
+    }
+
+    @Test
+    void execute_firstAttemptClientError_sameErrorReplayed() {
+        when(idempotencyKeyDao.selectByKey("key")).thenReturn(Optional.empty());
+        Runnable duplicate = () -> {
+            throw new DuplicateResourceException("Email already taken");
+        };
+        assertThatThrownBy(() -> underTest.execute("key", "request", duplicate))
+                .isInstanceOf(DuplicateResourceException.class);
+
+        assertThatThrownBy(() -> underTest.execute("key", "request", duplicate))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(e -> assertThat(((ResponseStatusException) e).getStatusCode().value())
+                        .isEqualTo(409));
+    }
+
+    @Test
+    void execute_keyStoredByAnotherInstanceMeanwhile_storedOutcomeReturned() {
+        IdempotencyRecord other = new IdempotencyRecord(
+                "key", sha256("request"), 409, "Email already taken", Instant.now()
+        );
+        when(idempotencyKeyDao.selectByKey("key")).thenReturn(Optional.empty(), Optional.empty(), Optional.of(other));
+        when(idempotencyKeyDao.insertIfAbsent(any())).thenReturn(false);
+
+        assertThatThrownBy(() -> underTest.execute("key", "request", () -> {}))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Email already taken");
+        assertThatThrownBy(() -> underTest.execute("key", "request", () -> {}))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(e -> assertThat(((ResponseStatusException) e).getStatusCode().value())
+                        .isEqualTo(409));
+
+        verify(idempotencyKeyDao, times(3)).selectByKey("key");
+    }
+
+    @Test
+    void execute_firstAttemptServerError_notStored() {
+        when(idempotencyKeyDao.selectByKey("key")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> underTest.execute("key", "request", () -> {
+            throw new IllegalStateException("database down");
+        })).isInstanceOf(IllegalStateException.class);
+
+        verify(idempotencyKeyDao, never()).insertIfAbsent(any());
+    }
+
+    @Test
+    void execute_concurrentDuplicates_actionRunOnce() throws Exception {
+        when(idempotencyKeyDao.selectByKey("key")).thenReturn(Optional.empty());
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<IdempotentOutcome> first = executor.submit(() -> underTest.execute("key", "request", () -> {
+                runs.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            started.await();
+            Future<IdempotentOutcome> second = executor.submit(
+                    () -> underTest.execute("key", "request", runs::incrementAndGet)
+            );
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS).replayed()).isFalse();
+            assertThat(second.get(5, TimeUnit.SECONDS).replayed()).isTrue();
+            assertThat(runs).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_blankKey_throwRequestValidationException() {
+        assertThatThrownBy(() -> underTest.execute(" ", "request", () -> {}))
+                .isInstanceOf(RequestValidationException.class);
+
+        verifyNoInteractions(idempotencyKeyDao);
+    }
+
+    private static byte[] sha256(String request) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(request.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
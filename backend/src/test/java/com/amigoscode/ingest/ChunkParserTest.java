@@ -0,0 +1,84 @@
+package com.amigoscode.ingest;
+
+import com.amigoscode.collection.Hashing;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChunkParserTest {
+
+    @Test
+    void csv_quotedFieldsAndReorderedColumns_stagedAsCopyCsv() {
+        CsvChunkParser.Columns columns = CsvChunkParser.Columns.fromHeader("\uFEFFEmail, Name ,age,extra");
+
+        ParsedChunk parsed = parse(IngestFormat.CSV, columns,
+                "alex@gmail.com, Alex ,20,x\r\n\n\"o\"\"brien@gmail.com\",\"O'Brien, Pat\",33\n");
+
+        assertThat(parsed.rowCount()).isEqualTo(2);
+        assertThat(parsed.rejected()).isZero();
+        assertThat(staged(parsed)).isEqualTo("""
+                100,"Alex","alex@gmail.com",20
+                129,"O'Brien, Pat","o""brien@gmail.com",33
+                """);
+        assertThat(parsed.emailHash(0)).isEqualTo(Hashing.hash64("alex@gmail.com".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void csv_invalidLines_rejectedWithOffset() {
+        ParsedChunk parsed = parse(IngestFormat.CSV, CsvChunkParser.Columns.DEFAULT, """
+                Alex,alex@gmail.com,20
+                "Open,alex@gmail.com,20
+                Agel,agel@gmail.com,twenty
+                ,nameless@gmail.com,20
+                Short,short@gmail.com
+                """);
+
+        assertThat(parsed.rowCount()).isEqualTo(1);
+        assertThat(parsed.rejected()).isEqualTo(4);
+        assertThat(parsed.rejectionSamples()).containsExactly(
+                "byte 123: unterminated quote",
+                "byte 147: invalid age",
+                "byte 174: missing name",
+                "byte 197: expected at least 3 columns"
+        );
+    }
+
+    @Test
+    void csv_headerWithoutEmail_refused() {
+        assertThatThrownBy(() -> CsvChunkParser.Columns.fromHeader("name,mail,age"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void ndjson_fieldsInAnyOrderOthersSkipped_invalidRejected() {
+        ParsedChunk parsed = parse(IngestFormat.NDJSON, null, """
+                {"age": 20, "tags": [{"a": 1}], "email": "alex@gmail.com", "name": "Alex \\"A\\""}
+                {"name": "No age", "email": "noage@gmail.com"}
+                {"name": "Text age", "email": "text@gmail.com", "age": "20"}
+                [1, 2]
+                {"name": "Nul\\u0000", "email": "nul@gmail.com", "age": 1}
+                """);
+
+        assertThat(staged(parsed)).isEqualTo("""
+                100,"Alex ""A\"\"","alex@gmail.com",20
+                """);
+        assertThat(parsed.rejected()).isEqualTo(4);
+        assertThat(parsed.rejectionSamples()).extracting(sample -> sample.substring(sample.indexOf(": ") + 2))
+                .containsExactly("missing age", "invalid age", "not a JSON object", "not UTF-8 text or contains NUL");
+    }
+
+    // as if the chunk started 100 bytes into the file
+    private static ParsedChunk parse(IngestFormat format, CsvChunkParser.Columns columns, String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        FileChunk chunk = new FileChunk(0, 100, 100 + bytes.length);
+        return ChunkParser.of(format, columns).parse(chunk, ByteBuffer.wrap(bytes));
+    }
+
+    private static String staged(ParsedChunk parsed) {
+        return parsed.rowCount() == 0 ? "" : new String(parsed.rows(), 0, parsed.rowEnd(parsed.rowCount() - 1), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,100 @@
+package com.amigoscode.ingest;
+
+import com.amigoscode.AbstractTestcontainers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerIngestJobTest extends AbstractTestcontainers {
+
+    private final JdbcTemplate jdbcTemplate = getJdbcTemplate();
+    private CustomerIngestJob underTest;
+
+    @TempDir
+    private Path dir;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM customer_ingest_job");
+        underTest = new CustomerIngestJob(jdbcTemplate, new DataSourceTransactionManager(jdbcTemplate.getDataSource()), true);
+    }
+
+    @Test
+    void ingest_duplicatesExistingAndRejected_newCustomersMergedInFileOrderWithOutbox() throws Exception {
+        jdbcTemplate.update("INSERT INTO customer(name, email, age) VALUES ('Taken', 'taken@merge.com', 40)");
+        Path file = Files.writeString(dir.resolve("partner.csv"), """
+                name,email,age
+                Alex,alex@merge.com,20
+                Jamila,jamila@merge.com,30
+                Alex Again,alex@merge.com,21
+                Taken Again,taken@merge.com,41
+                Broken,broken@merge.com,old
+                "Pat, O'Brien",pat@merge.com,50
+                """);
+
+        // 64 bytes cut the file into several chunks, the repeated email is in a later one
+        IngestReport report = underTest.ingest(properties(file, 64));
+
+        assertThat(report.chunks()).isGreaterThan(2);
+        assertThat(report.rowsRead()).isEqualTo(6);
+        assertThat(report.inserted()).isEqualTo(3);
+        assertThat(report.duplicates()).isEqualTo(1);
+        assertThat(report.existing()).isEqualTo(1);
+        assertThat(report.rejected()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT name FROM customer WHERE email LIKE '%@merge.com' ORDER BY id", String.class))
+                .containsExactly("Taken", "Alex", "Jamila", "Pat, O'Brien");
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT payload->>'email' FROM customer_outbox WHERE payload->>'email' LIKE '%@merge.com' ORDER BY id",
+                String.class))
+                .containsExactly("alex@merge.com", "jamila@merge.com", "pat@merge.com");
+    }
+
+    @Test
+    void ingest_rerunAfterInterruption_resumesWithUnmergedChunksOnly() throws Exception {
+        String lines = IntStream.range(0, 30)
+                .mapToObj(i -> "{\"name\": \"Resume %02d\", \"email\": \"c%02d@resume.com\", \"age\": %d}".formatted(i, i, 20 + i))
+                .collect(Collectors.joining("\n", "", "\n"));
+        Path file = Files.writeString(dir.resolve("partner.ndjson"), lines);
+        IngestReport first = underTest.ingest(properties(file, 200));
+        // as if killed after the first chunk committed
+        Long firstChunkInserted = jdbcTemplate.queryForObject(
+                "SELECT inserted FROM customer_ingest_chunk WHERE chunk = 0", Long.class);
+        jdbcTemplate.update("DELETE FROM customer_ingest_chunk WHERE chunk > 0");
+        jdbcTemplate.update("UPDATE customer_ingest_job SET finished_at = NULL");
+        jdbcTemplate.update("""
+                DELETE FROM customer
+                WHERE email LIKE '%@resume.com'
+                  AND id NOT IN (SELECT id FROM customer WHERE email LIKE '%@resume.com' ORDER BY id LIMIT ?)
+                """, firstChunkInserted);
+
+        IngestReport resumed = underTest.ingest(properties(file, 200));
+        IngestReport again = underTest.ingest(properties(file, 200));
+
+        assertThat(first.inserted()).isEqualTo(30);
+        assertThat(resumed.resumedChunks()).isEqualTo(1);
+        assertThat(resumed.inserted()).isEqualTo(30 - firstChunkInserted);
+        assertThat(resumed.existing()).isZero();
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT name FROM customer WHERE email LIKE '%@resume.com' ORDER BY id", String.class);
+        assertThat(names).hasSize(30).isSorted();
+        // a finished file is not loaded again
+        assertThat(again.resumedChunks()).isEqualTo(again.chunks());
+        assertThat(again.rowsRead()).isZero();
+    }
+
+    private static IngestProperties properties(Path file, long chunkSize) {
+        return new IngestProperties(file, null, true, DataSize.ofBytes(chunkSize), 2);
+    }
+}
@@ -0,0 +1,67 @@
+package com.amigoscode.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileChunksTest {
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void split_cutsAtFirstLineStartAtOrAfterEachMultiple() throws IOException {
+        // lines start at 0, 4, 8, 15 and 17, cuts fall at 8 (after 5), 15 (after 10 and at 15)
+        Path file = write("aaa\nbbb\ncccccc\nd\neee");
+
+        try (FileChannel channel = FileChannel.open(file)) {
+            List<FileChunk> chunks = FileChunks.split(channel, 0, 5);
+
+            assertThat(chunks).containsExactly(
+                    new FileChunk(0, 0, 8),
+                    new FileChunk(1, 8, 15),
+                    new FileChunk(2, 15, 20)
+            );
+        }
+    }
+
+    @Test
+    void split_lineLongerThanSeveralChunks_noEmptyChunks() throws IOException {
+        Path file = write("a\n" + "b".repeat(20) + "\nc\n");
+
+        try (FileChannel channel = FileChannel.open(file)) {
+            List<FileChunk> chunks = FileChunks.split(channel, 0, 4);
+
+            assertThat(chunks).containsExactly(
+                    new FileChunk(0, 0, 23),
+                    new FileChunk(1, 23, 25)
+            );
+        }
+    }
+
+    @Test
+    void split_afterHeader_firstChunkStartsPastIt() throws IOException {
+        Path file = write("name,email,age\na,a@x.com,1\nb,b@x.com,2\n");
+
+        try (FileChannel channel = FileChannel.open(file)) {
+            assertThat(FileChunks.firstLine(channel)).isEqualTo("name,email,age");
+            long dataStart = FileChunks.firstLineEnd(channel);
+            List<FileChunk> chunks = FileChunks.split(channel, dataStart, 1024);
+
+            assertThat(dataStart).isEqualTo(15);
+            assertThat(chunks).containsExactly(new FileChunk(0, 15, channel.size()));
+        }
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.write(dir.resolve("customers.csv"), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
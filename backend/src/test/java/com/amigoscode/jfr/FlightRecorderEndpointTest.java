@@ -0,0 +1,134 @@
+package com.amigoscode.jfr;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerDao;
+import com.amigoscode.customer.CustomerListDataAccessService;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class FlightRecorderEndpointTest {
+
+    @TempDir
+    Path dumpDir;
+
+    private FlightRecorderEndpoint underTest;
+
+    @AfterEach
+    void tearDown() {
+        underTest.closeAll();
+    }
+
+    @Test
+    void dump_daoCallsDuringRecording_recordedWithRowCounts() throws Exception {
+        underTest = endpoint(2);
+        CustomerListDataAccessService list = new CustomerListDataAccessService();
+        list.insertCustomer(new Customer("Alex", "alex@gmail.com", 21));
+        long customers = list.selectAllCustomers().size();
+        CustomerDao listDao = proxy(list);
+        CustomerDao deletingDao = mock(CustomerDao.class);
+        doAnswer(invocation -> {
+            CustomerDaoEvents.statementExecuted("DELETE FROM customer WHERE id = ?", 1);
+            return null;
+        }).when(deletingDao).deleteCustomerById(7L);
+        deletingDao = proxy(deletingDao);
+
+        FlightRecordingInfo started = underTest.start(Duration.ofMinutes(1), null);
+        listDao.selectAllCustomers();
+        deletingDao.deleteCustomerById(7L);
+        Resource dump = underTest.dump(started.id());
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump.getFile().toPath()).stream()
+                .filter(event -> event.getEventType().getName().equals("com.amigoscode.customer.DaoCall"))
+                .toList();
+        assertThat(started.state()).isEqualTo("RUNNING");
+        assertThat(started.settings()).isEqualTo("customer");
+        assertThat(events)
+                .extracting(
+                        event -> event.getString("operation"),
+                        event -> event.getString("sqlShape"),
+                        event -> event.getLong("rowCount"))
+                .contains(
+                        tuple("selectAllCustomers", null, customers),
+                        tuple("deleteCustomerById", "DELETE FROM customer WHERE id = ?", 1L)
+                );
+    }
+
+    @Test
+    void stop_runningRecording_stoppedAndStillDumpable() {
+        underTest = endpoint(2);
+        FlightRecordingInfo started = underTest.start(null, "default");
+
+        FlightRecordingInfo stopped = underTest.stop(started.id());
+
+        assertThat(started.duration()).isEqualTo(Duration.ofMinutes(1));
+        assertThat(stopped.state()).isEqualTo("STOPPED");
+        assertThat(underTest.dump(started.id()).exists()).isTrue();
+    }
+
+    @Test
+    void delete_recording_removedWithItsDump() {
+        underTest = endpoint(2);
+        FlightRecordingInfo started = underTest.start(null, null);
+        underTest.dump(started.id());
+
+        underTest.delete(started.id());
+
+        assertThat(underTest.recordings()).isEmpty();
+        assertThat(underTest.dump(started.id())).isNull();
+        assertThat(dumpDir).isEmptyDirectory();
+    }
+
+    @Test
+    void dump_anySettings_noEnvironmentOrSystemProperties() throws Exception {
+        underTest = endpoint(2);
+
+        FlightRecordingInfo customer = underTest.start(Duration.ofMinutes(1), null);
+        FlightRecordingInfo profile = underTest.start(Duration.ofMinutes(1), "profile");
+
+        for (FlightRecordingInfo started : List.of(customer, profile)) {
+            assertThat(RecordingFile.readAllEvents(underTest.dump(started.id()).getFile().toPath()))
+                    .extracting(event -> event.getEventType().getName())
+                    .isNotEmpty()
+                    .doesNotContain("jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty");
+        }
+    }
+
+    @Test
+    void start_tooLongOrTooMany_rejected() {
+        underTest = endpoint(1);
+
+        assertThatThrownBy(() -> underTest.start(Duration.ofHours(1), null))
+                .isInstanceOf(InvalidEndpointRequestException.class);
+        assertThatThrownBy(() -> underTest.start(null, "nope"))
+                .isInstanceOf(InvalidEndpointRequestException.class);
+        underTest.start(null, null);
+        assertThatThrownBy(() -> underTest.start(null, null))
+                .isInstanceOf(InvalidEndpointRequestException.class);
+    }
+
+    private FlightRecorderEndpoint endpoint(int maxRecordings) {
+        return new FlightRecorderEndpoint(new FlightRecorderProperties(
+                dumpDir, Duration.ofMinutes(1), Duration.ofMinutes(10), DataSize.ofMegabytes(50), maxRecordings
+        ));
+    }
+
+    private static CustomerDao proxy(CustomerDao dao) {
+        return (CustomerDao) new CustomerDaoEventPostProcessor().postProcessAfterInitialization(dao, "dao");
+    }
+}
@@ -0,0 +1,168 @@
+package com.amigoscode.journal;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerListDataAccessService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedCustomerJournalTest {
+
+    @TempDir
+    Path dataDir;
+
+    private final List<MappedCustomerJournal> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(MappedCustomerJournal::close);
+    }
+
+    @Test
+    void restart_replaysJournal() {
+        CustomerListDataAccessService dao = new CustomerListDataAccessService(open(DataSize.ofMegabytes(64)));
+        Customer customer = new Customer("Test name", "test@gmail.com", 20);
+        dao.insertCustomer(customer);
+        dao.patchCustomer(new Customer(customer.getId(), null, null, 21));
+        dao.deleteCustomerById(1);
+        close();
+
+        CustomerListDataAccessService restarted = new CustomerListDataAccessService(open(DataSize.ofMegabytes(64)));
+
+        assertThat(restarted.existsPersonWithId(1)).isFalse();
+        assertThat(restarted.selectCustomerById(customer.getId()))
+                .hasValueSatisfying(selected -> assertThat(selected.getAge()).isEqualTo(21));
+        Customer next = new Customer("Next", "next@gmail.com", 30);
+        restarted.insertCustomer(next);
+        assertThat(next.getId()).isEqualTo(customer.getId() + 1);
+    }
+
+    @Test
+    void compact_writesSnapshotAndDropsOldJournals() throws IOException {
+        CustomerListDataAccessService dao = new CustomerListDataAccessService(open(DataSize.ofBytes(1)));
+        for (int i = 0; i < 1000; i++) {
+            dao.insertCustomer(new Customer("Name " + i, "customer" + i + "@gmail.com", 20 + i % 50));
+        }
+
+        dao.compact();
+        dao.insertCustomer(new Customer("After", "after@gmail.com", 40));
+        close();
+
+        assertThat(dataDir.resolve("snapshot.bin")).exists();
+        assertThat(journalFiles()).hasSize(1);
+        CustomerListDataAccessService restarted = new CustomerListDataAccessService(open(DataSize.ofBytes(1)));
+        assertThat(restarted.selectAllCustomers()).hasSize(1003);
+        assertThat(restarted.existsPersonWithEmail("after@gmail.com")).isTrue();
+    }
+
+    @Test
+    void compact_concurrentWrites_recoveredExactlyAsWritten() throws Exception {
+        CustomerListDataAccessService dao = new CustomerListDataAccessService(open(DataSize.ofBytes(1)));
+        for (int i = 0; i < 500; i++) {
+            dao.insertCustomer(new Customer("Seed " + i, "seed" + i + "@gmail.com", 20));
+        }
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 3000; i++) {
+                // some names outgrow the scratch frame and make it reallocate
+                String name = "Writer " + "x".repeat(i % 7 == 0 ? 5000 + i : i % 100);
+                dao.insertCustomer(new Customer(name, "writer" + i + "@gmail.com", i % 90));
+                dao.patchCustomer(new Customer((long) (1 + i % 500), null, null, i % 90));
+            }
+        });
+
+        writer.start();
+        while (writer.isAlive()) {
+            dao.compact();
+        }
+        writer.join();
+        List<String> written = dao.selectAllCustomers().stream().map(MappedCustomerJournalTest::describe).sorted().toList();
+        close();
+
+        CustomerListDataAccessService restarted = new CustomerListDataAccessService(open(DataSize.ofBytes(1)));
+        // the two default customers, the seeds and the writer's
+        assertThat(restarted.selectAllCustomers().stream().map(MappedCustomerJournalTest::describe).sorted().toList())
+                .hasSize(2 + 500 + 3000)
+                .isEqualTo(written);
+    }
+
+    @Test
+    void recover_tornTail_truncatedAndEarlierRecordsKept() throws IOException {
+        CustomerListDataAccessService dao = new CustomerListDataAccessService(open(DataSize.ofMegabytes(64)));
+        dao.insertCustomer(new Customer("Test name", "test@gmail.com", 20));
+        close();
+        Path journal = journalFiles().get(0);
+        long intact = Files.size(journal);
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2, 3}));
+        }
+
+        CustomerListDataAccessService restarted = new CustomerListDataAccessService(open(DataSize.ofMegabytes(64)));
+
+        assertThat(restarted.existsPersonWithEmail("test@gmail.com")).isTrue();
+        assertThat(Files.size(journal)).isEqualTo(intact);
+    }
+
+    @Test
+    void recover_invalidFrameInEarlierJournal_fails() throws IOException {
+        // each start writes a new generation
+        new CustomerListDataAccessService(open(DataSize.ofMegabytes(64)))
+                .insertCustomer(new Customer("Test name", "test@gmail.com", 20));
+        close();
+        new CustomerListDataAccessService(open(DataSize.ofMegabytes(64)))
+                .insertCustomer(new Customer("Other name", "other@gmail.com", 30));
+        close();
+        List<Path> journals = journalFiles();
+        assertThat(journals).hasSize(2);
+        long size = Files.size(journals.get(0));
+        try (FileChannel channel = FileChannel.open(journals.get(0), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2, 3}));
+        }
+
+        assertThatThrownBy(() -> new CustomerListDataAccessService(open(DataSize.ofMegabytes(64))))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("is corrupt at byte " + size);
+        // left as it was for inspection
+        assertThat(Files.size(journals.get(0))).isEqualTo(size + 7);
+    }
+
+    private static String describe(Customer customer) {
+        return customer.getId() + "|" + customer.getName() + "|" + customer.getEmail() + "|" + customer.getAge();
+    }
+
+    private MappedCustomerJournal open(DataSize compactionThreshold) {
+        try {
+            MappedCustomerJournal journal = new MappedCustomerJournal(new CustomerJournalProperties(
+                    dataDir, FsyncPolicy.BATCH, Duration.ofMillis(10), 16, compactionThreshold));
+            opened.add(journal);
+            return journal;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void close() {
+        opened.forEach(MappedCustomerJournal::close);
+        opened.clear();
+    }
+
+    private List<Path> journalFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dataDir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("journal-")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.amigoscode.offheap;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffHeapHashIndexTest {
+
+    @Test
+    void putGetRemove_randomOperations_matchHashMap() {
+        OffHeapHashIndex underTest = new OffHeapHashIndex(16);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50_000; i++) {
+            long key = 1 + random.nextInt(10_000);
+            Long current = expected.get(key);
+            if (current != null && random.nextBoolean()) {
+                assertThat(underTest.remove(key, current)).isTrue();
+                expected.remove(key);
+            } else if (current == null) {
+                underTest.put(key, i);
+                expected.put(key, (long) i);
+            }
+        }
+
+        assertThat(underTest.size()).isEqualTo(expected.size());
+        for (long key = 1; key <= 10_000; key++) {
+            Long value = expected.get(key);
+            assertThat(underTest.get(key, v -> true)).isEqualTo(value == null ? OffHeapHashIndex.NO_VALUE : value);
+        }
+    }
+
+    @Test
+    void get_sharedKey_predicateSelectsEntry() {
+        OffHeapHashIndex underTest = new OffHeapHashIndex(16);
+        underTest.put(7, 100);
+        underTest.put(7, 200);
+
+        assertThat(underTest.get(7, value -> value == 200)).isEqualTo(200);
+        assertThat(underTest.remove(7, 100)).isTrue();
+        assertThat(underTest.get(7, value -> value == 100)).isEqualTo(OffHeapHashIndex.NO_VALUE);
+        assertThat(underTest.get(7, value -> true)).isEqualTo(200);
+    }
+}
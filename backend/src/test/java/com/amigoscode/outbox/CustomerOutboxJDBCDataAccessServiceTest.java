@@ -0,0 +1,105 @@
+package com.amigoscode.outbox;
+
+import com.amigoscode.AbstractTestcontainers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerOutboxJDBCDataAccessServiceTest extends AbstractTestcontainers {
+
+    private static final Duration LEASE = Duration.ofMinutes(1);
+
+    private final JdbcTemplate jdbcTemplate = getJdbcTemplate();
+    private CustomerOutboxJDBCDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM customer_outbox");
+        underTest = new CustomerOutboxJDBCDataAccessService(jdbcTemplate);
+    }
+
+    @Test
+    void claimAvailable_batchLeasedByOtherRelay_nextRowsReturned() {
+        long[] ids = insert(4);
+
+        List<CustomerOutboxMessage> first = underTest.claimAvailable(2, LEASE);
+        // a second relay skips what the first one leased, no transaction is held meanwhile
+        List<CustomerOutboxMessage> second = underTest.claimAvailable(10, LEASE);
+
+        assertThat(first).extracting(CustomerOutboxMessage::id).containsExactly(ids[0], ids[1]);
+        assertThat(first.get(0).customer()).isEqualTo("{\"id\": 1}");
+        assertThat(second).extracting(CustomerOutboxMessage::id).containsExactly(ids[2], ids[3]);
+    }
+
+    @Test
+    void claimAvailable_olderMessageOfCustomerPending_laterOnesHeldBack() {
+        long first = insert(1, 1);
+        long second = insert(1, 2);
+        long other = insert(2, 3);
+
+        assertThat(underTest.claimAvailable(10, LEASE)).extracting(CustomerOutboxMessage::id)
+                .containsExactly(first, second, other);
+        underTest.retryLater(new long[]{first}, Duration.ofHours(1), Duration.ofHours(1), "refused");
+        underTest.release(new long[]{second, other});
+
+        // the head backs off, the customer's next change must not overtake it
+        assertThat(underTest.claimAvailable(10, LEASE)).extracting(CustomerOutboxMessage::id)
+                .containsExactly(other);
+    }
+
+    @Test
+    void release_leasedBatch_claimableAgainWithoutAttempt() {
+        long[] ids = insert(2);
+        underTest.claimAvailable(10, LEASE);
+
+        assertThat(underTest.claimAvailable(10, LEASE)).isEmpty();
+        assertThat(underTest.release(ids)).isEqualTo(2);
+
+        assertThat(underTest.claimAvailable(10, LEASE)).extracting(CustomerOutboxMessage::attempts)
+                .containsExactly(0, 0);
+    }
+
+    @Test
+    void retryLater_backoffGrowsAndDelete_removed() {
+        long[] ids = insert(2);
+
+        underTest.retryLater(new long[]{ids[0]}, Duration.ofHours(1), Duration.ofHours(3), "x".repeat(2000));
+        underTest.retryLater(new long[]{ids[0]}, Duration.ofHours(1), Duration.ofHours(3), "refused");
+
+        assertThat(underTest.claimAvailable(10, LEASE)).extracting(CustomerOutboxMessage::id).containsExactly(ids[1]);
+        Map<String, Object> row = jdbcTemplate.queryForMap("""
+                SELECT attempts, last_error,
+                       round(extract(epoch FROM available_at - now()) / 3600) AS hours
+                FROM customer_outbox
+                WHERE id = ?
+                """, ids[0]);
+        assertThat(row.get("attempts")).isEqualTo(2);
+        assertThat(row.get("last_error")).isEqualTo("refused");
+        assertThat(((Number) row.get("hours")).intValue()).isEqualTo(2);
+
+        assertThat(underTest.delete(ids)).isEqualTo(2);
+        assertThat(underTest.claimAvailable(10, LEASE)).isEmpty();
+    }
+
+    private long[] insert(int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = insert(i + 1, i + 1);
+        }
+        return ids;
+    }
+
+    private long insert(long customerId, long payloadId) {
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO customer_outbox(customer_id, type, payload)
+                VALUES(?, 'INSERTED', jsonb_build_object('id', ?::bigint))
+                RETURNING id
+                """, Long.class, customerId, payloadId);
+    }
+}
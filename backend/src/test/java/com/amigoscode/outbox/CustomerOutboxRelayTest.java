@@ -0,0 +1,132 @@
+package com.amigoscode.outbox;
+
+import com.amigoscode.customer.CustomerChangeEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerOutboxRelayTest {
+
+    private static final int BATCH_SIZE = 2;
+    private static final Duration LEASE = Duration.ofMinutes(1);
+
+    @Mock
+    private CustomerOutboxDao outboxDao;
+    @Mock
+    private CustomerOutboxSink sink;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CustomerOutboxRelay underTest;
+
+    @BeforeEach
+    void setUp() {
+        when(sink.name()).thenReturn("test");
+        CustomerOutboxProperties properties = new CustomerOutboxProperties(
+                true,
+                CustomerOutboxProperties.Sink.LISTENER,
+                BATCH_SIZE,
+                Duration.ofSeconds(1),
+                Duration.ofSeconds(2),
+                Duration.ofMinutes(5),
+                Duration.ofSeconds(7),
+                LEASE,
+                null,
+                null
+        );
+        underTest = new CustomerOutboxRelay(outboxDao, sink, properties, transactionManager, meterRegistry);
+    }
+
+    @Test
+    void relayBatch_fullBatchDelivered_deletedAndMoreRequested() throws Exception {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        List<CustomerOutboxMessage> batch = List.of(message(1), message(2));
+        when(outboxDao.claimAvailable(BATCH_SIZE, LEASE)).thenReturn(batch);
+
+        Duration pause = underTest.relayBatch();
+
+        assertThat(pause).isZero();
+        // published once the claim committed, no transaction is held open meanwhile
+        InOrder inOrder = inOrder(transactionManager, sink, outboxDao);
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(sink).publish(batch);
+        inOrder.verify(outboxDao).delete(new long[]{1, 2});
+        assertThat(meterRegistry.counter("customer.outbox.published", "sink", "test").count()).isEqualTo(2);
+    }
+
+    @Test
+    void relayBatch_partialBatch_drained() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(outboxDao.claimAvailable(BATCH_SIZE, LEASE)).thenReturn(List.of(message(1)));
+
+        assertThat(underTest.relayBatch()).isNull();
+    }
+
+    @Test
+    void relayBatch_empty_nothingPublished() throws Exception {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(outboxDao.claimAvailable(BATCH_SIZE, LEASE)).thenReturn(List.of());
+
+        assertThat(underTest.relayBatch()).isNull();
+
+        verify(sink, never()).publish(any());
+    }
+
+    @Test
+    void relayBatch_sinkFails_retriedLaterWithBackoff() throws Exception {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(outboxDao.claimAvailable(BATCH_SIZE, LEASE)).thenReturn(List.of(message(1)));
+        doThrow(new IOException("connection refused")).when(sink).publish(any());
+
+        Duration pause = underTest.relayBatch();
+
+        assertThat(pause).isEqualTo(Duration.ofSeconds(2));
+        verify(outboxDao).retryLater(
+                eq(new long[]{1}), eq(Duration.ofSeconds(2)), eq(Duration.ofMinutes(5)), anyString()
+        );
+        verify(outboxDao, never()).delete(any());
+        verify(transactionManager).commit(any());
+        assertThat(meterRegistry.counter("customer.outbox.failures", "sink", "test").count()).isEqualTo(1);
+    }
+
+    @Test
+    void relayBatch_backpressure_releasedUntouchedAndPaused() throws Exception {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(outboxDao.claimAvailable(BATCH_SIZE, LEASE)).thenReturn(List.of(message(1)));
+        doThrow(new OutboxBackpressureException("busy", Duration.ofSeconds(30)))
+                .doThrow(new OutboxBackpressureException("busy", null))
+                .when(sink).publish(any());
+
+        assertThat(underTest.relayBatch()).isEqualTo(Duration.ofSeconds(30));
+        assertThat(underTest.relayBatch()).isEqualTo(Duration.ofSeconds(7));
+
+        verify(outboxDao, times(2)).release(new long[]{1});
+        verify(outboxDao, never()).delete(any());
+        verify(outboxDao, never()).retryLater(any(), any(), any(), any());
+        assertThat(meterRegistry.counter("customer.outbox.backpressure", "sink", "test").count()).isEqualTo(2);
+    }
+
+    private static CustomerOutboxMessage message(long id) {
+        return new CustomerOutboxMessage(
+                id, 10 + id, CustomerChangeEvent.Type.INSERTED,
+                "{\"id\": %s}".formatted(10 + id), Instant.now(), 0
+        );
+    }
+}
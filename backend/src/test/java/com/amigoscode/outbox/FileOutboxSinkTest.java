@@ -0,0 +1,44 @@
+package com.amigoscode.outbox;
+
+import com.amigoscode.customer.CustomerChangeEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileOutboxSinkTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void publish_twoBatches_oneJsonLinePerMessageAppended() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        Path path = directory.resolve("outbox/changes.ndjson");
+        FileOutboxSink underTest = new FileOutboxSink(path, objectMapper);
+
+        underTest.publish(List.of(message(1), message(2)));
+        underTest.publish(List.of(message(3)));
+
+        List<String> lines = Files.readAllLines(path);
+        assertThat(lines).hasSize(3);
+        assertThat(lines).extracting(line -> objectMapper.readTree(line).get("id").asLong())
+                .containsExactly(1L, 2L, 3L);
+        assertThat(objectMapper.readTree(lines.get(2)).get("customer").get("email").asText())
+                .isEqualTo("c3@gmail.com");
+    }
+
+    private static CustomerOutboxMessage message(long id) {
+        return new CustomerOutboxMessage(
+                id, id, CustomerChangeEvent.Type.UPDATED,
+                "{\"id\": %s, \"email\": \"c%s@gmail.com\"}".formatted(id, id), Instant.now(), 0
+        );
+    }
+}
@@ -0,0 +1,92 @@
+package com.amigoscode.outbox;
+
+import com.amigoscode.customer.CustomerChangeEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WebhookOutboxSinkTest {
+
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private final AtomicInteger status = new AtomicInteger(204);
+    private HttpServer server;
+    private WebhookOutboxSink underTest;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/changes", exchange -> {
+            received.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            if (status.get() == 429) {
+                exchange.getResponseHeaders().add("Retry-After", "12");
+            }
+            exchange.sendResponseHeaders(status.get(), -1);
+            exchange.close();
+        });
+        server.start();
+        underTest = new WebhookOutboxSink(
+                new CustomerOutboxProperties.Webhook(
+                        URI.create("http://localhost:%s/changes".formatted(server.getAddress().getPort())),
+                        Duration.ofSeconds(5)
+                ),
+                new ObjectMapper().registerModule(new JavaTimeModule())
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void publish_2xx_batchPostedAsOneArrayWithRawCustomer() throws Exception {
+        underTest.publish(List.of(message(1), message(2)));
+
+        assertThat(received).singleElement().satisfies(body -> {
+            assertThat(body).startsWith("[{\"id\":1,");
+            assertThat(body).contains("\"customer\":{\"id\": 11}");
+            assertThat(body).contains("\"type\":\"INSERTED\"");
+        });
+    }
+
+    @Test
+    void publish_429_backpressureWithRetryAfter() {
+        status.set(429);
+
+        assertThatThrownBy(() -> underTest.publish(List.of(message(1))))
+                .isInstanceOfSatisfying(OutboxBackpressureException.class,
+                        e -> assertThat(e.retryAfter()).isEqualTo(Duration.ofSeconds(12)));
+    }
+
+    @Test
+    void publish_500_failedAttempt() {
+        status.set(500);
+
+        assertThatThrownBy(() -> underTest.publish(List.of(message(1))))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Webhook answered 500");
+    }
+
+    private static CustomerOutboxMessage message(long id) {
+        return new CustomerOutboxMessage(
+                id, 10 + id, CustomerChangeEvent.Type.INSERTED,
+                "{\"id\": %s}".formatted(10 + id), Instant.now(), 0
+        );
+    }
+}
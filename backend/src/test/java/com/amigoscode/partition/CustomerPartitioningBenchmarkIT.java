@@ -0,0 +1,107 @@
+package com.amigoscode.partition;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerCountMode;
+import com.amigoscode.customer.CustomerJDBCDataAccessService;
+import com.amigoscode.customer.CustomerRowMapper;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Insert and point-lookup latency on the plain table and again after V6 plus the
+// online migration. Size with -Dbenchmark.rows=..., e.g. mvn verify -Dit.test=CustomerPartitioningBenchmarkIT
+@Testcontainers
+class CustomerPartitioningBenchmarkIT {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 1_000_000);
+    private static final int SAMPLES = Integer.getInteger("benchmark.samples", 5_000);
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:latest")
+                    .withDatabaseName("amigoscode-partition-benchmark")
+                    .withUsername("amigoscode")
+                    .withPassword("test-password");
+
+    @Test
+    void insertAndLookupLatency_beforeAndAfterPartitioning() throws InterruptedException {
+        DataSource dataSource = DataSourceBuilder.create()
+                .url(postgreSQLContainer.getJdbcUrl())
+                .username(postgreSQLContainer.getUsername())
+                .password(postgreSQLContainer.getPassword())
+                .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        CustomerJDBCDataAccessService dao = new CustomerJDBCDataAccessService(jdbcTemplate, new CustomerRowMapper());
+
+        Flyway.configure().dataSource(dataSource).target("5").load().migrate();
+        jdbcTemplate.update("""
+                INSERT INTO customer(name, email, age)
+                SELECT 'Customer ' || n, 'customer' || n || '@gmail.com', 16 + n % 80
+                FROM generate_series(1, ?) AS n
+                """, ROWS);
+        jdbcTemplate.execute("VACUUM ANALYZE customer");
+        print("plain", measure(dao, "before"));
+
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        CustomerPartitionMigrator migrator = new CustomerPartitionMigrator(
+                jdbcTemplate, new DataSourceTransactionManager(dataSource)
+        );
+        long start = System.nanoTime();
+        migrator.migrate(10_000, Duration.ZERO);
+        System.out.printf("online migration of %,d rows took %,d ms%n", ROWS, (System.nanoTime() - start) / 1_000_000);
+        jdbcTemplate.execute("VACUUM ANALYZE customer");
+        print("partitioned", measure(dao, "after"));
+
+        long expected = ROWS + 2L * SAMPLES;
+        assertThat(migrator.isCutOver()).isTrue();
+        assertThat(dao.countCustomers(CustomerCountMode.EXACT).count()).isEqualTo(expected);
+        assertThat(dao.countCustomers(CustomerCountMode.MAINTAINED).count()).isEqualTo(expected);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM customer_email", Long.class))
+                .isEqualTo(expected);
+        assertThat(dao.existsPersonWithEmail("customer1@gmail.com")).isTrue();
+    }
+
+    private static long[][] measure(CustomerJDBCDataAccessService dao, String phase) {
+        long[] inserts = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            Customer customer = new Customer("Benchmark " + i, phase + i + "@benchmark.com", 30);
+            long start = System.nanoTime();
+            dao.insertCustomer(customer);
+            inserts[i] = System.nanoTime() - start;
+        }
+        long[] lookups = new long[SAMPLES];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            long id = 1 + random.nextLong(ROWS);
+            long start = System.nanoTime();
+            assertThat(dao.selectCustomerById(id)).isPresent();
+            lookups[i] = System.nanoTime() - start;
+        }
+        return new long[][]{inserts, lookups};
+    }
+
+    private static void print(String table, long[][] samples) {
+        System.out.printf("%-12s insert p50 %6d us p99 %6d us | lookup p50 %6d us p99 %6d us%n",
+                table,
+                percentile(samples[0], 0.50), percentile(samples[0], 0.99),
+                percentile(samples[1], 0.50), percentile(samples[1], 0.99));
+    }
+
+    private static long percentile(long[] nanos, double percentile) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(percentile * (sorted.length - 1)))] / 1_000;
+    }
+}
@@ -0,0 +1,111 @@
+package com.amigoscode.querycontrol;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CancellableJdbcTemplateTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final QueryCancellations cancellations = new QueryCancellations(meterRegistry);
+    private final Statement statement = mock(Statement.class);
+    private CancellableJdbcTemplate underTest;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        underTest = new CancellableJdbcTemplate(dataSource, cancellations);
+    }
+
+    @AfterEach
+    void tearDown() {
+        QueryScope.unbind();
+    }
+
+    @Test
+    void query_inScope_endpointTimeoutRoundedUpToSeconds() throws SQLException {
+        new QueryScope("GET /api/v1/customer/{customerId}", Duration.ofMillis(1500)).bind();
+        when(statement.executeQuery(anyString())).thenReturn(mock(ResultSet.class));
+
+        underTest.query("SELECT 1", rs -> null);
+
+        verify(statement).setQueryTimeout(2);
+    }
+
+    @Test
+    void query_tighterTimeoutAlreadySet_kept() throws SQLException {
+        new QueryScope("GET /api/v1/customer", Duration.ofSeconds(30)).bind();
+        when(statement.getQueryTimeout()).thenReturn(2);
+        when(statement.executeQuery(anyString())).thenReturn(mock(ResultSet.class));
+
+        underTest.query("SELECT 1", rs -> null);
+
+        verify(statement, never()).setQueryTimeout(30);
+    }
+
+    @Test
+    void query_statementTimedOut_countedPerRoute() throws SQLException {
+        new QueryScope("GET /api/v1/customer/count", Duration.ofSeconds(3)).bind();
+        when(statement.executeQuery(anyString()))
+                .thenThrow(new SQLException("canceling statement due to user request", "57014"));
+
+        assertThatThrownBy(() -> underTest.query("SELECT count(*) FROM customer", rs -> null))
+                .isInstanceOf(StatementTimeoutException.class)
+                .hasMessageContaining("3s query timeout of GET /api/v1/customer/count");
+        assertThat(meterRegistry.get("customer.query.timeouts")
+                .tag("route", "GET /api/v1/customer/count").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void cancel_clientDisconnect_cancelsOpenStatementsAndRefusesNewOnes() throws SQLException {
+        QueryScope scope = new QueryScope("GET /api/v1/customer", Duration.ofSeconds(30));
+        scope.bind();
+        scope.register(statement);
+
+        cancellations.cancel(scope, CancelReason.CLIENT_DISCONNECT);
+        cancellations.cancel(scope, CancelReason.CLIENT_DISCONNECT);
+
+        verify(statement).cancel();
+        assertThatThrownBy(() -> underTest.query("SELECT 1", rs -> null))
+                .isInstanceOf(QueryCancelledException.class);
+        verify(statement, never()).executeQuery(anyString());
+        assertThat(meterRegistry.get("customer.query.cancellations")
+                .tag("reason", "client_disconnect").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void cancelIfAbandoned_writeFails_cancelsScope() {
+        QueryScope scope = new QueryScope("GET /api/v1/customer", Duration.ofSeconds(30));
+        scope.bind();
+        OutputStream closed = OutputStream.nullOutputStream();
+
+        assertThatThrownBy(() -> cancellations.cancelIfAbandoned(out -> {
+            throw new IOException("Broken pipe");
+        }).writeTo(closed)).isInstanceOf(IOException.class);
+
+        assertThat(scope.cancelReason()).isEqualTo(CancelReason.ABANDONED_STREAM);
+        assertThat(meterRegistry.get("customer.query.cancellations")
+                .tag("reason", "abandoned_stream").counter().count()).isEqualTo(1);
+    }
+}
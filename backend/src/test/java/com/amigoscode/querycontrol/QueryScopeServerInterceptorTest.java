@@ -0,0 +1,119 @@
+package com.amigoscode.querycontrol;
+
+import com.amigoscode.grpc.v1.Customer;
+import com.amigoscode.grpc.v1.CustomerServiceGrpc;
+import com.amigoscode.grpc.v1.GetCustomerRequest;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryScopeServerInterceptorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CompletableFuture<QueryScope> seen = new CompletableFuture<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService handlers = Executors.newSingleThreadExecutor();
+    private volatile boolean block;
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        QueryControlProperties properties = new QueryControlProperties(Duration.ofSeconds(5), Map.of(
+                "GRPC amigoscode.customer.v1.CustomerService/GetCustomer", Duration.ofSeconds(10)
+        ));
+        CustomerServiceGrpc.CustomerServiceImplBase service = new CustomerServiceGrpc.CustomerServiceImplBase() {
+            @Override
+            public void getCustomer(GetCustomerRequest request, StreamObserver<Customer> responseObserver) {
+                seen.complete(QueryScope.current());
+                if (block) {
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                responseObserver.onNext(Customer.getDefaultInstance());
+                responseObserver.onCompleted();
+            }
+        };
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+                .executor(handlers)
+                .addService(ServerInterceptors.intercept(
+                        service, new QueryScopeServerInterceptor(properties, new QueryCancellations(meterRegistry))
+                ))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        channel.shutdownNow();
+        server.shutdownNow();
+        handlers.shutdownNow();
+    }
+
+    @Test
+    void call_noDeadline_configuredRouteTimeout() throws Exception {
+        CustomerServiceGrpc.newBlockingStub(channel).getCustomer(GetCustomerRequest.getDefaultInstance());
+
+        QueryScope scope = seen.get(5, TimeUnit.SECONDS);
+        assertThat(scope.route()).isEqualTo("GRPC amigoscode.customer.v1.CustomerService/GetCustomer");
+        assertThat(scope.timeoutSeconds()).isEqualTo(10);
+        // completed normally, nothing cancelled
+        assertThat(scope.isCancelled()).isFalse();
+        assertThat(meterRegistry.find("customer.query.cancellations").counter()).isNull();
+    }
+
+    @Test
+    void call_soonerDeadline_timeoutShortened() throws Exception {
+        CustomerServiceGrpc.newBlockingStub(channel)
+                .withDeadlineAfter(3, TimeUnit.SECONDS)
+                .getCustomer(GetCustomerRequest.getDefaultInstance());
+
+        assertThat(seen.get(5, TimeUnit.SECONDS).timeoutSeconds()).isEqualTo(3);
+    }
+
+    @Test
+    void call_deadlinePassesWhileRunning_scopeCancelled() throws Exception {
+        block = true;
+
+        assertThatThrownBy(() -> CustomerServiceGrpc.newBlockingStub(channel)
+                .withDeadlineAfter(200, TimeUnit.MILLISECONDS)
+                .getCustomer(GetCustomerRequest.getDefaultInstance()))
+                .isInstanceOf(StatusRuntimeException.class);
+
+        QueryScope scope = seen.get(5, TimeUnit.SECONDS);
+        // the server's own deadline timer may fire just after the client's
+        long until = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!scope.isCancelled() && System.nanoTime() < until) {
+            Thread.sleep(10);
+        }
+        // cancelled from the context while the handler was still busy
+        assertThat(scope.cancelReason()).isEqualTo(CancelReason.DEADLINE_EXCEEDED);
+        assertThat(release.getCount()).isEqualTo(1);
+    }
+}
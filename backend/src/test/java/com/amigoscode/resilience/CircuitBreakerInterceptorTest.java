@@ -0,0 +1,145 @@
+package com.amigoscode.resilience;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerDao;
+import com.amigoscode.customer.CustomerField;
+import com.amigoscode.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CircuitBreakerInterceptorTest {
+
+    @Mock
+    private CustomerDao customerDao;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CircuitBreakerProperties properties = new CircuitBreakerProperties(
+            true, Set.of("jdbc"), Duration.ofSeconds(1), 0.5, 0.5, 10, 2, Duration.ofMinutes(1), 1, 100
+    );
+    private final LastKnownGoodCustomers copies = new LastKnownGoodCustomers(properties);
+    private CircuitBreaker circuitBreaker;
+    private CustomerDao underTest;
+
+    @BeforeEach
+    void setUp() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        circuitBreaker = new CircuitBreaker("jdbc", properties, System::nanoTime);
+        ProxyFactory proxyFactory = new ProxyFactory(customerDao);
+        proxyFactory.addInterface(CustomerDao.class);
+        proxyFactory.addAdvice(new CircuitBreakerInterceptor(
+                circuitBreaker,
+                copies,
+                meterRegistry.counter("customer.db.circuit.rejected"),
+                meterRegistry.counter("customer.db.stale.reads")
+        ));
+        underTest = (CustomerDao) proxyFactory.getProxy();
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void selectCustomerById_databaseDown_lastKnownGoodMarkedStale() {
+        Customer alex = new Customer(1L, "Alex", "alex@gmail.com", 20);
+        when(customerDao.selectCustomerById(1L))
+                .thenReturn(Optional.of(alex))
+                .thenThrow(new CannotGetJdbcConnectionException("Connection refused"));
+
+        assertThat(underTest.selectCustomerById(1L)).contains(alex);
+        assertThat(StaleReads.served()).isFalse();
+        Optional<Customer> stale = underTest.selectCustomerById(1L);
+
+        assertThat(stale).hasValueSatisfying(customer -> {
+            assertThat(customer).isNotSameAs(alex);
+            assertThat(customer.getEmail()).isEqualTo("alex@gmail.com");
+        });
+        assertThat(StaleReads.served()).isTrue();
+        assertThat(meterRegistry.counter("customer.db.stale.reads").count()).isEqualTo(1);
+    }
+
+    @Test
+    void open_writesAndUncachedReadsFailFastReadsOfCopiesServed() {
+        when(customerDao.selectCustomersByIds(any())).thenReturn(List.of(
+                new Customer(1L, "Alex", "alex@gmail.com", 20),
+                new Customer(2L, "Jamila", "jamila@gmail.com", 30)
+        ));
+        underTest.selectCustomersByIds(new long[]{1, 2});
+        doThrow(new CannotGetJdbcConnectionException("Connection refused")).when(customerDao).deleteCustomerById(3L);
+        // with the read that makes half of minimum-calls
+        assertThatThrownBy(() -> underTest.deleteCustomerById(3L))
+                .isInstanceOf(ServiceUnavailableException.class)
+                .hasCauseInstanceOf(CannotGetJdbcConnectionException.class);
+        assertThat(circuitBreaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        clearInvocations(customerDao);
+
+        assertThatThrownBy(() -> underTest.updateCustomer(new Customer(1L, "Alex", "alex@gmail.com", 21)))
+                .isInstanceOf(ServiceUnavailableException.class)
+                .hasMessage("Customer database is unavailable, try again later");
+        assertThatThrownBy(() -> underTest.selectCustomerById(3L))
+                .isInstanceOf(ServiceUnavailableException.class);
+        assertThatThrownBy(() -> underTest.selectCustomersByIds(new long[]{1, 3}))
+                .isInstanceOf(ServiceUnavailableException.class);
+        assertThat(underTest.selectCustomersByIds(new long[]{2, 1}))
+                .extracting(Customer::getName).containsExactly("Jamila", "Alex");
+        assertThat(underTest.selectCustomerById(2L, EnumSet.of(CustomerField.AGE)))
+                .hasValueSatisfying(customer -> {
+                    assertThat(customer.getAge()).isEqualTo(30);
+                    assertThat(customer.getName()).isNull();
+                });
+
+        verifyNoInteractions(customerDao);
+        assertThat(meterRegistry.counter("customer.db.circuit.rejected").count()).isEqualTo(5);
+    }
+
+    @Test
+    void databaseAnswersWithError_notCountedAndPassedOn() {
+        Customer duplicate = new Customer("Alex", "alex@gmail.com", 20);
+        doThrow(new DuplicateKeyException("customer_email_unique")).when(customerDao).insertCustomer(duplicate);
+        doThrow(new CannotAcquireLockException("deadlock")).when(customerDao).deleteCustomerById(1L);
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> underTest.insertCustomer(duplicate)).isInstanceOf(DuplicateKeyException.class);
+            assertThatThrownBy(() -> underTest.deleteCustomerById(1L)).isInstanceOf(CannotAcquireLockException.class);
+        }
+
+        assertThat(circuitBreaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void selectCustomerById_deletedAndChanged_copiesFollow() {
+        when(customerDao.selectCustomerById(1L))
+                .thenReturn(Optional.of(new Customer(1L, "Alex", "alex@gmail.com", 20)))
+                .thenReturn(Optional.empty());
+
+        underTest.selectCustomerById(1L);
+        assertThat(copies.size()).isEqualTo(1);
+        underTest.selectCustomerById(1L);
+
+        assertThat(copies.size()).isZero();
+    }
+}
@@ -0,0 +1,130 @@
+package com.amigoscode.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private static final long FAST = Duration.ofMillis(5).toNanos();
+    private static final long SLOW = Duration.ofSeconds(2).toNanos();
+
+    private long now;
+    private final CircuitBreaker underTest = new CircuitBreaker("test", new CircuitBreakerProperties(
+            true, Set.of("jdbc"), Duration.ofSeconds(1), 0.5, 0.5, 10, 4, Duration.ofSeconds(10), 2, 100
+    ), () -> now);
+
+    @Test
+    void onResult_failuresBelowMinimumCalls_staysClosed() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(call(FAST, true)).isTrue();
+        }
+
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void onResult_failureRateReached_openAndRejects() {
+        call(FAST, false);
+        call(FAST, true);
+        call(FAST, false);
+        call(FAST, true);
+
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(underTest.tryAcquire(now, true)).isFalse();
+    }
+
+    @Test
+    void onResult_slowCallRateReached_open() {
+        for (int i = 0; i < 10; i++) {
+            call(FAST, false);
+        }
+        // the window only holds the last 10 calls, so 5 slow ones are half of it
+        for (int i = 0; i < 4; i++) {
+            call(SLOW, false);
+        }
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        call(SLOW, false);
+
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void onResult_untimedSlowCalls_staysClosed() {
+        for (int i = 0; i < 10; i++) {
+            long start = now;
+            underTest.tryAcquire(start, false);
+            now += SLOW;
+            underTest.onResult(start, false, false);
+        }
+
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void tryAcquire_callsStuckPastSlowCallDuration_open() {
+        call(FAST, false);
+        call(FAST, false);
+        for (int i = 0; i < 2; i++) {
+            assertThat(underTest.tryAcquire(now, true)).isTrue();
+        }
+        now += SLOW;
+
+        // 2 of the 4 calls are slow, even though they haven't returned
+        assertThat(underTest.tryAcquire(now, true)).isFalse();
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void tryAcquire_openDurationOver_probesCloseIt() {
+        open();
+        now += Duration.ofSeconds(10).toNanos();
+
+        long start = now;
+        assertThat(underTest.tryAcquire(start, true)).isTrue();
+        assertThat(underTest.tryAcquire(start, true)).isTrue();
+        // only half-open-probes calls at a time
+        assertThat(underTest.tryAcquire(start, true)).isFalse();
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        underTest.onResult(start, true, false);
+        underTest.onResult(start, true, false);
+
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        // with a fresh window
+        call(FAST, true);
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void onResult_slowProbe_openAgain() {
+        open();
+        now += Duration.ofSeconds(10).toNanos();
+
+        call(SLOW, false);
+
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        now += Duration.ofSeconds(9).toNanos();
+        assertThat(underTest.tryAcquire(now, true)).isFalse();
+    }
+
+    private boolean call(long duration, boolean failure) {
+        long start = now;
+        if (!underTest.tryAcquire(start, true)) {
+            return false;
+        }
+        now += duration;
+        underTest.onResult(start, true, failure);
+        return true;
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            call(FAST, true);
+        }
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+}
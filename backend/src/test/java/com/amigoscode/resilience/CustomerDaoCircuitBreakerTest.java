@@ -0,0 +1,111 @@
+package com.amigoscode.resilience;
+
+import com.amigoscode.AbstractTestcontainers;
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerDao;
+import com.amigoscode.customer.CustomerJDBCDataAccessService;
+import com.amigoscode.customer.CustomerRowMapper;
+import com.amigoscode.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerDaoCircuitBreakerTest extends AbstractTestcontainers {
+
+    private FaultInjectingDataSource dataSource;
+    private CustomerDao underTest;
+
+    @BeforeEach
+    void setUp() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        dataSource = new FaultInjectingDataSource(getJdbcTemplate().getDataSource());
+        CircuitBreakerProperties properties = new CircuitBreakerProperties(
+                true, Set.of("jdbc"), Duration.ofMillis(100), 0.5, 0.5, 10, 3, Duration.ofMillis(500), 1, 100
+        );
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("properties", properties);
+        beanFactory.registerSingleton("copies", new LastKnownGoodCustomers(properties));
+        beanFactory.registerSingleton("meterRegistry", new SimpleMeterRegistry());
+        CircuitBreakerPostProcessor postProcessor = new CircuitBreakerPostProcessor(
+                beanFactory.getBeanProvider(CircuitBreakerProperties.class),
+                beanFactory.getBeanProvider(LastKnownGoodCustomers.class),
+                beanFactory.getBeanProvider(MeterRegistry.class)
+        );
+        underTest = (CustomerDao) postProcessor.postProcessAfterInitialization(
+                new CustomerJDBCDataAccessService(new JdbcTemplate(dataSource), new CustomerRowMapper()),
+                "jdbc"
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void stalledDatabase_staleReadsFastFailedWritesThenRecovery() throws InterruptedException {
+        Customer customer = new Customer("Test name", "test-" + UUID.randomUUID() + "@gmail.com", 20);
+        underTest.insertCustomer(customer);
+        long id = customer.getId();
+        assertThat(underTest.selectCustomerById(id)).isPresent();
+
+        dataSource.latency(Duration.ofMillis(150));
+        // slow calls until they are half of the window
+        assertThatThrownBy(() -> {
+            for (int i = 0; i < 10; i++) {
+                underTest.existsPersonWithId(id);
+            }
+        }).isInstanceOf(ServiceUnavailableException.class);
+
+        long start = System.nanoTime();
+        Optional<Customer> stale = underTest.selectCustomerById(id);
+        assertThatThrownBy(() -> underTest.updateCustomer(new Customer(id, "New name", customer.getEmail(), 21)))
+                .isInstanceOf(ServiceUnavailableException.class);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(stale).hasValueSatisfying(c -> assertThat(c.getName()).isEqualTo("Test name"));
+        assertThat(StaleReads.served()).isTrue();
+        assertThat(elapsedMillis).isLessThan(50);
+
+        dataSource.heal();
+        Thread.sleep(600);
+        // the probe reaches the database again and closes the circuit
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        underTest.updateCustomer(new Customer(id, "New name", customer.getEmail(), 21));
+        assertThat(underTest.selectCustomerById(id))
+                .hasValueSatisfying(c -> assertThat(c.getName()).isEqualTo("New name"));
+        assertThat(StaleReads.served()).isFalse();
+    }
+
+    @Test
+    void unreachableDatabase_failuresOpenCircuit() {
+        dataSource.down();
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> underTest.existsPersonWithEmail("nobody@gmail.com"))
+                    .isInstanceOf(ServiceUnavailableException.class)
+                    .hasRootCauseMessage("Injected outage");
+        }
+        dataSource.heal();
+
+        // open, so the healed database isn't even asked
+        assertThatThrownBy(() -> underTest.existsPersonWithEmail("nobody@gmail.com"))
+                .isInstanceOf(ServiceUnavailableException.class)
+                .hasNoCause();
+    }
+}
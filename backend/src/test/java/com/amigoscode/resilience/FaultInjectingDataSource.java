@@ -0,0 +1,60 @@
+package com.amigoscode.resilience;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+// Stands in for a stalled or unreachable Postgres: every connection handed out waits
+// for the injected latency first, and while down none are handed out at all.
+public class FaultInjectingDataSource extends DelegatingDataSource {
+
+    private volatile Duration latency = Duration.ZERO;
+    private volatile boolean down;
+
+    public FaultInjectingDataSource(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    public void latency(Duration latency) {
+        this.latency = latency;
+    }
+
+    public void down() {
+        this.down = true;
+    }
+
+    public void heal() {
+        this.latency = Duration.ZERO;
+        this.down = false;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        inject();
+        return super.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        inject();
+        return super.getConnection(username, password);
+    }
+
+    private void inject() throws SQLException {
+        if (down) {
+            throw new SQLTransientConnectionException("Injected outage", "08001");
+        }
+        if (!latency.isZero()) {
+            try {
+                Thread.sleep(latency.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLTransientConnectionException("Interrupted while injecting latency", "08001", e);
+            }
+        }
+    }
+}
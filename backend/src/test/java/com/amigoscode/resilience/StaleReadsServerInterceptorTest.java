@@ -0,0 +1,94 @@
+package com.amigoscode.resilience;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerService;
+import com.amigoscode.grpc.CustomerGrpcService;
+import com.amigoscode.grpc.GrpcProperties;
+import com.amigoscode.grpc.v1.CustomerServiceGrpc;
+import com.amigoscode.grpc.v1.GetCustomerRequest;
+import io.grpc.ClientInterceptors;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.MetadataUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StaleReadsServerInterceptorTest {
+
+    @Mock
+    private CustomerService customerService;
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        GrpcProperties properties = new GrpcProperties(
+                true, 0, 2, 100, DataSize.ofMegabytes(1), DataSize.ofMegabytes(4),
+                Duration.ofMinutes(1), Duration.ofSeconds(20), Duration.ofSeconds(30), 2, Duration.ofSeconds(1)
+        );
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+                .directExecutor()
+                .addService(ServerInterceptors.intercept(
+                        new CustomerGrpcService(customerService, properties), new StaleReadsServerInterceptor()
+                ))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    void interceptCall_answeredFromStaleCopies_oldestAsOfInTrailer() {
+        when(customerService.getCustomer(1)).thenAnswer(invocation -> {
+            StaleReads.mark(2_000);
+            StaleReads.mark(1_000);
+            StaleReads.mark(3_000);
+            return new Customer(1L, "Alex", "alex@gmail.com", 20);
+        });
+
+        Metadata trailers = getCustomerTrailers();
+
+        assertThat(trailers.get(StaleReadsServerInterceptor.STALE_AS_OF)).isEqualTo("1000");
+    }
+
+    @Test
+    void interceptCall_answeredFromDatabase_noTrailer() {
+        when(customerService.getCustomer(1)).thenReturn(new Customer(1L, "Alex", "alex@gmail.com", 20));
+
+        Metadata trailers = getCustomerTrailers();
+
+        assertThat(trailers.containsKey(StaleReadsServerInterceptor.STALE_AS_OF)).isFalse();
+    }
+
+    private Metadata getCustomerTrailers() {
+        AtomicReference<Metadata> headers = new AtomicReference<>();
+        AtomicReference<Metadata> trailers = new AtomicReference<>();
+        CustomerServiceGrpc.newBlockingStub(ClientInterceptors.intercept(
+                channel, MetadataUtils.newCaptureMetadataInterceptor(headers, trailers)
+        )).getCustomer(GetCustomerRequest.newBuilder().setId(1).build());
+        return trailers.get();
+    }
+}
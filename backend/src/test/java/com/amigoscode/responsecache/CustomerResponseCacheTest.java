@@ -0,0 +1,117 @@
+package com.amigoscode.responsecache;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerChangeEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerResponseCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    void get_secondRequest_servedWithoutLoading() {
+        CustomerResponseCache underTest = cache(DataSize.ofMegabytes(1), DataSize.ofBytes(256));
+
+        EncodedCustomer first = underTest.get(1, this::load);
+        EncodedCustomer second = underTest.get(1, this::load);
+
+        assertThat(loads).hasValue(1);
+        assertThat(second).isSameAs(first);
+        assertThat(new String(first.json(), StandardCharsets.UTF_8))
+                .isEqualTo("{\"id\":1,\"name\":\"Name 1\",\"email\":\"customer1@gmail.com\",\"age\":20}");
+    }
+
+    @Test
+    void onCustomerChange_cachedCustomer_reloadedNextTime() {
+        CustomerResponseCache underTest = cache(DataSize.ofMegabytes(1), DataSize.ofBytes(256));
+        underTest.get(1, this::load);
+
+        underTest.onCustomerChange(CustomerChangeEvent.deleted(load(1)));
+        underTest.get(1, this::load);
+
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void get_invalidatedWhileLoading_notCached() {
+        CustomerResponseCache underTest = cache(DataSize.ofMegabytes(1), DataSize.ofBytes(256));
+
+        underTest.get(1, id -> {
+            underTest.invalidate(id);
+            return load(id);
+        });
+        underTest.get(1, this::load);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void get_olderThanTtl_reloaded() {
+        CustomerResponseCache underTest = cache(DataSize.ofMegabytes(1), DataSize.ofBytes(256));
+        underTest.get(1, this::load);
+
+        nanos.addAndGet(Duration.ofSeconds(29).toNanos());
+        underTest.get(1, this::load);
+        nanos.addAndGet(Duration.ofSeconds(1).toNanos());
+        underTest.get(1, this::load);
+
+        assertThat(loads).hasValue(2);
+        assertThat(underTest.sizeInBytes()).isEqualTo(underTest.encode(load(1)).sizeInBytes());
+    }
+
+    @Test
+    void get_overBudget_leastRecentlyUsedEvicted() {
+        CustomerResponseCache underTest = cache(DataSize.ofKilobytes(64), DataSize.ofBytes(256));
+
+        for (long id = 0; id < 10_000; id++) {
+            underTest.get(id, this::load);
+        }
+
+        assertThat(underTest.sizeInBytes()).isLessThanOrEqualTo(DataSize.ofKilobytes(64).toBytes());
+        assertThat(underTest.sizeInBytes()).isGreaterThan(0);
+    }
+
+    @Test
+    void encode_largeBody_gzipVariantDecodesToJson() throws IOException {
+        CustomerResponseCache underTest = cache(DataSize.ofMegabytes(1), DataSize.ofBytes(16));
+        Customer customer = new Customer(1L, "A".repeat(500), "a@gmail.com", 20);
+
+        EncodedCustomer encoded = underTest.encode(customer);
+
+        assertThat(encoded.gzip()).isNotNull().hasSizeLessThan(encoded.json().length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(encoded.gzip()))) {
+            assertThat(in.readAllBytes()).isEqualTo(encoded.json());
+        }
+    }
+
+    @Test
+    void encode_smallBody_noGzipVariant() {
+        CustomerResponseCache underTest = cache(DataSize.ofMegabytes(1), DataSize.ofBytes(256));
+
+        assertThat(underTest.encode(load(1)).gzip()).isNull();
+    }
+
+    private CustomerResponseCache cache(DataSize maxSize, DataSize gzipMinSize) {
+        return new CustomerResponseCache(new ObjectMapper(), new SimpleMeterRegistry(), maxSize, gzipMinSize,
+                Duration.ofSeconds(30), nanos::get);
+    }
+
+    private Customer load(long id) {
+        loads.incrementAndGet();
+        return new Customer(id, "Name " + id, "customer" + id + "@gmail.com", 20);
+    }
+}
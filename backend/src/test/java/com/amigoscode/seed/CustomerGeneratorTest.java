@@ -0,0 +1,48 @@
+package com.amigoscode.seed;
+
+import com.amigoscode.customer.Customer;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerGeneratorTest {
+
+    @Test
+    void generate_sameSeedAndRow_sameCustomer() {
+        Customer first = new CustomerGenerator(42).generate(1234);
+        Customer second = new CustomerGenerator(42).generate(1234);
+
+        assertThat(second).usingRecursiveComparison().isEqualTo(first);
+    }
+
+    @Test
+    void generate_differentSeeds_differentEmails() {
+        Customer first = new CustomerGenerator(1).generate(0);
+        Customer second = new CustomerGenerator(2).generate(0);
+
+        assertThat(first.getEmail()).isNotEqualTo(second.getEmail());
+    }
+
+    @Test
+    void generate_manyRows_uniqueEmailsAndSkewedAges() {
+        CustomerGenerator underTest = new CustomerGenerator(42);
+        Set<String> emails = new HashSet<>();
+        int rows = 100_000;
+        int underForty = 0;
+
+        for (int row = 0; row < rows; row++) {
+            Customer customer = underTest.generate(row);
+            emails.add(customer.getEmail());
+            assertThat(customer.getAge()).isBetween(16, 99);
+            if (customer.getAge() < 40) {
+                underForty++;
+            }
+        }
+
+        assertThat(emails).hasSize(rows);
+        assertThat(underForty).isGreaterThan(rows * 3 / 4);
+    }
+}
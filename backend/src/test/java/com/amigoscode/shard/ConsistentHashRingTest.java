@@ -0,0 +1,49 @@
+package com.amigoscode.shard;
+
+import com.amigoscode.collection.Hashing;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConsistentHashRingTest {
+
+    @Test
+    void route_manyKeys_spreadEvenly() {
+        ConsistentHashRing<String> underTest = new ConsistentHashRing<>(
+                List.of("a", "b", "c"), List.of("a", "b", "c"), 128
+        );
+        Map<String, Integer> counts = new HashMap<>();
+
+        for (long id = 0; id < 30_000; id++) {
+            counts.merge(underTest.route(Hashing.mix(id)), 1, Integer::sum);
+        }
+
+        assertThat(counts.values()).allSatisfy(count -> assertThat(count).isBetween(8_000, 12_000));
+    }
+
+    @Test
+    void route_nodeAdded_onlyItsShareMoves() {
+        ConsistentHashRing<String> before = new ConsistentHashRing<>(
+                List.of("a", "b", "c"), List.of("a", "b", "c"), 128
+        );
+        ConsistentHashRing<String> after = new ConsistentHashRing<>(
+                List.of("a", "b", "c", "d"), List.of("a", "b", "c", "d"), 128
+        );
+        int moved = 0;
+
+        for (long id = 0; id < 30_000; id++) {
+            String from = before.route(Hashing.mix(id));
+            String to = after.route(Hashing.mix(id));
+            if (!from.equals(to)) {
+                assertThat(to).isEqualTo("d");
+                moved++;
+            }
+        }
+
+        assertThat(moved).isBetween(5_000, 10_000);
+    }
+}
@@ -0,0 +1,149 @@
+package com.amigoscode.shard;
+
+import com.amigoscode.AbstractTestcontainers;
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerCountMode;
+import com.amigoscode.customer.CustomerRowMapper;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.dao.DuplicateKeyException;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// the inherited container is shard-a, two more containers make up the ring
+class ShardedCustomerDataAccessServiceTest extends AbstractTestcontainers {
+
+    @Container
+    private static final PostgreSQLContainer<?> shardB = shardContainer();
+    @Container
+    private static final PostgreSQLContainer<?> shardC = shardContainer();
+
+    private ShardedCustomerDataAccessService underTest;
+
+    @BeforeAll
+    static void migrateShards() {
+        for (PostgreSQLContainer<?> container : List.of(shardB, shardC)) {
+            Flyway.configure()
+                    .dataSource(container.getJdbcUrl(), container.getUsername(), container.getPassword())
+                    .load()
+                    .migrate();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        underTest = new ShardedCustomerDataAccessService(
+                List.of("shard-a", "shard-b", "shard-c"),
+                List.of(dataSource(postgreSQLContainer), dataSource(shardB), dataSource(shardC)),
+                new CustomerRowMapper(),
+                64,
+                new SnowflakeIdGenerator(1)
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.close();
+    }
+
+    @Test
+    void insertCustomer_manyCustomers_spreadOverShardsAndSelectableById() {
+        Set<String> usedShards = new HashSet<>();
+        for (int i = 0; i < 30; i++) {
+            Customer customer = newCustomer();
+            underTest.insertCustomer(customer);
+
+            assertThat(underTest.selectCustomerById(customer.getId()))
+                    .hasValueSatisfying(selected -> assertThat(selected.getEmail()).isEqualTo(customer.getEmail()));
+            usedShards.add(underTest.shardNameForId(customer.getId()));
+        }
+
+        assertThat(usedShards).hasSize(3);
+    }
+
+    @Test
+    void insertCustomer_emailTakenOnAnotherShard_throwDuplicateKeyException() {
+        Customer first = newCustomer();
+        underTest.insertCustomer(first);
+
+        assertThatThrownBy(() -> underTest.insertCustomer(new Customer("Other", first.getEmail(), 30)))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(underTest.existsPersonWithEmail(first.getEmail())).isTrue();
+    }
+
+    @Test
+    void deleteCustomerById_emailReleased() {
+        Customer customer = newCustomer();
+        underTest.insertCustomer(customer);
+
+        underTest.deleteCustomerById(customer.getId());
+
+        assertThat(underTest.existsPersonWithEmail(customer.getEmail())).isFalse();
+        underTest.insertCustomer(new Customer("Again", customer.getEmail(), 30));
+    }
+
+    @Test
+    void patchCustomer_newEmail_oldEmailReleased() {
+        Customer customer = newCustomer();
+        underTest.insertCustomer(customer);
+        String newEmail = "patched-" + UUID.randomUUID() + "@gmail.com";
+
+        underTest.patchCustomer(new Customer(customer.getId(), null, newEmail, null));
+
+        assertThat(underTest.existsPersonWithEmail(customer.getEmail())).isFalse();
+        assertThat(underTest.existsPersonWithEmail(newEmail)).isTrue();
+    }
+
+    @Test
+    void selectCustomersPage_scatterGather_orderedAcrossShards() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Customer customer = newCustomer();
+            underTest.insertCustomer(customer);
+            ids.add(customer.getId());
+        }
+
+        List<Customer> firstPage = underTest.selectCustomersPage(ids.get(0) - 1, 10);
+        List<Customer> secondPage = underTest.selectCustomersPage(firstPage.get(9).getId(), 10);
+
+        assertThat(firstPage).extracting(Customer::getId).isSorted().hasSize(10);
+        assertThat(secondPage).extracting(Customer::getId).isSorted();
+        assertThat(secondPage.get(0).getId()).isGreaterThan(firstPage.get(9).getId());
+        assertThat(underTest.selectAllCustomers()).extracting(Customer::getId).isSorted().containsAll(ids);
+        assertThat(underTest.countCustomers(CustomerCountMode.EXACT).count()).isGreaterThanOrEqualTo(20);
+    }
+
+    private static Customer newCustomer() {
+        return new Customer("Test name", "test-" + UUID.randomUUID() + "@gmail.com", 20);
+    }
+
+    private static PostgreSQLContainer<?> shardContainer() {
+        return new PostgreSQLContainer<>("postgres:latest")
+                .withDatabaseName("amigoscode-shard-test")
+                .withUsername("amigoscode")
+                .withPassword("test-password");
+    }
+
+    private static DataSource dataSource(PostgreSQLContainer<?> container) {
+        return DataSourceBuilder.create()
+                .driverClassName(container.getDriverClassName())
+                .url(container.getJdbcUrl())
+                .username(container.getUsername())
+                .password(container.getPassword())
+                .build();
+    }
+}
@@ -0,0 +1,45 @@
+package com.amigoscode.shard;
+
+import com.amigoscode.collection.LongHashSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnowflakeIdGeneratorTest {
+
+    @Test
+    void nextId_sameMillisecondAndClockStepsBack_uniqueAndIncreasing() {
+        AtomicLong clock = new AtomicLong(SnowflakeIdGenerator.EPOCH + 1_000);
+        SnowflakeIdGenerator underTest = new SnowflakeIdGenerator(7, clock::get);
+        LongHashSet seen = new LongHashSet();
+        long previous = -1;
+
+        for (int i = 0; i < 10_000; i++) {
+            if (i == 5_000) {
+                clock.addAndGet(-500);
+            }
+            long id = underTest.nextId();
+            assertThat(seen.add(id)).isTrue();
+            assertThat(id).isGreaterThan(previous);
+            previous = id;
+        }
+    }
+
+    @Test
+    void nextId_workerEncoded() {
+        SnowflakeIdGenerator underTest = new SnowflakeIdGenerator(42);
+
+        long id = underTest.nextId();
+
+        assertThat(id >>> SnowflakeIdGenerator.SEQUENCE_BITS & SnowflakeIdGenerator.MAX_WORKER).isEqualTo(42);
+    }
+
+    @Test
+    void constructor_workerOutOfRange_throwIllegalArgumentException() {
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_WORKER + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,53 @@
+package com.amigoscode.sqlstats;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlShapeTest {
+
+    @Test
+    void of_literals_replacedWithPlaceholders() {
+        String shape = SqlShape.of("""
+                SELECT id, name FROM customer
+                WHERE email = 'o''brien@gmail.com' AND age > 21 LIMIT 10
+                """);
+
+        assertThat(shape).isEqualTo("SELECT id, name FROM customer WHERE email = ? AND age > ? LIMIT ?");
+    }
+
+    @Test
+    void of_digitsInIdentifiers_kept() {
+        assertThat(SqlShape.of("SELECT count(*) FROM customer_p3 WHERE id > ?"))
+                .isEqualTo("SELECT count(*) FROM customer_p3 WHERE id > ?");
+    }
+
+    @Test
+    void isExplainable_dml_true() {
+        assertThat(SqlShape.isExplainable("  select 1")).isTrue();
+        assertThat(SqlShape.isExplainable("WITH x AS (SELECT 1) SELECT * FROM x")).isTrue();
+        assertThat(SqlShape.isExplainable("DELETE FROM customer WHERE id = ?")).isTrue();
+    }
+
+    @Test
+    void isExplainable_ddlAndSession_false() {
+        assertThat(SqlShape.isExplainable("SET LOCAL statement_timeout = 100")).isFalse();
+        assertThat(SqlShape.isExplainable("CREATE INDEX ON customer (age)")).isFalse();
+        assertThat(SqlShape.isExplainable("")).isFalse();
+    }
+
+    @Test
+    void isSafeToAnalyze_plainReads_true() {
+        assertThat(SqlShape.isSafeToAnalyze("SELECT * FROM customer WHERE name = 'update'")).isTrue();
+        assertThat(SqlShape.isSafeToAnalyze("WITH x AS (SELECT 1) SELECT * FROM x")).isTrue();
+    }
+
+    @Test
+    void isSafeToAnalyze_writesLocksAndSequences_false() {
+        assertThat(SqlShape.isSafeToAnalyze("INSERT INTO customer(name) VALUES (?)")).isFalse();
+        assertThat(SqlShape.isSafeToAnalyze("WITH written AS (DELETE FROM customer RETURNING id) SELECT count(*) FROM written")).isFalse();
+        assertThat(SqlShape.isSafeToAnalyze("SELECT id FROM customer WHERE id = ANY(?) FOR UPDATE")).isFalse();
+        assertThat(SqlShape.isSafeToAnalyze("SELECT id FROM customer_outbox FOR NO KEY UPDATE SKIP LOCKED")).isFalse();
+        assertThat(SqlShape.isSafeToAnalyze("select nextval('customer_id_seq')")).isFalse();
+    }
+}
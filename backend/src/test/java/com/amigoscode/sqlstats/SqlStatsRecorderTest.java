@@ -0,0 +1,150 @@
+package com.amigoscode.sqlstats;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SqlStatsRecorderTest {
+
+    private static final String PLAN = """
+            [{"Plan": {"Node Type": "Limit", "Total Cost": 8.3, "Plans": [
+                {"Node Type": "Index Scan", "Relation Name": "customer", "Index Name": "customer_pkey", "Actual Rows": 1}
+            ]}}]
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void record_statementsThroughDataSource_groupedByShape() throws Exception {
+        SqlStatsRecorder underTest = recorder(Duration.ofHours(1));
+        DataSource target = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        PreparedStatement prepared = mock(PreparedStatement.class);
+        when(target.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.prepareStatement(anyString())).thenReturn(prepared);
+
+        try (Connection instrumented = new InstrumentedDataSource(target, underTest).getConnection()) {
+            instrumented.createStatement().execute("SELECT * FROM customer WHERE id = 1");
+            instrumented.createStatement().execute("SELECT * FROM customer WHERE id = 2");
+            PreparedStatement ps = instrumented.prepareStatement("DELETE FROM customer WHERE id = ?");
+            ps.setLong(1, 3);
+            ps.executeUpdate();
+        }
+
+        SqlStatsReport report = underTest.report();
+        assertThat(report.shapes())
+                .extracting(SqlShapeStats::shape, SqlShapeStats::count, SqlShapeStats::slowCount)
+                .containsExactlyInAnyOrder(
+                        tuple("SELECT * FROM customer WHERE id = ?", 2L, 0L),
+                        tuple("DELETE FROM customer WHERE id = ?", 1L, 0L)
+                );
+        verify(prepared).setLong(1, 3);
+        verify(prepared).executeUpdate();
+    }
+
+    @Test
+    void explain_slowDelete_plannedWithoutAnalyzeAndRolledBack() throws Exception {
+        SqlStatsRecorder underTest = recorder(Duration.ZERO);
+        DataSource target = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        PreparedStatement explain = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(target.getConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.prepareStatement("EXPLAIN (FORMAT JSON) DELETE FROM customer WHERE id = ?"))
+                .thenReturn(explain);
+        when(explain.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getString(1)).thenReturn(PLAN);
+        SqlExecution execution = new SqlExecution("DELETE FROM customer WHERE id = ?", 1_000_000, 1, List.of(
+                new SqlExecution.Binding(PreparedStatement.class.getMethod("setLong", int.class, long.class),
+                        new Object[]{1, 3L})
+        ));
+
+        underTest.explain(new SqlStatsRecorder.ShapeStats(), execution, target);
+
+        InOrder inOrder = inOrder(connection, explain);
+        inOrder.verify(connection).setAutoCommit(false);
+        inOrder.verify(explain).setLong(1, 3L);
+        inOrder.verify(explain).executeQuery();
+        inOrder.verify(connection).rollback();
+        inOrder.verify(connection).setAutoCommit(true);
+        verify(statement).execute("SET LOCAL statement_timeout = 5000");
+        assertThat(underTest.report().slowQueries())
+                .singleElement()
+                .satisfies(sample -> {
+                    assertThat(sample.shape()).isEqualTo("DELETE FROM customer WHERE id = ?");
+                    assertThat(sample.durationMicros()).isEqualTo(1_000);
+                    assertThat(sample.planFingerprint()).isEqualTo("Limit(Index Scan[customer_pkey on customer])");
+                });
+    }
+
+    @Test
+    void redact_boundValuesInConditions_replacedAndFingerprintKept() throws Exception {
+        JsonNode plan = objectMapper.readTree("""
+                [{"Plan": {"Node Type": "Index Scan", "Relation Name": "customer", "Index Name": "customer_email_idx",
+                    "Index Cond": "((email)::text = 'alex''s@gmail.com'::text)", "Filter": "(age > 30)",
+                    "Output": ["id", "name"]}}]
+                """);
+        String fingerprint = SqlStatsRecorder.fingerprint(plan.path(0).path("Plan"));
+
+        JsonNode redacted = SqlStatsRecorder.redact(plan).path(0).path("Plan");
+
+        assertThat(redacted.path("Index Cond").asText()).isEqualTo("((email)::text = ?::text)");
+        assertThat(redacted.path("Filter").asText()).isEqualTo("(age > ?)");
+        assertThat(redacted.path("Output").get(1).asText()).isEqualTo("name");
+        assertThat(SqlStatsRecorder.fingerprint(redacted)).isEqualTo(fingerprint);
+    }
+
+    @Test
+    void fingerprint_costsAndRowCounts_ignored() throws Exception {
+        String other = PLAN.replace("8.3", "1200.5").replace("\"Actual Rows\": 1", "\"Actual Rows\": 900");
+
+        assertThat(SqlStatsRecorder.fingerprint(objectMapper.readTree(other).path(0).path("Plan")))
+                .isEqualTo(SqlStatsRecorder.fingerprint(objectMapper.readTree(PLAN).path(0).path("Plan")));
+    }
+
+    @Test
+    void report_percentiles_withinFactorOfTwo() {
+        SqlStatsRecorder.ShapeStats stats = new SqlStatsRecorder.ShapeStats();
+        for (int i = 0; i < 99; i++) {
+            stats.record(100_000);
+        }
+        stats.record(50_000_000);
+
+        SqlShapeStats snapshot = stats.snapshot("SELECT ?");
+
+        assertThat(snapshot.p50Micros()).isBetween(100L, 200L);
+        assertThat(snapshot.p99Micros()).isBetween(100L, 200L);
+        assertThat(snapshot.maxMicros()).isEqualTo(50_000);
+        assertThat(snapshot.count()).isEqualTo(100);
+    }
+
+    private SqlStatsRecorder recorder(Duration slowThreshold) {
+        return new SqlStatsRecorder(
+                new SqlStatsProperties(true, slowThreshold, Duration.ofMinutes(1), 16, 100, Duration.ofSeconds(5)),
+                objectMapper
+        );
+    }
+}
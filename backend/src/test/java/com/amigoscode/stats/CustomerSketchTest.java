@@ -0,0 +1,114 @@
+package com.amigoscode.stats;
+
+import com.amigoscode.customer.Customer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerSketchTest {
+
+    private static final List<Double> QUANTILES = List.of(0.25, 0.5, 0.99, 0.999);
+    private static final List<Integer> BUCKETS = List.of(18, 30);
+
+    @Test
+    void ageStats_agesOneToHundred_exactQuantilesAndBuckets() {
+        CustomerSketch underTest = new CustomerSketch(14);
+        for (int age = 1; age <= 100; age++) {
+            underTest.add(customer(age, "customer" + age + "@gmail.com"));
+        }
+
+        CustomerStats.AgeStats stats = underTest.ageStats(QUANTILES, BUCKETS);
+
+        assertThat(stats.min()).isEqualTo(1);
+        assertThat(stats.max()).isEqualTo(100);
+        assertThat(stats.mean()).isEqualTo(50.5);
+        assertThat(stats.quantiles()).containsExactly(
+                Map.entry("p25", 25),
+                Map.entry("p50", 50),
+                Map.entry("p99", 99),
+                Map.entry("p99.9", 100)
+        );
+        assertThat(stats.buckets()).containsExactly(
+                new CustomerStats.AgeBucket(0, 17, 17),
+                new CustomerStats.AgeBucket(18, 29, 12),
+                new CustomerStats.AgeBucket(30, null, 71)
+        );
+        assertThat(underTest.emailDomainStats().distinct()).isEqualTo(1);
+    }
+
+    @Test
+    void remove_ageTakenOutDomainStaysCounted() {
+        CustomerSketch underTest = new CustomerSketch(14);
+        Customer alex = customer(20, "alex@gmail.com");
+        underTest.add(alex);
+        underTest.add(customer(40, "jamila@amigoscode.com"));
+
+        boolean exact = underTest.remove(alex);
+
+        assertThat(exact).isFalse();
+        assertThat(underTest.customers()).isEqualTo(1);
+        assertThat(underTest.ageStats(QUANTILES, BUCKETS).min()).isEqualTo(40);
+        assertThat(underTest.emailDomainStats().distinct()).isEqualTo(2);
+    }
+
+    @Test
+    void update_ageAndSameDomainEmail_exact() {
+        CustomerSketch underTest = new CustomerSketch(14);
+        Customer before = customer(20, "alex@gmail.com");
+        underTest.add(before);
+
+        boolean exact = underTest.update(before, customer(21, "alex.new@GMAIL.com"));
+
+        assertThat(exact).isTrue();
+        assertThat(underTest.customers()).isEqualTo(1);
+        assertThat(underTest.ageStats(QUANTILES, BUCKETS).min()).isEqualTo(21);
+        assertThat(underTest.emailDomainStats().distinct()).isEqualTo(1);
+    }
+
+    @Test
+    void update_newDomain_inexact() {
+        CustomerSketch underTest = new CustomerSketch(14);
+        Customer before = customer(20, "alex@gmail.com");
+        underTest.add(before);
+
+        boolean exact = underTest.update(before, customer(20, "alex@amigoscode.com"));
+
+        assertThat(exact).isFalse();
+        assertThat(underTest.emailDomainStats().distinct()).isEqualTo(2);
+    }
+
+    @Test
+    void merge_twoHalves_sameAsOneSketch() {
+        CustomerSketch whole = new CustomerSketch(12);
+        CustomerSketch first = new CustomerSketch(12);
+        CustomerSketch second = new CustomerSketch(12);
+        for (int i = 0; i < 1_000; i++) {
+            Customer customer = customer(16 + i % 80, "customer@domain" + i % 300 + ".com");
+            whole.add(customer);
+            (i % 2 == 0 ? first : second).add(customer);
+        }
+
+        first.merge(second);
+
+        assertThat(first.customers()).isEqualTo(whole.customers());
+        assertThat(first.ageStats(QUANTILES, BUCKETS)).isEqualTo(whole.ageStats(QUANTILES, BUCKETS));
+        assertThat(first.emailDomainStats()).isEqualTo(whole.emailDomainStats());
+    }
+
+    @Test
+    void ageStats_empty_noAgesZeroCounts() {
+        CustomerStats.AgeStats stats = new CustomerSketch(14).ageStats(QUANTILES, BUCKETS);
+
+        assertThat(stats.min()).isNull();
+        assertThat(stats.mean()).isNull();
+        assertThat(stats.quantiles()).containsValues((Integer) null);
+        assertThat(stats.buckets()).extracting(CustomerStats.AgeBucket::count).containsOnly(0L);
+    }
+
+    private static Customer customer(int age, String email) {
+        return new Customer("Customer", email, age);
+    }
+}
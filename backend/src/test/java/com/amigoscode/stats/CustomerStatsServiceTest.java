@@ -0,0 +1,157 @@
+package com.amigoscode.stats;
+
+import com.amigoscode.collection.HyperLogLog;
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerChangeEvent;
+import com.amigoscode.customer.CustomerDao;
+import com.amigoscode.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerStatsServiceTest {
+
+    @Mock
+    private CustomerDao customerDao;
+    @Mock
+    private CustomerStatsCheckpointDao checkpointDao;
+
+    @Test
+    void stats_notBuilt_throwServiceUnavailableException() {
+        CustomerStatsService underTest = service(true, 0.01);
+
+        assertThatThrownBy(underTest::stats)
+                .isInstanceOf(ServiceUnavailableException.class)
+                .hasMessage("Customer stats are still being built");
+    }
+
+    @Test
+    void rebuild_streamingScan_statsFromSketch() {
+        CustomerStatsService underTest = service(true, 0.01);
+        scan(customer(1, 20, "alex@gmail.com"), customer(2, 40, "jamila@amigoscode.com"));
+
+        underTest.rebuild();
+        CustomerStats stats = underTest.stats();
+
+        assertThat(stats.customers()).isEqualTo(2);
+        assertThat(stats.age().quantiles()).containsEntry("p50", 20);
+        assertThat(stats.emailDomains().distinct()).isEqualTo(2);
+        assertThat(stats.source()).isEqualTo(CustomerStats.Source.SCAN);
+        assertThat(stats.unreconciledChanges()).isZero();
+        // unchanged, so the same answer without recomputing
+        assertThat(underTest.stats()).isSameAs(stats);
+    }
+
+    @Test
+    void onCustomerChange_insertsUpdatesDeletes_appliedIncrementally() {
+        CustomerStatsService underTest = service(true, 0.01);
+        Customer alex = customer(1, 20, "alex@gmail.com");
+        scan(alex);
+        underTest.rebuild();
+
+        Customer jamila = customer(2, 40, "jamila@gmail.com");
+        underTest.onCustomerChange(CustomerChangeEvent.inserted(jamila));
+        underTest.onCustomerChange(CustomerChangeEvent.updated(alex, customer(1, 30, "alex@gmail.com")));
+        underTest.onCustomerChange(CustomerChangeEvent.deleted(jamila));
+        underTest.onCustomerChange(CustomerChangeEvent.updated(null, customer(1, 31, "alex@gmail.com")));
+        CustomerStats stats = underTest.stats();
+
+        assertThat(stats.customers()).isEqualTo(1);
+        assertThat(stats.age().min()).isEqualTo(30);
+        assertThat(stats.age().max()).isEqualTo(30);
+        // the delete leaves its domain in the estimate, the patch has no previous row
+        assertThat(stats.unreconciledChanges()).isEqualTo(2);
+        verify(customerDao, times(1)).forEachCustomer(any(), any());
+    }
+
+    @Test
+    void onCustomerChange_tooManyUnreconciled_rebuiltInBackground() {
+        CustomerStatsService underTest = service(true, 0.01);
+        scan();
+        underTest.rebuild();
+
+        for (int i = 0; i < 1_001; i++) {
+            underTest.onCustomerChange(CustomerChangeEvent.updated(null, customer(1, 30, "alex@gmail.com")));
+        }
+
+        verify(customerDao, timeout(5_000).times(2)).forEachCustomer(any(), any());
+    }
+
+    @Test
+    void checkpoint_onlyWhenChanged() {
+        CustomerStatsService underTest = service(true, 0.01);
+        scan(customer(1, 20, "alex@gmail.com"));
+        underTest.rebuild();
+
+        underTest.checkpoint();
+        underTest.checkpoint();
+        underTest.onCustomerChange(CustomerChangeEvent.inserted(customer(2, 40, "jamila@gmail.com")));
+        underTest.checkpoint();
+
+        ArgumentCaptor<CustomerStatsCheckpoint> checkpointCaptor = ArgumentCaptor.forClass(CustomerStatsCheckpoint.class);
+        verify(checkpointDao, times(2)).upsert(checkpointCaptor.capture());
+        CustomerStatsCheckpoint last = checkpointCaptor.getValue();
+        assertThat(last.customers()).isEqualTo(2);
+        assertThat(last.ageCounts()[20]).isEqualTo(1);
+        assertThat(last.ageCounts()[40]).isEqualTo(1);
+        assertThat(HyperLogLog.of(last.emailDomainRegisters()).estimate()).isEqualTo(1);
+    }
+
+    @Test
+    void start_checkpointWithoutScanOnStart_servedFromCheckpoint() {
+        CustomerStatsService underTest = service(false, 0.01);
+        long[] ageCounts = new long[CustomerSketch.MAX_AGE + 1];
+        ageCounts[33] = 7;
+        HyperLogLog domains = new HyperLogLog(14);
+        Instant builtAt = Instant.parse("2026-01-01T00:00:00Z");
+        when(checkpointDao.selectLatest()).thenReturn(Optional.of(new CustomerStatsCheckpoint(
+                7, ageCounts, domains.registers(), 3, builtAt, builtAt.plusSeconds(60)
+        )));
+
+        underTest.start();
+        CustomerStats stats = underTest.stats();
+
+        assertThat(stats.customers()).isEqualTo(7);
+        assertThat(stats.age().quantiles()).containsEntry("p50", 33);
+        assertThat(stats.source()).isEqualTo(CustomerStats.Source.CHECKPOINT);
+        assertThat(stats.builtAt()).isEqualTo(builtAt);
+        assertThat(stats.unreconciledChanges()).isEqualTo(3);
+        verifyNoInteractions(customerDao);
+        // nothing changed since it was loaded
+        underTest.checkpoint();
+        verify(checkpointDao, never()).upsert(any());
+    }
+
+    private CustomerStatsService service(boolean scanOnStart, double maxUnreconciled) {
+        return new CustomerStatsService(customerDao, checkpointDao, new CustomerStatsProperties(
+                scanOnStart, 14, List.of(0.5), List.of(18, 65), maxUnreconciled
+        ));
+    }
+
+    private void scan(Customer... customers) {
+        doAnswer(invocation -> {
+            Consumer<Customer> action = invocation.getArgument(1);
+            for (Customer customer : customers) {
+                action.accept(customer);
+            }
+            return null;
+        }).when(customerDao).forEachCustomer(any(), any());
+    }
+
+    private static Customer customer(long id, int age, String email) {
+        return new Customer(id, "Customer", email, age);
+    }
+}
@@ -0,0 +1,96 @@
+package com.amigoscode.suggest;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerChangeEvent;
+import com.amigoscode.customer.CustomerListDataAccessService;
+import com.amigoscode.exception.RequestValidationException;
+import com.amigoscode.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerSuggestIndexTest {
+
+    private CustomerListDataAccessService customerDao;
+    private CustomerSuggestIndex underTest;
+
+    @BeforeEach
+    void setUp() {
+        customerDao = new CustomerListDataAccessService();
+        underTest = new CustomerSuggestIndex(customerDao);
+        underTest.build();
+    }
+
+    @Test
+    void suggest_nameEmailAndLaterWordPrefixes_matched() {
+        insert(new Customer("Zoë Smith", "zoe.smith@gmail.com", 30));
+
+        assertThat(underTest.suggest("ZOE", 10)).extracting(CustomerSuggestion::email)
+                .containsExactly("zoe.smith@gmail.com");
+        assertThat(underTest.suggest("smi", 10)).extracting(CustomerSuggestion::name)
+                .containsExactly("Zoë Smith");
+        assertThat(underTest.suggest("alex@", 10)).extracting(CustomerSuggestion::name)
+                .containsExactly("Alex");
+    }
+
+    @Test
+    void suggest_severalMatches_closestCompletionFirst() {
+        insert(new Customer("Samantha Jones", "samantha@gmail.com", 30));
+        insert(new Customer("Sam", "sam.o@gmail.com", 30));
+        insert(new Customer("Anna Sams", "anna@gmail.com", 30));
+
+        assertThat(underTest.suggest("sam", 10)).extracting(CustomerSuggestion::name)
+                .containsExactly("Sam", "Anna Sams", "Samantha Jones");
+    }
+
+    @Test
+    void suggest_beforeBuilt_throwsServiceUnavailableException() {
+        CustomerSuggestIndex building = new CustomerSuggestIndex(customerDao);
+
+        assertThatThrownBy(() -> building.suggest("alex", 10))
+                .isInstanceOf(ServiceUnavailableException.class)
+                .hasMessage("Customer suggestions are still being built");
+    }
+
+    @Test
+    void suggest_limit_topKDistinctCustomers() {
+        for (int i = 0; i < 20; i++) {
+            insert(new Customer("Sam " + i, "sam" + i + "@gmail.com", 30));
+        }
+
+        assertThat(underTest.suggest("sam", 5)).hasSize(5).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void onCustomerChange_updateAndDelete_indexFollows() {
+        Customer customer = new Customer("Old Name", "old@gmail.com", 30);
+        insert(customer);
+        Customer before = new Customer(customer.getId(), "Old Name", "old@gmail.com", 30);
+        Customer after = new Customer(customer.getId(), "New Name", "old@gmail.com", 30);
+
+        underTest.onCustomerChange(CustomerChangeEvent.updated(before, after));
+
+        assertThat(underTest.suggest("old n", 10)).isEmpty();
+        assertThat(underTest.suggest("new", 10)).extracting(CustomerSuggestion::id).containsExactly(customer.getId());
+
+        underTest.onCustomerChange(CustomerChangeEvent.deleted(after));
+
+        assertThat(underTest.suggest("new", 10)).isEmpty();
+        assertThat(underTest.suggest("old@", 10)).isEmpty();
+    }
+
+    @Test
+    void suggest_blankQueryOrBadLimit_throwRequestValidationException() {
+        assertThatThrownBy(() -> underTest.suggest("  ", 10)).isInstanceOf(RequestValidationException.class);
+        assertThatThrownBy(() -> underTest.suggest("a", 0)).isInstanceOf(RequestValidationException.class);
+        assertThatThrownBy(() -> underTest.suggest("a", CustomerSuggestIndex.MAX_LIMIT + 1))
+                .isInstanceOf(RequestValidationException.class);
+    }
+
+    private void insert(Customer customer) {
+        customerDao.insertCustomer(customer);
+        underTest.onCustomerChange(CustomerChangeEvent.inserted(customer));
+    }
+}
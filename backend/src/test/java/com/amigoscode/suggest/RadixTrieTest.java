@@ -0,0 +1,83 @@
+package com.amigoscode.suggest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RadixTrieTest {
+
+    private final RadixTrie underTest = new RadixTrie();
+
+    @Test
+    void visit_prefix_shortestKeysFirst() {
+        underTest.add("samantha", 1);
+        underTest.add("sam smith", 2);
+        underTest.add("sam", 3);
+        underTest.add("sami", 4);
+        underTest.add("samd", 5);
+
+        assertThat(visit("sa")).containsExactly(3L, 5L, 4L, 1L, 2L);
+    }
+
+    @Test
+    void visit_prefix_idsInKeyOrder() {
+        underTest.add("jamila", 2);
+        underTest.add("james", 3);
+        underTest.add("jam", 1);
+        underTest.add("alex", 4);
+
+        assertThat(visit("ja")).containsExactly(1L, 3L, 2L);
+        assertThat(visit("jami")).containsExactly(2L);
+        assertThat(visit("jx")).isEmpty();
+        assertThat(visit("jamilah")).isEmpty();
+    }
+
+    @Test
+    void visit_visitorStops_noMoreIds() {
+        underTest.add("a", 1);
+        underTest.add("ab", 2);
+        underTest.add("abc", 3);
+        List<Long> ids = new ArrayList<>();
+
+        underTest.visit("a", id -> {
+            ids.add(id);
+            return ids.size() < 2;
+        });
+
+        assertThat(ids).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void remove_key_prunedAndSiblingsKept() {
+        underTest.add("james", 3);
+        underTest.add("jamila", 2);
+        underTest.add("jam", 1);
+
+        underTest.remove("jam", 1);
+        underTest.remove("james", 3);
+
+        assertThat(visit("j")).containsExactly(2L);
+        assertThat(underTest.keys()).isEqualTo(1);
+        underTest.add("jam", 5);
+        assertThat(visit("jam")).containsExactly(5L, 2L);
+    }
+
+    @Test
+    void remove_oneOfSeveralIds_otherIdsKept() {
+        underTest.add("smith", 1);
+        underTest.add("smith", 2);
+
+        underTest.remove("smith", 1);
+
+        assertThat(visit("smi")).containsExactly(2L);
+    }
+
+    private List<Long> visit(String prefix) {
+        List<Long> ids = new ArrayList<>();
+        underTest.visit(prefix, id -> ids.add(id));
+        return ids;
+    }
+}
@@ -0,0 +1,88 @@
+package com.amigoscode.warmup;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerRowMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.mock.env.MockEnvironment;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class CustomerWarmUpTest {
+
+    @Test
+    void run_databaseDown_stillReportsAndLetsStartupFinish() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenThrow(new SQLException("connection refused"));
+        CustomerWarmUp underTest = warmUp(true, dataSource);
+
+        underTest.run(new DefaultApplicationArguments());
+
+        WarmUpReport report = underTest.report();
+        assertThat(report.connectionsPrimed()).isZero();
+        assertThat(report.requests()).isZero();
+        assertThat(report.budgetExhausted()).isFalse();
+    }
+
+    @Test
+    void run_disabled_noReport() {
+        DataSource dataSource = mock(DataSource.class);
+        CustomerWarmUp underTest = warmUp(false, dataSource);
+
+        underTest.run(new DefaultApplicationArguments());
+
+        assertThat(underTest.report()).isNull();
+        verifyNoInteractions(dataSource);
+    }
+
+    @Test
+    void uris_sample_everyReadEndpoint() {
+        List<URI> uris = CustomerWarmUp.uris("http://localhost:8080/api/v1/customer", List.of(
+                new Customer(1L, "Alex", "alex@gmail.com", 21),
+                new Customer(2L, "Élodie", "elodie@gmail.com", 30)
+        ));
+
+        assertThat(uris).map(URI::toString).containsExactly(
+                "http://localhost:8080/api/v1/customer/count",
+                "http://localhost:8080/api/v1/customer/1",
+                "http://localhost:8080/api/v1/customer/1?fields=id,name,email",
+                "http://localhost:8080/api/v1/customer?ids=1,2",
+                "http://localhost:8080/api/v1/customer/suggest?q=Al",
+                "http://localhost:8080/api/v1/customer/2",
+                "http://localhost:8080/api/v1/customer/2?fields=id,name,email",
+                "http://localhost:8080/api/v1/customer?ids=1,2",
+                "http://localhost:8080/api/v1/customer/suggest?q=%C3%89l"
+        );
+    }
+
+    @Test
+    void latency_percentilesOverWindow() {
+        long[] nanos = new long[200];
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = (i + 1) * 1_000L;
+        }
+
+        WarmUpReport.Latency latency = WarmUpReport.Latency.of(nanos, 100, 200);
+
+        assertThat(latency).isEqualTo(new WarmUpReport.Latency(150, 199, 200));
+        assertThat(WarmUpReport.Latency.of(nanos, 0, 0)).isEqualTo(new WarmUpReport.Latency(0, 0, 0));
+    }
+
+    private static CustomerWarmUp warmUp(boolean enabled, DataSource dataSource) {
+        return new CustomerWarmUp(
+                new WarmUpProperties(enabled, Duration.ofSeconds(5), 10, 6, 100, 20),
+                dataSource,
+                new CustomerRowMapper(),
+                new MockEnvironment()
+        );
+    }
+}